@@ -1,9 +1,15 @@
 package com.smockin.admin.controller;
 
 import com.smockin.admin.dto.HttpClientCallDTO;
+import com.smockin.admin.dto.response.CircuitBreakerStateDTO;
+import com.smockin.admin.dto.response.HttpClientPoolStatsDTO;
 import com.smockin.admin.dto.response.HttpClientResponseDTO;
+import com.smockin.admin.dto.response.UpstreamResponseCacheStatsDTO;
 import com.smockin.admin.exception.ValidationException;
+import com.smockin.admin.service.CircuitBreakerService;
+import com.smockin.admin.service.HttpClientPoolService;
 import com.smockin.admin.service.HttpClientService;
+import com.smockin.admin.service.UpstreamResponseCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -14,6 +20,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.util.List;
+
 /**
  * Created by mgallina.
  */
@@ -23,9 +31,45 @@ public class HttpClientController {
     @Autowired
     private HttpClientService httpClientService;
 
+    @Autowired
+    private HttpClientPoolService httpClientPoolService;
+
+    @Autowired
+    private UpstreamResponseCacheService upstreamResponseCacheService;
+
+    @Autowired
+    private CircuitBreakerService circuitBreakerService;
+
     @RequestMapping(path="/httpclientcall", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     public @ResponseBody ResponseEntity<HttpClientResponseDTO> httpClientCall(@RequestBody final HttpClientCallDTO httpClientCallDTO) throws ValidationException {
         return new ResponseEntity<HttpClientResponseDTO>(httpClientService.handleCall(httpClientCallDTO), HttpStatus.OK);
     }
 
+    @RequestMapping(path="/httpclientcall/pool/stats", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<HttpClientPoolStatsDTO> poolStats() {
+        return new ResponseEntity<>(httpClientPoolService.getStats(), HttpStatus.OK);
+    }
+
+    @RequestMapping(path="/httpclientcall/cache/stats", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<UpstreamResponseCacheStatsDTO> cacheStats() {
+        return new ResponseEntity<>(upstreamResponseCacheService.getStats(), HttpStatus.OK);
+    }
+
+    @RequestMapping(path="/httpclientcall/cache", method = RequestMethod.DELETE)
+    public @ResponseBody ResponseEntity<?> clearCache() {
+        upstreamResponseCacheService.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    @RequestMapping(path="/httpclientcall/breaker", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<List<CircuitBreakerStateDTO>> breakerStates() {
+        return new ResponseEntity<>(circuitBreakerService.getStates(), HttpStatus.OK);
+    }
+
+    @RequestMapping(path="/httpclientcall/breaker", method = RequestMethod.DELETE)
+    public @ResponseBody ResponseEntity<?> resetBreakers() {
+        circuitBreakerService.reset();
+        return ResponseEntity.noContent().build();
+    }
+
 }
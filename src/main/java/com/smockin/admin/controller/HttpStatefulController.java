@@ -1,7 +1,12 @@
 package com.smockin.admin.controller;
 
+import com.smockin.admin.dto.response.StatefulImportResultDTO;
+import com.smockin.admin.dto.response.StatefulQuotaStatsDTO;
+import com.smockin.admin.dto.response.StatefulUsageStatsDTO;
+import com.smockin.admin.enums.StatefulStreamFormatEnum;
 import com.smockin.admin.exception.RecordNotFoundException;
 import com.smockin.admin.exception.ValidationException;
+import com.smockin.mockserver.service.StatefulQuotaService;
 import com.smockin.mockserver.service.StatefulService;
 import com.smockin.utils.GeneralUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +16,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
 /**
  * Created by mgallina.
  */
@@ -20,6 +29,9 @@ public class HttpStatefulController {
     @Autowired
     private StatefulService statefulService;
 
+    @Autowired
+    private StatefulQuotaService statefulQuotaService;
+
     @RequestMapping(path="/stateful/{extId}/clear", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     public @ResponseBody ResponseEntity<?> clearDataState(@PathVariable("extId") final String extId,
                                                         @RequestHeader(value = GeneralUtils.OAUTH_HEADER_NAME, required = false) final String bearerToken)
@@ -30,4 +42,43 @@ public class HttpStatefulController {
         return new ResponseEntity<String>(HttpStatus.NO_CONTENT);
     }
 
+    @RequestMapping(path="/stateful/{extId}/import", method = RequestMethod.POST, consumes = { MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson" }, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<StatefulImportResultDTO> importDataState(@PathVariable("extId") final String extId,
+                                                                                 @RequestParam(value = "append", required = false, defaultValue = "false") final boolean append,
+                                                                                 @RequestHeader(value = GeneralUtils.OAUTH_HEADER_NAME, required = false) final String bearerToken,
+                                                                                 final HttpServletRequest request)
+                                                                                    throws RecordNotFoundException, ValidationException, IOException {
+        return new ResponseEntity<>(statefulService.importState(extId, request.getInputStream(), append, GeneralUtils.extractOAuthToken(bearerToken)), HttpStatus.OK);
+    }
+
+    @RequestMapping(path="/stateful/{extId}/export", method = RequestMethod.GET)
+    public void exportDataState(@PathVariable("extId") final String extId,
+                                @RequestParam(value = "format", required = false, defaultValue = "json") final String format,
+                                @RequestHeader(value = GeneralUtils.OAUTH_HEADER_NAME, required = false) final String bearerToken,
+                                final HttpServletResponse response)
+                                    throws RecordNotFoundException, ValidationException, IOException {
+
+        final StatefulStreamFormatEnum streamFormat = StatefulStreamFormatEnum.findByName(format);
+
+        if (streamFormat == null) {
+            throw new ValidationException("Invalid format: " + format);
+        }
+
+        response.setContentType(streamFormat.getContentType() + ";charset=UTF-8");
+
+        statefulService.exportState(extId, streamFormat, GeneralUtils.extractOAuthToken(bearerToken), response.getOutputStream());
+
+        response.flushBuffer();
+    }
+
+    @RequestMapping(path="/stateful/stats", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<StatefulQuotaStatsDTO> getStats() {
+        return new ResponseEntity<>(statefulQuotaService.getStats(), HttpStatus.OK);
+    }
+
+    @RequestMapping(path="/stateful/{extId}/stats", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<StatefulUsageStatsDTO> getStats(@PathVariable("extId") final String extId) {
+        return new ResponseEntity<>(statefulQuotaService.getStats(extId), HttpStatus.OK);
+    }
+
 }
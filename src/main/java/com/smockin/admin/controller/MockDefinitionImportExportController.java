@@ -15,6 +15,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -61,4 +64,24 @@ public class MockDefinitionImportExportController {
                 .body(mockDefinitionImportExportService.export(exports, token));
     }
 
+    @RequestMapping(path="/mock/export/stream", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void exportMocksStream(@RequestHeader(value = GeneralUtils.OAUTH_HEADER_NAME, required = false) final String bearerToken,
+                                  @RequestBody final List<String> exports,
+                                  final HttpServletResponse response)
+                                    throws MockExportException, RecordNotFoundException, IOException {
+
+        final String token = GeneralUtils.extractOAuthToken(bearerToken);
+
+        final String exportFileName = mockDefinitionImportExportService.exportZipFileNamePrefix
+                + GeneralUtils.createFileNameUniqueTimeStamp()
+                + mockDefinitionImportExportService.exportZipFileNameExt;
+
+        response.setContentType("application/zip");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + exportFileName + "\"");
+
+        mockDefinitionImportExportService.export(exports, token, response.getOutputStream());
+
+        response.flushBuffer();
+    }
+
 }
@@ -1,11 +1,22 @@
 package com.smockin.admin.controller;
 
 import com.smockin.admin.dto.RestfulMockDTO;
+import com.smockin.admin.dto.RestfulMockSearchDTO;
+import com.smockin.admin.dto.response.JavaScriptExecutionStatsDTO;
+import com.smockin.admin.dto.response.JavaScriptMemoStatsDTO;
+import com.smockin.admin.dto.response.PagedResponseDTO;
+import com.smockin.admin.dto.response.RestfulMockSummaryDTO;
 import com.smockin.admin.dto.response.SimpleMessageResponseDTO;
 import com.smockin.admin.dto.response.RestfulMockResponseDTO;
+import com.smockin.admin.enums.RestfulMockSortEnum;
 import com.smockin.admin.exception.RecordNotFoundException;
 import com.smockin.admin.exception.ValidationException;
+import com.smockin.admin.persistence.enums.RecordStatusEnum;
+import com.smockin.admin.persistence.enums.RestMethodEnum;
+import com.smockin.admin.persistence.enums.RestMockTypeEnum;
 import com.smockin.admin.service.RestfulMockService;
+import com.smockin.mockserver.service.JavaScriptExecutionService;
+import com.smockin.mockserver.service.JavaScriptResponseMemoService;
 import com.smockin.utils.GeneralUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -25,6 +36,12 @@ public class RestfulMockController {
     @Autowired
     private RestfulMockService restfulMockService;
 
+    @Autowired
+    private JavaScriptResponseMemoService javaScriptResponseMemoService;
+
+    @Autowired
+    private JavaScriptExecutionService javaScriptExecutionService;
+
     @RequestMapping(path="/restmock/{extId}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
     public @ResponseBody ResponseEntity<RestfulMockResponseDTO> get(@PathVariable("extId") final String extId,
                                                                     @RequestHeader(value = GeneralUtils.OAUTH_HEADER_NAME, required = false) final String bearerToken)
@@ -63,5 +80,69 @@ public class RestfulMockController {
         return new ResponseEntity<>(restfulMockService.loadAll(GeneralUtils.extractOAuthToken(bearerToken)), HttpStatus.OK);
     }
 
-}
+    @RequestMapping(path="/restmock/summary", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<PagedResponseDTO<RestfulMockSummaryDTO>> getSummaries(@RequestParam(value = "page", defaultValue = "0") final int page,
+                                                                                             @RequestParam(value = "size", defaultValue = "50") final int size,
+                                                                                             @RequestParam(value = "path", required = false) final String path,
+                                                                                             @RequestParam(value = "method", required = false) final String method,
+                                                                                             @RequestParam(value = "type", required = false) final String mockType,
+                                                                                             @RequestParam(value = "status", required = false) final String status,
+                                                                                             @RequestParam(value = "project", required = false) final String projectId,
+                                                                                             @RequestParam(value = "sort", required = false) final String sort,
+                                                                                             @RequestParam(value = "dir", defaultValue = "asc") final String direction,
+                                                                                             @RequestHeader(value = GeneralUtils.OAUTH_HEADER_NAME, required = false) final String bearerToken)
+                                                                                                throws RecordNotFoundException, ValidationException {
+
+        final RestfulMockSearchDTO search = new RestfulMockSearchDTO(path,
+                parseFilter(method, RestMethodEnum.class, "method"),
+                parseFilter(mockType, RestMockTypeEnum.class, "type"),
+                parseFilter(status, RecordStatusEnum.class, "status"),
+                projectId,
+                parseFilter(sort, RestfulMockSortEnum.class, "sort"),
+                "desc".equalsIgnoreCase(direction));
+
+        return new ResponseEntity<>(restfulMockService.loadSummaries(search, page, size, GeneralUtils.extractOAuthToken(bearerToken)), HttpStatus.OK);
+    }
+
+    @RequestMapping(path="/restmock/js/memo/stats", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<JavaScriptMemoStatsDTO> getJsMemoStats() {
+        return new ResponseEntity<>(javaScriptResponseMemoService.getStats(), HttpStatus.OK);
+    }
+
+    @RequestMapping(path="/restmock/{extId}/js/memo/stats", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<JavaScriptMemoStatsDTO> getJsMemoStats(@PathVariable("extId") final String extId) {
+        return new ResponseEntity<>(javaScriptResponseMemoService.getStats(extId), HttpStatus.OK);
+    }
 
+    @RequestMapping(path="/restmock/js/memo", method = RequestMethod.DELETE)
+    public @ResponseBody ResponseEntity<?> clearJsMemo() {
+        javaScriptResponseMemoService.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    @RequestMapping(path="/restmock/js/execution/stats", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<JavaScriptExecutionStatsDTO> getJsExecutionStats() {
+        return new ResponseEntity<>(javaScriptExecutionService.getStats(), HttpStatus.OK);
+    }
+
+    @RequestMapping(path="/restmock/{extId}/js/execution/stats", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<JavaScriptExecutionStatsDTO> getJsExecutionStats(@PathVariable("extId") final String extId) {
+        return new ResponseEntity<>(javaScriptExecutionService.getStats(extId), HttpStatus.OK);
+    }
+
+    private <E extends Enum<E>> E parseFilter(final String value, final Class<E> enumType, final String paramName) throws ValidationException {
+
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+
+        for (E e : enumType.getEnumConstants()) {
+            if (e.name().equalsIgnoreCase(value.trim())) {
+                return e;
+            }
+        }
+
+        throw new ValidationException("Invalid " + paramName + ": " + value);
+    }
+
+}
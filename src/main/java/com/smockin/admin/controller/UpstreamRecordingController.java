@@ -0,0 +1,42 @@
+package com.smockin.admin.controller;
+
+import com.smockin.admin.dto.response.RecordingStatusDTO;
+import com.smockin.admin.dto.response.SimpleMessageResponseDTO;
+import com.smockin.admin.exception.RecordNotFoundException;
+import com.smockin.admin.exception.ValidationException;
+import com.smockin.admin.service.UpstreamRecordingService;
+import com.smockin.utils.GeneralUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+@Controller
+public class UpstreamRecordingController {
+
+    @Autowired
+    private UpstreamRecordingService upstreamRecordingService;
+
+    @RequestMapping(path="/recording", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<RecordingStatusDTO> status() {
+        return new ResponseEntity<>(upstreamRecordingService.getStatus(), HttpStatus.OK);
+    }
+
+    @RequestMapping(path="/recording/mode/{mode}", method = RequestMethod.PUT, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<RecordingStatusDTO> changeMode(@PathVariable("mode") final String mode,
+                                                                     @RequestHeader(value = GeneralUtils.OAUTH_HEADER_NAME, required = false) final String bearerToken)
+                                                                        throws RecordNotFoundException, ValidationException {
+
+        upstreamRecordingService.changeMode(mode, GeneralUtils.extractOAuthToken(bearerToken));
+
+        return new ResponseEntity<>(upstreamRecordingService.getStatus(), HttpStatus.OK);
+    }
+
+    @RequestMapping(path="/recording/flush", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<SimpleMessageResponseDTO<Integer>> flush() {
+        return new ResponseEntity<>(new SimpleMessageResponseDTO<>(upstreamRecordingService.flush()), HttpStatus.OK);
+    }
+
+}
@@ -2,17 +2,23 @@ package com.smockin.admin.controller;
 
 import com.smockin.admin.dto.UserKeyValueDataDTO;
 import com.smockin.admin.dto.response.SimpleMessageResponseDTO;
+import com.smockin.admin.dto.response.UserKeyValueDataBulkResultDTO;
+import com.smockin.admin.enums.KvpStreamFormatEnum;
 import com.smockin.admin.exception.RecordNotFoundException;
 import com.smockin.admin.exception.ValidationException;
 import com.smockin.admin.service.UserKeyValueDataService;
 import com.smockin.utils.GeneralUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -64,5 +70,39 @@ public class UserKeyValueDataController {
         return new ResponseEntity<>(userKeyValueDataService.loadAll(GeneralUtils.extractOAuthToken(bearerToken)), HttpStatus.OK);
     }
 
-}
+    @RequestMapping(path="/keyvaluedata/bulk", method = RequestMethod.PUT, consumes = { "application/x-ndjson", "text/csv" }, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<UserKeyValueDataBulkResultDTO> bulkUpsert(@RequestHeader(value = HttpHeaders.CONTENT_TYPE) final String contentType,
+                                                                                  @RequestHeader(value = GeneralUtils.OAUTH_HEADER_NAME, required = false) final String bearerToken,
+                                                                                  final HttpServletRequest request)
+                                                                                    throws RecordNotFoundException, ValidationException, IOException {
+        return new ResponseEntity<>(userKeyValueDataService.bulkUpsert(request.getInputStream(), KvpStreamFormatEnum.findByContentType(contentType), GeneralUtils.extractOAuthToken(bearerToken)), HttpStatus.OK);
+    }
+
+    @RequestMapping(path="/keyvaluedata/bulk/delete", method = RequestMethod.POST, consumes = { "application/x-ndjson", "text/csv" }, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<UserKeyValueDataBulkResultDTO> bulkDelete(@RequestHeader(value = HttpHeaders.CONTENT_TYPE) final String contentType,
+                                                                                  @RequestHeader(value = GeneralUtils.OAUTH_HEADER_NAME, required = false) final String bearerToken,
+                                                                                  final HttpServletRequest request)
+                                                                                    throws RecordNotFoundException, ValidationException, IOException {
+        return new ResponseEntity<>(userKeyValueDataService.bulkDelete(request.getInputStream(), KvpStreamFormatEnum.findByContentType(contentType), GeneralUtils.extractOAuthToken(bearerToken)), HttpStatus.OK);
+    }
+
+    @RequestMapping(path="/keyvaluedata/bulk", method = RequestMethod.GET)
+    public void bulkExport(@RequestParam(value = "format", required = false, defaultValue = "ndjson") final String format,
+                           @RequestHeader(value = GeneralUtils.OAUTH_HEADER_NAME, required = false) final String bearerToken,
+                           final HttpServletResponse response)
+                            throws RecordNotFoundException, ValidationException, IOException {
+
+        final KvpStreamFormatEnum streamFormat = KvpStreamFormatEnum.findByName(format);
 
+        if (streamFormat == null) {
+            throw new ValidationException("Invalid format: " + format);
+        }
+
+        response.setContentType(streamFormat.getContentType() + ";charset=UTF-8");
+
+        userKeyValueDataService.bulkExport(streamFormat, GeneralUtils.extractOAuthToken(bearerToken), response.getOutputStream());
+
+        response.flushBuffer();
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.smockin.admin.dto;
+
+/**
+ * Per mock limits on how long a CUSTOM_JS script may run for, in wall clock and CPU time.
+ * A value of 0 uses the server default.
+ */
+public class CustomJsBudgetDTO {
+
+    private long timeoutMillis;
+    private long cpuTimeMillis;
+
+    public CustomJsBudgetDTO() {
+
+    }
+
+    public CustomJsBudgetDTO(final long timeoutMillis, final long cpuTimeMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.cpuTimeMillis = cpuTimeMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long getCpuTimeMillis() {
+        return cpuTimeMillis;
+    }
+    public void setCpuTimeMillis(long cpuTimeMillis) {
+        this.cpuTimeMillis = cpuTimeMillis;
+    }
+
+}
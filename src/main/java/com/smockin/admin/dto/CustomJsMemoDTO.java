@@ -0,0 +1,39 @@
+package com.smockin.admin.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opts a CUSTOM_JS mock into response memoization.
+ * The key inputs name the request values the script's response depends on (path, body, pathVars.x, parameters.x or headers.x).
+ * A ttlMillis of 0 uses the server default.
+ */
+public class CustomJsMemoDTO {
+
+    private List<String> keyInputs = new ArrayList<>();
+    private long ttlMillis;
+
+    public CustomJsMemoDTO() {
+
+    }
+
+    public CustomJsMemoDTO(final List<String> keyInputs, final long ttlMillis) {
+        this.keyInputs = keyInputs;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public List<String> getKeyInputs() {
+        return keyInputs;
+    }
+    public void setKeyInputs(List<String> keyInputs) {
+        this.keyInputs = keyInputs;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+}
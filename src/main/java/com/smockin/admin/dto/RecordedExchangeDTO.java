@@ -0,0 +1,48 @@
+package com.smockin.admin.dto;
+
+import com.smockin.admin.persistence.enums.RestMethodEnum;
+
+import java.util.Map;
+
+/**
+ * An upstream response captured while in RECORD mode.
+ */
+public class RecordedExchangeDTO {
+
+    private final RestMethodEnum method;
+    private final String path;
+    private final int status;
+    private final String contentType;
+    private final Map<String, String> headers;
+    private final String body;
+
+    public RecordedExchangeDTO(final RestMethodEnum method, final String path, final int status, final String contentType,
+                               final Map<String, String> headers, final String body) {
+        this.method = method;
+        this.path = path;
+        this.status = status;
+        this.contentType = contentType;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public RestMethodEnum getMethod() {
+        return method;
+    }
+    public String getPath() {
+        return path;
+    }
+    public int getStatus() {
+        return status;
+    }
+    public String getContentType() {
+        return contentType;
+    }
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+    public String getBody() {
+        return body;
+    }
+
+}
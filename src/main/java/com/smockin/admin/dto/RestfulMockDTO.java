@@ -28,10 +28,13 @@ public class RestfulMockDTO {
     private String projectId;
     private List<RestfulMockDefinitionDTO> definitions = new ArrayList<>();
     private String customJsSyntax;
+    private CustomJsMemoDTO customJsMemo;
+    private CustomJsBudgetDTO customJsBudget;
     private List<RuleDTO> rules = new ArrayList<>();
     private String statefulDefaultResponseBody;
     private String statefulIdFieldName;
     private String statefulIdFieldLocation;
+    private StatefulQuotaDTO statefulQuota;
 
     public RestfulMockDTO() {
 
@@ -184,6 +187,20 @@ public class RestfulMockDTO {
         this.customJsSyntax = customJsSyntax;
     }
 
+    public CustomJsMemoDTO getCustomJsMemo() {
+        return customJsMemo;
+    }
+    public void setCustomJsMemo(CustomJsMemoDTO customJsMemo) {
+        this.customJsMemo = customJsMemo;
+    }
+
+    public CustomJsBudgetDTO getCustomJsBudget() {
+        return customJsBudget;
+    }
+    public void setCustomJsBudget(CustomJsBudgetDTO customJsBudget) {
+        this.customJsBudget = customJsBudget;
+    }
+
     public List<RuleDTO> getRules() {
         return rules;
     }
@@ -212,4 +229,11 @@ public class RestfulMockDTO {
         this.statefulIdFieldLocation = statefulIdFieldLocation;
     }
 
+    public StatefulQuotaDTO getStatefulQuota() {
+        return statefulQuota;
+    }
+    public void setStatefulQuota(StatefulQuotaDTO statefulQuota) {
+        this.statefulQuota = statefulQuota;
+    }
+
 }
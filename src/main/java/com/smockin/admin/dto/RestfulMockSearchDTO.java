@@ -0,0 +1,85 @@
+package com.smockin.admin.dto;
+
+import com.smockin.admin.enums.RestfulMockSortEnum;
+import com.smockin.admin.persistence.enums.RecordStatusEnum;
+import com.smockin.admin.persistence.enums.RestMethodEnum;
+import com.smockin.admin.persistence.enums.RestMockTypeEnum;
+
+/**
+ * Filter and sort options for listing mocks. Any filter left null is not applied.
+ */
+public class RestfulMockSearchDTO {
+
+    private String path; // case insensitive 'contains' match
+    private RestMethodEnum method;
+    private RestMockTypeEnum mockType;
+    private RecordStatusEnum status;
+    private String projectId;
+    private RestfulMockSortEnum sort;
+    private boolean descending;
+
+    public RestfulMockSearchDTO() {
+
+    }
+
+    public RestfulMockSearchDTO(final String path, final RestMethodEnum method, final RestMockTypeEnum mockType, final RecordStatusEnum status,
+                                final String projectId, final RestfulMockSortEnum sort, final boolean descending) {
+        this.path = path;
+        this.method = method;
+        this.mockType = mockType;
+        this.status = status;
+        this.projectId = projectId;
+        this.sort = sort;
+        this.descending = descending;
+    }
+
+    public String getPath() {
+        return path;
+    }
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public RestMethodEnum getMethod() {
+        return method;
+    }
+    public void setMethod(RestMethodEnum method) {
+        this.method = method;
+    }
+
+    public RestMockTypeEnum getMockType() {
+        return mockType;
+    }
+    public void setMockType(RestMockTypeEnum mockType) {
+        this.mockType = mockType;
+    }
+
+    public RecordStatusEnum getStatus() {
+        return status;
+    }
+    public void setStatus(RecordStatusEnum status) {
+        this.status = status;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public RestfulMockSortEnum getSort() {
+        return sort;
+    }
+    public void setSort(RestfulMockSortEnum sort) {
+        this.sort = sort;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+    public void setDescending(boolean descending) {
+        this.descending = descending;
+    }
+
+}
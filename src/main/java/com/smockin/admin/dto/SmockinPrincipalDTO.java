@@ -0,0 +1,44 @@
+package com.smockin.admin.dto;
+
+import com.smockin.admin.persistence.enums.SmockinUserRoleEnum;
+
+/**
+ * The user a verified session token resolves to.
+ */
+public class SmockinPrincipalDTO {
+
+    private final long userId;
+    private final String extId;
+    private final String username;
+    private final SmockinUserRoleEnum role;
+    private final String sessionToken;
+
+    public SmockinPrincipalDTO(final long userId, final String extId, final String username, final SmockinUserRoleEnum role, final String sessionToken) {
+        this.userId = userId;
+        this.extId = extId;
+        this.username = username;
+        this.role = role;
+        this.sessionToken = sessionToken;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public String getExtId() {
+        return extId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public SmockinUserRoleEnum getRole() {
+        return role;
+    }
+
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+}
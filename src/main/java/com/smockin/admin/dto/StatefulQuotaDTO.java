@@ -0,0 +1,35 @@
+package com.smockin.admin.dto;
+
+/**
+ * Per mock limits on how many records a STATEFUL mock may hold, and roughly how much memory they may take up.
+ * A value of 0 uses the server default.
+ */
+public class StatefulQuotaDTO {
+
+    private int maxRecords;
+    private long maxBytes;
+
+    public StatefulQuotaDTO() {
+
+    }
+
+    public StatefulQuotaDTO(final int maxRecords, final long maxBytes) {
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+    }
+
+    public int getMaxRecords() {
+        return maxRecords;
+    }
+    public void setMaxRecords(int maxRecords) {
+        this.maxRecords = maxRecords;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.smockin.admin.dto;
+
+import org.apache.http.Header;
+
+/**
+ * A fully read upstream response, as held by the upstream response cache.
+ */
+public class UpstreamResponseDTO {
+
+    private final int status;
+    private final Header[] headers;
+    private final byte[] body;
+
+    public UpstreamResponseDTO(final int status, final Header[] headers, final byte[] body) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+    public Header[] getHeaders() {
+        return headers;
+    }
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Rough footprint used to enforce the cache's max-bytes bound.
+     */
+    public long approxBytes() {
+
+        long size = body.length;
+
+        for (Header h : headers) {
+            size += h.getName().length() + h.getValue().length();
+        }
+
+        return size;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.smockin.admin.dto.response;
+
+import com.smockin.admin.enums.CircuitBreakerStateEnum;
+
+public class CircuitBreakerStateDTO {
+
+    private final String upstream;
+    private final CircuitBreakerStateEnum state;
+    private final int bufferedCalls;
+    private final float failureRate;
+    private final float slowCallRate;
+    private final long rejectedCalls;
+    private final Long retryAt;
+
+    public CircuitBreakerStateDTO(final String upstream, final CircuitBreakerStateEnum state, final int bufferedCalls,
+                                  final float failureRate, final float slowCallRate, final long rejectedCalls, final Long retryAt) {
+        this.upstream = upstream;
+        this.state = state;
+        this.bufferedCalls = bufferedCalls;
+        this.failureRate = failureRate;
+        this.slowCallRate = slowCallRate;
+        this.rejectedCalls = rejectedCalls;
+        this.retryAt = retryAt;
+    }
+
+    public String getUpstream() {
+        return upstream;
+    }
+    public CircuitBreakerStateEnum getState() {
+        return state;
+    }
+    public int getBufferedCalls() {
+        return bufferedCalls;
+    }
+    public float getFailureRate() {
+        return failureRate;
+    }
+    public float getSlowCallRate() {
+        return slowCallRate;
+    }
+    public long getRejectedCalls() {
+        return rejectedCalls;
+    }
+    public Long getRetryAt() {
+        return retryAt;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.smockin.admin.dto.response;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class HttpClientPoolStatsDTO {
+
+    private final int leased;
+    private final int pending;
+    private final int available;
+    private final int max;
+    private final Map<String, HttpClientPoolStatsDTO> routes = new HashMap<>();
+
+    public HttpClientPoolStatsDTO(final int leased, final int pending, final int available, final int max) {
+        this.leased = leased;
+        this.pending = pending;
+        this.available = available;
+        this.max = max;
+    }
+
+    public int getLeased() {
+        return leased;
+    }
+    public int getPending() {
+        return pending;
+    }
+    public int getAvailable() {
+        return available;
+    }
+    public int getMax() {
+        return max;
+    }
+    public Map<String, HttpClientPoolStatsDTO> getRoutes() {
+        return routes;
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.smockin.admin.dto.response;
+
+public class JavaScriptExecutionStatsDTO {
+
+    private final long executions;
+    private final long timeouts;
+    private final long cpuTimeouts;
+    private final long rejections;
+    private final long lostWorkers;
+    private final long totalExecutionMillis;
+    private final int activeThreads;
+    private final int queued;
+
+    public JavaScriptExecutionStatsDTO(final long executions, final long timeouts, final long cpuTimeouts, final long rejections,
+                                       final long lostWorkers, final long totalExecutionMillis, final int activeThreads, final int queued) {
+        this.executions = executions;
+        this.timeouts = timeouts;
+        this.cpuTimeouts = cpuTimeouts;
+        this.rejections = rejections;
+        this.lostWorkers = lostWorkers;
+        this.totalExecutionMillis = totalExecutionMillis;
+        this.activeThreads = activeThreads;
+        this.queued = queued;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+    public long getTimeouts() {
+        return timeouts;
+    }
+    public long getCpuTimeouts() {
+        return cpuTimeouts;
+    }
+    public long getRejections() {
+        return rejections;
+    }
+    public long getLostWorkers() {
+        return lostWorkers;
+    }
+    public int getActiveThreads() {
+        return activeThreads;
+    }
+    public int getQueued() {
+        return queued;
+    }
+
+    public double getAverageExecutionMillis() {
+        return (executions == 0) ? 0 : (double) totalExecutionMillis / executions;
+    }
+
+}
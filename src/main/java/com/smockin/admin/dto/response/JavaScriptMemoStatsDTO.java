@@ -0,0 +1,46 @@
+package com.smockin.admin.dto.response;
+
+public class JavaScriptMemoStatsDTO {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final int entries;
+    private final long bytes;
+
+    public JavaScriptMemoStatsDTO(final long hits, final long misses, final long evictions,
+                                  final long invalidations, final int entries, final long bytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.entries = entries;
+        this.bytes = bytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+    public long getMisses() {
+        return misses;
+    }
+    public long getEvictions() {
+        return evictions;
+    }
+    public long getInvalidations() {
+        return invalidations;
+    }
+    public int getEntries() {
+        return entries;
+    }
+    public long getBytes() {
+        return bytes;
+    }
+
+    public double getHitRatio() {
+        final long lookups = hits + misses;
+        return (lookups == 0) ? 0 : (double) hits / lookups;
+    }
+
+}
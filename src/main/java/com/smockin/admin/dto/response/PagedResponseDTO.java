@@ -0,0 +1,35 @@
+package com.smockin.admin.dto.response;
+
+import java.util.List;
+
+public class PagedResponseDTO<T> {
+
+    private final List<T> content;
+    private final int page;
+    private final int size;
+    private final long totalElements;
+
+    public PagedResponseDTO(final List<T> content, final int page, final int size, final long totalElements) {
+        this.content = content;
+        this.page = page;
+        this.size = size;
+        this.totalElements = totalElements;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+    public int getPage() {
+        return page;
+    }
+    public int getSize() {
+        return size;
+    }
+    public long getTotalElements() {
+        return totalElements;
+    }
+    public long getTotalPages() {
+        return (totalElements + size - 1) / size;
+    }
+
+}
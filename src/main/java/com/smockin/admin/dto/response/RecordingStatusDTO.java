@@ -0,0 +1,37 @@
+package com.smockin.admin.dto.response;
+
+import com.smockin.admin.enums.RecordingModeEnum;
+
+public class RecordingStatusDTO {
+
+    private final RecordingModeEnum mode;
+    private final int pending;
+    private final long captured;
+    private final long dropped;
+    private final long mocksCreated;
+
+    public RecordingStatusDTO(final RecordingModeEnum mode, final int pending, final long captured, final long dropped, final long mocksCreated) {
+        this.mode = mode;
+        this.pending = pending;
+        this.captured = captured;
+        this.dropped = dropped;
+        this.mocksCreated = mocksCreated;
+    }
+
+    public RecordingModeEnum getMode() {
+        return mode;
+    }
+    public int getPending() {
+        return pending;
+    }
+    public long getCaptured() {
+        return captured;
+    }
+    public long getDropped() {
+        return dropped;
+    }
+    public long getMocksCreated() {
+        return mocksCreated;
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.smockin.admin.dto.response;
+
+import com.smockin.admin.persistence.enums.RecordStatusEnum;
+import com.smockin.admin.persistence.enums.RestMethodEnum;
+import com.smockin.admin.persistence.enums.RestMockTypeEnum;
+
+/**
+ * Lightweight view of a mock for listings, populated directly by a JPQL constructor query.
+ */
+public class RestfulMockSummaryDTO {
+
+    private final String extId;
+    private String path;
+    private final String userCtxPath;
+    private final RestMethodEnum method;
+    private final RestMockTypeEnum mockType;
+    private final RecordStatusEnum status;
+    private final String projectId;
+
+    public RestfulMockSummaryDTO(final String extId, final String path, final String userCtxPath, final RestMethodEnum method,
+                                 final RestMockTypeEnum mockType, final RecordStatusEnum status, final String projectId) {
+        this.extId = extId;
+        this.path = path;
+        this.userCtxPath = userCtxPath;
+        this.method = method;
+        this.mockType = mockType;
+        this.status = status;
+        this.projectId = projectId;
+    }
+
+    public String getExtId() {
+        return extId;
+    }
+    public String getPath() {
+        return path;
+    }
+    public void setPath(String path) {
+        this.path = path;
+    }
+    public String getUserCtxPath() {
+        return userCtxPath;
+    }
+    public RestMethodEnum getMethod() {
+        return method;
+    }
+    public RestMockTypeEnum getMockType() {
+        return mockType;
+    }
+    public RecordStatusEnum getStatus() {
+        return status;
+    }
+    public String getProjectId() {
+        return projectId;
+    }
+
+}
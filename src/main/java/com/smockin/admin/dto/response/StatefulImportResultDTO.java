@@ -0,0 +1,20 @@
+package com.smockin.admin.dto.response;
+
+public class StatefulImportResultDTO {
+
+    private final int imported;
+    private final int total;
+
+    public StatefulImportResultDTO(final int imported, final int total) {
+        this.imported = imported;
+        this.total = total;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+    public int getTotal() {
+        return total;
+    }
+
+}
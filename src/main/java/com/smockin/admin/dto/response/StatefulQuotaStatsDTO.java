@@ -0,0 +1,55 @@
+package com.smockin.admin.dto.response;
+
+import java.util.List;
+
+public class StatefulQuotaStatsDTO {
+
+    private final String policy;
+    private final long records;
+    private final long estimatedBytes;
+    private final long globalMaxRecords;
+    private final long globalMaxBytes;
+    private final long defaultMaxRecords;
+    private final long defaultMaxBytes;
+    private final List<StatefulUsageStatsDTO> resources;
+
+    public StatefulQuotaStatsDTO(final String policy, final long records, final long estimatedBytes,
+                                 final long globalMaxRecords, final long globalMaxBytes,
+                                 final long defaultMaxRecords, final long defaultMaxBytes,
+                                 final List<StatefulUsageStatsDTO> resources) {
+        this.policy = policy;
+        this.records = records;
+        this.estimatedBytes = estimatedBytes;
+        this.globalMaxRecords = globalMaxRecords;
+        this.globalMaxBytes = globalMaxBytes;
+        this.defaultMaxRecords = defaultMaxRecords;
+        this.defaultMaxBytes = defaultMaxBytes;
+        this.resources = resources;
+    }
+
+    public String getPolicy() {
+        return policy;
+    }
+    public long getRecords() {
+        return records;
+    }
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+    public long getGlobalMaxRecords() {
+        return globalMaxRecords;
+    }
+    public long getGlobalMaxBytes() {
+        return globalMaxBytes;
+    }
+    public long getDefaultMaxRecords() {
+        return defaultMaxRecords;
+    }
+    public long getDefaultMaxBytes() {
+        return defaultMaxBytes;
+    }
+    public List<StatefulUsageStatsDTO> getResources() {
+        return resources;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.smockin.admin.dto.response;
+
+public class StatefulUsageStatsDTO {
+
+    private final String extId;
+    private final long records;
+    private final long estimatedBytes;
+    private final long rejections;
+    private final long evictions;
+    private final long expirations;
+
+    public StatefulUsageStatsDTO(final String extId, final long records, final long estimatedBytes,
+                                 final long rejections, final long evictions, final long expirations) {
+        this.extId = extId;
+        this.records = records;
+        this.estimatedBytes = estimatedBytes;
+        this.rejections = rejections;
+        this.evictions = evictions;
+        this.expirations = expirations;
+    }
+
+    public String getExtId() {
+        return extId;
+    }
+    public long getRecords() {
+        return records;
+    }
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+    public long getRejections() {
+        return rejections;
+    }
+    public long getEvictions() {
+        return evictions;
+    }
+    public long getExpirations() {
+        return expirations;
+    }
+
+}
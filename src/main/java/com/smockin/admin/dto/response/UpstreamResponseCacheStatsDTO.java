@@ -0,0 +1,46 @@
+package com.smockin.admin.dto.response;
+
+public class UpstreamResponseCacheStatsDTO {
+
+    private final boolean enabled;
+    private final long hits;
+    private final long misses;
+    private final long coalesced;
+    private final long evictions;
+    private final int entries;
+    private final long bytes;
+
+    public UpstreamResponseCacheStatsDTO(final boolean enabled, final long hits, final long misses, final long coalesced,
+                                         final long evictions, final int entries, final long bytes) {
+        this.enabled = enabled;
+        this.hits = hits;
+        this.misses = misses;
+        this.coalesced = coalesced;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.bytes = bytes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+    public long getHits() {
+        return hits;
+    }
+    public long getMisses() {
+        return misses;
+    }
+    public long getCoalesced() {
+        return coalesced;
+    }
+    public long getEvictions() {
+        return evictions;
+    }
+    public int getEntries() {
+        return entries;
+    }
+    public long getBytes() {
+        return bytes;
+    }
+
+}
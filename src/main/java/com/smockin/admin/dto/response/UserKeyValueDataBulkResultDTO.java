@@ -0,0 +1,25 @@
+package com.smockin.admin.dto.response;
+
+public class UserKeyValueDataBulkResultDTO {
+
+    private final int created;
+    private final int updated;
+    private final int deleted;
+
+    public UserKeyValueDataBulkResultDTO(final int created, final int updated, final int deleted) {
+        this.created = created;
+        this.updated = updated;
+        this.deleted = deleted;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+    public int getUpdated() {
+        return updated;
+    }
+    public int getDeleted() {
+        return deleted;
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.smockin.admin.enums;
+
+public enum CircuitBreakerStateEnum {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+}
@@ -0,0 +1,49 @@
+package com.smockin.admin.enums;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.stream.Stream;
+
+public enum KvpStreamFormatEnum {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String contentType;
+
+    KvpStreamFormatEnum(final String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static KvpStreamFormatEnum findByName(final String name) {
+        return Stream.of(KvpStreamFormatEnum.values())
+                .filter(f -> f.name().equalsIgnoreCase(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+    public static KvpStreamFormatEnum findByContentType(final String contentType) {
+
+        if (contentType == null) {
+            return null;
+        }
+
+        final MediaType mediaType;
+
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException ex) {
+            return null;
+        }
+
+        return Stream.of(KvpStreamFormatEnum.values())
+                .filter(f -> MediaType.parseMediaType(f.contentType).equalsTypeAndSubtype(mediaType))
+                .findFirst()
+                .orElse(null);
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.smockin.admin.enums;
+
+import java.util.stream.Stream;
+
+public enum RecordingModeEnum {
+    OFF,        // Normal behaviour, upstream first then local mocks
+    RECORD,     // As OFF, but upstream responses are captured and turned into mocks
+    PLAYBACK;   // Upstream is bypassed entirely, everything is served from local mocks
+
+    public static RecordingModeEnum findByName(final String name) {
+        return Stream.of(RecordingModeEnum.values())
+                .filter(m -> (m.name().equalsIgnoreCase(name)))
+                .findFirst().orElse(null);
+    }
+
+}
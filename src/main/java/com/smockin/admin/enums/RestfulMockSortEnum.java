@@ -0,0 +1,21 @@
+package com.smockin.admin.enums;
+
+public enum RestfulMockSortEnum {
+    PATH("rm.path"),
+    METHOD("rm.method"),
+    TYPE("rm.mockType"),
+    STATUS("rm.status"),
+    CREATED("rm.dateCreated"),
+    ORDER("rm.initializationOrder");
+
+    private final String jpqlField;
+
+    RestfulMockSortEnum(final String jpqlField) {
+        this.jpqlField = jpqlField;
+    }
+
+    public String getJpqlField() {
+        return jpqlField;
+    }
+
+}
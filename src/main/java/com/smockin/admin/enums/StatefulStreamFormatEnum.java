@@ -0,0 +1,26 @@
+package com.smockin.admin.enums;
+
+import java.util.stream.Stream;
+
+public enum StatefulStreamFormatEnum {
+    JSON("application/json"),     // A single JSON array of records
+    NDJSON("application/x-ndjson"); // One JSON record per line
+
+    private final String contentType;
+
+    StatefulStreamFormatEnum(final String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static StatefulStreamFormatEnum findByName(final String name) {
+        return Stream.of(StatefulStreamFormatEnum.values())
+                .filter(f -> f.name().equalsIgnoreCase(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+}
@@ -1,7 +1,10 @@
 package com.smockin.admin.interceptor;
 
+import com.smockin.admin.dto.SmockinPrincipalDTO;
 import com.smockin.admin.enums.UserModeEnum;
+import com.smockin.admin.persistence.entity.SmockinUser;
 import com.smockin.admin.service.AuthService;
+import com.smockin.admin.service.AuthTokenCacheService;
 import com.smockin.admin.service.SmockinUserService;
 import com.smockin.utils.GeneralUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -14,10 +17,13 @@ import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Component
 public class AuthInterceptor extends HandlerInterceptorAdapter {
@@ -30,6 +36,9 @@ public class AuthInterceptor extends HandlerInterceptorAdapter {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private AuthTokenCacheService authTokenCacheService;
+
     // Resorted to using json, in place of defining the list structure in yaml, due to a bug introduced
     // in Spring Boot v2 where forward slashes (& other characters) seem to be stripped out when injected in.
     @Value("${smockin.auth.exclusions:#{null}}")
@@ -37,6 +46,10 @@ public class AuthInterceptor extends HandlerInterceptorAdapter {
 
     private Map<String, List<String>> exclusions;
 
+    // Exclusions compiled on start up: exact paths are looked up directly, wildcard ones are matched in turn.
+    private Map<String, Set<String>> exactExclusions;
+    private List<Exclusion> wildcardExclusions;
+
     /*
         For more info:
             https://www.tuturself.com/posts/view?menuId=3&postId=1071
@@ -52,41 +65,73 @@ public class AuthInterceptor extends HandlerInterceptorAdapter {
 
         debugRequest(request);
 
-        final boolean isExcluded = exclusions.entrySet()
-            .stream()
-            .anyMatch(e ->
-                    matchExclusionUrl(e.getKey(), request.getRequestURI())
-                        && e.getValue().stream().anyMatch(m -> m.equalsIgnoreCase(request.getMethod()))
-            );
-
-        if (isExcluded) {
+        if (isExcluded(request.getRequestURI(), request.getMethod())) {
             return true;
         }
 
         final String bearerToken = request.getHeader(GeneralUtils.OAUTH_HEADER_NAME);
         final String token = GeneralUtils.extractOAuthToken(bearerToken);
 
-        // Check token exists in DB
-        smockinUserService.lookUpToken(token);
+        SmockinPrincipalDTO principal = authTokenCacheService.get(token);
+
+        if (principal == null) {
+
+            // Check token exists in DB
+            final SmockinUser user = smockinUserService.lookUpToken(token);
+
+            // Check token is valid
+            authService.verifyToken(token);
+
+            principal = new SmockinPrincipalDTO(user.getId(), user.getExtId(), user.getUsername(), user.getRole(), token);
+            authTokenCacheService.put(principal);
+        }
 
-        // Check token is valid
-        authService.verifyToken(token);
+        request.setAttribute(GeneralUtils.PRINCIPAL_REQUEST_ATTR, principal);
 
         return true;
     }
 
+    boolean isExcluded(final String inboundUrl, final String method) {
+
+        final Set<String> exactMethods = exactExclusions.get(inboundUrl.toLowerCase());
+
+        if (exactMethods != null && exactMethods.contains(method)) {
+            return true;
+        }
+
+        for (Exclusion e : wildcardExclusions) {
+            if (e.methods.contains(method) && e.matches(inboundUrl)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     boolean matchExclusionUrl(final String exclusionKey, final String inboundUrl) {
 
+        final Exclusion exclusion = compileExclusion(exclusionKey, Collections.emptyList());
+
+        return (exclusion != null)
+                ? exclusion.matches(inboundUrl)
+                : exclusionKey.equalsIgnoreCase(inboundUrl);
+    }
+
+    /**
+     * @return the compiled wildcard exclusion, or null if the key is an exact path.
+     */
+    Exclusion compileExclusion(final String exclusionKey, final List<String> methods) {
+
         final int wildCardFilePos = exclusionKey.indexOf("*.");
         final int wildCardPathPos = exclusionKey.indexOf("*");
 
         if (wildCardFilePos > -1) {
-            return inboundUrl.endsWith(exclusionKey.substring(wildCardFilePos + 1, exclusionKey.length()));
+            return new Exclusion(exclusionKey.substring(wildCardFilePos + 1), true, methods);
         } else if (wildCardPathPos > -1) {
-            return inboundUrl.startsWith(exclusionKey.substring(0, wildCardPathPos));
+            return new Exclusion(exclusionKey.substring(0, wildCardPathPos), false, methods);
         }
 
-        return exclusionKey.equalsIgnoreCase(inboundUrl);
+        return null;
     }
 
     @PostConstruct
@@ -99,6 +144,23 @@ public class AuthInterceptor extends HandlerInterceptorAdapter {
 
         exclusions = Collections.unmodifiableMap(exclusionsMap);
 
+        final Map<String, Set<String>> exactMap = new HashMap<>();
+        final List<Exclusion> wildcardList = new ArrayList<>();
+
+        exclusions.forEach((key, methods) -> {
+
+            final Exclusion exclusion = compileExclusion(key, methods);
+
+            if (exclusion != null) {
+                wildcardList.add(exclusion);
+            } else {
+                exactMap.computeIfAbsent(key.toLowerCase(), k -> new TreeSet<>(String.CASE_INSENSITIVE_ORDER)).addAll(methods);
+            }
+        });
+
+        exactExclusions = exactMap;
+        wildcardExclusions = wildcardList;
+
         if (logger.isDebugEnabled()) {
             logger.debug("Current Exclusions:");
             exclusions.entrySet()
@@ -116,4 +178,24 @@ public class AuthInterceptor extends HandlerInterceptorAdapter {
 
     }
 
+    static final class Exclusion {
+
+        private final String fragment;
+        private final boolean suffix;
+        private final Set<String> methods = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+        private Exclusion(final String fragment, final boolean suffix, final List<String> methods) {
+            this.fragment = fragment;
+            this.suffix = suffix;
+            this.methods.addAll(methods);
+        }
+
+        private boolean matches(final String inboundUrl) {
+            return (suffix)
+                    ? inboundUrl.endsWith(fragment)
+                    : inboundUrl.startsWith(fragment);
+        }
+
+    }
+
 }
@@ -11,6 +11,7 @@ import com.smockin.admin.persistence.enums.ServerTypeEnum;
 import com.smockin.admin.persistence.enums.SmockinUserRoleEnum;
 import com.smockin.admin.persistence.migration.DataMigrationService;
 import com.smockin.admin.service.EncryptionService;
+import com.smockin.admin.service.utils.RestfulMockServiceUtils;
 import com.smockin.utils.GeneralUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +45,9 @@ public class CoreDataHandler {
     @Autowired
     private EncryptionService encryptionService;
 
+    @Autowired
+    private RestfulMockServiceUtils restfulMockServiceUtils;
+
     @Transactional
     public void exec() {
 
@@ -53,6 +57,8 @@ public class CoreDataHandler {
 
         applyAppVersioning();
 
+        applyMissingFullPaths();
+
         resetSystemAdmin();
 
     }
@@ -105,6 +111,16 @@ public class CoreDataHandler {
 
     }
 
+    void applyMissingFullPaths() {
+
+        final int synced = restfulMockServiceUtils.syncMissingFullPaths();
+
+        if (synced > 0) {
+            logger.info("Populated the full path of " + synced + " existing mocks");
+        }
+
+    }
+
     void applyCoreAdminUser() {
 
         if (!smockinUserDAO.findAllByRole(SmockinUserRoleEnum.SYS_ADMIN).isEmpty()) {
@@ -1,6 +1,7 @@
 package com.smockin.admin.persistence.dao;
 
 import com.smockin.admin.persistence.entity.RestfulMock;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 /**
@@ -8,6 +9,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
  */
 public interface RestfulMockDAO extends JpaRepository<RestfulMock, Long>, RestfulMockDAOCustom {
 
+    @EntityGraph(value = RestfulMock.EDIT_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
     RestfulMock findByExtId(final String extId);
 
 }
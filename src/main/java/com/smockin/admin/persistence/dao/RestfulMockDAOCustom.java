@@ -1,5 +1,7 @@
 package com.smockin.admin.persistence.dao;
 
+import com.smockin.admin.dto.RestfulMockSearchDTO;
+import com.smockin.admin.dto.response.RestfulMockSummaryDTO;
 import com.smockin.admin.persistence.entity.RestfulMock;
 import com.smockin.admin.persistence.entity.SmockinUser;
 import com.smockin.admin.persistence.enums.RecordStatusEnum;
@@ -15,9 +17,15 @@ public interface RestfulMockDAOCustom {
     List<RestfulMock> findAllByStatus(final RecordStatusEnum status);
     List<RestfulMock> findAll();
     List<RestfulMock> findAllByUser(final long userId);
+    List<RestfulMock> findAllWithoutFirstSegment();
     RestfulMock findByPathAndMethodAndUser(final String path, final RestMethodEnum method, final SmockinUser user);
     RestfulMock findActiveByMethodAndPathPatternAndTypesForSingleUser(final RestMethodEnum method, final String path, final List<RestMockTypeEnum> mockTypes);
     RestfulMock findActiveByMethodAndPathPatternAndTypesForMultiUser(final RestMethodEnum method, final String path, final List<RestMockTypeEnum> mockTypes);
+    List<RestfulMock> findPageByUser(final long userId, final List<String> extIds, final long afterId, final int pageSize);
+    List<String> findExtIdsByUser(final long userId, final List<String> extIds);
+    List<RestfulMockSummaryDTO> findSummariesByUser(final long userId, final RestfulMockSearchDTO search, final int offset, final int limit);
+    long countByUser(final long userId, final RestfulMockSearchDTO search);
     void detach(final RestfulMock restfulMock);
+    void clear();
 
 }
@@ -1,16 +1,22 @@
 package com.smockin.admin.persistence.dao;
 
+import com.smockin.admin.dto.RestfulMockSearchDTO;
+import com.smockin.admin.dto.response.RestfulMockSummaryDTO;
+import com.smockin.admin.enums.RestfulMockSortEnum;
 import com.smockin.admin.persistence.entity.RestfulMock;
 import com.smockin.admin.persistence.entity.SmockinUser;
 import com.smockin.admin.persistence.enums.RecordStatusEnum;
 import com.smockin.admin.persistence.enums.RestMethodEnum;
 import com.smockin.admin.persistence.enums.RestMockTypeEnum;
 import com.smockin.admin.persistence.enums.SmockinUserRoleEnum;
+import com.smockin.utils.GeneralUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.AntPathMatcher;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 import java.util.List;
 
 /**
@@ -19,6 +25,8 @@ import java.util.List;
 @Repository
 public class RestfulMockDAOImpl implements RestfulMockDAOCustom {
 
+    static final String LOAD_GRAPH_HINT = "javax.persistence.loadgraph";
+
     @PersistenceContext
     private EntityManager entityManager;
 
@@ -28,6 +36,7 @@ public class RestfulMockDAOImpl implements RestfulMockDAOCustom {
                 + " WHERE rm.status = :status "
                 + " ORDER BY rm.initializationOrder ASC")
                 .setParameter("status", status)
+                .setHint(LOAD_GRAPH_HINT, entityManager.getEntityGraph(RestfulMock.SERVE_GRAPH))
                 .getResultList();
     }
 
@@ -35,6 +44,7 @@ public class RestfulMockDAOImpl implements RestfulMockDAOCustom {
     public List<RestfulMock> findAll() {
         return entityManager.createQuery("FROM RestfulMock rm "
                 + " ORDER BY rm.initializationOrder ASC")
+                .setHint(LOAD_GRAPH_HINT, entityManager.getEntityGraph(RestfulMock.SERVE_GRAPH))
                 .getResultList();
     }
 
@@ -44,6 +54,15 @@ public class RestfulMockDAOImpl implements RestfulMockDAOCustom {
                 + " WHERE rm.createdBy.id = :userId "
                 + " ORDER BY rm.initializationOrder ASC")
                 .setParameter("userId", userId)
+                .setHint(LOAD_GRAPH_HINT, entityManager.getEntityGraph(RestfulMock.EXPORT_GRAPH))
+                .getResultList();
+    }
+
+    @Override
+    public List<RestfulMock> findAllWithoutFirstSegment() {
+        return entityManager.createQuery("FROM RestfulMock rm "
+                + " WHERE rm.firstSegment IS NULL", RestfulMock.class)
+                .setHint(LOAD_GRAPH_HINT, entityManager.getEntityGraph(RestfulMock.SERVE_GRAPH))
                 .getResultList();
     }
 
@@ -66,53 +85,178 @@ public class RestfulMockDAOImpl implements RestfulMockDAOCustom {
     @Override
     public RestfulMock findActiveByMethodAndPathPatternAndTypesForSingleUser(final RestMethodEnum method, final String path, final List<RestMockTypeEnum> mockTypes) {
 
-        final String part1 = StringUtils.split(path, AntPathMatcher.DEFAULT_PATH_SEPARATOR)[0];
-
         final List<RestfulMock> mocks = entityManager.createQuery("FROM RestfulMock rm "
                 + " WHERE rm.method = :method "
+                + " AND rm.status = 'ACTIVE' "
+                + " AND rm.firstSegment IN (:firstSegment, :wildcardSegment) "
                 + " AND rm.mockType IN (:mockTypes) "
-                + " AND (rm.path = :path1 OR rm.path LIKE '/'||:path2||'%')"
-                + " AND rm.createdBy.role = :role "
-                + " AND rm.status = 'ACTIVE'", RestfulMock.class)
+                + " AND rm.createdBy.role = :role", RestfulMock.class)
                 .setParameter("method", method)
+                .setParameter("firstSegment", GeneralUtils.extractFirstPathSegment(path))
+                .setParameter("wildcardSegment", GeneralUtils.WILDCARD_FIRST_PATH_SEGMENT)
                 .setParameter("mockTypes", mockTypes)
-                .setParameter("path1", path)
-                .setParameter("path2", part1)
                 .setParameter("role", SmockinUserRoleEnum.SYS_ADMIN)
+                .setHint(LOAD_GRAPH_HINT, entityManager.getEntityGraph(RestfulMock.SERVE_GRAPH))
                 .getResultList();
 
         return matchPath(mocks, path, false);
     }
 
+    /**
+     * Narrows the candidates using the (method, status, first segment) index on the persisted full path,
+     * so no per row expression on the user's ctx path is needed. Mocks whose first segment is a path variable
+     * or wildcard are indexed under WILDCARD_FIRST_PATH_SEGMENT, so are always candidates.
+     */
     @Override
     public RestfulMock findActiveByMethodAndPathPatternAndTypesForMultiUser(final RestMethodEnum method, final String path, final List<RestMockTypeEnum> mockTypes) {
 
-        final String part1 = StringUtils.split(path, AntPathMatcher.DEFAULT_PATH_SEPARATOR)[0];
-
         final List<RestfulMock> mocks = entityManager.createQuery("FROM RestfulMock rm "
                 + " WHERE rm.method = :method "
-                + " AND rm.mockType IN (:mockTypes) "
-                + " AND "
-                + " ( "
-                + " ('/'||rm.createdBy.ctxPath||rm.path = :path1 OR '/'||rm.createdBy.ctxPath||rm.path LIKE '/'||:path2||'%') "
-                + " OR "
-                + " (rm.path = :path1 OR rm.path LIKE '/'||:path2||'%') "
-                + " ) "
-                + " AND rm.status = 'ACTIVE'", RestfulMock.class)
+                + " AND rm.status = 'ACTIVE' "
+                + " AND rm.firstSegment IN (:firstSegment, :wildcardSegment) "
+                + " AND rm.mockType IN (:mockTypes)", RestfulMock.class)
                 .setParameter("method", method)
+                .setParameter("firstSegment", GeneralUtils.extractFirstPathSegment(path))
+                .setParameter("wildcardSegment", GeneralUtils.WILDCARD_FIRST_PATH_SEGMENT)
                 .setParameter("mockTypes", mockTypes)
-                .setParameter("path1", path)
-                .setParameter("path2", part1)
+                .setHint(LOAD_GRAPH_HINT, entityManager.getEntityGraph(RestfulMock.SERVE_GRAPH))
                 .getResultList();
 
         return matchPath(mocks, path, true);
     }
 
+    /**
+     * Keyset paging (by id) over a user's mocks, optionally restricted to the given ext ids.
+     */
+    @Override
+    public List<RestfulMock> findPageByUser(final long userId, final List<String> extIds, final long afterId, final int pageSize) {
+
+        final boolean filterByExtId = (extIds != null && !extIds.isEmpty());
+
+        final TypedQuery<RestfulMock> query = entityManager.createQuery("FROM RestfulMock rm "
+                + " WHERE rm.createdBy.id = :userId "
+                + " AND rm.id > :afterId "
+                + ((filterByExtId) ? " AND rm.extId IN (:extIds) " : "")
+                + " ORDER BY rm.id ASC", RestfulMock.class)
+                .setParameter("userId", userId)
+                .setParameter("afterId", afterId)
+                .setHint(LOAD_GRAPH_HINT, entityManager.getEntityGraph(RestfulMock.EXPORT_GRAPH))
+                .setMaxResults(pageSize);
+
+        if (filterByExtId) {
+            query.setParameter("extIds", extIds);
+        }
+
+        return query.getResultList();
+    }
+
+    @Override
+    public List<String> findExtIdsByUser(final long userId, final List<String> extIds) {
+        return entityManager.createQuery("SELECT rm.extId FROM RestfulMock rm "
+                + " WHERE rm.createdBy.id = :userId "
+                + " AND rm.extId IN (:extIds)", String.class)
+                .setParameter("userId", userId)
+                .setParameter("extIds", extIds)
+                .getResultList();
+    }
+
+    /**
+     * Selects only the listing columns (no rules, definitions or scripts), filtered and sorted in the DB.
+     */
+    @Override
+    public List<RestfulMockSummaryDTO> findSummariesByUser(final long userId, final RestfulMockSearchDTO search, final int offset, final int limit) {
+
+        final RestfulMockSortEnum sort = (search.getSort() != null) ? search.getSort() : RestfulMockSortEnum.ORDER;
+        final String direction = (search.isDescending()) ? " DESC" : " ASC";
+
+        final TypedQuery<RestfulMockSummaryDTO> query = entityManager.createQuery("SELECT NEW " + RestfulMockSummaryDTO.class.getName()
+                + " (rm.extId, rm.path, u.ctxPath, rm.method, rm.mockType, rm.status, p.extId) "
+                + " FROM RestfulMock rm "
+                + " JOIN rm.createdBy u "
+                + " LEFT JOIN rm.project p "
+                + buildSummaryWhereClause(search)
+                + " ORDER BY " + sort.getJpqlField() + direction + ", rm.id" + direction, RestfulMockSummaryDTO.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit);
+
+        applySummaryParameters(query, userId, search);
+
+        return query.getResultList();
+    }
+
+    @Override
+    public long countByUser(final long userId, final RestfulMockSearchDTO search) {
+
+        final TypedQuery<Long> query = entityManager.createQuery("SELECT COUNT(rm.id) "
+                + " FROM RestfulMock rm "
+                + " JOIN rm.createdBy u "
+                + " LEFT JOIN rm.project p "
+                + buildSummaryWhereClause(search), Long.class);
+
+        applySummaryParameters(query, userId, search);
+
+        return query.getSingleResult();
+    }
+
+    private String buildSummaryWhereClause(final RestfulMockSearchDTO search) {
+
+        final StringBuilder where = new StringBuilder(" WHERE u.id = :userId ");
+
+        if (StringUtils.isNotBlank(search.getPath())) {
+            where.append(" AND LOWER(rm.path) LIKE :path ESCAPE '\\' ");
+        }
+        if (search.getMethod() != null) {
+            where.append(" AND rm.method = :method ");
+        }
+        if (search.getMockType() != null) {
+            where.append(" AND rm.mockType = :mockType ");
+        }
+        if (search.getStatus() != null) {
+            where.append(" AND rm.status = :status ");
+        }
+        if (StringUtils.isNotBlank(search.getProjectId())) {
+            where.append(" AND p.extId = :projectId ");
+        }
+
+        return where.toString();
+    }
+
+    private void applySummaryParameters(final Query query, final long userId, final RestfulMockSearchDTO search) {
+
+        query.setParameter("userId", userId);
+
+        if (StringUtils.isNotBlank(search.getPath())) {
+            final String escapedPath = search.getPath()
+                    .toLowerCase()
+                    .replace("\\", "\\\\")
+                    .replace("%", "\\%")
+                    .replace("_", "\\_");
+            query.setParameter("path", "%" + escapedPath + "%");
+        }
+        if (search.getMethod() != null) {
+            query.setParameter("method", search.getMethod());
+        }
+        if (search.getMockType() != null) {
+            query.setParameter("mockType", search.getMockType());
+        }
+        if (search.getStatus() != null) {
+            query.setParameter("status", search.getStatus());
+        }
+        if (StringUtils.isNotBlank(search.getProjectId())) {
+            query.setParameter("projectId", search.getProjectId());
+        }
+    }
+
     @Override
     public void detach(final RestfulMock restfulMock) {
         entityManager.detach(restfulMock);
     }
 
+    @Override
+    public void clear() {
+        entityManager.clear();
+    }
+
     RestfulMock matchPath(final List<RestfulMock> mocks, final String path, final boolean matchOnUserCtxPath) {
 
         if (mocks.isEmpty()) {
@@ -129,8 +273,8 @@ public class RestfulMockDAOImpl implements RestfulMockDAOCustom {
     }
 
     private String buildMockMatchingPath(final RestfulMock m, final boolean matchOnUserCtxPath) {
-        return (matchOnUserCtxPath && !SmockinUserRoleEnum.SYS_ADMIN.equals(m.getCreatedBy().getRole()))
-                ? "/" + m.getCreatedBy().getCtxPath() + m.getPath()
+        return (matchOnUserCtxPath)
+                ? m.getFullPath()
                 : m.getPath();
     }
 
@@ -7,11 +7,14 @@ import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
-public interface UserKeyValueDataDAO extends JpaRepository<UserKeyValueData, Long> {
+public interface UserKeyValueDataDAO extends JpaRepository<UserKeyValueData, Long>, UserKeyValueDataDAOCustom {
 
     @Query("FROM UserKeyValueData kvp WHERE kvp.createdBy.id = :userId")
     List<UserKeyValueData> findAllByUser(@Param("userId") final long userId);
 
+    @Query("FROM UserKeyValueData kvp JOIN FETCH kvp.createdBy")
+    List<UserKeyValueData> findAllWithOwner();
+
     UserKeyValueData findByExtId(final String extId);
 
     @Query("FROM UserKeyValueData kvp WHERE LOWER(kvp.key) = LOWER(:key) AND kvp.createdBy.id = :userId")
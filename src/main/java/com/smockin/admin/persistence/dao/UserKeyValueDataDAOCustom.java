@@ -0,0 +1,15 @@
+package com.smockin.admin.persistence.dao;
+
+import com.smockin.admin.persistence.entity.UserKeyValueData;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface UserKeyValueDataDAOCustom {
+
+    List<UserKeyValueData> findAllByLowerCaseKeys(final long userId, final Collection<String> lowerCaseKeys);
+    List<UserKeyValueData> findPageByUser(final long userId, final long afterId, final int pageSize);
+    int deleteAllByLowerCaseKeys(final long userId, final Collection<String> lowerCaseKeys);
+    void clear();
+
+}
@@ -0,0 +1,56 @@
+package com.smockin.admin.persistence.dao;
+
+import com.smockin.admin.persistence.entity.UserKeyValueData;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public class UserKeyValueDataDAOImpl implements UserKeyValueDataDAOCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UserKeyValueData> findAllByLowerCaseKeys(final long userId, final Collection<String> lowerCaseKeys) {
+        return entityManager.createQuery("FROM UserKeyValueData kvp "
+                + " WHERE kvp.createdBy.id = :userId "
+                + " AND LOWER(kvp.key) IN (:keys)", UserKeyValueData.class)
+                .setParameter("userId", userId)
+                .setParameter("keys", lowerCaseKeys)
+                .getResultList();
+    }
+
+    @Override
+    public List<UserKeyValueData> findPageByUser(final long userId, final long afterId, final int pageSize) {
+        return entityManager.createQuery("FROM UserKeyValueData kvp "
+                + " WHERE kvp.createdBy.id = :userId "
+                + " AND kvp.id > :afterId "
+                + " ORDER BY kvp.id ASC", UserKeyValueData.class)
+                .setParameter("userId", userId)
+                .setParameter("afterId", afterId)
+                .setMaxResults(pageSize)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    public int deleteAllByLowerCaseKeys(final long userId, final Collection<String> lowerCaseKeys) {
+        return entityManager.createQuery("DELETE FROM UserKeyValueData kvp "
+                + " WHERE kvp.createdBy.id = :userId "
+                + " AND LOWER(kvp.key) IN (:keys)")
+                .setParameter("userId", userId)
+                .setParameter("keys", lowerCaseKeys)
+                .executeUpdate();
+    }
+
+    @Override
+    public void clear() {
+        entityManager.clear();
+    }
+
+}
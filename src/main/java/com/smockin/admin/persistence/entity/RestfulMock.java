@@ -3,6 +3,7 @@ package com.smockin.admin.persistence.entity;
 import com.smockin.admin.persistence.enums.RestMockTypeEnum;
 import com.smockin.admin.persistence.enums.RecordStatusEnum;
 import com.smockin.admin.persistence.enums.RestMethodEnum;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.ColumnDefault;
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -14,12 +15,50 @@ import java.util.List;
 @Entity
 @Table(name = "REST_MOCK", uniqueConstraints={
     @UniqueConstraint(columnNames = {"PATH", "HTTP_METHOD", "CREATED_BY"})
+}, indexes = {
+    @Index(name = "IDX_REST_MOCK_MTHD_STS_SEG", columnList = "HTTP_METHOD, REC_STATUS, FIRST_SEGMENT")
+})
+@NamedEntityGraphs({
+    @NamedEntityGraph(name = RestfulMock.SERVE_GRAPH, attributeNodes = {
+        @NamedAttributeNode("createdBy"),
+        @NamedAttributeNode("javaScriptHandler"),
+        @NamedAttributeNode("restfulMockStatefulMeta")
+    }),
+    @NamedEntityGraph(name = RestfulMock.EDIT_GRAPH, attributeNodes = {
+        @NamedAttributeNode("createdBy"),
+        @NamedAttributeNode("project"),
+        @NamedAttributeNode("javaScriptHandler"),
+        @NamedAttributeNode("restfulMockStatefulMeta"),
+        @NamedAttributeNode("statefulParent")
+    }),
+    @NamedEntityGraph(name = RestfulMock.EXPORT_GRAPH, attributeNodes = {
+        @NamedAttributeNode("createdBy"),
+        @NamedAttributeNode("project"),
+        @NamedAttributeNode("javaScriptHandler"),
+        @NamedAttributeNode("restfulMockStatefulMeta")
+    })
 })
 public class RestfulMock extends Identifier {
 
+    // Fetch plans: the to-one associations are joined in up front (the inverse one-to-ones cannot be lazy
+    // so would otherwise be selected one mock at a time), while collections are batch fetched (see @BatchSize).
+    public static final String SERVE_GRAPH = "RestfulMock.serve";
+    public static final String EDIT_GRAPH = "RestfulMock.edit";
+    public static final String EXPORT_GRAPH = "RestfulMock.export";
+
+    public static final int FETCH_BATCH_SIZE = 50;
+
     @Column(name = "PATH", nullable = false, length = 1000)
     private String path;
 
+    // The path the mock is served on (i.e. prefixed with the owner's ctx path, unless they are the SYS_ADMIN) and its first segment.
+    // Both are derived from path and createdBy, see RestfulMockServiceUtils.applyFullPath().
+    @Column(name = "FULL_PATH", length = 1100)
+    private String fullPath;
+
+    @Column(name = "FIRST_SEGMENT", length = 255)
+    private String firstSegment;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "HTTP_METHOD", nullable = false, length = 10)
     private RestMethodEnum method;
@@ -65,10 +104,12 @@ public class RestfulMock extends Identifier {
     @Column(name = "RDM_LAT_RANGE_MAX", nullable = false)
     private long randomiseLatencyRangeMaxMillis;
 
+    @BatchSize(size = FETCH_BATCH_SIZE)
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, mappedBy = "restfulMock", orphanRemoval = true)
     @OrderBy("orderNo ASC")
     private List<RestfulMockDefinitionRule> rules = new ArrayList<>();
 
+    @BatchSize(size = FETCH_BATCH_SIZE)
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, mappedBy = "restfulMock", orphanRemoval = true)
     @OrderBy("orderNo ASC")
     private List<RestfulMockDefinitionOrder> definitions = new ArrayList<>();
@@ -93,6 +134,7 @@ public class RestfulMock extends Identifier {
     @JoinColumn(name="STATEFUL_PARENT", nullable = true)
     private RestfulMock statefulParent;
 
+    @BatchSize(size = FETCH_BATCH_SIZE)
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, mappedBy = "statefulParent", orphanRemoval = true)
     private List<RestfulMock> statefulChildren = new ArrayList<>();
 
@@ -129,6 +171,20 @@ public class RestfulMock extends Identifier {
         this.path = path;
     }
 
+    public String getFullPath() {
+        return fullPath;
+    }
+    public void setFullPath(String fullPath) {
+        this.fullPath = fullPath;
+    }
+
+    public String getFirstSegment() {
+        return firstSegment;
+    }
+    public void setFirstSegment(String firstSegment) {
+        this.firstSegment = firstSegment;
+    }
+
     public RestMethodEnum getMethod() {
         return method;
     }
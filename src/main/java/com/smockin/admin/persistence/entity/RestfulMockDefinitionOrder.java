@@ -1,5 +1,6 @@
 package com.smockin.admin.persistence.entity;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.ColumnDefault;
 import javax.persistence.*;
 import java.util.HashMap;
@@ -43,6 +44,7 @@ public class RestfulMockDefinitionOrder extends Identifier {
     @Column(name = "ORDER_NO", nullable = false)
     private int orderNo;
 
+    @BatchSize(size = RestfulMock.FETCH_BATCH_SIZE)
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name="REST_MOCK_DEF_RES_HDR")
     private Map<String, String> responseHeaders = new HashMap<>();
@@ -2,6 +2,7 @@ package com.smockin.admin.persistence.entity;
 
 import org.apache.commons.lang3.CharEncoding;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
@@ -40,11 +41,13 @@ public class RestfulMockDefinitionRule extends Identifier {
     @Column(name = "SUSPEND", nullable = false)
     private boolean suspend;
 
+    @BatchSize(size = RestfulMock.FETCH_BATCH_SIZE)
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name="REST_MOCK_RULE_RES_HDR")
     private Map<String, String> responseHeaders = new HashMap<String, String>();
 
     // Each 'rule group' is associated by 'OR'
+    @BatchSize(size = RestfulMock.FETCH_BATCH_SIZE)
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "rule", orphanRemoval = true)
     @OrderBy("orderNo ASC")
     private List<RestfulMockDefinitionRuleGroup> conditionGroups = new ArrayList<>();
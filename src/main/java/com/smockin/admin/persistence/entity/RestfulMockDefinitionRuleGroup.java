@@ -1,5 +1,6 @@
 package com.smockin.admin.persistence.entity;
 
+import org.hibernate.annotations.BatchSize;
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -22,6 +23,7 @@ public class RestfulMockDefinitionRuleGroup extends Identifier {
     private int orderNo;
 
     // Conditions within this group are always chained by 'AND', so having an order is not necessary.
+    @BatchSize(size = RestfulMock.FETCH_BATCH_SIZE)
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "group", orphanRemoval = true)
     private List<RestfulMockDefinitionRuleGroupCondition> conditions = new ArrayList<RestfulMockDefinitionRuleGroupCondition>();
 
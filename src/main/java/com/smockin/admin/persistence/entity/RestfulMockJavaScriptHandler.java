@@ -1,5 +1,6 @@
 package com.smockin.admin.persistence.entity;
 
+import org.hibernate.annotations.ColumnDefault;
 import javax.persistence.*;
 
 /**
@@ -16,6 +17,23 @@ public class RestfulMockJavaScriptHandler extends Identifier {
     @Column(name = "SYNTAX", length = Integer.MAX_VALUE)
     private String syntax;
 
+    // Comma separated request inputs the response is memoized on, or null when memoization is off
+    @Column(name = "MEMO_KEY_INPUTS", length = 1000)
+    private String memoKeyInputs;
+
+    @ColumnDefault("0")
+    @Column(name = "MEMO_TTL_MILLIS", nullable = false)
+    private long memoTtlMillis;
+
+    // Execution budgets, 0 meaning the server default
+    @ColumnDefault("0")
+    @Column(name = "TIMEOUT_MILLIS", nullable = false)
+    private long timeoutMillis;
+
+    @ColumnDefault("0")
+    @Column(name = "CPU_TIME_MILLIS", nullable = false)
+    private long cpuTimeMillis;
+
     public RestfulMock getRestfulMock() {
         return restfulMock;
     }
@@ -30,4 +48,32 @@ public class RestfulMockJavaScriptHandler extends Identifier {
         this.syntax = syntax;
     }
 
+    public String getMemoKeyInputs() {
+        return memoKeyInputs;
+    }
+    public void setMemoKeyInputs(String memoKeyInputs) {
+        this.memoKeyInputs = memoKeyInputs;
+    }
+
+    public long getMemoTtlMillis() {
+        return memoTtlMillis;
+    }
+    public void setMemoTtlMillis(long memoTtlMillis) {
+        this.memoTtlMillis = memoTtlMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long getCpuTimeMillis() {
+        return cpuTimeMillis;
+    }
+    public void setCpuTimeMillis(long cpuTimeMillis) {
+        this.cpuTimeMillis = cpuTimeMillis;
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.smockin.admin.persistence.entity;
 
+import org.hibernate.annotations.ColumnDefault;
 import javax.persistence.*;
 
 
@@ -23,6 +24,15 @@ public class RestfulMockStatefulMeta extends Identifier {
     @Column(name = "ID_FIELD_LOCATION", length = 200)
     private String idFieldLocation;
 
+    // Quotas, 0 meaning the server default
+    @ColumnDefault("0")
+    @Column(name = "MAX_RECORDS", nullable = false)
+    private int maxRecords;
+
+    @ColumnDefault("0")
+    @Column(name = "MAX_BYTES", nullable = false)
+    private long maxBytes;
+
     public RestfulMock getRestfulMock() {
         return restfulMock;
     }
@@ -51,4 +61,18 @@ public class RestfulMockStatefulMeta extends Identifier {
         this.idFieldLocation = idFieldLocation;
     }
 
+    public int getMaxRecords() {
+        return maxRecords;
+    }
+    public void setMaxRecords(int maxRecords) {
+        this.maxRecords = maxRecords;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
 }
@@ -29,6 +29,7 @@ public class MigrationPatch_210 implements MigrationPatch {
                 .stream()
                 .forEach(m -> {
             m.setPath(restfulMockServiceUtils.formatInboundPathVarArgs(m.getPath()));
+            restfulMockServiceUtils.applyFullPath(m);
             restfulMockDAO.save(m);
         });
 
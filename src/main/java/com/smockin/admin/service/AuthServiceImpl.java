@@ -34,6 +34,9 @@ public class AuthServiceImpl implements AuthService {
     @Autowired
     private EncryptionService encryptionService;
 
+    @Autowired
+    private AuthTokenCacheService authTokenCacheService;
+
     private final String jwtRoleKey = "role";
     private final String jwtFullNameKey = "name";
     private final String jwtUserNameKey = "username";
@@ -69,6 +72,9 @@ public class AuthServiceImpl implements AuthService {
         user.setSessionToken(token);
         smockinUserDAO.save(user);
 
+        // The user's previous session token is no longer valid
+        authTokenCacheService.invalidateUser(user.getId());
+
         return token;
     }
 
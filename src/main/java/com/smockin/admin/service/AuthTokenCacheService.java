@@ -0,0 +1,17 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.SmockinPrincipalDTO;
+
+/**
+ * Bounded, TTL'd cache of verified session tokens to the user they belong to, so authenticated admin
+ * requests do not need a DB lookup and JWT verification every time.
+ */
+public interface AuthTokenCacheService {
+
+    SmockinPrincipalDTO get(final String token);
+    void put(final SmockinPrincipalDTO principal);
+    void invalidateToken(final String token);
+    void invalidateUser(final long userId);
+    void clear();
+
+}
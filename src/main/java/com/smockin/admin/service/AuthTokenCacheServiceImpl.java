@@ -0,0 +1,118 @@
+package com.smockin.admin.service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.smockin.admin.dto.SmockinPrincipalDTO;
+import com.smockin.utils.BoundedLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+
+@Service
+public class AuthTokenCacheServiceImpl implements AuthTokenCacheService {
+
+    @Value("${smockin.auth.token.cache.max.entries:1000}")
+    private int maxEntries;
+
+    @Value("${smockin.auth.token.cache.ttl.millis:60000}")
+    private long ttlMillis;
+
+    private BoundedLruCache<String, CacheEntry> cache;
+
+    @PostConstruct
+    public void after() {
+        cache = new BoundedLruCache<>(Math.max(maxEntries, 0));
+    }
+
+    @Override
+    public SmockinPrincipalDTO get(final String token) {
+
+        if (token == null || maxEntries <= 0) {
+            return null;
+        }
+
+        final CacheEntry entry = cache.get(token);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            cache.remove(token, entry);
+            return null;
+        }
+
+        return entry.principal;
+    }
+
+    @Override
+    public void put(final SmockinPrincipalDTO principal) {
+
+        if (principal.getSessionToken() == null || maxEntries <= 0) {
+            return;
+        }
+
+        cache.put(principal.getSessionToken(), new CacheEntry(principal, expiresAt(principal.getSessionToken())));
+    }
+
+    /**
+     * An entry never outlives the token itself, so is dropped at whichever comes first of the ttl or the JWT's exp claim.
+     */
+    long expiresAt(final String token) {
+
+        final long ttlExpiry = System.currentTimeMillis() + ttlMillis;
+
+        try {
+
+            final Date tokenExpiry = JWT.decode(token).getExpiresAt();
+
+            return (tokenExpiry != null)
+                    ? Math.min(ttlExpiry, tokenExpiry.getTime())
+                    : ttlExpiry;
+
+        } catch (JWTDecodeException ex) {
+            return ttlExpiry;
+        }
+    }
+
+    @Override
+    public void invalidateToken(final String token) {
+
+        if (token == null) {
+            return;
+        }
+
+        cache.remove(token);
+    }
+
+    @Override
+    public void invalidateUser(final long userId) {
+
+        cache.removeIf(e -> e.principal.getUserId() == userId, null);
+    }
+
+    @Override
+    public void clear() {
+
+        cache.clear();
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    private static final class CacheEntry {
+
+        private final SmockinPrincipalDTO principal;
+        private final long expiresAt;
+
+        private CacheEntry(final SmockinPrincipalDTO principal, final long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.response.CircuitBreakerStateDTO;
+
+import java.util.List;
+
+/**
+ * Tracks the health of each upstream host, so calls to one that is failing or slow can be skipped without waiting on the network.
+ */
+public interface CircuitBreakerService {
+
+    /**
+     * Returned by allowRequest when the call must be skipped.
+     */
+    long REJECTED = -1;
+
+    String resolveUpstream(final String url);
+
+    /**
+     * @return a permit to pass back to recordOutcome once the call completes, or REJECTED if the call must be skipped.
+     */
+    long allowRequest(final String upstream);
+
+    void recordOutcome(final String upstream, final long permit, final boolean success, final long durationMillis);
+    List<CircuitBreakerStateDTO> getStates();
+    void reset();
+
+}
@@ -0,0 +1,217 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.response.CircuitBreakerStateDTO;
+import com.smockin.admin.enums.CircuitBreakerStateEnum;
+import org.apache.http.HttpHost;
+import org.apache.http.client.utils.URIUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Service
+public class CircuitBreakerServiceImpl implements CircuitBreakerService {
+
+    private final Logger logger = LoggerFactory.getLogger(CircuitBreakerServiceImpl.class);
+
+    @Value("${smockin.redirect.breaker.enabled:false}")
+    private boolean enabled;
+
+    @Value("${smockin.redirect.breaker.window.size:20}")
+    private int windowSize;
+
+    @Value("${smockin.redirect.breaker.minimum.calls:10}")
+    private int minimumCalls;
+
+    @Value("${smockin.redirect.breaker.failure.rate.threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${smockin.redirect.breaker.slow.call.millis:2000}")
+    private long slowCallMillis;
+
+    @Value("${smockin.redirect.breaker.slow.call.rate.threshold:80}")
+    private float slowCallRateThreshold;
+
+    @Value("${smockin.redirect.breaker.open.millis:30000}")
+    private long openMillis;
+
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    @Override
+    public String resolveUpstream(final String url) {
+
+        try {
+            final HttpHost host = URIUtils.extractHost(URI.create(url));
+            return (host != null) ? host.toURI() : url;
+        } catch (IllegalArgumentException ex) {
+            return url;
+        }
+    }
+
+    @Override
+    public long allowRequest(final String upstream) {
+
+        if (!enabled) {
+            return 0;
+        }
+
+        return breakers.computeIfAbsent(upstream, u -> new Breaker()).allow(System.currentTimeMillis());
+    }
+
+    @Override
+    public void recordOutcome(final String upstream, final long permit, final boolean success, final long durationMillis) {
+
+        if (!enabled) {
+            return;
+        }
+
+        final CircuitBreakerStateEnum state = breakers.computeIfAbsent(upstream, u -> new Breaker())
+                .record(permit, success, durationMillis >= slowCallMillis, System.currentTimeMillis());
+
+        if (CircuitBreakerStateEnum.OPEN.equals(state)) {
+            logger.debug("Circuit is open for upstream " + upstream);
+        }
+
+    }
+
+    @Override
+    public List<CircuitBreakerStateDTO> getStates() {
+
+        return breakers.entrySet()
+                .stream()
+                .map(e -> e.getValue().toDTO(e.getKey()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void reset() {
+        breakers.clear();
+    }
+
+    /**
+     * Count based sliding window of the most recent call outcomes for a single upstream.
+     * Each permit is the epoch the call was allowed in, which moves on with every change of state, so the outcome of a call
+     * allowed before a change (such as a slow call still running when the circuit opened) is never mistaken for the probe.
+     */
+    final class Breaker {
+
+        private final boolean[] failed = new boolean[windowSize];
+        private final boolean[] slow = new boolean[windowSize];
+        private int next;
+        private int buffered;
+        private int failures;
+        private int slowCalls;
+
+        private CircuitBreakerStateEnum state = CircuitBreakerStateEnum.CLOSED;
+        private long openedAt;
+        private long epoch;
+        private long rejected;
+
+        synchronized long allow(final long now) {
+
+            switch (state) {
+                case OPEN:
+                    if (now < (openedAt + openMillis)) {
+                        rejected++;
+                        return REJECTED;
+                    }
+                    // Let a single probe through to see if the upstream has recovered.
+                    transition(CircuitBreakerStateEnum.HALF_OPEN);
+                    return epoch;
+                case HALF_OPEN:
+                    // The probe is still in flight.
+                    rejected++;
+                    return REJECTED;
+                case CLOSED:
+                default:
+                    return epoch;
+            }
+
+        }
+
+        synchronized CircuitBreakerStateEnum record(final long permit, final boolean success, final boolean isSlow, final long now) {
+
+            if (permit != epoch) {
+                // Late outcome of a call allowed before the last change of state.
+                return state;
+            }
+
+            switch (state) {
+                case HALF_OPEN:
+                    if (success && !isSlow) {
+                        transition(CircuitBreakerStateEnum.CLOSED);
+                    } else {
+                        trip(now);
+                    }
+                    clearWindow();
+                    break;
+                case CLOSED:
+                    add(!success, isSlow);
+                    if (buffered >= minimumCalls
+                            && (rate(failures) >= failureRateThreshold || rate(slowCalls) >= slowCallRateThreshold)) {
+                        trip(now);
+                        clearWindow();
+                    }
+                    break;
+                case OPEN:
+                default:
+                    break;
+            }
+
+            return state;
+        }
+
+        synchronized CircuitBreakerStateDTO toDTO(final String upstream) {
+            return new CircuitBreakerStateDTO(upstream, state, buffered, rate(failures), rate(slowCalls), rejected,
+                    CircuitBreakerStateEnum.OPEN.equals(state) ? (openedAt + openMillis) : null);
+        }
+
+        private void trip(final long now) {
+            transition(CircuitBreakerStateEnum.OPEN);
+            openedAt = now;
+        }
+
+        private void transition(final CircuitBreakerStateEnum newState) {
+            state = newState;
+            epoch++;
+        }
+
+        private void add(final boolean isFailure, final boolean isSlow) {
+
+            if (buffered == windowSize) {
+                // Drop the oldest outcome being overwritten.
+                if (failed[next]) failures--;
+                if (slow[next]) slowCalls--;
+            } else {
+                buffered++;
+            }
+
+            failed[next] = isFailure;
+            slow[next] = isSlow;
+
+            if (isFailure) failures++;
+            if (isSlow) slowCalls++;
+
+            next = (next + 1) % windowSize;
+        }
+
+        private void clearWindow() {
+            next = 0;
+            buffered = 0;
+            failures = 0;
+            slowCalls = 0;
+        }
+
+        private float rate(final int count) {
+            return (buffered == 0) ? 0 : (count * 100f) / buffered;
+        }
+
+    }
+
+}
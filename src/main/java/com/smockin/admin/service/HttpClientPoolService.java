@@ -0,0 +1,16 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.response.HttpClientPoolStatsDTO;
+import org.apache.http.client.fluent.Executor;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+/**
+ * Owns the single pooled HTTP client used for all outbound calls (the /httpclientcall admin feature and the upstream redirect).
+ */
+public interface HttpClientPoolService {
+
+    CloseableHttpClient getClient();
+    Executor getExecutor();
+    HttpClientPoolStatsDTO getStats();
+
+}
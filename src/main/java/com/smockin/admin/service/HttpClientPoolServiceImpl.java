@@ -0,0 +1,127 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.response.HttpClientPoolStatsDTO;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.fluent.Executor;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class HttpClientPoolServiceImpl implements HttpClientPoolService {
+
+    private final Logger logger = LoggerFactory.getLogger(HttpClientPoolServiceImpl.class);
+
+    @Value("${smockin.httpclient.max.total:200}")
+    private int maxTotal;
+
+    @Value("${smockin.httpclient.max.per.route:50}")
+    private int maxPerRoute;
+
+    @Value("${smockin.httpclient.connect.timeout.millis:5000}")
+    private int connectTimeoutMillis;
+
+    @Value("${smockin.httpclient.socket.timeout.millis:30000}")
+    private int socketTimeoutMillis;
+
+    @Value("${smockin.httpclient.request.timeout.millis:5000}")
+    private int requestTimeoutMillis;
+
+    @Value("${smockin.httpclient.keep.alive.millis:30000}")
+    private long keepAliveMillis;
+
+    @Value("${smockin.httpclient.idle.evict.millis:30000}")
+    private long idleEvictMillis;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient client;
+    private Executor executor;
+
+    @Override
+    public CloseableHttpClient getClient() {
+        return client;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public HttpClientPoolStatsDTO getStats() {
+
+        final HttpClientPoolStatsDTO dto = toDTO(connectionManager.getTotalStats());
+
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            dto.getRoutes().put(route.getTargetHost().toURI(), toDTO(connectionManager.getStats(route)));
+        }
+
+        return dto;
+    }
+
+    @PostConstruct
+    public void after() {
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+        final RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setSocketTimeout(socketTimeoutMillis)
+                .setConnectionRequestTimeout(requestTimeoutMillis)
+                .build();
+
+        client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(buildKeepAliveStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictMillis, TimeUnit.MILLISECONDS)
+                .build();
+
+        executor = Executor.newInstance(client);
+    }
+
+    @PreDestroy
+    public void destroy() {
+
+        try {
+            client.close();
+        } catch (IOException ex) {
+            logger.error("Error closing pooled http client", ex);
+        }
+
+    }
+
+    ConnectionKeepAliveStrategy buildKeepAliveStrategy() {
+
+        // Honour the server's Keep-Alive header if present, otherwise fall back to our own limit rather than 'forever'.
+        return (response, context) -> {
+
+            final long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+
+            return (serverKeepAlive > 0)
+                    ? serverKeepAlive
+                    : keepAliveMillis;
+        };
+    }
+
+    private HttpClientPoolStatsDTO toDTO(final PoolStats stats) {
+        return new HttpClientPoolStatsDTO(stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax());
+    }
+
+}
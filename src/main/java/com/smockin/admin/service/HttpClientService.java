@@ -4,6 +4,8 @@ import com.smockin.admin.dto.HttpClientCallDTO;
 import com.smockin.admin.dto.response.HttpClientResponseDTO;
 import com.smockin.admin.exception.ValidationException;
 
+import javax.servlet.http.HttpServletResponse;
+
 /**
  * Created by mgallina.
  */
@@ -12,4 +14,12 @@ public interface HttpClientService {
     HttpClientResponseDTO handleCall(final HttpClientCallDTO httpClientCallDTO) throws ValidationException;
     HttpClientResponseDTO handleCall(final HttpClientCallDTO httpClientCallDTO, boolean justRedirect) throws ValidationException;
 
+    /**
+     * Streams the upstream redirect response (status, headers and body) straight onto the given response.
+     *
+     * @return false if the upstream had nothing for this request (i.e. 404 or unreachable) and nothing was written,
+     * so the caller should fall back to the local mocks.
+     */
+    boolean streamRedirect(final HttpClientCallDTO httpClientCallDTO, final HttpServletResponse response) throws ValidationException;
+
 }
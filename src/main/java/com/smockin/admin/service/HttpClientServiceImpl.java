@@ -1,15 +1,30 @@
 package com.smockin.admin.service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.fluent.Request;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +33,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import com.smockin.admin.dto.HttpClientCallDTO;
+import com.smockin.admin.dto.RecordedExchangeDTO;
+import com.smockin.admin.dto.UpstreamResponseDTO;
 import com.smockin.admin.dto.response.HttpClientResponseDTO;
 import com.smockin.admin.exception.ValidationException;
 import com.smockin.mockserver.dto.MockServerState;
@@ -32,12 +49,44 @@ public class HttpClientServiceImpl implements HttpClientService {
 
     private final Logger logger = LoggerFactory.getLogger(HttpClientServiceImpl.class);
 
+    // Hop-by-hop headers only apply to the upstream connection, so are not passed on when streaming.
+    private static final Set<String> HOP_BY_HOP_HEADERS = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER) {
+        {
+            addAll(Arrays.asList("Connection", "Keep-Alive", "Proxy-Authenticate", "Proxy-Authorization",
+                    "TE", "Trailer", "Transfer-Encoding", "Upgrade"));
+        }
+    };
+
+    private static final Set<String> TEXT_MIME_TYPES = new HashSet<>(Arrays.asList("application/json", "application/xml",
+            "application/javascript", "application/x-www-form-urlencoded", "application/x-ndjson", "application/yaml", "application/graphql"));
+
+    private static final Set<String> NON_RECORDED_HEADERS = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER) {
+        {
+            addAll(Arrays.asList(HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_ENCODING, HttpHeaders.DATE));
+        }
+    };
+
     @Value("${smockin.redirect.url}")
     private String redirectUrl;
+
+    @Value("${smockin.redirect.stream.buffer.bytes:8192}")
+    private int streamBufferBytes;
     
     @Autowired
     private MockedServerEngineService mockedServerEngineService;
 
+    @Autowired
+    private HttpClientPoolService httpClientPoolService;
+
+    @Autowired
+    private UpstreamResponseCacheService upstreamResponseCacheService;
+
+    @Autowired
+    private CircuitBreakerService circuitBreakerService;
+
+    @Autowired
+    private UpstreamRecordingService upstreamRecordingService;
+
     @Override
     public HttpClientResponseDTO handleCall(final HttpClientCallDTO dto, boolean justRedirect) throws ValidationException {
       logger.debug("handleCall called");
@@ -55,47 +104,35 @@ public class HttpClientServiceImpl implements HttpClientService {
               return new HttpClientResponseDTO(HttpStatus.NOT_FOUND.value());
           }
           String url = dto.getUrl();
-          dto.setUrl((redirectUrl  + url).replaceAll("(?<!(http:|https:))//{2,}", "/"));
-          switch (dto.getMethod()) {
-              case GET:
-                  httpClientResponseDTO = get(dto);
-                  if(!justRedirect && httpClientResponseDTO.getStatus() == 404) {  
-                    dto.setUrl("http://localhost:" + state.getPort() + url);
-                    httpClientResponseDTO = get(dto);
-                  }
-                  return httpClientResponseDTO;
-              case POST:
-                httpClientResponseDTO = post(dto);
-                if(!justRedirect && httpClientResponseDTO.getStatus() == 404) {  
-                  dto.setUrl("http://localhost:" + state.getPort() + url);
-                  httpClientResponseDTO = post(dto);
-                }
-                return httpClientResponseDTO;
-              case PUT:
-                httpClientResponseDTO = put(dto);
-                if(!justRedirect && httpClientResponseDTO.getStatus() == 404) {  
-                  dto.setUrl("http://localhost:" + state.getPort() + url);
-                  httpClientResponseDTO = put(dto);
-                }
-                return httpClientResponseDTO;
-              case DELETE:
-                httpClientResponseDTO = delete(dto);
-                if(!justRedirect && httpClientResponseDTO.getStatus() == 404) {  
-                  dto.setUrl("http://localhost:" + state.getPort() + url);
-                  httpClientResponseDTO = delete(dto);
-                }
-                return httpClientResponseDTO;
-              case PATCH:
-                httpClientResponseDTO = patch(dto);
-                if(!justRedirect && httpClientResponseDTO.getStatus() == 404) {  
-                  dto.setUrl("http://localhost:" + state.getPort() + url);
-                  httpClientResponseDTO = patch(dto);
-                }
-                return httpClientResponseDTO;
-              default:
-                  throw new ValidationException("Invalid / Unsupported method: " + dto.getMethod());
+          dto.setUrl(buildRedirectUrl(url));
+
+          try {
+              final Request request = buildRequest(dto);
+              applyRequestHeaders(request, dto.getHeaders());
+              httpClientResponseDTO = (justRedirect && upstreamResponseCacheService.isCacheable(dto))
+                      ? buildResponseDTO(upstreamResponseCacheService.get(
+                              upstreamResponseCacheService.buildKey(dto),
+                              () -> callUpstream(dto.getUrl(), request, this::readResponse)))
+                      : callUpstream(dto.getUrl(), request, this::buildResponseDTO);
+
+              if (justRedirect
+                      && httpClientResponseDTO.getStatus() != HttpStatus.NOT_FOUND.value()
+                      && upstreamRecordingService.isRecording()) {
+                  recordExchange(dto, url, httpClientResponseDTO.getStatus(), httpClientResponseDTO.getContentType(), httpClientResponseDTO.getHeaders(),
+                          StringUtils.defaultString(httpClientResponseDTO.getBody()).getBytes(StandardCharsets.UTF_8));
+              }
+
+          } catch (CircuitOpenException ex) {
+              httpClientResponseDTO = new HttpClientResponseDTO(HttpStatus.NOT_FOUND.value());
+          }
+
+          if(!justRedirect && httpClientResponseDTO.getStatus() == 404) {
+            dto.setUrl("http://localhost:" + state.getPort() + url);
+            httpClientResponseDTO = executeRequest(buildRequest(dto), dto.getHeaders());
           }
 
+          return httpClientResponseDTO;
+
       } catch (IOException | MockServerException ex) {
           return new HttpClientResponseDTO(HttpStatus.NOT_FOUND.value());
       }  
@@ -106,44 +143,323 @@ public class HttpClientServiceImpl implements HttpClientService {
       return handleCall(dto, false);
     }
 
-    HttpClientResponseDTO get(final HttpClientCallDTO reqDto) throws IOException {
+    @Override
+    public boolean streamRedirect(final HttpClientCallDTO dto, final HttpServletResponse response) throws ValidationException {
+        logger.debug("streamRedirect called");
+
+        debugDTO(dto);
+
+        validateRequest(dto);
+
+        try {
+
+            if (!mockedServerEngineService.getRestServerState().isRunning()) {
+                return false;
+            }
+
+            final String path = dto.getUrl();
+            dto.setUrl(buildRedirectUrl(path));
+
+            final Request request = buildRequest(dto);
+
+            applyRequestHeaders(request, dto.getHeaders());
+
+            if (upstreamResponseCacheService.isCacheable(dto)) {
+
+                final AtomicReference<Boolean> streamed = new AtomicReference<>();
+
+                // Only responses small enough to cache are buffered, anything else is streamed straight through as usual.
+                final UpstreamResponseDTO upstreamResponse = upstreamResponseCacheService.get(
+                        upstreamResponseCacheService.buildKey(dto),
+                        () -> callUpstream(dto.getUrl(), request, httpResponse -> {
+
+                            if (isBufferable(httpResponse)) {
+                                return readResponse(httpResponse);
+                            }
+
+                            streamed.set(streamAndRecord(dto, path, httpResponse, response));
+
+                            return null;
+                        }));
+
+                if (streamed.get() != null) {
+                    return streamed.get();
+                }
+
+                if (upstreamResponse != null) {
+
+                    final boolean handled = writeResponse(upstreamResponse, response);
+
+                    if (handled && upstreamRecordingService.isRecording()) {
+                        recordExchange(dto, path, upstreamResponse.getStatus(), upstreamResponse.getHeaders(), upstreamResponse.getBody());
+                    }
+
+                    return handled;
+                }
+
+                // Coalesced onto a call whose response was streamed rather than buffered, so make our own.
+            }
+
+            return callUpstream(dto.getUrl(), request, httpResponse -> streamAndRecord(dto, path, httpResponse, response));
+
+        } catch (CircuitOpenException ex) {
+            logger.debug(ex.getMessage());
+            return false;
+        } catch (IOException | MockServerException ex) {
+            logger.debug("Error streaming redirect response", ex);
+
+            // Once anything has been sent there is no going back to the local mocks.
+            return response.isCommitted();
+        }
+    }
+
+    /**
+     * Executes the call to the redirect upstream, guarded by that upstream's circuit breaker.
+     * The outcome is recorded as soon as the response headers arrive, so streaming the body is not counted towards the call time.
+     */
+    <T> T callUpstream(final String url, final Request request, final ResponseHandler<T> handler) throws IOException {
+
+        final String upstream = circuitBreakerService.resolveUpstream(url);
+
+        final long permit = circuitBreakerService.allowRequest(upstream);
+
+        if (permit == CircuitBreakerService.REJECTED) {
+            throw new CircuitOpenException(upstream);
+        }
+
+        final long start = System.currentTimeMillis();
+        final AtomicBoolean recorded = new AtomicBoolean(false);
+
+        try {
 
-        final Request request = Request.Get(reqDto.getUrl());
+            // handleResponse consumes (and so releases) the upstream entity once the handler returns.
+            return httpClientPoolService.getExecutor()
+                    .execute(request)
+                    .handleResponse(httpResponse -> {
+                        recorded.set(true);
+                        circuitBreakerService.recordOutcome(upstream, permit,
+                                httpResponse.getStatusLine().getStatusCode() < HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                                System.currentTimeMillis() - start);
+                        return handler.handleResponse(httpResponse);
+                    });
+
+        } catch (IOException | RuntimeException ex) {
+
+            if (!recorded.get()) {
+                circuitBreakerService.recordOutcome(upstream, permit, false, System.currentTimeMillis() - start);
+            }
+
+            throw ex;
+        }
 
-        return executeRequest(request, reqDto.getHeaders());
     }
 
-    HttpClientResponseDTO post(final HttpClientCallDTO reqDto) throws IOException {
+    String buildRedirectUrl(final String url) {
+        return (redirectUrl  + url).replaceAll("(?<!(http:|https:))//{2,}", "/");
+    }
 
-        final Request request = Request.Post(reqDto.getUrl());
+    Request buildRequest(final HttpClientCallDTO reqDto) throws ValidationException {
+
+        final Request request;
+
+        switch (reqDto.getMethod()) {
+            case GET:
+                return Request.Get(reqDto.getUrl());
+            case POST:
+                request = Request.Post(reqDto.getUrl());
+                break;
+            case PUT:
+                request = Request.Put(reqDto.getUrl());
+                break;
+            case DELETE:
+                return Request.Delete(reqDto.getUrl());
+            case PATCH:
+                return Request.Patch(reqDto.getUrl())
+                        .bodyByteArray((reqDto.getBody() != null)?reqDto.getBody().getBytes():null);
+            default:
+                throw new ValidationException("Invalid / Unsupported method: " + reqDto.getMethod());
+        }
 
         HttpClientUtils.handleRequestData(request, reqDto.getHeaders(), reqDto);
 
-        return executeRequest(request, reqDto.getHeaders());
+        return request;
     }
 
-    HttpClientResponseDTO put(final HttpClientCallDTO reqDto) throws IOException {
+    boolean streamAndRecord(final HttpClientCallDTO dto, final String path, final HttpResponse httpResponse, final HttpServletResponse response) throws IOException {
 
-        final Request request = Request.Put(reqDto.getUrl());
+        final ByteArrayOutputStream capture = (upstreamRecordingService.isRecording())
+                ? new ByteArrayOutputStream()
+                : null;
 
-        HttpClientUtils.handleRequestData(request, reqDto.getHeaders(), reqDto);
+        final boolean handled = streamResponse(httpResponse, response, capture);
+
+        if (handled && capture != null) {
+            recordExchange(dto, path, httpResponse.getStatusLine().getStatusCode(), httpResponse.getAllHeaders(), capture.toByteArray());
+        }
+
+        return handled;
+    }
+
+    /**
+     * Whether the response is known up front (by its Content-Length) to be small enough to hold in the cache.
+     */
+    boolean isBufferable(final HttpResponse httpResponse) {
+
+        final HttpEntity entity = httpResponse.getEntity();
+
+        if (entity == null) {
+            return true;
+        }
+
+        final long contentLength = entity.getContentLength();
+
+        return contentLength >= 0 && contentLength <= upstreamResponseCacheService.getMaxEntryBytes();
+    }
+
+    /**
+     * @param capture if not null, also receives a copy of the body (up to roughly the recording limit) for the upstream recorder.
+     */
+    boolean streamResponse(final HttpResponse httpResponse, final HttpServletResponse response, final ByteArrayOutputStream capture) throws IOException {
+
+        final int status = httpResponse.getStatusLine().getStatusCode();
+
+        if (status == HttpStatus.NOT_FOUND.value()) {
+            return false;
+        }
+
+        response.setStatus(status);
+
+        applyResponseHeaders(httpResponse.getAllHeaders(), response);
+
+        final HttpEntity entity = httpResponse.getEntity();
+
+        if (entity != null) {
+
+            final byte[] buffer = new byte[streamBufferBytes];
+            final OutputStream out = response.getOutputStream();
+
+            try (InputStream in = entity.getContent()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+
+                    if (capture != null && capture.size() <= upstreamRecordingService.getMaxBodyBytes()) {
+                        capture.write(buffer, 0, read);
+                    }
+                }
+            }
+
+        }
+
+        response.flushBuffer();
+
+        return true;
+    }
+
+    UpstreamResponseDTO readResponse(final HttpResponse httpResponse) throws IOException {
+
+        final HttpEntity entity = httpResponse.getEntity();
+
+        return new UpstreamResponseDTO(
+                httpResponse.getStatusLine().getStatusCode(),
+                httpResponse.getAllHeaders(),
+                (entity != null) ? EntityUtils.toByteArray(entity) : new byte[0]);
+    }
+
+    boolean writeResponse(final UpstreamResponseDTO upstreamResponse, final HttpServletResponse response) throws IOException {
+
+        if (upstreamResponse.getStatus() == HttpStatus.NOT_FOUND.value()) {
+            return false;
+        }
+
+        response.setStatus(upstreamResponse.getStatus());
+
+        applyResponseHeaders(upstreamResponse.getHeaders(), response);
+
+        // The body is already fully buffered, so any upstream chunking / length no longer applies.
+        response.setContentLength(upstreamResponse.getBody().length);
+        response.getOutputStream().write(upstreamResponse.getBody());
+        response.flushBuffer();
+
+        return true;
+    }
+
+    void recordExchange(final HttpClientCallDTO dto, final String path, final int status, final Header[] headers, final byte[] body) {
+
+        final Map<String, String> headerMap = new HashMap<>();
+        String contentType = null;
+
+        for (Header h : headers) {
+            if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(h.getName())) {
+                contentType = h.getValue();
+            }
+            headerMap.put(h.getName(), h.getValue());
+        }
+
+        recordExchange(dto, path, status, contentType, headerMap, body);
+    }
+
+    /**
+     * Recorded bodies end up as the (String) response body of a SEQ mock, so anything too large or not text is left out.
+     */
+    void recordExchange(final HttpClientCallDTO dto, final String path, final int status, final String contentType, final Map<String, String> headers, final byte[] body) {
+
+        if (body.length > upstreamRecordingService.getMaxBodyBytes()) {
+            logger.debug("Response body too large to record: " + dto.getMethod() + " " + path);
+            return;
+        }
+
+        if (body.length > 0 && !isTextContent(contentType)) {
+            logger.debug("Non text response not recorded: " + dto.getMethod() + " " + path + " (" + contentType + ")");
+            return;
+        }
 
-        return executeRequest(request, reqDto.getHeaders());
+        upstreamRecordingService.record(new RecordedExchangeDTO(dto.getMethod(), path, status, contentType,
+                filterRecordedHeaders(headers), new String(body, StandardCharsets.UTF_8)));
     }
 
-    HttpClientResponseDTO delete(final HttpClientCallDTO reqDto) throws IOException {
+    boolean isTextContent(final String contentType) {
+
+        if (StringUtils.isBlank(contentType)) {
+            return false;
+        }
+
+        final String mimeType = StringUtils.substringBefore(contentType, ";").trim().toLowerCase();
+
+        return mimeType.startsWith("text/")
+                || mimeType.endsWith("+json")
+                || mimeType.endsWith("+xml")
+                || TEXT_MIME_TYPES.contains(mimeType);
+    }
+
+    /**
+     * Drops headers which describe the original transfer rather than the response itself, as these would be wrong when replayed by a mock.
+     */
+    Map<String, String> filterRecordedHeaders(final Map<String, String> headers) {
+
+        final Map<String, String> filtered = new HashMap<>();
+
+        if (headers == null) {
+            return filtered;
+        }
 
-        final Request request = Request.Delete(reqDto.getUrl());
+        headers.forEach((k, v) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(k) && !NON_RECORDED_HEADERS.contains(k)) {
+                filtered.put(k, v);
+            }
+        });
 
-        return executeRequest(request, reqDto.getHeaders());
+        return filtered;
     }
 
-    HttpClientResponseDTO patch(final HttpClientCallDTO reqDto) throws IOException {
+    void applyResponseHeaders(final Header[] headers, final HttpServletResponse response) {
 
-        final Request request = Request.Patch(reqDto.getUrl())
-                .bodyByteArray((reqDto.getBody() != null)?reqDto.getBody().getBytes():null);
+        for (Header h : headers) {
+            if (!HOP_BY_HOP_HEADERS.contains(h.getName())) {
+                response.addHeader(h.getName(), h.getValue());
+            }
+        }
 
-        return executeRequest(request, reqDto.getHeaders());
     }
 
     /**
@@ -196,7 +512,10 @@ public class HttpClientServiceImpl implements HttpClientService {
 
         applyRequestHeaders(request, requestHeaders);
 
-        final HttpResponse httpResponse = request.execute().returnResponse();
+        return buildResponseDTO(httpClientPoolService.getExecutor().execute(request).returnResponse());
+    }
+
+    HttpClientResponseDTO buildResponseDTO(final HttpResponse httpResponse) throws IOException {
 
         return new HttpClientResponseDTO(
                 httpResponse.getStatusLine().getStatusCode(),
@@ -206,6 +525,33 @@ public class HttpClientServiceImpl implements HttpClientService {
         );
     }
 
+    /**
+     * Builds the buffered (non streamed) redirect response from an upstream response held by the cache.
+     */
+    HttpClientResponseDTO buildResponseDTO(final UpstreamResponseDTO upstreamResponse) {
+
+        final Map<String, String> headers = new HashMap<>();
+        String contentType = null;
+
+        for (Header h : upstreamResponse.getHeaders()) {
+            if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(h.getName())) {
+                contentType = h.getValue();
+            }
+            headers.put(h.getName(), h.getValue());
+        }
+
+        return new HttpClientResponseDTO(upstreamResponse.getStatus(), contentType, headers,
+                new String(upstreamResponse.getBody(), StandardCharsets.UTF_8));
+    }
+
+    static final class CircuitOpenException extends IOException {
+
+        CircuitOpenException(final String upstream) {
+            super("Circuit is open for upstream " + upstream + ", skipping call");
+        }
+
+    }
+
     private void debugDTO(final HttpClientCallDTO dto) {
 
         if (logger.isDebugEnabled()) {
@@ -8,6 +8,7 @@ import com.smockin.admin.exception.ValidationException;
 import com.smockin.admin.persistence.enums.ServerTypeEnum;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.OutputStream;
 import java.util.List;
 
 public interface MockDefinitionImportExportService {
@@ -19,5 +20,6 @@ public interface MockDefinitionImportExportService {
 
     String importFile(final MultipartFile file, final MockImportConfigDTO config, final String token) throws MockImportException, ValidationException, RecordNotFoundException;
     String export(final List<String> selectedExports, final String token) throws MockExportException, RecordNotFoundException;
+    void export(final List<String> selectedExports, final String token, final OutputStream out) throws MockExportException, RecordNotFoundException;
 
 }
@@ -1,5 +1,6 @@
 package com.smockin.admin.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.smockin.admin.dto.MockImportConfigDTO;
 import com.smockin.admin.dto.response.RestfulMockResponseDTO;
@@ -7,6 +8,8 @@ import com.smockin.admin.exception.MockExportException;
 import com.smockin.admin.exception.MockImportException;
 import com.smockin.admin.exception.RecordNotFoundException;
 import com.smockin.admin.exception.ValidationException;
+import com.smockin.admin.persistence.dao.RestfulMockDAO;
+import com.smockin.admin.persistence.entity.RestfulMock;
 import com.smockin.admin.persistence.entity.SmockinUser;
 import com.smockin.admin.persistence.enums.ServerTypeEnum;
 import com.smockin.admin.service.utils.RestfulMockServiceUtils;
@@ -16,16 +19,20 @@ import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import javax.transaction.Transactional;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 @Transactional
@@ -42,6 +49,12 @@ public class MockDefinitionImportExportServiceImpl implements MockDefinitionImpo
     @Autowired
     private RestfulMockServiceUtils restfulMockServiceUtils;
 
+    @Autowired
+    private RestfulMockDAO restfulMockDAO;
+
+    @Value("${smockin.export.page.size:100}")
+    private int exportPageSize;
+
     @Override
     public String importFile(final MultipartFile file, final MockImportConfigDTO config, final String token)
             throws MockImportException, ValidationException, RecordNotFoundException {
@@ -90,6 +103,63 @@ public class MockDefinitionImportExportServiceImpl implements MockDefinitionImpo
         return Base64.getEncoder().encodeToString(archiveBytes);
     }
 
+    /**
+     * Streams the export zip straight onto the given stream, paging through the mocks and
+     * writing each one as it is loaded, so memory use does not grow with the number of mocks.
+     */
+    @Override
+    public void export(final List<String> selectedExports, final String token, final OutputStream out)
+            throws MockExportException, RecordNotFoundException {
+        logger.debug("export (streamed) called");
+
+        final long userId = userTokenServiceUtils.loadCurrentUser(token).getId();
+
+        // Check all selected mocks exist before anything is written
+        if (!selectedExports.isEmpty()
+                && new HashSet<>(restfulMockDAO.findExtIdsByUser(userId, selectedExports)).size() != new HashSet<>(selectedExports).size()) {
+            throw new RecordNotFoundException();
+        }
+
+        try {
+
+            final ZipOutputStream zos = new ZipOutputStream(out);
+            zos.putNextEntry(new ZipEntry(restExportFileName + exportFileNameExt));
+
+            try (JsonGenerator generator = GeneralUtils.createJsonGenerator(zos)) {
+
+                generator.writeStartArray();
+
+                long lastId = 0;
+                List<RestfulMock> page;
+
+                do {
+
+                    page = restfulMockDAO.findPageByUser(userId, selectedExports, lastId, exportPageSize);
+
+                    for (RestfulMock mock : page) {
+                        generator.writeObject(restfulMockServiceUtils.buildRestfulMockDefinitionDTO(mock));
+                        lastId = mock.getId();
+                    }
+
+                    generator.flush();
+
+                    // Drop the page just written from the persistence context, so it does not accumulate
+                    restfulMockDAO.clear();
+
+                } while (page.size() == exportPageSize);
+
+                generator.writeEndArray();
+            }
+
+            zos.closeEntry();
+            zos.finish();
+
+        } catch (IOException ex) {
+            throw new MockExportException("Error exporting mocks", ex);
+        }
+
+    }
+
     //
     // Export related functions
     private String loadHTTPExportContent(final List<String> selectedExports, final String token) {
@@ -162,35 +232,134 @@ public class MockDefinitionImportExportServiceImpl implements MockDefinitionImpo
         throw new MockImportException("Unable to determine server type for file: " + f.getName());
     }
 
+    /**
+     * Imports all the mocks in a single transaction:
+     * - every record is validated up front, so a bad record is reported rather than failing part way through writing
+     * - inserts are handed to Hibernate in one go, so are written in JDBC batches (see hibernate.jdbc.batch_size)
+     * - endpoint ordering is recomputed once at the end, rather than after every insert
+     * - a mock repeated within the import is handled by the same conflict strategy as one that already exists
+     */
     private String handleMockImport(final String content, final MockImportConfigDTO config, final SmockinUser currentUser, final String conflictCtxPath) {
 
-        final StringBuilder outcome = new StringBuilder();
+        final List<RestfulMockResponseDTO> importMocks = GeneralUtils.deserialiseJson(content, new TypeReference<List<RestfulMockResponseDTO>>() {});
 
-        GeneralUtils.deserialiseJson(content, new TypeReference<List<RestfulMockResponseDTO>>() {})
-            .stream()
-            .forEach(rm -> {
+        final StringBuilder successes = new StringBuilder();
+        final StringBuilder failures = new StringBuilder();
+        final List<RestfulMockResponseDTO> validMocks = new ArrayList<>();
 
-                if (outcome.length() == 0) {
-                    outcome.append("Successful Imports:\n\n");
-                }
+        // Validate
+        for (RestfulMockResponseDTO rm : importMocks) {
 
-                restfulMockServiceUtils.preHandleExistingEndpoints(rm, config, currentUser, conflictCtxPath);
+            restfulMockServiceUtils.amendPath(rm);
 
-                try {
+            try {
+
+                restfulMockServiceUtils.validateNewEndpoint(rm);
 
-                    restfulMockService.createEndpoint(rm, currentUser.getSessionToken());
+                validMocks.add(rm);
 
-                    outcome.append(rm.getMethod());
-                    outcome.append(" ");
-                    outcome.append(rm.getPath());
-                    outcome.append("\n");
+            } catch (ValidationException ex) {
+                failures.append(handleImportFail(rm.getMethod() + " " + rm.getPath() + " (" + ex.getMessage() + ")", ex));
+            }
+        }
+
+        // Build
+        final List<RestfulMock> newMocks = new ArrayList<>();
+        final Map<String, RestfulMock> newMocksByKey = new HashMap<>();
+
+        for (RestfulMockResponseDTO rm : validMocks) {
+
+            restfulMockServiceUtils.preHandleExistingEndpoints(rm, config, currentUser, conflictCtxPath);
+
+            final RestfulMock earlierMock = newMocksByKey.get(buildImportKey(rm));
+
+            if (earlierMock != null) {
+                preHandleEarlierImport(rm, earlierMock, newMocks, config, conflictCtxPath);
+            }
+
+            // Taken up front, as building a STATEFUL mock passes the dto through its children's paths.
+            final String importKey = buildImportKey(rm);
+
+            try {
+
+                // Nothing is saved here, STATEFUL children included, so all of these are written in the one batch below.
+                final RestfulMock newMock = restfulMockServiceUtils.buildNewRestfulMock(rm, currentUser);
+
+                newMocks.add(newMock);
+                newMocksByKey.put(importKey, newMock);
+
+                successes.append(rm.getMethod());
+                successes.append(" ");
+                successes.append(rm.getPath());
+                successes.append("\n");
+
+            } catch (Throwable ex) {
+                failures.append(handleImportFail(rm.getMethod() + " " + rm.getPath(), ex));
+            }
+        }
+
+        // Save
+        if (!newMocks.isEmpty()) {
 
-                } catch (Throwable ex) {
-                    outcome.append(handleImportFail(rm.getMethod() + " " + rm.getPath(), ex));
+            try {
+                restfulMockDAO.saveAll(newMocks);
+                restfulMockDAO.flush();
+            } catch (Throwable ex) {
+                logger.error("Error saving imported mocks", ex);
+                throw new MockImportException("Error saving imported mocks, nothing has been imported");
+            }
+
+            restfulMockServiceUtils.handleEndpointOrdering();
+        }
+
+        final StringBuilder outcome = new StringBuilder();
+
+        if (successes.length() > 0 || failures.length() > 0) {
+            outcome.append("Successful Imports:\n\n");
+        }
+
+        return outcome.append(successes).append(failures).toString();
+    }
+
+    private String buildImportKey(final RestfulMockResponseDTO rm) {
+        return rm.getMethod() + " " + restfulMockServiceUtils.formatInboundPathVarArgs(rm.getPath());
+    }
+
+    /**
+     * Mocks are only saved once the whole import has been built, so one repeated within the import is not seen by
+     * preHandleExistingEndpoints. The earlier mock in the import is handled here instead, in the same way as an existing one would be.
+     */
+    private void preHandleEarlierImport(final RestfulMockResponseDTO rm,
+                                        final RestfulMock earlierMock,
+                                        final List<RestfulMock> newMocks,
+                                        final MockImportConfigDTO config,
+                                        final String conflictCtxPath) {
+
+        if (!config.isKeepExisting()) {
+
+            for (int i = 0; i < newMocks.size(); i++) {
+                if (newMocks.get(i) == earlierMock) {
+                    newMocks.remove(i);
+                    break;
                 }
-            });
+            }
+
+            return;
+        }
 
-        return outcome.toString();
+        switch (config.getKeepStrategy()) {
+            case RENAME_EXISTING:
+                earlierMock.setPath("/" + conflictCtxPath + earlierMock.getPath());
+                restfulMockServiceUtils.applyFullPath(earlierMock);
+                earlierMock.getStatefulChildren().forEach(c -> {
+                    c.setPath("/" + conflictCtxPath + c.getPath());
+                    restfulMockServiceUtils.applyFullPath(c);
+                });
+                break;
+            case RENAME_NEW:
+                rm.setPath("/" + conflictCtxPath + rm.getPath());
+                break;
+        }
     }
 
     private String handleImportFail(final String info, final Throwable cause) {
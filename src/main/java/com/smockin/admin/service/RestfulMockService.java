@@ -1,7 +1,10 @@
 package com.smockin.admin.service;
 
 import com.smockin.admin.dto.RestfulMockDTO;
+import com.smockin.admin.dto.RestfulMockSearchDTO;
+import com.smockin.admin.dto.response.PagedResponseDTO;
 import com.smockin.admin.dto.response.RestfulMockResponseDTO;
+import com.smockin.admin.dto.response.RestfulMockSummaryDTO;
 import com.smockin.admin.exception.RecordNotFoundException;
 import com.smockin.admin.exception.ValidationException;
 
@@ -17,5 +20,6 @@ public interface RestfulMockService {
     void updateEndpoint(final String mockExtId, final RestfulMockDTO dto, final String token) throws RecordNotFoundException, ValidationException;
     void deleteEndpoint(final String mockExtId, final String token) throws RecordNotFoundException, ValidationException;
     List<RestfulMockResponseDTO> loadAll(final String token) throws RecordNotFoundException;
+    PagedResponseDTO<RestfulMockSummaryDTO> loadSummaries(final RestfulMockSearchDTO search, final int page, final int size, final String token) throws RecordNotFoundException, ValidationException;
 
 }
@@ -1,7 +1,10 @@
 package com.smockin.admin.service;
 
 import com.smockin.admin.dto.RestfulMockDTO;
+import com.smockin.admin.dto.RestfulMockSearchDTO;
+import com.smockin.admin.dto.response.PagedResponseDTO;
 import com.smockin.admin.dto.response.RestfulMockResponseDTO;
+import com.smockin.admin.dto.response.RestfulMockSummaryDTO;
 import com.smockin.admin.exception.RecordNotFoundException;
 import com.smockin.admin.exception.ValidationException;
 import com.smockin.admin.persistence.dao.RestfulMockDAO;
@@ -12,11 +15,14 @@ import com.smockin.admin.persistence.enums.RestMethodEnum;
 import com.smockin.admin.persistence.enums.RestMockTypeEnum;
 import com.smockin.admin.service.utils.RestfulMockServiceUtils;
 import com.smockin.admin.service.utils.UserTokenServiceUtils;
+import com.smockin.mockserver.service.JavaScriptResponseMemoService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -43,6 +49,11 @@ public class RestfulMockServiceImpl implements RestfulMockService {
     @Autowired
     private SmockinUserService smockinUserService;
 
+    @Autowired
+    private JavaScriptResponseMemoService javaScriptResponseMemoService;
+
+    @Value("${smockin.restmock.page.max.size:500}")
+    private int maxPageSize;
 
     @Override
     public RestfulMockResponseDTO loadEndpoint(final String mockExtId, final String token) throws RecordNotFoundException, ValidationException {
@@ -63,13 +74,7 @@ public class RestfulMockServiceImpl implements RestfulMockService {
 
         final SmockinUser smockinUser = userTokenServiceUtils.loadCurrentUser(token);
 
-        RestfulMock mainMock = restfulMockServiceUtils.buildRestfulMock(dto, smockinUser);
-
-        mainMock = restfulMockServiceUtils.handleCreateStatefulMockType(dto, mainMock, smockinUser);
-        restfulMockServiceUtils.handleCustomJsSyntax(dto, mainMock);
-        restfulMockServiceUtils.populateEndpointDefinitionsAndRules(dto, mainMock);
-
-        mainMock = restfulMockDAO.save(mainMock);
+        final RestfulMock mainMock = restfulMockDAO.save(restfulMockServiceUtils.buildNewRestfulMock(dto, smockinUser));
 
         restfulMockServiceUtils.handleEndpointOrdering();
 
@@ -109,6 +114,7 @@ public class RestfulMockServiceImpl implements RestfulMockService {
             restfulMockServiceUtils.handleEndpointOrdering();
         }
 
+        javaScriptResponseMemoService.invalidate(mockExtId);
     }
 
     @Override
@@ -122,6 +128,8 @@ public class RestfulMockServiceImpl implements RestfulMockService {
         restfulMockServiceUtils.handleDeleteStatefulMock(mock);
 
         restfulMockDAO.delete(mock);
+
+        javaScriptResponseMemoService.invalidate(mockExtId);
     }
 
     @Override
@@ -131,6 +139,41 @@ public class RestfulMockServiceImpl implements RestfulMockService {
         return restfulMockServiceUtils.buildRestfulMockDefinitionDTOs(restfulMockDAO.findAllByUser(userTokenServiceUtils.loadCurrentUser(token).getId()));
     }
 
+    /**
+     * Lists a page of mock summaries only. The full mock (rules, definitions, scripts...) is loaded via loadEndpoint when a single mock is opened.
+     */
+    @Override
+    public PagedResponseDTO<RestfulMockSummaryDTO> loadSummaries(final RestfulMockSearchDTO search, final int page, final int size, final String token)
+            throws RecordNotFoundException, ValidationException {
+        logger.debug("loadSummaries called");
+
+        if (page < 0) {
+            throw new ValidationException("page cannot be negative");
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw new ValidationException("size must be between 1 and " + maxPageSize);
+        }
+
+        final long userId = userTokenServiceUtils.loadCurrentUser(token).getId();
+
+        if (search.getPath() != null) {
+            search.setPath(restfulMockServiceUtils.formatInboundPathVarArgs(search.getPath()));
+        }
+
+        final long total = restfulMockDAO.countByUser(userId, search);
+
+        if (total == 0 || ((long) page * size) >= total) {
+            return new PagedResponseDTO<>(Collections.emptyList(), page, size, total);
+        }
+
+        final List<RestfulMockSummaryDTO> summaries = restfulMockDAO.findSummariesByUser(userId, search, page * size, size);
+
+        summaries.forEach(s ->
+                s.setPath(restfulMockServiceUtils.formatOutboundPathVarArgs(s.getPath())));
+
+        return new PagedResponseDTO<>(summaries, page, size, total);
+    }
+
     RestfulMock loadRestMock(final String mockExtId) throws RecordNotFoundException {
         logger.debug("loadRestMock called");
 
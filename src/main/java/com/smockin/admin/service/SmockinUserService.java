@@ -27,7 +27,7 @@ public interface SmockinUserService {
     void validatePasswordResetToken(final String passwordResetToken) throws RecordNotFoundException;
     void applyPasswordResetToken(final String passwordResetToken, final String newPassword) throws RecordNotFoundException, ValidationException;
     void resetToken(final String token) throws RecordNotFoundException;
-    void lookUpToken(final String sessionToken) throws AuthException;
+    SmockinUser lookUpToken(final String sessionToken) throws AuthException;
     UserModeEnum getUserMode();
     SmockinUser loadCurrentUser(final String sessionToken) throws RecordNotFoundException;
     Optional<SmockinUser> loadDefaultUser();
@@ -13,6 +13,7 @@ import com.smockin.admin.persistence.dao.SmockinUserDAO;
 import com.smockin.admin.persistence.entity.SmockinUser;
 import com.smockin.admin.persistence.enums.RecordStatusEnum;
 import com.smockin.admin.persistence.enums.SmockinUserRoleEnum;
+import com.smockin.admin.service.utils.RestfulMockServiceUtils;
 import com.smockin.utils.GeneralUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,6 +44,12 @@ public class SmockinUserServiceImpl implements SmockinUserService {
     @Autowired
     private AppConfigDAO appConfigDAO;
 
+    @Autowired
+    private AuthTokenCacheService authTokenCacheService;
+
+    @Autowired
+    private RestfulMockServiceUtils restfulMockServiceUtils;
+
     @Value("${multi.user.mode:false}")
     private boolean multiUserMode;
 
@@ -91,12 +98,22 @@ public class SmockinUserServiceImpl implements SmockinUserService {
             throw new ValidationException("Updating to this role is not permitted");
         }
 
+        final boolean servedPathChanged = (!smockinUser.getCtxPath().equals(dto.getUsername())
+                || !smockinUser.getRole().equals(dto.getRole()));
+
         smockinUser.setFullName(dto.getFullName());
         smockinUser.setUsername(dto.getUsername());
         smockinUser.setRole(dto.getRole());
         smockinUser.setCtxPath(dto.getUsername());
 
         smockinUserDAO.save(smockinUser);
+
+        // The user's mocks are served under their ctx path
+        if (servedPathChanged) {
+            restfulMockServiceUtils.syncFullPaths(smockinUser.getId());
+        }
+
+        authTokenCacheService.invalidateUser(smockinUser.getId());
     }
 
     @Override
@@ -112,6 +129,8 @@ public class SmockinUserServiceImpl implements SmockinUserService {
         }
 
         smockinUserDAO.delete(smockinUser);
+
+        authTokenCacheService.invalidateUser(smockinUser.getId());
     }
 
     @Override
@@ -126,6 +145,8 @@ public class SmockinUserServiceImpl implements SmockinUserService {
         currentUser.setPassword(validateAndEncryptPassword(dto.getNewPassword()));
 
         smockinUserDAO.save(currentUser);
+
+        authTokenCacheService.invalidateUser(currentUser.getId());
     }
 
     @Override
@@ -168,6 +189,8 @@ public class SmockinUserServiceImpl implements SmockinUserService {
         smockinUser.setPasswordResetTokenExpiry(null);
 
         smockinUserDAO.save(smockinUser);
+
+        authTokenCacheService.invalidateUser(smockinUser.getId());
     }
 
     @Override
@@ -178,14 +201,21 @@ public class SmockinUserServiceImpl implements SmockinUserService {
         currentUser.setSessionToken(GeneralUtils.generateUUID()); // using UUID simply to void this with a unique value.
 
         smockinUserDAO.save(currentUser);
+
+        authTokenCacheService.invalidateToken(token);
+        authTokenCacheService.invalidateUser(currentUser.getId());
     }
 
     @Override
-    public void lookUpToken(final String sessionToken) throws AuthException {
+    public SmockinUser lookUpToken(final String sessionToken) throws AuthException {
+
+        final SmockinUser smockinUser = smockinUserDAO.findBySessionToken(sessionToken);
 
-        if (smockinUserDAO.findBySessionToken(sessionToken) == null) {
+        if (smockinUser == null) {
             throw new AuthException();
         }
+
+        return smockinUser;
     }
 
     @Override
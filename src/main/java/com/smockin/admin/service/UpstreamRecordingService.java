@@ -0,0 +1,22 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.RecordedExchangeDTO;
+import com.smockin.admin.dto.response.RecordingStatusDTO;
+import com.smockin.admin.enums.RecordingModeEnum;
+import com.smockin.admin.exception.RecordNotFoundException;
+import com.smockin.admin.exception.ValidationException;
+
+/**
+ * Captures upstream redirect traffic and converts it into SEQ mocks, so the same traffic can later be played back locally.
+ */
+public interface UpstreamRecordingService {
+
+    RecordingModeEnum getMode();
+    boolean isRecording();
+    int getMaxBodyBytes();
+    void changeMode(final String mode, final String token) throws RecordNotFoundException, ValidationException;
+    void record(final RecordedExchangeDTO exchange);
+    int flush();
+    RecordingStatusDTO getStatus();
+
+}
@@ -0,0 +1,284 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.RecordedExchangeDTO;
+import com.smockin.admin.dto.RestfulMockDTO;
+import com.smockin.admin.dto.RestfulMockDefinitionDTO;
+import com.smockin.admin.dto.response.RecordingStatusDTO;
+import com.smockin.admin.enums.RecordingModeEnum;
+import com.smockin.admin.exception.RecordNotFoundException;
+import com.smockin.admin.exception.ValidationException;
+import com.smockin.admin.persistence.entity.SmockinUser;
+import com.smockin.admin.persistence.enums.RecordStatusEnum;
+import com.smockin.admin.persistence.enums.RestMockTypeEnum;
+import com.smockin.admin.persistence.enums.SmockinUserRoleEnum;
+import com.smockin.admin.service.utils.UpstreamRecordingServiceUtils;
+import com.smockin.admin.service.utils.UserTokenServiceUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+@Service
+public class UpstreamRecordingServiceImpl implements UpstreamRecordingService {
+
+    private final Logger logger = LoggerFactory.getLogger(UpstreamRecordingServiceImpl.class);
+
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("^-?\\d+$");
+    private static final Pattern UUID_SEGMENT = Pattern.compile("^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$");
+    private static final Pattern HEX_ID_SEGMENT = Pattern.compile("^(?=.*\\d)[0-9a-fA-F]{16,}$");
+
+    @Value("${smockin.recording.max.pending:10000}")
+    private int maxPending;
+
+    @Value("${smockin.recording.flush.interval.millis:5000}")
+    private long flushIntervalMillis;
+
+    @Value("${smockin.recording.max.body.bytes:1048576}")
+    private int maxBodyBytes;
+
+    @Value("${smockin.recording.max.definitions:5}")
+    private int maxDefinitions;
+
+    @Autowired
+    private UserTokenServiceUtils userTokenServiceUtils;
+
+    @Autowired
+    private UpstreamRecordingServiceUtils upstreamRecordingServiceUtils;
+
+    private volatile RecordingModeEnum mode = RecordingModeEnum.OFF;
+    private volatile Long ownerId;
+    private volatile String ownerCtxPath;
+
+    private BlockingQueue<RecordedExchangeDTO> pending;
+    private ScheduledExecutorService flushExecutor;
+    private final Object flushMonitor = new Object();
+
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong mocksCreated = new AtomicLong();
+
+    @PostConstruct
+    public void after() {
+
+        pending = new LinkedBlockingQueue<>(maxPending);
+
+        // Mocks are written from a background thread, so recording never makes live traffic wait on the DB.
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "smockin-recording-flush");
+            t.setDaemon(true);
+            return t;
+        });
+
+        flushExecutor.scheduleWithFixedDelay(this::scheduledFlush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flushExecutor.shutdownNow();
+    }
+
+    @Override
+    public RecordingModeEnum getMode() {
+        return mode;
+    }
+
+    @Override
+    public boolean isRecording() {
+        return RecordingModeEnum.RECORD.equals(mode);
+    }
+
+    @Override
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    @Override
+    public void changeMode(final String modeName, final String token) throws RecordNotFoundException, ValidationException {
+        logger.debug("changeMode called");
+
+        final RecordingModeEnum newMode = RecordingModeEnum.findByName(modeName);
+
+        if (newMode == null) {
+            throw new ValidationException("Invalid recording mode: " + modeName);
+        }
+
+        final SmockinUser user = userTokenServiceUtils.loadCurrentUser(token);
+
+        if (RecordingModeEnum.RECORD.equals(newMode)) {
+            ownerId = user.getId();
+            ownerCtxPath = (SmockinUserRoleEnum.SYS_ADMIN.equals(user.getRole())) ? null : user.getCtxPath();
+        }
+
+        final RecordingModeEnum previous = mode;
+        mode = newMode;
+
+        if (RecordingModeEnum.RECORD.equals(previous) && !RecordingModeEnum.RECORD.equals(newMode)) {
+            flush();
+        }
+
+    }
+
+    @Override
+    public void record(final RecordedExchangeDTO exchange) {
+
+        if (!isRecording()) {
+            return;
+        }
+
+        if (pending.offer(exchange)) {
+            captured.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+
+    }
+
+    @Override
+    public int flush() {
+
+        synchronized (flushMonitor) {
+
+            final Long userId = ownerId;
+
+            if (userId == null || pending.isEmpty()) {
+                return 0;
+            }
+
+            final List<RecordedExchangeDTO> batch = new ArrayList<>(pending.size());
+            pending.drainTo(batch);
+
+            final int created = upstreamRecordingServiceUtils.persist(collapse(batch), userId);
+            mocksCreated.addAndGet(created);
+
+            return created;
+        }
+
+    }
+
+    @Override
+    public RecordingStatusDTO getStatus() {
+        return new RecordingStatusDTO(mode, pending.size(), captured.get(), dropped.get(), mocksCreated.get());
+    }
+
+    /**
+     * Groups the recorded exchanges by method and templated path, one SEQ mock per group.
+     * Each distinct response seen for a group becomes a definition, in the order first seen.
+     */
+    List<RestfulMockDTO> collapse(final List<RecordedExchangeDTO> exchanges) {
+
+        final Map<String, RestfulMockDTO> mocks = new LinkedHashMap<>();
+
+        for (RecordedExchangeDTO exchange : exchanges) {
+
+            final String path = templatePath(stripCtxPath(StringUtils.substringBefore(exchange.getPath(), "?")));
+
+            final RestfulMockDTO dto = mocks.computeIfAbsent(exchange.getMethod().name() + " " + path, k -> {
+                final RestfulMockDTO m = new RestfulMockDTO();
+                m.setPath(path);
+                m.setMethod(exchange.getMethod());
+                m.setStatus(RecordStatusEnum.ACTIVE);
+                m.setMockType(RestMockTypeEnum.SEQ);
+                return m;
+            });
+
+            if (dto.getDefinitions().size() >= maxDefinitions || isDuplicateResponse(dto, exchange)) {
+                continue;
+            }
+
+            final RestfulMockDefinitionDTO definition = new RestfulMockDefinitionDTO(
+                    dto.getDefinitions().size() + 1,
+                    exchange.getStatus(),
+                    exchange.getContentType(),
+                    exchange.getBody(),
+                    1);
+
+            definition.getResponseHeaders().putAll(exchange.getHeaders());
+
+            dto.getDefinitions().add(definition);
+        }
+
+        return new ArrayList<>(mocks.values());
+    }
+
+    /**
+     * Replaces segments which look like ids (numbers, uuids, long hex strings) with path variables,
+     * so e.g. /users/12 and /users/34 are recorded as the single mock /users/:id.
+     */
+    String templatePath(final String path) {
+
+        final StringBuilder result = new StringBuilder();
+        int vars = 0;
+
+        for (String segment : StringUtils.split(path, '/')) {
+
+            result.append('/');
+
+            if (isIdSegment(segment)) {
+                vars++;
+                result.append(":id").append((vars > 1) ? String.valueOf(vars) : "");
+            } else {
+                result.append(segment);
+            }
+        }
+
+        return (result.length() == 0) ? "/" : result.toString();
+    }
+
+    private boolean isIdSegment(final String segment) {
+        return NUMERIC_SEGMENT.matcher(segment).matches()
+                || UUID_SEGMENT.matcher(segment).matches()
+                || HEX_ID_SEGMENT.matcher(segment).matches();
+    }
+
+    private String stripCtxPath(final String path) {
+
+        final String ctxPath = ownerCtxPath;
+
+        if (StringUtils.isBlank(ctxPath)) {
+            return path;
+        }
+
+        final String prefix = "/" + ctxPath;
+
+        return (StringUtils.startsWith(path, prefix + "/"))
+                ? StringUtils.removeStart(path, prefix)
+                : path;
+    }
+
+    private boolean isDuplicateResponse(final RestfulMockDTO dto, final RecordedExchangeDTO exchange) {
+
+        return dto.getDefinitions()
+                .stream()
+                .anyMatch(d -> d.getHttpStatusCode() == exchange.getStatus()
+                        && Objects.equals(d.getResponseContentType(), exchange.getContentType())
+                        && Objects.equals(d.getResponseBody(), exchange.getBody()));
+    }
+
+    private void scheduledFlush() {
+
+        try {
+            flush();
+        } catch (Exception ex) {
+            logger.error("Error writing recorded mocks", ex);
+        }
+
+    }
+
+}
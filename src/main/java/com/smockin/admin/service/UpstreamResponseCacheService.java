@@ -0,0 +1,27 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.HttpClientCallDTO;
+import com.smockin.admin.dto.UpstreamResponseDTO;
+import com.smockin.admin.dto.response.UpstreamResponseCacheStatsDTO;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * Optional TTL / LRU cache of upstream redirect responses, with concurrent misses for the same key coalesced into a single upstream call.
+ */
+public interface UpstreamResponseCacheService {
+
+    boolean isCacheable(final HttpClientCallDTO httpClientCallDTO);
+    long getMaxEntryBytes();
+    String buildKey(final HttpClientCallDTO httpClientCallDTO);
+
+    /**
+     * The loader may return null when it chose not to buffer the response (e.g. it was too large and so was streamed instead).
+     * Nothing is stored in that case, and null is also returned to any coalesced callers, who must then make their own call.
+     */
+    UpstreamResponseDTO get(final String key, final Callable<UpstreamResponseDTO> loader) throws IOException;
+    UpstreamResponseCacheStatsDTO getStats();
+    void clear();
+
+}
@@ -0,0 +1,272 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.HttpClientCallDTO;
+import com.smockin.admin.dto.UpstreamResponseDTO;
+import com.smockin.admin.dto.response.UpstreamResponseCacheStatsDTO;
+import com.smockin.admin.persistence.enums.RestMethodEnum;
+import com.smockin.utils.BoundedLruCache;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+public class UpstreamResponseCacheServiceImpl implements UpstreamResponseCacheService {
+
+    private final Logger logger = LoggerFactory.getLogger(UpstreamResponseCacheServiceImpl.class);
+
+    private static final List<String> CREDENTIAL_HEADERS = Arrays.asList("Authorization", "Cookie");
+
+    @Value("${smockin.redirect.cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${smockin.redirect.cache.ttl.millis:30000}")
+    private long ttlMillis;
+
+    @Value("${smockin.redirect.cache.max.bytes:52428800}")
+    private long maxBytes;
+
+    @Value("${smockin.redirect.cache.max.entry.bytes:1048576}")
+    private long maxEntryBytes;
+
+    @Value("${smockin.redirect.cache.vary.headers:Accept}")
+    private String varyHeadersConfig;
+
+    private List<String> varyHeaders;
+
+    private BoundedLruCache<String, CacheEntry> cache;
+    private final Map<String, CompletableFuture<UpstreamResponseDTO>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    public void after() {
+
+        varyHeaders = Stream.of(StringUtils.split(StringUtils.defaultString(varyHeadersConfig), ","))
+                .map(StringUtils::trim)
+                .filter(StringUtils::isNotBlank)
+                .collect(Collectors.toList());
+
+        cache = new BoundedLruCache<>(Integer.MAX_VALUE, maxBytes, e -> e.bytes, (k, e) -> evictions.incrementAndGet());
+    }
+
+    @Override
+    public boolean isCacheable(final HttpClientCallDTO dto) {
+
+        if (!enabled || !RestMethodEnum.GET.equals(dto.getMethod())) {
+            return false;
+        }
+
+        // A response to a request carrying credentials is only safe to share if the key varies on those credentials.
+        return CREDENTIAL_HEADERS.stream()
+                .noneMatch(h -> findHeader(dto.getHeaders(), h) != null
+                        && varyHeaders.stream().noneMatch(h::equalsIgnoreCase));
+    }
+
+    @Override
+    public long getMaxEntryBytes() {
+        return Math.min(maxEntryBytes, maxBytes);
+    }
+
+    @Override
+    public String buildKey(final HttpClientCallDTO dto) {
+
+        final StringBuilder key = new StringBuilder()
+                .append(dto.getMethod().name())
+                .append(' ')
+                .append(dto.getUrl());
+
+        for (String varyHeader : varyHeaders) {
+            key.append('\n')
+                    .append(varyHeader.toLowerCase())
+                    .append(':')
+                    .append(StringUtils.defaultString(findHeader(dto.getHeaders(), varyHeader)));
+        }
+
+        return key.toString();
+    }
+
+    @Override
+    public UpstreamResponseDTO get(final String key, final Callable<UpstreamResponseDTO> loader) throws IOException {
+
+        UpstreamResponseDTO cached = lookup(key);
+
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        final CompletableFuture<UpstreamResponseDTO> future = new CompletableFuture<>();
+        final CompletableFuture<UpstreamResponseDTO> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+
+        try {
+
+            // Another leader may have completed between our lookup and claiming the key.
+            cached = lookup(key);
+
+            if (cached != null) {
+                hits.incrementAndGet();
+                future.complete(cached);
+                return cached;
+            }
+
+            misses.incrementAndGet();
+
+            final UpstreamResponseDTO loaded = loader.call();
+
+            if (loaded != null) {
+                store(key, loaded);
+            }
+
+            future.complete(loaded);
+
+            return loaded;
+
+        } catch (Exception ex) {
+
+            future.completeExceptionally(ex);
+
+            if (ex instanceof IOException) {
+                throw (IOException) ex;
+            }
+
+            throw new IOException(ex);
+
+        } finally {
+            inFlight.remove(key, future);
+        }
+
+    }
+
+    @Override
+    public UpstreamResponseCacheStatsDTO getStats() {
+
+        return new UpstreamResponseCacheStatsDTO(enabled, hits.get(), misses.get(), coalesced.get(), evictions.get(), cache.size(), cache.weight());
+    }
+
+    @Override
+    public void clear() {
+
+        cache.clear();
+    }
+
+    UpstreamResponseDTO lookup(final String key) {
+
+        final CacheEntry entry = cache.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            cache.remove(key, entry);
+            return null;
+        }
+
+        return entry.response;
+    }
+
+    void store(final String key, final UpstreamResponseDTO response) {
+
+        if (!isStorable(response)) {
+            return;
+        }
+
+        final CacheEntry entry = new CacheEntry(response, System.currentTimeMillis() + ttlMillis);
+
+        if (entry.bytes > maxEntryBytes || entry.bytes > maxBytes) {
+            logger.debug("Upstream response too large to cache: " + key);
+            return;
+        }
+
+        cache.put(key, entry);
+    }
+
+    boolean isStorable(final UpstreamResponseDTO response) {
+
+        // Never hold on to server errors, anything setting a cookie for one particular client,
+        // or anything the upstream has explicitly asked us not to store.
+        if (response.getStatus() >= 500) {
+            return false;
+        }
+
+        if (Stream.of(response.getHeaders()).anyMatch(h -> "Set-Cookie".equalsIgnoreCase(h.getName()))) {
+            return false;
+        }
+
+        return Stream.of(response.getHeaders())
+                .filter(h -> "Cache-Control".equalsIgnoreCase(h.getName()))
+                .map(Header::getValue)
+                .noneMatch(v -> StringUtils.containsIgnoreCase(v, "no-store")
+                        || StringUtils.containsIgnoreCase(v, "private"));
+    }
+
+    private UpstreamResponseDTO await(final CompletableFuture<UpstreamResponseDTO> future) throws IOException {
+
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    private String findHeader(final Map<String, String> headers, final String name) {
+
+        if (headers == null) {
+            return null;
+        }
+
+        return headers.entrySet()
+                .stream()
+                .filter(h -> name.equalsIgnoreCase(h.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static final class CacheEntry {
+
+        private final UpstreamResponseDTO response;
+        private final long expiresAt;
+        private final long bytes;
+
+        private CacheEntry(final UpstreamResponseDTO response, final long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+            this.bytes = response.approxBytes();
+        }
+
+    }
+
+}
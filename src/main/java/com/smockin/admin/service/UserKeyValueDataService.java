@@ -1,9 +1,14 @@
 package com.smockin.admin.service;
 
 import com.smockin.admin.dto.UserKeyValueDataDTO;
+import com.smockin.admin.dto.response.UserKeyValueDataBulkResultDTO;
+import com.smockin.admin.enums.KvpStreamFormatEnum;
 import com.smockin.admin.exception.RecordNotFoundException;
 import com.smockin.admin.exception.ValidationException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface UserKeyValueDataService {
@@ -11,8 +16,12 @@ public interface UserKeyValueDataService {
     List<UserKeyValueDataDTO> loadAll(final String token) throws RecordNotFoundException;
     UserKeyValueDataDTO loadById(final String externalId, final String token) throws RecordNotFoundException, ValidationException;
     UserKeyValueDataDTO loadByKey(final String key, final long userId);
+    long loadVersion(final long userId);
     void save(final List<UserKeyValueDataDTO> dtos, final String token) throws RecordNotFoundException, ValidationException;
     void update(final String externalId, final UserKeyValueDataDTO dto, final String token) throws RecordNotFoundException, ValidationException;
     void delete(final String externalId, final String token) throws RecordNotFoundException, ValidationException;
+    UserKeyValueDataBulkResultDTO bulkUpsert(final InputStream in, final KvpStreamFormatEnum format, final String token) throws RecordNotFoundException, ValidationException, IOException;
+    UserKeyValueDataBulkResultDTO bulkDelete(final InputStream in, final KvpStreamFormatEnum format, final String token) throws RecordNotFoundException, ValidationException, IOException;
+    void bulkExport(final KvpStreamFormatEnum format, final String token, final OutputStream out) throws RecordNotFoundException, IOException;
 
 }
@@ -1,17 +1,45 @@
 package com.smockin.admin.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.smockin.admin.dto.UserKeyValueDataDTO;
+import com.smockin.admin.dto.response.UserKeyValueDataBulkResultDTO;
+import com.smockin.admin.enums.KvpStreamFormatEnum;
 import com.smockin.admin.exception.RecordNotFoundException;
 import com.smockin.admin.exception.ValidationException;
 import com.smockin.admin.persistence.dao.UserKeyValueDataDAO;
 import com.smockin.admin.persistence.entity.SmockinUser;
 import com.smockin.admin.persistence.entity.UserKeyValueData;
 import com.smockin.admin.service.utils.UserTokenServiceUtils;
+import com.smockin.utils.CsvUtils;
+import com.smockin.utils.GeneralUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,6 +52,26 @@ public class UserKeyValueDataServiceImpl implements UserKeyValueDataService {
     @Autowired
     private UserTokenServiceUtils userTokenServiceUtils;
 
+    @Value("${smockin.kvp.bulk.chunk.size:500}")
+    private int bulkChunkSize;
+
+    // In memory copy of every user's key value pairs (keyed by user id and then lower cased key, as look ups
+    // are case insensitive, so keys must also be unique ignoring case), so mocks can resolve lookUpKvp(...) without
+    // a DB round trip. Kept in step with the DB by save, update and delete below, once their transaction commits.
+    private final Map<Long, Map<String, UserKeyValueDataDTO>> kvpStore = new ConcurrentHashMap<>();
+
+    // Bumped on every change to a user's key value pairs, so anything derived from them (e.g. memoized JS responses) can tell it is stale
+    private final Map<Long, AtomicLong> kvpVersions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void after() {
+
+        kvpStore.clear();
+
+        userKeyValueDataDAO
+                .findAllWithOwner()
+                .forEach(kvp -> storePut(kvp.getCreatedBy().getId(), buildDTO(kvp)));
+    }
 
     @Override
     public List<UserKeyValueDataDTO> loadAll(final String token) throws RecordNotFoundException {
@@ -33,7 +81,7 @@ public class UserKeyValueDataServiceImpl implements UserKeyValueDataService {
         return userKeyValueDataDAO
                 .findAllByUser(user.getId())
                 .stream()
-                .map(kvp -> new UserKeyValueDataDTO(kvp.getExtId(), kvp.getKey(), kvp.getValue()))
+                .map(kvp -> buildDTO(kvp))
                 .collect(Collectors.toList());
     }
 
@@ -48,24 +96,34 @@ public class UserKeyValueDataServiceImpl implements UserKeyValueDataService {
 
         userTokenServiceUtils.validateRecordOwner(userKeyValueData.getCreatedBy(), token);
 
-        return new UserKeyValueDataDTO(userKeyValueData.getExtId(),
-                userKeyValueData.getKey(),
-                userKeyValueData.getValue());
+        return buildDTO(userKeyValueData);
     }
 
+    /**
+     * Served from the in memory store, so is safe to call per request from the mock server.
+     */
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public UserKeyValueDataDTO loadByKey(final String key, final long userId) {
 
-        final UserKeyValueData userKeyValueData = userKeyValueDataDAO.findByKey(key, userId);
-
-        if (userKeyValueData == null) {
+        if (key == null) {
             return null;
         }
 
-        return new UserKeyValueDataDTO(
-                userKeyValueData.getExtId(),
-                userKeyValueData.getKey(),
-                userKeyValueData.getValue());
+        final Map<String, UserKeyValueDataDTO> userKvps = kvpStore.get(userId);
+
+        return (userKvps != null)
+                ? userKvps.get(key.toLowerCase())
+                : null;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long loadVersion(final long userId) {
+
+        final AtomicLong version = kvpVersions.get(userId);
+
+        return (version != null) ? version.get() : 0;
     }
 
     @Override
@@ -73,15 +131,24 @@ public class UserKeyValueDataServiceImpl implements UserKeyValueDataService {
 
         final SmockinUser user = userTokenServiceUtils.loadCurrentUser(token);
 
-        dtos.stream().forEach(dto -> {
+        final List<UserKeyValueDataDTO> saved = new ArrayList<>(dtos.size());
+
+        for (UserKeyValueDataDTO dto : dtos) {
+
+            validateKeyNotInUse(dto.getKey(), user.getId(), null);
 
             final UserKeyValueData userKeyValueData = new UserKeyValueData();
             userKeyValueData.setKey(dto.getKey());
             userKeyValueData.setValue(dto.getValue());
             userKeyValueData.setCreatedBy(user);
 
-            userKeyValueDataDAO.save(userKeyValueData);
-        });
+            // Flushed so a later record in this list with the same key is caught by validateKeyNotInUse
+            userKeyValueDataDAO.saveAndFlush(userKeyValueData);
+
+            saved.add(buildDTO(userKeyValueData));
+        }
+
+        afterCommit(() -> saved.forEach(d -> storePut(user.getId(), d)));
     }
 
     @Override
@@ -95,10 +162,22 @@ public class UserKeyValueDataServiceImpl implements UserKeyValueDataService {
 
         userTokenServiceUtils.validateRecordOwner(userKeyValueData.getCreatedBy(), token);
 
+        final long userId = userKeyValueData.getCreatedBy().getId();
+        final String originalKey = userKeyValueData.getKey();
+
+        validateKeyNotInUse(dto.getKey(), userId, externalId);
+
         userKeyValueData.setKey(dto.getKey());
         userKeyValueData.setValue(dto.getValue());
 
-        userKeyValueDataDAO.save(userKeyValueData);
+        userKeyValueDataDAO.saveAndFlush(userKeyValueData);
+
+        final UserKeyValueDataDTO updated = buildDTO(userKeyValueData);
+
+        afterCommit(() -> {
+            storeRemove(userId, originalKey);
+            storePut(userId, updated);
+        });
     }
 
     @Override
@@ -113,6 +192,359 @@ public class UserKeyValueDataServiceImpl implements UserKeyValueDataService {
         userTokenServiceUtils.validateRecordOwner(userKeyValueData.getCreatedBy(), token);
 
         userKeyValueDataDAO.delete(userKeyValueData);
+        userKeyValueDataDAO.flush();
+
+        final long userId = userKeyValueData.getCreatedBy().getId();
+        final String key = userKeyValueData.getKey();
+
+        afterCommit(() -> storeRemove(userId, key));
+    }
+
+    /**
+     * Creates or updates (matching on key, ignoring case) every record in the stream, within a single transaction.
+     * Records are read incrementally and written a chunk at a time, with each chunk flushed in JDBC batches
+     * (see hibernate.jdbc.batch_size) and then cleared from the persistence context, so memory use does not grow
+     * with the size of the stream. Any invalid record rolls back the whole upload.
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public UserKeyValueDataBulkResultDTO bulkUpsert(final InputStream in, final KvpStreamFormatEnum format, final String token)
+            throws RecordNotFoundException, ValidationException, IOException {
+
+        final SmockinUser user = userTokenServiceUtils.loadCurrentUser(token);
+        final KvpRecordReader reader = openReader(in, format);
+
+        final Map<String, UserKeyValueDataDTO> chunk = new LinkedHashMap<>();
+        final Map<String, UserKeyValueDataDTO> storeUpdates = new HashMap<>();
+        final int[] counts = new int[2];
+
+        UserKeyValueDataDTO dto;
+
+        while ((dto = reader.next()) != null) {
+
+            if (StringUtils.isBlank(dto.getKey()) || dto.getKey().length() > 50) {
+                throw new ValidationException("Invalid record at line " + reader.getLineNumber() + ", key must be between 1 and 50 characters");
+            }
+
+            if (dto.getValue() == null) {
+                throw new ValidationException("Invalid record at line " + reader.getLineNumber() + ", value is required");
+            }
+
+            // Later records for the same key win
+            chunk.put(dto.getKey().toLowerCase(), dto);
+
+            if (chunk.size() >= bulkChunkSize) {
+                upsertChunk(user, chunk, storeUpdates, counts);
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            upsertChunk(user, chunk, storeUpdates, counts);
+        }
+
+        afterCommit(() -> storeUpdates.values().forEach(d -> storePut(user.getId(), d)));
+
+        return new UserKeyValueDataBulkResultDTO(counts[0], counts[1], 0);
+    }
+
+    /**
+     * Deletes every key in the stream (the value of each record is ignored), a chunk of keys per DELETE statement,
+     * within a single transaction.
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public UserKeyValueDataBulkResultDTO bulkDelete(final InputStream in, final KvpStreamFormatEnum format, final String token)
+            throws RecordNotFoundException, ValidationException, IOException {
+
+        final SmockinUser user = userTokenServiceUtils.loadCurrentUser(token);
+        final KvpRecordReader reader = openReader(in, format);
+
+        final Set<String> chunk = new HashSet<>();
+        final Set<String> deletedKeys = new HashSet<>();
+        int deleted = 0;
+
+        UserKeyValueDataDTO dto;
+
+        while ((dto = reader.next()) != null) {
+
+            if (StringUtils.isBlank(dto.getKey())) {
+                throw new ValidationException("Invalid record at line " + reader.getLineNumber() + ", key is required");
+            }
+
+            chunk.add(dto.getKey().toLowerCase());
+
+            if (chunk.size() >= bulkChunkSize) {
+                deleted += userKeyValueDataDAO.deleteAllByLowerCaseKeys(user.getId(), chunk);
+                deletedKeys.addAll(chunk);
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            deleted += userKeyValueDataDAO.deleteAllByLowerCaseKeys(user.getId(), chunk);
+            deletedKeys.addAll(chunk);
+        }
+
+        afterCommit(() -> deletedKeys.forEach(k -> storeRemove(user.getId(), k)));
+
+        return new UserKeyValueDataBulkResultDTO(0, 0, deleted);
+    }
+
+    /**
+     * Streams all of the current user's key value pairs onto the given stream, a page at a time.
+     * CSV output starts with a key,value header row.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void bulkExport(final KvpStreamFormatEnum format, final String token, final OutputStream out)
+            throws RecordNotFoundException, IOException {
+
+        final long userId = userTokenServiceUtils.loadCurrentUser(token).getId();
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        if (KvpStreamFormatEnum.CSV.equals(format)) {
+            CsvUtils.writeRecord(writer, CSV_KEY_HEADER, CSV_VALUE_HEADER);
+        }
+
+        long lastId = 0;
+        List<UserKeyValueData> page;
+
+        do {
+
+            page = userKeyValueDataDAO.findPageByUser(userId, lastId, bulkChunkSize);
+
+            for (UserKeyValueData kvp : page) {
+
+                if (KvpStreamFormatEnum.CSV.equals(format)) {
+                    CsvUtils.writeRecord(writer, kvp.getKey(), kvp.getValue());
+                } else {
+                    writer.write(GeneralUtils.serialiseJson(buildDTO(kvp)));
+                    writer.write('\n');
+                }
+
+                lastId = kvp.getId();
+            }
+
+            writer.flush();
+            userKeyValueDataDAO.clear();
+
+        } while (page.size() == bulkChunkSize);
+
+    }
+
+    private void upsertChunk(final SmockinUser user,
+                             final Map<String, UserKeyValueDataDTO> chunk,
+                             final Map<String, UserKeyValueDataDTO> storeUpdates,
+                             final int[] counts) {
+
+        final Map<String, UserKeyValueData> existing = new HashMap<>();
+
+        userKeyValueDataDAO
+                .findAllByLowerCaseKeys(user.getId(), chunk.keySet())
+                .forEach(kvp -> existing.put(kvp.getKey().toLowerCase(), kvp));
+
+        final List<UserKeyValueData> toSave = new ArrayList<>(chunk.size());
+
+        chunk.forEach((lowerCaseKey, dto) -> {
+
+            UserKeyValueData kvp = existing.get(lowerCaseKey);
+
+            if (kvp == null) {
+                kvp = new UserKeyValueData();
+                kvp.setCreatedBy(user);
+                counts[0]++;
+            } else {
+                counts[1]++;
+            }
+
+            kvp.setKey(dto.getKey());
+            kvp.setValue(dto.getValue());
+
+            toSave.add(kvp);
+        });
+
+        userKeyValueDataDAO.saveAll(toSave);
+        userKeyValueDataDAO.flush();
+
+        toSave.forEach(kvp -> storeUpdates.put(kvp.getKey().toLowerCase(), buildDTO(kvp)));
+
+        userKeyValueDataDAO.clear();
+        chunk.clear();
+    }
+
+    private KvpRecordReader openReader(final InputStream in, final KvpStreamFormatEnum format) throws ValidationException, IOException {
+
+        if (format == null) {
+            throw new ValidationException("Unsupported format, expected " + KvpStreamFormatEnum.NDJSON.getContentType()
+                    + " or " + KvpStreamFormatEnum.CSV.getContentType());
+        }
+
+        return (KvpStreamFormatEnum.CSV.equals(format))
+                ? new CsvKvpRecordReader(in)
+                : new NdJsonKvpRecordReader(in);
+    }
+
+    /**
+     * Keys are matched ignoring case, both here and by the in memory store, so 'Foo' and 'foo' cannot both exist for a user.
+     */
+    private void validateKeyNotInUse(final String key, final long userId, final String excludeExtId) throws ValidationException {
+
+        if (key == null) {
+            return;
+        }
+
+        final UserKeyValueData existing = userKeyValueDataDAO.findByKey(key, userId);
+
+        if (existing != null && (excludeExtId == null || !excludeExtId.equals(existing.getExtId()))) {
+            throw new ValidationException("The key '" + key + "' is already in use");
+        }
+    }
+
+    /**
+     * Store changes are only applied once the surrounding transaction has committed, so a change that is rolled back
+     * (or not yet committed) is never served by loadByKey. Applied straight away when there is no transaction.
+     */
+    private void afterCommit(final Runnable storeChange) {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            storeChange.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                storeChange.run();
+            }
+        });
+    }
+
+    private void storePut(final long userId, final UserKeyValueDataDTO dto) {
+
+        kvpStore
+                .computeIfAbsent(userId, k -> new ConcurrentHashMap<>())
+                .put(dto.getKey().toLowerCase(), dto);
+
+        bumpVersion(userId);
+    }
+
+    private void storeRemove(final long userId, final String key) {
+
+        final Map<String, UserKeyValueDataDTO> userKvps = kvpStore.get(userId);
+
+        if (userKvps != null) {
+            userKvps.remove(key.toLowerCase());
+        }
+
+        bumpVersion(userId);
+    }
+
+    private void bumpVersion(final long userId) {
+        kvpVersions
+                .computeIfAbsent(userId, k -> new AtomicLong())
+                .incrementAndGet();
+    }
+
+    private UserKeyValueDataDTO buildDTO(final UserKeyValueData kvp) {
+        return new UserKeyValueDataDTO(kvp.getExtId(), kvp.getKey(), kvp.getValue());
+    }
+
+    static final String CSV_KEY_HEADER = "key";
+    static final String CSV_VALUE_HEADER = "value";
+
+    interface KvpRecordReader {
+
+        /**
+         * Returns the next record, or null once the end of the stream is reached.
+         */
+        UserKeyValueDataDTO next() throws ValidationException, IOException;
+
+        int getLineNumber();
+
+    }
+
+    static final class NdJsonKvpRecordReader implements KvpRecordReader {
+
+        private final MappingIterator<UserKeyValueDataDTO> iterator;
+        private int lineNumber;
+
+        NdJsonKvpRecordReader(final InputStream in) throws IOException {
+            this.iterator = GeneralUtils.readJsonValues(in, UserKeyValueDataDTO.class);
+        }
+
+        @Override
+        public UserKeyValueDataDTO next() throws ValidationException, IOException {
+
+            try {
+
+                if (!iterator.hasNextValue()) {
+                    return null;
+                }
+
+                lineNumber = iterator.getParser().getCurrentLocation().getLineNr();
+
+                return iterator.nextValue();
+
+            } catch (JsonProcessingException ex) {
+                final int errorLine = (ex.getLocation() != null) ? ex.getLocation().getLineNr() : lineNumber;
+                throw new ValidationException("Invalid JSON at line " + errorLine + ", " + ex.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+    }
+
+    static final class CsvKvpRecordReader implements KvpRecordReader {
+
+        private final CsvUtils.RecordReader reader;
+        private boolean firstRecord = true;
+
+        CsvKvpRecordReader(final InputStream in) {
+            this.reader = new CsvUtils.RecordReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public UserKeyValueDataDTO next() throws ValidationException, IOException {
+
+            List<String> fields;
+
+            try {
+                fields = reader.readRecord();
+
+                // An optional key,value (or just key) header row is skipped
+                if (firstRecord
+                        && fields != null
+                        && CSV_KEY_HEADER.equalsIgnoreCase(fields.get(0).trim())
+                        && (fields.size() == 1 || (fields.size() == 2 && CSV_VALUE_HEADER.equalsIgnoreCase(fields.get(1).trim())))) {
+                    fields = reader.readRecord();
+                }
+
+            } catch (IllegalArgumentException ex) {
+                throw new ValidationException(ex.getMessage());
+            }
+
+            firstRecord = false;
+
+            if (fields == null) {
+                return null;
+            }
+
+            if (fields.size() > 2) {
+                throw new ValidationException("Invalid record at line " + reader.getLineNumber() + ", expected key,value");
+            }
+
+            return new UserKeyValueDataDTO(null, fields.get(0), (fields.size() > 1) ? fields.get(1) : null);
+        }
+
+        @Override
+        public int getLineNumber() {
+            return reader.getLineNumber();
+        }
+
     }
 
 }
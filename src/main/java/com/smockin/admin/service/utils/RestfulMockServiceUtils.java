@@ -7,6 +7,7 @@ import com.smockin.admin.persistence.dao.RestfulMockDAO;
 import com.smockin.admin.persistence.entity.*;
 import com.smockin.admin.persistence.enums.RestMethodEnum;
 import com.smockin.admin.persistence.enums.RestMockTypeEnum;
+import com.smockin.admin.persistence.enums.SmockinUserRoleEnum;
 import com.smockin.admin.service.ProjectService;
 import com.smockin.mockserver.engine.MockedRestServerEngine;
 import com.smockin.mockserver.service.MockOrderingCounterService;
@@ -15,8 +16,11 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +29,8 @@ import java.util.stream.Collectors;
 @Component
 public class RestfulMockServiceUtils {
 
+    private static final Pattern MEMO_KEY_INPUT_PATTERN = Pattern.compile("^(path|body|(pathVars|parameters|headers)\\.[^,\\s]+)$");
+
     @Autowired
     private RestfulMockDAO restfulMockDAO;
 
@@ -65,6 +71,25 @@ public class RestfulMockServiceUtils {
                 (isStatefulParent && rmd.getRestfulMockStatefulMeta() != null) ? rmd.getRestfulMockStatefulMeta().getIdFieldName() : null,
                 (isStatefulParent && rmd.getRestfulMockStatefulMeta() != null) ? rmd.getRestfulMockStatefulMeta().getIdFieldLocation() : null);
 
+        if (rmd.getJavaScriptHandler() != null
+                && rmd.getJavaScriptHandler().getMemoKeyInputs() != null) {
+            dto.setCustomJsMemo(new CustomJsMemoDTO(
+                    GeneralUtils.splitMemoKeyInputs(rmd.getJavaScriptHandler().getMemoKeyInputs()),
+                    rmd.getJavaScriptHandler().getMemoTtlMillis()));
+        }
+
+        if (rmd.getJavaScriptHandler() != null) {
+            dto.setCustomJsBudget(new CustomJsBudgetDTO(
+                    rmd.getJavaScriptHandler().getTimeoutMillis(),
+                    rmd.getJavaScriptHandler().getCpuTimeMillis()));
+        }
+
+        if (isStatefulParent && rmd.getRestfulMockStatefulMeta() != null) {
+            dto.setStatefulQuota(new StatefulQuotaDTO(
+                    rmd.getRestfulMockStatefulMeta().getMaxRecords(),
+                    rmd.getRestfulMockStatefulMeta().getMaxBytes()));
+        }
+
         // Definitions
         for (RestfulMockDefinitionOrder order : rmd.getDefinitions()) {
             final RestfulMockDefinitionDTO restfulMockDefinitionDTO = new RestfulMockDefinitionDTO(order.getExtId(), order.getOrderNo(), order.getHttpStatusCode(), order.getResponseContentType(), order.getResponseBody(), order.getSleepInMillis(), order.isSuspend(), order.getFrequencyCount(), order.getFrequencyPercentage());
@@ -165,9 +190,115 @@ public class RestfulMockServiceUtils {
         javaScriptHandler.setRestfulMock(mock);
         javaScriptHandler.setSyntax(dto.getCustomJsSyntax());
 
+        applyCustomJsMemo(dto.getCustomJsMemo(), javaScriptHandler);
+        applyCustomJsBudget(dto.getCustomJsBudget(), javaScriptHandler);
+
         mock.setJavaScriptHandler(javaScriptHandler);
     }
 
+    void applyCustomJsMemo(final CustomJsMemoDTO memo, final RestfulMockJavaScriptHandler javaScriptHandler) throws ValidationException {
+
+        if (memo == null) {
+            return;
+        }
+
+        if (memo.getTtlMillis() < 0) {
+            throw new ValidationException("Memoization TTL cannot be negative");
+        }
+
+        final List<String> keyInputs = (memo.getKeyInputs() != null)
+                ? memo.getKeyInputs().stream().map(StringUtils::trim).collect(Collectors.toList())
+                : Collections.emptyList();
+
+        for (String keyInput : keyInputs) {
+            if (keyInput == null || !MEMO_KEY_INPUT_PATTERN.matcher(keyInput).matches()) {
+                throw new ValidationException("Invalid memoization key input: " + keyInput
+                        + ". Expected path, body, pathVars.<name>, parameters.<name> or headers.<name>");
+            }
+        }
+
+        javaScriptHandler.setMemoKeyInputs(String.join(",", keyInputs));
+        javaScriptHandler.setMemoTtlMillis(memo.getTtlMillis());
+    }
+
+    void applyCustomJsBudget(final CustomJsBudgetDTO budget, final RestfulMockJavaScriptHandler javaScriptHandler) throws ValidationException {
+
+        if (budget == null) {
+            return;
+        }
+
+        if (budget.getTimeoutMillis() < 0 || budget.getCpuTimeMillis() < 0) {
+            throw new ValidationException("Javascript execution budgets cannot be negative");
+        }
+
+        javaScriptHandler.setTimeoutMillis(budget.getTimeoutMillis());
+        javaScriptHandler.setCpuTimeMillis(budget.getCpuTimeMillis());
+    }
+
+    /**
+     * Builds the entity graph for a new mock, leaving it for the caller to save. A STATEFUL mock's children are added to
+     * its statefulChildren, so are saved along with it.
+     */
+    public RestfulMock buildNewRestfulMock(final RestfulMockDTO dto, final SmockinUser smockinUser) throws ValidationException {
+
+        validateStatefulQuota(dto.getStatefulQuota());
+
+        RestfulMock mainMock = buildRestfulMock(dto, smockinUser);
+
+        mainMock = handleCreateStatefulMockType(dto, mainMock, smockinUser);
+        handleCustomJsSyntax(dto, mainMock);
+        populateEndpointDefinitionsAndRules(dto, mainMock);
+
+        return mainMock;
+    }
+
+    /**
+     * Checks everything which would otherwise only fail part way through creating the mock (or when flushed to the DB).
+     */
+    public void validateNewEndpoint(final RestfulMockDTO dto) throws ValidationException {
+
+        if (StringUtils.isBlank(dto.getPath())) {
+            throw new ValidationException("path is required");
+        }
+
+        if (dto.getPath().length() > 1000) {
+            throw new ValidationException("path is too long");
+        }
+
+        if (dto.getMockType() == null) {
+            throw new ValidationException("mock type is required");
+        }
+
+        if (dto.getMethod() == null && !RestMockTypeEnum.STATEFUL.equals(dto.getMockType())) {
+            throw new ValidationException("method is required");
+        }
+
+        if (dto.getStatus() == null) {
+            throw new ValidationException("status is required");
+        }
+
+        if (RestMockTypeEnum.CUSTOM_JS.equals(dto.getMockType())
+                && StringUtils.isBlank(dto.getCustomJsSyntax())) {
+            throw new ValidationException("Missing javaScript logic");
+        }
+
+        if (RestMockTypeEnum.STATEFUL.equals(dto.getMockType())
+                && (StringUtils.isBlank(dto.getStatefulIdFieldName()) || dto.getStatefulDefaultResponseBody() == null)) {
+            throw new ValidationException("stateful id field name and default response body are required");
+        }
+
+        validateStatefulQuota(dto.getStatefulQuota());
+
+    }
+
+    void validateStatefulQuota(final StatefulQuotaDTO quota) throws ValidationException {
+
+        if (quota != null
+                && (quota.getMaxRecords() < 0 || quota.getMaxBytes() < 0)) {
+            throw new ValidationException("Stateful quotas cannot be negative");
+        }
+    }
+
     public RestfulMock handleCreateStatefulMockType(final RestfulMockDTO dto, RestfulMock mainMock, final SmockinUser smockinUser) {
 
         if (!RestMockTypeEnum.STATEFUL.equals(dto.getMockType())) {
@@ -177,9 +308,8 @@ public class RestfulMockServiceUtils {
         applyRestfulMockStatefulMeta(dto, mainMock);
 
         mainMock.setMethod(RestMethodEnum.GET);
-        mainMock = restfulMockDAO.save(mainMock);
 
-        createStatefulChildMocks(dto, mainMock, smockinUser);
+        buildStatefulChildMocks(dto, mainMock, smockinUser);
 
         return mainMock;
     }
@@ -202,11 +332,11 @@ public class RestfulMockServiceUtils {
         // Load all restful mocks
         final List<RestfulMock> allRestfulMocks = restfulMockDAO.findAll();
 
-        // Alphanumerically order the mocks by endpoint path. This also updates the initializationOrder field of each record.
-        restfulMockSortingUtils.autoOrderEndpointPaths(allRestfulMocks);
+        // Alphanumerically order the mocks by endpoint path. This also updates the initializationOrder field of any record that has moved.
+        final List<RestfulMock> reorderedMocks = restfulMockSortingUtils.autoOrderEndpointPaths(allRestfulMocks);
 
-        // Save all
-        restfulMockDAO.saveAll(allRestfulMocks);
+        // Only save those whose order has changed
+        restfulMockDAO.saveAll(reorderedMocks);
     }
 
     public void amendPath(final RestfulMockDTO dto) {
@@ -230,6 +360,7 @@ public class RestfulMockServiceUtils {
         switch (apiImportConfig.getKeepStrategy()) {
             case RENAME_EXISTING:
                 existingRestFulMock.setPath("/" + conflictCtxPath + existingRestFulMock.getPath());
+                applyFullPath(existingRestFulMock);
                 restfulMockDAO.save(existingRestFulMock);
                 break;
             case RENAME_NEW:
@@ -311,6 +442,8 @@ public class RestfulMockServiceUtils {
             mock.setPath(formatInboundPathVarArgs(originalPath));
         }
 
+        applyFullPath(mock);
+
         mock.setStatus(dto.getStatus());
 
         restfulMockDAO.save(mock);
@@ -318,6 +451,13 @@ public class RestfulMockServiceUtils {
 
     public void createStatefulChildMocks(final RestfulMockDTO dto, final RestfulMock mainMock, final SmockinUser smockinUser) {
 
+        buildStatefulChildMocks(dto, mainMock, smockinUser)
+                .forEach(restfulMockDAO::save);
+    }
+
+    List<RestfulMock> buildStatefulChildMocks(final RestfulMockDTO dto, final RestfulMock mainMock, final SmockinUser smockinUser) {
+
+        final List<RestfulMock> children = new ArrayList<>();
         final String originalPath = dto.getPath();
         final String idFieldName = mainMock.getRestfulMockStatefulMeta().getIdFieldName();
         final String varPath = dto.getPath() + "/:" + idFieldName;
@@ -338,9 +478,13 @@ public class RestfulMockServiceUtils {
             mock.setStatefulParent(mainMock);
             mock.setRestfulMockStatefulMeta(null); // only set this in the parent
 
-            restfulMockDAO.save(mock);
+            mainMock.getStatefulChildren().add(mock);
+            children.add(mock);
         }
 
+        dto.setPath(originalPath);
+
+        return children;
     }
 
     RestfulMock loadStatefulParent(final RestfulMock mock) {
@@ -352,6 +496,8 @@ public class RestfulMockServiceUtils {
 
     public void handleExistingStatefulMockUpdate(final RestfulMockDTO dto, final RestfulMock mock) throws ValidationException {
 
+        validateStatefulQuota(dto.getStatefulQuota());
+
         final boolean mockTypeChanged = (!mock.getMockType().equals(dto.getMockType()));
 
         final RestfulMock parent = loadStatefulParent(mock);
@@ -378,7 +524,7 @@ public class RestfulMockServiceUtils {
 
     public RestfulMock buildRestfulMock(final RestfulMockDTO dto, final SmockinUser smockinUser) {
 
-        return new RestfulMock(
+        final RestfulMock mock = new RestfulMock(
                 formatInboundPathVarArgs(dto.getPath()),
                 dto.getMethod(),
                 dto.getStatus(),
@@ -395,17 +541,65 @@ public class RestfulMockServiceUtils {
                 dto.getRandomiseLatencyRangeMaxMillis(),
                 (dto.getProjectId() != null) ? projectService.loadByExtId(dto.getProjectId()) : null);
 
+        applyFullPath(mock);
+
+        return mock;
+    }
+
+    /**
+     * Keeps the derived FULL_PATH and FIRST_SEGMENT columns (used to look up mocks when serving) in line with the path and owner.
+     * Must be called whenever either of these change.
+     */
+    public void applyFullPath(final RestfulMock mock) {
+
+        final SmockinUser owner = mock.getCreatedBy();
+
+        final String fullPath = (owner == null || SmockinUserRoleEnum.SYS_ADMIN.equals(owner.getRole()))
+                ? mock.getPath()
+                : "/" + owner.getCtxPath() + mock.getPath();
+
+        mock.setFullPath(fullPath);
+        mock.setFirstSegment(GeneralUtils.extractMockFirstPathSegment(fullPath));
+    }
+
+    /**
+     * Fills in FULL_PATH and FIRST_SEGMENT on any mocks saved before they existed. Run on every start up rather than as a
+     * versioned migration patch, so it does not rely on the app version having moved on.
+     */
+    @Transactional
+    public int syncMissingFullPaths() {
+
+        final List<RestfulMock> mocks = restfulMockDAO.findAllWithoutFirstSegment();
+
+        mocks.forEach(this::applyFullPath);
+
+        restfulMockDAO.saveAll(mocks);
+
+        return mocks.size();
+    }
+
+    @Transactional
+    public void syncFullPaths(final long userId) {
+
+        final List<RestfulMock> mocks = restfulMockDAO.findAllByUser(userId);
+
+        mocks.forEach(this::applyFullPath);
+
+        restfulMockDAO.saveAll(mocks);
     }
 
     public void handleMockFieldsUpdate(final RestfulMockDTO dto, final RestfulMock mock)
             throws ValidationException {
 
+        validateStatefulQuota(dto.getStatefulQuota());
+
         mock.getDefinitions().clear();
         mock.getRules().clear();
         restfulMockDAO.saveAndFlush(mock);
 
         mock.setMockType(dto.getMockType());
         mock.setPath(formatInboundPathVarArgs(dto.getPath()));
+        applyFullPath(mock);
         mock.setMethod(dto.getMethod());
         mock.setStatus(dto.getStatus());
         mock.setProxyTimeOutInMillis(dto.getProxyTimeoutInMillis());
@@ -453,6 +647,11 @@ public class RestfulMockServiceUtils {
         restfulMockStatefulMeta.setIdFieldLocation(dto.getStatefulIdFieldLocation());
         restfulMockStatefulMeta.setRestfulMock(mock);
 
+        if (dto.getStatefulQuota() != null) {
+            restfulMockStatefulMeta.setMaxRecords(dto.getStatefulQuota().getMaxRecords());
+            restfulMockStatefulMeta.setMaxBytes(dto.getStatefulQuota().getMaxBytes());
+        }
+
         mock.setRestfulMockStatefulMeta(restfulMockStatefulMeta);
     }
 
@@ -4,14 +4,11 @@ import com.smockin.admin.persistence.entity.RestfulMock;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.text.CharacterIterator;
-import java.text.StringCharacterIterator;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Created by mgallina.
@@ -19,65 +16,204 @@ import java.util.regex.Pattern;
 @Component
 public class RestfulMockSortingUtils {
 
-    private final String ZERO_NUMERIC_RANGE_REGEX = "[0-9]+";
-    private final String NON_ZERO_NUMERIC_RANGE_REGEX = "[1-9]+";
-    private final String ALPHA_RANGE_REGEX = "[a-zA-Z]+";
-    private final String WILDCARD = "*";
-
+    static final int ORDER_GAP = 1000;
+
+    private static final Pattern NON_ZERO_NUMERIC_RANGE_PATTERN = Pattern.compile("[1-9]+");
+    private static final Pattern ALPHA_RANGE_PATTERN = Pattern.compile("[a-zA-Z]+");
+    private static final String WILDCARD = "*";
+
+    /**
+     * Sorts the given mocks into endpoint path order and assigns each an initializationOrder.
+     *
+     * Orders are spaced ORDER_GAP apart, so a new mock can usually be slotted in between its
+     * neighbours without touching them. Mocks already in the right relative order keep their
+     * current value, and everything is only renumbered when no gap is left.
+     *
+     * @return the mocks whose initializationOrder has changed and so need saving
+     */
     @Transactional
-    public void autoOrderEndpointPaths(final List<RestfulMock> mocks) {
+    public List<RestfulMock> autoOrderEndpointPaths(final List<RestfulMock> mocks) {
+
+        // Work out each path's sort attributes once, rather than on every comparison
+        final List<SortKey> keys = mocks.stream()
+                .map(SortKey::new)
+                .collect(Collectors.toList());
+
+        keys.sort(new AlphaNumericComparator());
+        keys.sort(new WildcardComparator());
+
+        mocks.clear();
+        keys.forEach(k -> mocks.add(k.mock));
+
+        final int[] orders = assignOrders(mocks);
+        final List<RestfulMock> changed = new ArrayList<>();
+
+        for (int i = 0; i < orders.length; i++) {
+
+            final RestfulMock m = mocks.get(i);
+
+            if (m.getInitializationOrder() != orders[i]) {
+                m.setInitializationOrder(orders[i]);
+                changed.add(m);
+            }
+        }
+
+        return changed;
+    }
+
+    int[] assignOrders(final List<RestfulMock> sortedMocks) {
+
+        final int size = sortedMocks.size();
+        final int[] current = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            current[i] = sortedMocks.get(i).getInitializationOrder();
+        }
+
+        final boolean[] keep = findLongestIncreasingRun(current);
+        final int[] orders = new int[size];
+
+        int prevIndex = -1;
+
+        for (int i = 0; i <= size; i++) {
+
+            if (i < size && !keep[i]) {
+                continue;
+            }
+
+            // Place the mocks sitting between the last kept order and this one (or the end of the list)
+            final long lower = (prevIndex == -1) ? 0 : current[prevIndex];
+            final int runLength = i - prevIndex - 1;
+
+            if (runLength > 0) {
+
+                final long step = (i < size)
+                        ? (current[i] - lower) / (runLength + 1)
+                        : ORDER_GAP;
+
+                if (step < 1 || lower + (step * runLength) > Integer.MAX_VALUE) {
+                    return renumber(size);
+                }
+
+                for (int r = 1; r <= runLength; r++) {
+                    orders[prevIndex + r] = (int) (lower + (step * r));
+                }
+            }
+
+            if (i < size) {
+                orders[i] = current[i];
+                prevIndex = i;
+            }
+        }
+
+        return orders;
+    }
+
+    /**
+     * Marks the longest strictly increasing subsequence of (positive) existing orders,
+     * i.e. the largest set of mocks that can keep their current initializationOrder.
+     */
+    private boolean[] findLongestIncreasingRun(final int[] current) {
+
+        final int size = current.length;
+        final int[] tails = new int[size];
+        final int[] predecessors = new int[size];
+        int length = 0;
+
+        for (int i = 0; i < size; i++) {
+
+            if (current[i] <= 0) {
+                continue;
+            }
 
-        int maxLen = 0;
+            int lo = 0;
+            int hi = length;
 
-        for (RestfulMock m : mocks) {
-            if (m.getPath().length() > maxLen) {
-                maxLen = m.getPath().length();
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (current[tails[mid]] < current[i]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
             }
+
+            predecessors[i] = (lo > 0) ? tails[lo - 1] : -1;
+            tails[lo] = i;
+
+            if (lo == length) {
+                length++;
+            }
+        }
+
+        final boolean[] keep = new boolean[size];
+
+        for (int i = (length > 0) ? tails[length - 1] : -1; i != -1; i = predecessors[i]) {
+            keep[i] = true;
         }
 
-        Collections.sort(mocks, new AlphaNumericComparator(maxLen));
-        Collections.sort(mocks, new WildcardComparator(maxLen));
+        return keep;
+    }
 
-        // Update the initialisation order
-        int index = 1;
+    private int[] renumber(final int size) {
 
-        for (RestfulMock m : mocks) {
-            m.setInitializationOrder(index++);
+        final int gap = (int) Math.max(1, Math.min(ORDER_GAP, Integer.MAX_VALUE / ((long) size + 1)));
+        final int[] orders = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            orders[i] = gap * (i + 1);
         }
 
+        return orders;
     }
 
-    private class AlphaNumericComparator implements Comparator<RestfulMock> {
+    private final class SortKey {
+
+        private final RestfulMock mock;
+        private final String path;
+        private final boolean nonZeroNumeric;
+        private final boolean alpha;
+        private final int wildcardPos;
 
-        private final int maxLen;
+        private SortKey(final RestfulMock mock) {
+            this.mock = mock;
+            this.path = mock.getPath();
+            this.nonZeroNumeric = NON_ZERO_NUMERIC_RANGE_PATTERN.matcher(path).matches();
+            this.alpha = ALPHA_RANGE_PATTERN.matcher(path).matches();
+            this.wildcardPos = path.indexOf(WILDCARD);
+        }
 
-        public AlphaNumericComparator(final int maxLen) {
-            this.maxLen = maxLen;
+        private boolean hasWildcard() {
+            return wildcardPos != -1;
         }
 
+    }
+
+    private class AlphaNumericComparator implements Comparator<SortKey> {
+
         @Override
-        public int compare(RestfulMock obj1, RestfulMock obj2) {
+        public int compare(SortKey k1, SortKey k2) {
 
-            final String o1 = obj1.getPath();
-            final String o2 = obj2.getPath();
+            final String o1 = k1.path;
+            final String o2 = k2.path;
 
-            if (o1.matches(NON_ZERO_NUMERIC_RANGE_REGEX) && o2.matches(NON_ZERO_NUMERIC_RANGE_REGEX)) {
+            if (k1.nonZeroNumeric && k2.nonZeroNumeric) {
                 Integer integer1 = Integer.valueOf(o1);
                 Integer integer2 = Integer.valueOf(o2);
                 return integer1.compareTo(integer2);
             }
 
-            if (o1.matches(ALPHA_RANGE_REGEX) && o2.matches(ALPHA_RANGE_REGEX)) {
+            if (k1.alpha && k2.alpha) {
                 return o1.compareTo(o2);
             }
 
-            final int result =  handleRegexComparison(o1, o2, maxLen);
+            final int result = o1.compareTo(o2);
 
-            if (o1.contains(WILDCARD) && o2.contains(WILDCARD)) {
+            if (k1.hasWildcard() && k2.hasWildcard()) {
                 return result;
-            } else if (o1.contains(WILDCARD) && result < 0) {
+            } else if (k1.hasWildcard() && result < 0) {
                 return Math.abs(result);
-            } else if (o2.contains(WILDCARD) && result > 0) {
+            } else if (k2.hasWildcard() && result > 0) {
                 return ( result - (result * 2) );
             }
 
@@ -85,31 +221,25 @@ public class RestfulMockSortingUtils {
         }
     }
 
-    private class WildcardComparator implements Comparator<RestfulMock> {
-
-        private final int maxLen;
-
-        public WildcardComparator(final int maxLen) {
-            this.maxLen = maxLen;
-        }
+    private class WildcardComparator implements Comparator<SortKey> {
 
         @Override
-        public int compare(RestfulMock obj1, RestfulMock obj2) {
+        public int compare(SortKey k1, SortKey k2) {
 
-            final String o1 = obj1.getPath();
-            final String o2 = obj2.getPath();
+            final String o1 = k1.path;
+            final String o2 = k2.path;
 
-            if (!o1.contains(WILDCARD) && !o2.contains(WILDCARD)) {
+            if (!k1.hasWildcard() && !k2.hasWildcard()) {
                 return 0;
             }
 
-            final int result = handleRegexComparison(o1, o2, maxLen);
+            final int result = o1.compareTo(o2);
 
-            final int pos = o2.indexOf(WILDCARD);
+            final int pos = k2.wildcardPos;
 
             if ( ( pos == -1  || o1.length() < (pos + 1) ) ) {
 
-                final int pos2 = o1.indexOf(WILDCARD);
+                final int pos2 = k1.wildcardPos;
 
                 if ( ( pos2 == -1  || o2.length() < (pos2 + 1) ) ) {
                     return result;
@@ -138,50 +268,4 @@ public class RestfulMockSortingUtils {
         }
     }
 
-    private String leftPad(String stringToPad, String padder, Integer size) {
-
-        final StringBuilder sb = new StringBuilder(size.intValue());
-        final StringCharacterIterator sci = new StringCharacterIterator(padder);
-
-        while (sb.length() < (size.intValue() - stringToPad.length())) {
-            for (char ch = sci.first(); ch != CharacterIterator.DONE; ch = sci.next()) {
-                if (sb.length() < (size.intValue() - stringToPad.length())) {
-                    sb.insert(sb.length(), String.valueOf(ch));
-                }
-            }
-        }
-
-        return sb.append(stringToPad).toString();
-    }
-
-    private int handleRegexComparison(final String o1, final String o2, final int maxLen) {
-
-        final String padding = "0";
-        final Pattern p = Pattern.compile(ZERO_NUMERIC_RANGE_REGEX);
-        final Matcher m1 = p.matcher(o1);
-        final Matcher m2 = p.matcher(o2);
-
-        final List<String> list = new ArrayList<String>();
-
-        while (m1.find()) {
-            list.add(m1.group());
-        }
-
-        for (String string : list) {
-            o1.replaceFirst(string, leftPad(string, padding, maxLen));
-        }
-
-        list.clear();
-
-        while (m2.find()) {
-            list.add(m2.group());
-        }
-
-        for (String string : list) {
-            o2.replaceFirst(string, leftPad(string, padding, maxLen));
-        }
-
-        return o1.compareTo(o2);
-    }
-
 }
@@ -0,0 +1,72 @@
+package com.smockin.admin.service.utils;
+
+import com.smockin.admin.dto.RestfulMockDTO;
+import com.smockin.admin.persistence.dao.RestfulMockDAO;
+import com.smockin.admin.persistence.dao.SmockinUserDAO;
+import com.smockin.admin.persistence.entity.RestfulMock;
+import com.smockin.admin.persistence.entity.SmockinUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class UpstreamRecordingServiceUtils {
+
+    private final Logger logger = LoggerFactory.getLogger(UpstreamRecordingServiceUtils.class);
+
+    @Autowired
+    private RestfulMockDAO restfulMockDAO;
+
+    @Autowired
+    private SmockinUserDAO smockinUserDAO;
+
+    @Autowired
+    private RestfulMockServiceUtils restfulMockServiceUtils;
+
+    /**
+     * Saves the recorded mocks in one go, skipping any the user already has, and re-orders endpoints once at the end.
+     *
+     * @return the number of mocks created
+     */
+    @Transactional
+    public int persist(final List<RestfulMockDTO> dtos, final long userId) {
+
+        final SmockinUser user = smockinUserDAO.findById(userId).orElse(null);
+
+        if (user == null) {
+            logger.warn("Recording owner no longer exists, discarding " + dtos.size() + " recorded mock(s)");
+            return 0;
+        }
+
+        final List<RestfulMock> mocks = new ArrayList<>();
+
+        for (RestfulMockDTO dto : dtos) {
+
+            restfulMockServiceUtils.amendPath(dto);
+
+            if (restfulMockDAO.findByPathAndMethodAndUser(restfulMockServiceUtils.formatInboundPathVarArgs(dto.getPath()), dto.getMethod(), user) != null) {
+                continue;
+            }
+
+            final RestfulMock mock = restfulMockServiceUtils.buildRestfulMock(dto, user);
+            restfulMockServiceUtils.populateEndpointDefinitionsAndRules(dto, mock);
+
+            mocks.add(mock);
+        }
+
+        if (mocks.isEmpty()) {
+            return 0;
+        }
+
+        restfulMockDAO.saveAll(mocks);
+        restfulMockServiceUtils.handleEndpointOrdering();
+
+        return mocks.size();
+    }
+
+}
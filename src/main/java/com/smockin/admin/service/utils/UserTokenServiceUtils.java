@@ -1,13 +1,19 @@
 package com.smockin.admin.service.utils;
 
+import com.smockin.admin.dto.SmockinPrincipalDTO;
 import com.smockin.admin.enums.UserModeEnum;
 import com.smockin.admin.exception.RecordNotFoundException;
 import com.smockin.admin.exception.ValidationException;
+import com.smockin.admin.persistence.dao.SmockinUserDAO;
 import com.smockin.admin.persistence.entity.*;
+import com.smockin.admin.service.AuthTokenCacheService;
 import com.smockin.admin.service.SmockinUserService;
+import com.smockin.utils.GeneralUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 /**
  * Created by mgallina.
@@ -19,6 +25,12 @@ public class UserTokenServiceUtils {
     @Autowired
     private SmockinUserService smockinUserService;
 
+    @Autowired
+    private AuthTokenCacheService authTokenCacheService;
+
+    @Autowired
+    private SmockinUserDAO smockinUserDAO;
+
     public SmockinUser loadCurrentUser(final String token) throws RecordNotFoundException {
 
         if (UserModeEnum.INACTIVE.equals(smockinUserService.getUserMode())) {
@@ -26,9 +38,38 @@ public class UserTokenServiceUtils {
                     .orElseThrow(() -> new RecordNotFoundException());
         }
 
+        // Where the token has already been resolved (by AuthInterceptor), load the user by its id rather than searching by token.
+        final SmockinPrincipalDTO principal = resolvePrincipal(token);
+
+        if (principal != null) {
+            return smockinUserDAO.findById(principal.getUserId())
+                    .orElseThrow(() -> new RecordNotFoundException());
+        }
+
         return smockinUserService.loadCurrentUser(token);
     }
 
+    SmockinPrincipalDTO resolvePrincipal(final String token) {
+
+        if (token == null) {
+            return null;
+        }
+
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+
+        if (requestAttributes != null) {
+
+            final Object principal = requestAttributes.getAttribute(GeneralUtils.PRINCIPAL_REQUEST_ATTR, RequestAttributes.SCOPE_REQUEST);
+
+            if (principal instanceof SmockinPrincipalDTO
+                    && token.equals(((SmockinPrincipalDTO) principal).getSessionToken())) {
+                return (SmockinPrincipalDTO) principal;
+            }
+        }
+
+        return authTokenCacheService.get(token);
+    }
+
     public void validateRecordOwner(final SmockinUser recordOwner, final String token) throws RecordNotFoundException, ValidationException {
 
         final SmockinUser currentUser = loadCurrentUser(token);
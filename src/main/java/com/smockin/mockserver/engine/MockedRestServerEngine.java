@@ -3,6 +3,7 @@ package com.smockin.mockserver.engine;
 import com.smockin.admin.enums.UserModeEnum;
 import com.smockin.admin.persistence.dao.RestfulMockDAO;
 import com.smockin.admin.service.SmockinUserService;
+import com.smockin.admin.service.UpstreamResponseCacheService;
 import com.smockin.admin.websocket.LiveLoggingHandler;
 import com.smockin.mockserver.dto.MockServerState;
 import com.smockin.mockserver.dto.MockedServerConfigDTO;
@@ -64,6 +65,9 @@ public class MockedRestServerEngine implements MockServerEngine<MockedServerConf
     @Autowired
     private SmockinUserService smockinUserService;
 
+    @Autowired
+    private UpstreamResponseCacheService upstreamResponseCacheService;
+
 
     private final Object monitor = new Object();
     private MockServerState serverState = new MockServerState(false, 0);
@@ -264,6 +268,7 @@ public class MockedRestServerEngine implements MockServerEngine<MockedServerConf
         proxyService.clearAllSessions();
         mockOrderingCounterService.clearState();
         serverSideEventService.clearState();
+        upstreamResponseCacheService.clear();
 
     }
 
@@ -9,6 +9,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -16,6 +17,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.smockin.admin.dto.HttpClientCallDTO;
 import com.smockin.admin.dto.response.HttpClientResponseDTO;
+import com.smockin.admin.enums.RecordingModeEnum;
 import com.smockin.admin.exception.ValidationException;
 import com.smockin.admin.persistence.dao.RestfulMockDAO;
 import com.smockin.admin.persistence.entity.RestfulMock;
@@ -25,6 +27,7 @@ import com.smockin.admin.persistence.enums.RestMethodEnum;
 import com.smockin.admin.persistence.enums.RestMockTypeEnum;
 import com.smockin.admin.persistence.enums.SmockinUserRoleEnum;
 import com.smockin.admin.service.HttpClientService;
+import com.smockin.admin.service.UpstreamRecordingService;
 import com.smockin.mockserver.exception.InboundParamMatchException;
 import com.smockin.mockserver.service.HttpProxyService;
 import com.smockin.mockserver.service.InboundParamMatchService;
@@ -76,6 +79,12 @@ public class MockedRestServerEngineUtils {
     @Autowired
     private HttpClientService httpClientService;
 
+    @Autowired
+    private UpstreamRecordingService upstreamRecordingService;
+
+    @Value("${smockin.redirect.stream:true}")
+    private boolean redirectStream;
+
     private Map<String, String> getHeadersInfo(HttpServletRequest request) {
         Map<String, String> map = new HashMap<String, String>();
 
@@ -107,21 +116,44 @@ public class MockedRestServerEngineUtils {
 //        http.setHeaders(request.params());
 
         http.setBody(request.body());
-        HttpClientResponseDTO responseDto = null;
-        try
-        {
-          responseDto = httpClientService.handleCall(http, true);
-        } catch (ValidationException e)
-        {
-          // TODO Auto-generated catch block
-          e.printStackTrace();
-        }
-        
-        if(responseDto != null && responseDto.getStatus() != 404) {
-            response.status(responseDto.getStatus());
-          return  Optional.of(new ResponseEntity<HttpClientResponseDTO>(responseDto, HttpStatus.resolve(responseDto.getStatus())).getBody().getBody());
+
+        if (RecordingModeEnum.PLAYBACK.equals(upstreamRecordingService.getMode())) {
+
+            logger.debug("playback mode, skipping upstream redirect");
+
+        } else if (redirectStream) {
+
+            if (request.queryString() != null) {
+                http.setUrl(http.getUrl() + "?" + request.queryString());
+            }
+
+            try {
+                if (httpClientService.streamRedirect(http, response.raw())) {
+                    // Upstream response has already been written to the raw response.
+                    return Optional.of("");
+                }
+            } catch (ValidationException e) {
+                logger.debug("Unable to redirect request upstream", e);
+            }
+
+        } else {
+
+            HttpClientResponseDTO responseDto = null;
+
+            try {
+                responseDto = httpClientService.handleCall(http, true);
+            } catch (ValidationException e) {
+                logger.debug("Unable to redirect request upstream", e);
+            }
+
+            if(responseDto != null && responseDto.getStatus() != 404) {
+                response.status(responseDto.getStatus());
+              return  Optional.of(new ResponseEntity<HttpClientResponseDTO>(responseDto, HttpStatus.resolve(responseDto.getStatus())).getBody().getBody());
+            }
+
         }
-        
+
+
         try {
 
             final RestfulMock mock = (isMultiUserMode)
@@ -210,6 +242,10 @@ public class MockedRestServerEngineUtils {
                 .forEach(e ->
                             res.header(e.getKey(), e.getValue()));
 
+        if (outcome.getBodyWriter() != null) {
+            return writeResponseBody(mock, outcome, res);
+        }
+
         String response;
 
         try {
@@ -228,6 +264,20 @@ public class MockedRestServerEngineUtils {
         return StringUtils.defaultIfBlank(response,"");
     }
 
+    // Streamed bodies are written directly to the raw response (so are not enriched with inbound param matches)
+    String writeResponseBody(final RestfulMock mock, final RestfulResponseDTO outcome, final Response res) {
+
+        handleLatency(mock);
+
+        try {
+            outcome.getBodyWriter().write(res.raw().getOutputStream());
+        } catch (IOException e) {
+            logger.error("Error writing streamed response body", e);
+        }
+
+        return "";
+    }
+
     RestfulResponseDTO getDefault(final RestfulMock restfulMock) {
         logger.debug("getDefault called");
 
@@ -0,0 +1,12 @@
+package com.smockin.mockserver.exception;
+
+/**
+ * Thrown when a script runs beyond its wall clock or CPU time budget and has been stopped.
+ */
+public class JavaScriptBudgetExceededException extends Exception {
+
+    public JavaScriptBudgetExceededException(final String msg) {
+        super(msg);
+    }
+
+}
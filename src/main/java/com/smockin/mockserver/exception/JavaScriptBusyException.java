@@ -0,0 +1,12 @@
+package com.smockin.mockserver.exception;
+
+/**
+ * Thrown when the JavaScript worker queue is full, or a queued script could not be started in time.
+ */
+public class JavaScriptBusyException extends Exception {
+
+    public JavaScriptBusyException(final String msg) {
+        super(msg);
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.smockin.mockserver.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.smockin.utils.GeneralUtils;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A stateful record held as its UTF-8 JSON rather than as a graph of maps, lists and boxed values, which for typical
+ * records takes a fraction of the memory.
+ *
+ * The record is read only. Its id is kept alongside the JSON so looking records up by id does not need them parsed,
+ * any other read parses the JSON afresh (without keeping the result), and serialising it writes the JSON out as is.
+ * To change a record, copy it into a new map and store that in its place.
+ */
+final class CompactStatefulRecord extends AbstractMap<String, Object> implements JsonSerializable, Serializable {
+
+    private static final TypeReference<Map<String, Object>> RECORD_TYPE = new TypeReference<Map<String, Object>>() {};
+
+    private final byte[] json;
+    private final String idFieldName;
+    private final Object id;
+
+    private CompactStatefulRecord(final byte[] json, final String idFieldName, final Object id) {
+        this.json = json;
+        this.idFieldName = idFieldName;
+        this.id = id;
+    }
+
+    /**
+     * @param idFieldName the (top level) field holding the record's id, or null if the id is nested within the record.
+     */
+    static Map<String, Object> of(final Map<String, Object> record, final String idFieldName) {
+
+        if (record instanceof CompactStatefulRecord) {
+            return record;
+        }
+
+        return new CompactStatefulRecord(GeneralUtils.serialiseJsonToBytes(record),
+                idFieldName,
+                (idFieldName != null) ? record.get(idFieldName) : null);
+    }
+
+    /**
+     * The same record, keyed by the given id field. Records restored before their mock's id field was known need this
+     * to be looked up by id without being parsed.
+     */
+    CompactStatefulRecord withIdFieldName(final String idFieldName) {
+
+        if (Objects.equals(this.idFieldName, idFieldName)) {
+            return this;
+        }
+
+        return new CompactStatefulRecord(json, idFieldName, (idFieldName != null) ? decode().get(idFieldName) : null);
+    }
+
+    /**
+     * A parsed, modifiable copy of the record.
+     */
+    Map<String, Object> decode() {
+        return GeneralUtils.deserialiseJson(json, RECORD_TYPE);
+    }
+
+    int getJsonLength() {
+        return json.length;
+    }
+
+    Object getId() {
+        return id;
+    }
+
+    @Override
+    public Object get(final Object key) {
+
+        if (idFieldName != null && idFieldName.equals(key)) {
+            return id;
+        }
+
+        return decode().get(key);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+
+        if (idFieldName != null && idFieldName.equals(key) && id != null) {
+            return true;
+        }
+
+        return decode().containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return Collections.unmodifiableMap(decode()).entrySet();
+    }
+
+    @Override
+    public void serialize(final JsonGenerator gen, final SerializerProvider serializers) throws IOException {
+        gen.writeRawValue(new String(json, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void serializeWithType(final JsonGenerator gen, final SerializerProvider serializers, final TypeSerializer typeSer) throws IOException {
+        serialize(gen, serializers);
+    }
+
+}
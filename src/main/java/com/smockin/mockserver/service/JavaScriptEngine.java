@@ -0,0 +1,27 @@
+package com.smockin.mockserver.service;
+
+import javax.script.ScriptException;
+
+/**
+ * The script engine CUSTOM_JS mocks are evaluated with.
+ *
+ * Implementations must evaluate each script in its own global scope, with no access to Java classes, and must return
+ * JavaScript objects as something readable as a java.util.Map.
+ */
+public interface JavaScriptEngine {
+
+    String getName();
+    Object eval(final String js) throws ScriptException;
+
+    /**
+     * Cuts short the evaluation running on the given thread, for engines able to do so from another thread
+     * (e.g. GraalJS, by closing the script's polyglot context). The engine it was running on must not be reused afterwards.
+     *
+     * @return false if nothing was running on the thread or the engine has no means of stopping it, in which case
+     * it is left to the caller to stop the thread itself.
+     */
+    default boolean cancel(final Thread worker) {
+        return false;
+    }
+
+}
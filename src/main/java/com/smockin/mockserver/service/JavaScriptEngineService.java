@@ -0,0 +1,10 @@
+package com.smockin.mockserver.service;
+
+/**
+ * Provides the script engine configured for this deployment (smockin.js.engine).
+ */
+public interface JavaScriptEngineService {
+
+    JavaScriptEngine getEngine();
+
+}
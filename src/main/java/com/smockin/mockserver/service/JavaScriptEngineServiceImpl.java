@@ -0,0 +1,68 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.mockserver.exception.MockServerException;
+import jdk.nashorn.api.scripting.NashornScriptEngineFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+
+/**
+ * Nashorn is used by default. Any other JSR-223 JavaScript engine on the classpath can be selected by one of its names,
+ * e.g. 'graal.js' for GraalJS, whose engine factory shares a single polyglot Engine (and so its code cache) across all
+ * the script engines it creates.
+ *
+ * Engines other than Nashorn are expected to deny host (Java) access by default, as GraalJS does.
+ */
+@Service
+public class JavaScriptEngineServiceImpl implements JavaScriptEngineService {
+
+    private final Logger logger = LoggerFactory.getLogger(JavaScriptEngineServiceImpl.class);
+
+    static final String NASHORN = "nashorn";
+
+    @Value("${smockin.js.engine:nashorn}")
+    private String engineName;
+
+    // Scripts only run on the JS executor's workers, so there is no need to keep more idle engines than workers
+    @Value("${smockin.js.executor.pool.size:4}")
+    private int poolSize;
+
+    private JavaScriptEngine engine;
+
+    @PostConstruct
+    public void after() {
+
+        engine = buildEngine(engineName);
+
+        logger.info("Using the " + engine.getName() + " JavaScript engine");
+    }
+
+    @Override
+    public JavaScriptEngine getEngine() {
+        return engine;
+    }
+
+    JavaScriptEngine buildEngine(final String name) {
+
+        if (NASHORN.equalsIgnoreCase(name)) {
+            return new PooledJavaScriptEngine(NASHORN,
+                    () -> new NashornScriptEngineFactory().getScriptEngine(JavaScriptResponseHandler.engineSecurityArgs),
+                    poolSize);
+        }
+
+        final ScriptEngineFactory factory = new ScriptEngineManager()
+                .getEngineFactories()
+                .stream()
+                .filter(f -> f.getNames().contains(name))
+                .findFirst()
+                .orElseThrow(() -> new MockServerException("No JavaScript engine named '" + name + "' was found on the classpath"));
+
+        return new PooledJavaScriptEngine(name, factory::getScriptEngine, poolSize);
+    }
+
+}
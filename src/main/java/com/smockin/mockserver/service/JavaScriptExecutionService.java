@@ -0,0 +1,25 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.admin.dto.response.JavaScriptExecutionStatsDTO;
+import com.smockin.mockserver.exception.JavaScriptBudgetExceededException;
+import com.smockin.mockserver.exception.JavaScriptBusyException;
+
+import javax.script.ScriptException;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs CUSTOM_JS scripts on a dedicated, bounded pool of worker threads rather than on the mock server's request threads,
+ * stopping any script that exceeds its wall clock or CPU time budget.
+ */
+public interface JavaScriptExecutionService {
+
+    /**
+     * @param timeoutMillis wall clock budget, 0 for the server default
+     * @param cpuTimeMillis CPU time budget, 0 for the server default
+     */
+    <T> T execute(final String mockExtId, final long timeoutMillis, final long cpuTimeMillis, final Callable<T> script)
+            throws ScriptException, JavaScriptBusyException, JavaScriptBudgetExceededException;
+    JavaScriptExecutionStatsDTO getStats();
+    JavaScriptExecutionStatsDTO getStats(final String mockExtId);
+
+}
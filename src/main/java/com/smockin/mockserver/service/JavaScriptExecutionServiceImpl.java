@@ -0,0 +1,346 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.admin.dto.response.JavaScriptExecutionStatsDTO;
+import com.smockin.mockserver.exception.JavaScriptBudgetExceededException;
+import com.smockin.mockserver.exception.JavaScriptBusyException;
+import com.smockin.mockserver.exception.MockServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.script.ScriptException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class JavaScriptExecutionServiceImpl implements JavaScriptExecutionService {
+
+    private final Logger logger = LoggerFactory.getLogger(JavaScriptExecutionServiceImpl.class);
+
+    // How often the calling thread wakes to check a running script against its budgets
+    private static final long BUDGET_CHECK_INTERVAL_MILLIS = 10;
+
+    @Autowired
+    private JavaScriptEngineService javaScriptEngineService;
+
+    @Value("${smockin.js.executor.pool.size:4}")
+    private int poolSize;
+
+    @Value("${smockin.js.executor.queue.size:100}")
+    private int queueSize;
+
+    @Value("${smockin.js.executor.queue.timeout.millis:2000}")
+    private long queueTimeoutMillis;
+
+    @Value("${smockin.js.executor.timeout.millis:5000}")
+    private long defaultTimeoutMillis;
+
+    @Value("${smockin.js.executor.cpu.time.millis:2000}")
+    private long defaultCpuTimeMillis;
+
+    @Value("${smockin.js.executor.stop.grace.millis:200}")
+    private long stopGraceMillis;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService reaper;
+    private ThreadMXBean threadMXBean;
+    private boolean cpuTimeSupported;
+
+    private final Map<String, MockStats> mockStats = new ConcurrentHashMap<>();
+
+    // Workers still running a script that could not be stopped, each replaced in the pool by an extra thread
+    private final AtomicInteger lostWorkers = new AtomicInteger();
+
+    @PostConstruct
+    public void after() {
+
+        final AtomicInteger workerCount = new AtomicInteger();
+
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+            final Thread t = new Thread(r, "smockin-js-" + workerCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "smockin-js-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+
+        threadMXBean = ManagementFactory.getThreadMXBean();
+        cpuTimeSupported = threadMXBean.isThreadCpuTimeSupported();
+
+        if (!cpuTimeSupported) {
+            logger.warn("Thread CPU time is not supported by this JVM, so only wall clock budgets apply to JavaScript mocks");
+        } else if (!threadMXBean.isThreadCpuTimeEnabled()) {
+            threadMXBean.setThreadCpuTimeEnabled(true);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+        reaper.shutdownNow();
+    }
+
+    @Override
+    public <T> T execute(final String mockExtId, final long timeoutMillis, final long cpuTimeMillis, final Callable<T> script)
+            throws ScriptException, JavaScriptBusyException, JavaScriptBudgetExceededException {
+
+        final MockStats stats = mockStats.computeIfAbsent(mockExtId, k -> new MockStats());
+        final long effectiveTimeoutMillis = (timeoutMillis > 0) ? timeoutMillis : defaultTimeoutMillis;
+        final long effectiveCpuTimeMillis = (cpuTimeMillis > 0) ? cpuTimeMillis : defaultCpuTimeMillis;
+
+        final ScriptTask<T> task = new ScriptTask<>(script);
+        final Future<T> future;
+
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException ex) {
+            stats.rejections.incrementAndGet();
+            throw new JavaScriptBusyException("Too many JavaScript mocks are currently executing");
+        }
+
+        final long submittedAt = System.nanoTime();
+
+        try {
+
+            while (true) {
+
+                try {
+
+                    final T result = future.get(BUDGET_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    stats.record(task.elapsedNanos());
+
+                    return result;
+
+                } catch (TimeoutException ex) {
+
+                    if (!task.started) {
+
+                        // Cancelling only succeeds if the script has still not been picked up by a worker
+                        if (System.nanoTime() - submittedAt > TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis)
+                                && future.cancel(false)) {
+                            stats.rejections.incrementAndGet();
+                            throw new JavaScriptBusyException("Timed out waiting for a JavaScript worker to become available");
+                        }
+
+                        continue;
+                    }
+
+                    if (task.elapsedNanos() > TimeUnit.MILLISECONDS.toNanos(effectiveTimeoutMillis)) {
+                        stop(stats, task, future);
+                        stats.timeouts.incrementAndGet();
+                        throw new JavaScriptBudgetExceededException("Script exceeded its " + effectiveTimeoutMillis + "ms time limit");
+                    }
+
+                    if (cpuTimeSupported
+                            && task.cpuTimeNanos() > TimeUnit.MILLISECONDS.toNanos(effectiveCpuTimeMillis)) {
+                        stop(stats, task, future);
+                        stats.cpuTimeouts.incrementAndGet();
+                        throw new JavaScriptBudgetExceededException("Script exceeded its " + effectiveCpuTimeMillis + "ms CPU time limit");
+                    }
+                }
+            }
+
+        } catch (ExecutionException ex) {
+
+            stats.record(task.elapsedNanos());
+
+            if (ex.getCause() instanceof ScriptException) {
+                throw (ScriptException) ex.getCause();
+            }
+
+            throw new MockServerException(ex.getCause());
+
+        } catch (InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+            stop(stats, task, future);
+
+            throw new MockServerException(ex);
+        }
+    }
+
+    @Override
+    public JavaScriptExecutionStatsDTO getStats() {
+
+        long executions = 0, timeouts = 0, cpuTimeouts = 0, rejections = 0, lost = 0, totalNanos = 0;
+
+        for (MockStats stats : mockStats.values()) {
+            executions += stats.executions.get();
+            timeouts += stats.timeouts.get();
+            cpuTimeouts += stats.cpuTimeouts.get();
+            rejections += stats.rejections.get();
+            lost += stats.lostWorkers.get();
+            totalNanos += stats.totalNanos.get();
+        }
+
+        return new JavaScriptExecutionStatsDTO(executions, timeouts, cpuTimeouts, rejections, lost,
+                TimeUnit.NANOSECONDS.toMillis(totalNanos), executor.getActiveCount(), executor.getQueue().size());
+    }
+
+    @Override
+    public JavaScriptExecutionStatsDTO getStats(final String mockExtId) {
+
+        final MockStats stats = mockStats.get(mockExtId);
+
+        if (stats == null) {
+            return new JavaScriptExecutionStatsDTO(0, 0, 0, 0, 0, 0, executor.getActiveCount(), executor.getQueue().size());
+        }
+
+        return new JavaScriptExecutionStatsDTO(stats.executions.get(), stats.timeouts.get(), stats.cpuTimeouts.get(), stats.rejections.get(), stats.lostWorkers.get(),
+                TimeUnit.NANOSECONDS.toMillis(stats.totalNanos.get()), executor.getActiveCount(), executor.getQueue().size());
+    }
+
+    /**
+     * Interrupts the script's worker, and if it is still running the script once the grace period has passed, forces it to stop,
+     * by cancelling the evaluation where the engine supports it (e.g. GraalJS) or otherwise by stopping the thread outright.
+     * Nashorn does not check for interrupts while looping, so the forced stop is what actually ends a runaway script.
+     * Scripts run in their own global scope and an engine cut short mid evaluation is never reused, so the stopped thread leaves no shared state behind.
+     */
+    private void stop(final MockStats stats, final ScriptTask<?> task, final Future<?> future) {
+
+        future.cancel(true);
+
+        reaper.schedule(() -> task.forceStop(stats), stopGraceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Thread.stop() is not supported from JDK 20, where this throws UnsupportedOperationException.
+     */
+    @SuppressWarnings("deprecation")
+    void stopThread(final Thread thread) {
+        thread.stop();
+    }
+
+    /**
+     * The worker cannot be got back, so the pool is given an extra thread in its place, keeping the number free to run scripts the same.
+     */
+    private void replaceLostWorker(final MockStats stats, final Thread worker, final Throwable cause) {
+
+        stats.lostWorkers.incrementAndGet();
+        lostWorkers.incrementAndGet();
+
+        synchronized (executor) {
+            executor.setMaximumPoolSize(executor.getMaximumPoolSize() + 1);
+            executor.setCorePoolSize(executor.getCorePoolSize() + 1);
+        }
+
+        logger.error("Unable to stop JavaScript worker " + worker.getName() + ", it will keep running its script. "
+                + lostWorkers.get() + " worker(s) lost so far", cause);
+    }
+
+    private final class ScriptTask<T> implements Callable<T> {
+
+        private final Callable<T> script;
+
+        // Guarded by this
+        private Thread runner;
+
+        private volatile boolean started;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile long startCpuNanos;
+
+        private ScriptTask(final Callable<T> script) {
+            this.script = script;
+        }
+
+        @Override
+        public T call() throws Exception {
+
+            synchronized (this) {
+                runner = Thread.currentThread();
+                startCpuNanos = (cpuTimeSupported) ? threadMXBean.getCurrentThreadCpuTime() : 0;
+                startedAt = System.nanoTime();
+                started = true;
+            }
+
+            try {
+                return script.call();
+            } finally {
+                synchronized (this) {
+                    finishedAt = System.nanoTime();
+                    runner = null;
+                }
+            }
+        }
+
+        private long elapsedNanos() {
+
+            if (!started) {
+                return 0;
+            }
+
+            return ((finishedAt != 0) ? finishedAt : System.nanoTime()) - startedAt;
+        }
+
+        private synchronized long cpuTimeNanos() {
+
+            if (runner == null) {
+                return 0;
+            }
+
+            final long cpuNanos = threadMXBean.getThreadCpuTime(runner.getId());
+
+            return (cpuNanos != -1) ? cpuNanos - startCpuNanos : 0;
+        }
+
+        private synchronized void forceStop(final MockStats stats) {
+
+            if (runner == null) {
+                return;
+            }
+
+            logger.warn("Forcibly stopping JavaScript worker " + runner.getName() + " which did not respond to an interrupt");
+
+            if (javaScriptEngineService != null && javaScriptEngineService.getEngine().cancel(runner)) {
+                return;
+            }
+
+            try {
+                stopThread(runner);
+            } catch (UnsupportedOperationException | SecurityException ex) {
+                replaceLostWorker(stats, runner, ex);
+            }
+        }
+
+    }
+
+    private static final class MockStats {
+
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong cpuTimeouts = new AtomicLong();
+        private final AtomicLong rejections = new AtomicLong();
+        private final AtomicLong lostWorkers = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        private void record(final long elapsedNanos) {
+            executions.incrementAndGet();
+            totalNanos.addAndGet(elapsedNanos);
+        }
+
+    }
+
+}
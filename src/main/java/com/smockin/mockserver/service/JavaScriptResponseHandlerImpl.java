@@ -2,12 +2,13 @@ package com.smockin.mockserver.service;
 
 import com.smockin.admin.dto.UserKeyValueDataDTO;
 import com.smockin.admin.persistence.entity.RestfulMock;
+import com.smockin.admin.persistence.entity.RestfulMockJavaScriptHandler;
 import com.smockin.admin.service.SmockinUserService;
 import com.smockin.admin.service.UserKeyValueDataService;
+import com.smockin.mockserver.exception.JavaScriptBudgetExceededException;
+import com.smockin.mockserver.exception.JavaScriptBusyException;
 import com.smockin.mockserver.service.dto.RestfulResponseDTO;
 import com.smockin.utils.GeneralUtils;
-import jdk.nashorn.api.scripting.NashornScriptEngineFactory;
-import jdk.nashorn.api.scripting.ScriptObjectMirror;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.slf4j.Logger;
@@ -17,12 +18,15 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import spark.Request;
-import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,40 +41,153 @@ public class JavaScriptResponseHandlerImpl implements JavaScriptResponseHandler
     @Autowired
     private UserKeyValueDataService userKeyValueDataService;
 
+    @Autowired
+    private JavaScriptResponseMemoService javaScriptResponseMemoService;
+
+    @Autowired
+    private JavaScriptExecutionService javaScriptExecutionService;
+
+    @Autowired
+    private JavaScriptEngineService javaScriptEngineService;
+
+    // The lookUpKvp(...) arguments found in each mock's JS handler (keyed by mock id), so the source is only scanned
+    // once rather than on every request. Each entry holds the syntax it was built from and is rebuilt when this changes.
+    private final Map<Long, KvpKeyNames> kvpKeyNamesCache = new ConcurrentHashMap<>();
+
 
     public RestfulResponseDTO executeUserResponse(final Request req, final RestfulMock mock) {
         logger.debug("executeUserResponse called");
 
-        Object engineResponse;
+        final RestfulMockJavaScriptHandler javaScriptHandler = mock.getJavaScriptHandler();
+        String memoKey = null;
+        long kvpVersion = 0;
+
+        if (javaScriptHandler.getMemoKeyInputs() != null) {
+
+            try {
+
+                // Read before the script runs, so a KVP change made mid execution still invalidates what is stored below
+                kvpVersion = (!loadKvpKeyNames(mock).isEmpty())
+                        ? userKeyValueDataService.loadVersion(mock.getCreatedBy().getId())
+                        : 0;
+                memoKey = buildMemoKey(req, mock);
+
+                final RestfulResponseDTO memoized = javaScriptResponseMemoService.lookup(mock.getExtId(), memoKey, javaScriptHandler.getSyntax(), kvpVersion);
+
+                if (memoized != null) {
+                    return memoized;
+                }
+
+            } catch (ScriptException ex) {
+                // Invalid lookUpKvp(...) syntax, which is reported when the script is run below
+                memoKey = null;
+            }
+        }
+
+        final RestfulResponseDTO outcome;
 
         try {
 
-            engineResponse = executeJS(
-                    defaultRequestObject
-                        + populateRequestObjectWithInbound(req, mock.getPath(), mock.getCreatedBy().getCtxPath())
-                        + populateKVPs(req, mock)
-                        + keyValuePairFindFunc
-                        + defaultResponseObject
-                        + userResponseFunctionInvoker
-                        + mock.getJavaScriptHandler().getSyntax());
+            final String js = defaultRequestObject
+                    + populateRequestObjectWithInbound(req, mock.getPath(), mock.getCreatedBy().getCtxPath())
+                    + populateKVPs(req, mock)
+                    + keyValuePairFindFunc
+                    + defaultResponseObject
+                    + userResponseFunctionInvoker
+                    + javaScriptHandler.getSyntax();
 
-        } catch (ScriptException ex) {
+            outcome = javaScriptExecutionService.execute(mock.getExtId(),
+                    javaScriptHandler.getTimeoutMillis(),
+                    javaScriptHandler.getCpuTimeMillis(),
+                    () -> toRestfulResponse(executeJS(js)));
+
+        } catch (ScriptException | JavaScriptBudgetExceededException ex) {
 
             return new RestfulResponseDTO(500,
                     "text/plain",
                     "Looks like there is an issue with the Javascript driving this mock " + ex.getMessage());
+
+        } catch (JavaScriptBusyException ex) {
+
+            return new RestfulResponseDTO(503,
+                    "text/plain",
+                    ex.getMessage());
         }
 
-        if (!(engineResponse instanceof ScriptObjectMirror)) {
+        if (outcome == null) {
             return new RestfulResponseDTO(500,
                     "text/plain",
                     "Looks like there is an issue with the Javascript driving this mock!");
         }
 
-        final ScriptObjectMirror response = (ScriptObjectMirror) engineResponse;
+        if (memoKey != null) {
+            javaScriptResponseMemoService.store(mock.getExtId(), memoKey, javaScriptHandler.getSyntax(), kvpVersion, javaScriptHandler.getMemoTtlMillis(), outcome);
+        }
+
+        return outcome;
+    }
+
+    /**
+     * Builds the memoization key from the request inputs the mock declares its response depends on.
+     * Each value is length prefixed, so different combinations of values cannot produce the same key.
+     */
+    String buildMemoKey(final Request req, final RestfulMock mock) {
+
+        final StringBuilder key = new StringBuilder();
+        Map<String, String> pathVars = null;
+        Map<String, String> parameters = null;
+
+        for (String keyInput : GeneralUtils.splitMemoKeyInputs(mock.getJavaScriptHandler().getMemoKeyInputs())) {
+
+            final String value;
+
+            if ("path".equals(keyInput)) {
+                value = req.pathInfo();
+            } else if ("body".equals(keyInput)) {
+                value = req.body();
+            } else if (keyInput.startsWith("headers.")) {
+                value = req.headers(StringUtils.substringAfter(keyInput, "."));
+            } else if (keyInput.startsWith("parameters.")) {
+
+                if (parameters == null) {
+                    parameters = extractAllRequestParams(req);
+                }
+
+                value = parameters.get(StringUtils.substringAfter(keyInput, "."));
+            } else if (keyInput.startsWith("pathVars.")) {
+
+                if (pathVars == null) {
+                    final String sanitizedInboundPath = GeneralUtils.sanitizeMultiUserPath(smockinUserService.getUserMode(), req.pathInfo(), mock.getCreatedBy().getCtxPath());
+                    pathVars = GeneralUtils.findAllPathVars(sanitizedInboundPath, mock.getPath());
+                }
+
+                value = pathVars.get(StringUtils.lowerCase(StringUtils.substringAfter(keyInput, ".")));
+            } else {
+                value = null;
+            }
+
+            key.append(keyInput)
+                    .append('=')
+                    .append((value != null) ? value.length() : -1)
+                    .append(':')
+                    .append(StringUtils.defaultString(value))
+                    .append('\n');
+        }
+
+        return key.toString();
+    }
+
+    // Runs on the JS worker thread, so the script's result is fully read before the worker is released
+    RestfulResponseDTO toRestfulResponse(final Object engineResponse) {
+
+        if (!(engineResponse instanceof Map)) {
+            return null;
+        }
+
+        final Map<?, ?> response = (Map<?, ?>) engineResponse;
 
         return new RestfulResponseDTO(
-                (int) response.get("status"),
+                ((Number) response.get("status")).intValue(),
                 (String) response.get("contentType"),
                 (String) response.get("body"),
                 convertResponseHeaders(response));
@@ -79,7 +196,7 @@ public class JavaScriptResponseHandlerImpl implements JavaScriptResponseHandler
     Object executeJS(final String js) throws ScriptException {
         if (logger.isDebugEnabled())
             logger.debug(js);
-        return buildEngine().eval(js);
+        return javaScriptEngineService.getEngine().eval(js);
     }
 
     String populateRequestObjectWithInbound(final Request req, final String mockPath, final String ctxPath) {
@@ -142,17 +259,17 @@ public class JavaScriptResponseHandlerImpl implements JavaScriptResponseHandler
                 .collect(Collectors.toMap(k -> k, k -> req.queryParams(k)));
     }
 
-    Set<Map.Entry<String, String>> convertResponseHeaders(final ScriptObjectMirror response) {
+    Set<Map.Entry<String, String>> convertResponseHeaders(final Map<?, ?> response) {
 
         final Object headersJS = response.get("headers");
 
         final Map<String, String> responseHeaders = new HashMap<>();
 
-        if (headersJS instanceof ScriptObjectMirror) {
-            ((ScriptObjectMirror) headersJS)
+        if (headersJS instanceof Map) {
+            ((Map<?, ?>) headersJS)
                     .entrySet()
                     .forEach(e ->
-                            responseHeaders.put(e.getKey(), (String)e.getValue()));
+                            responseHeaders.put((String)e.getKey(), (String)e.getValue()));
         }
 
         return responseHeaders.entrySet();
@@ -161,32 +278,19 @@ public class JavaScriptResponseHandlerImpl implements JavaScriptResponseHandler
     String populateKVPs(final Request req, final RestfulMock mock) throws ScriptException {
         logger.debug("populateKVPs called");
 
-        final String handleResponseFunc = GeneralUtils.removeJsComments(mock.getJavaScriptHandler().getSyntax());
         final long mockOwnerUserId = mock.getCreatedBy().getId();
 
-        final int MAX_PASSES = 500;
-        int currentPos = 0;
-        final String keyValuePairFuncPrefix = keyValuePairFindFuncName + "(";
-
         final Map<String, String> kvps = new HashMap<>();
 
-        for (int i=0; i < MAX_PASSES; i++) {
+        for (String keyName : loadKvpKeyNames(mock)) {
 
-            final int startPos = StringUtils.indexOf(handleResponseFunc, keyValuePairFuncPrefix, currentPos);
-
-            if (startPos == -1) {
-                break;
-            }
-
-            final int closingParenthesisPos = StringUtils.indexOf(handleResponseFunc, ")", startPos);
-            final String sanitizedKey = findKvpKey(startPos, closingParenthesisPos, req, mock, keyValuePairFuncPrefix, handleResponseFunc);
+            final String sanitizedKey = findKvpKey(keyName, req, mock);
 
             if (sanitizedKey != null) {
                 final UserKeyValueDataDTO userKeyValueDataDTO = userKeyValueDataService.loadByKey(sanitizedKey, mockOwnerUserId);
                 kvps.put(sanitizedKey, (userKeyValueDataDTO != null) ? userKeyValueDataDTO.getValue() : "");
             }
 
-            currentPos = closingParenthesisPos;
         }
 
         if (!kvps.isEmpty()) {
@@ -198,22 +302,69 @@ public class JavaScriptResponseHandlerImpl implements JavaScriptResponseHandler
         return defaultKeyValuePairStoreObject;
     }
 
-    private String findKvpKey(final int startPos, final int closingParenthesisPos, final Request req, final RestfulMock mock, final String keyValuePairFuncPrefix, final String handleResponseFunc)
-            throws ScriptException {
-        logger.debug("findKvpKey called");
+    List<String> loadKvpKeyNames(final RestfulMock mock) throws ScriptException {
 
-        final String invalidMsgPrefix = "Invalid lookUpKvp(...) syntax. ";
+        final long mockId = mock.getId();
+        final String syntax = mock.getJavaScriptHandler().getSyntax();
 
-        if (closingParenthesisPos == -1) {
-            throw new ScriptException(invalidMsgPrefix + "Unable to determine closing parenthesis position");
+        final KvpKeyNames cached = kvpKeyNamesCache.get(mockId);
+
+        if (cached != null && StringUtils.equals(cached.syntax, syntax)) {
+            return cached.keyNames;
         }
 
-        final String keyName = StringUtils.substring(handleResponseFunc, (startPos + keyValuePairFuncPrefix.length()), closingParenthesisPos);
+        final List<String> keyNames = parseKvpKeyNames(syntax);
+
+        kvpKeyNamesCache.put(mockId, new KvpKeyNames(syntax, keyNames));
+
+        return keyNames;
+    }
+
+    List<String> parseKvpKeyNames(final String syntax) throws ScriptException {
+
+        final String handleResponseFunc = GeneralUtils.removeJsComments(syntax);
+
+        final int MAX_PASSES = 500;
+        int currentPos = 0;
+        final String keyValuePairFuncPrefix = keyValuePairFindFuncName + "(";
+        final String invalidMsgPrefix = "Invalid lookUpKvp(...) syntax. ";
+
+        final List<String> keyNames = new ArrayList<>();
+
+        for (int i=0; i < MAX_PASSES; i++) {
+
+            final int startPos = StringUtils.indexOf(handleResponseFunc, keyValuePairFuncPrefix, currentPos);
+
+            if (startPos == -1) {
+                break;
+            }
+
+            final int closingParenthesisPos = StringUtils.indexOf(handleResponseFunc, ")", startPos);
+
+            if (closingParenthesisPos == -1) {
+                throw new ScriptException(invalidMsgPrefix + "Unable to determine closing parenthesis position");
+            }
+
+            final String keyName = StringUtils.substring(handleResponseFunc, (startPos + keyValuePairFuncPrefix.length()), closingParenthesisPos);
+
+            if (StringUtils.isBlank(keyName)) {
+                throw new ScriptException(invalidMsgPrefix + "key within find parenthesis is undefined");
+            }
+
+            keyNames.add(keyName);
 
-        if (StringUtils.isBlank(keyName)) {
-            throw new ScriptException(invalidMsgPrefix + "key within find parenthesis is undefined");
+            currentPos = closingParenthesisPos;
         }
 
+        return Collections.unmodifiableList(keyNames);
+    }
+
+    private String findKvpKey(final String keyName, final Request req, final RestfulMock mock)
+            throws ScriptException {
+        logger.debug("findKvpKey called");
+
+        final String invalidMsgPrefix = "Invalid lookUpKvp(...) syntax. ";
+
         logger.debug(String.format("keyName: %s", keyName));
 
         final String sanitizedKey;
@@ -284,9 +435,16 @@ public class JavaScriptResponseHandlerImpl implements JavaScriptResponseHandler
         return null;
     }
 
-    private ScriptEngine buildEngine() {
-        return new NashornScriptEngineFactory()
-                .getScriptEngine(engineSecurityArgs);
+    private static final class KvpKeyNames {
+
+        private final String syntax;
+        private final List<String> keyNames;
+
+        private KvpKeyNames(final String syntax, final List<String> keyNames) {
+            this.syntax = syntax;
+            this.keyNames = keyNames;
+        }
+
     }
 
 }
@@ -0,0 +1,19 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.admin.dto.response.JavaScriptMemoStatsDTO;
+import com.smockin.mockserver.service.dto.RestfulResponseDTO;
+
+/**
+ * TTL / LRU cache of CUSTOM_JS mock responses, for mocks that have opted in to memoization.
+ * Each entry is tied to the script and KVP version it was produced with, and is discarded once either changes.
+ */
+public interface JavaScriptResponseMemoService {
+
+    RestfulResponseDTO lookup(final String mockExtId, final String key, final String syntax, final long kvpVersion);
+    void store(final String mockExtId, final String key, final String syntax, final long kvpVersion, final long ttlMillis, final RestfulResponseDTO response);
+    void invalidate(final String mockExtId);
+    JavaScriptMemoStatsDTO getStats();
+    JavaScriptMemoStatsDTO getStats(final String mockExtId);
+    void clear();
+
+}
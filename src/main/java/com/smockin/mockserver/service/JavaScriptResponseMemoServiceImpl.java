@@ -0,0 +1,248 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.admin.dto.response.JavaScriptMemoStatsDTO;
+import com.smockin.mockserver.service.dto.RestfulResponseDTO;
+import com.smockin.utils.BoundedLruCache;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class JavaScriptResponseMemoServiceImpl implements JavaScriptResponseMemoService {
+
+    private final Logger logger = LoggerFactory.getLogger(JavaScriptResponseMemoServiceImpl.class);
+
+    @Value("${smockin.js.memo.ttl.millis:60000}")
+    private long defaultTtlMillis;
+
+    @Value("${smockin.js.memo.max.entries:10000}")
+    private int maxEntries;
+
+    @Value("${smockin.js.memo.max.bytes:52428800}")
+    private long maxBytes;
+
+    @Value("${smockin.js.memo.max.entry.bytes:1048576}")
+    private long maxEntryBytes;
+
+    // Held around each use of the cache, so the per mock stats change along with it
+    private final Object monitor = new Object();
+
+    private BoundedLruCache<String, MemoEntry> cache;
+    private final Map<String, MockStats> mockStats = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void after() {
+        cache = new BoundedLruCache<>(maxEntries, maxBytes, e -> e.bytes, (k, evicted) -> {
+
+            adjust(evicted, -1);
+
+            final MockStats evictedStats = mockStats.get(evicted.mockExtId);
+
+            if (evictedStats != null) {
+                evictedStats.evictions++;
+            }
+        });
+    }
+
+    @Override
+    public RestfulResponseDTO lookup(final String mockExtId, final String key, final String syntax, final long kvpVersion) {
+
+        final MockStats stats = mockStats.computeIfAbsent(mockExtId, k -> new MockStats());
+
+        synchronized (monitor) {
+
+            final String cacheKey = buildCacheKey(mockExtId, key);
+            final MemoEntry entry = cache.get(cacheKey);
+
+            if (entry == null) {
+                stats.misses.incrementAndGet();
+                return null;
+            }
+
+            if (entry.expiresAt <= System.currentTimeMillis()) {
+                removeEntry(cacheKey, entry);
+                stats.misses.incrementAndGet();
+                return null;
+            }
+
+            if (!StringUtils.equals(entry.syntax, syntax) || entry.kvpVersion != kvpVersion) {
+                removeEntry(cacheKey, entry);
+                stats.invalidations++;
+                stats.misses.incrementAndGet();
+                return null;
+            }
+
+            stats.hits.incrementAndGet();
+
+            return entry.response;
+        }
+    }
+
+    @Override
+    public void store(final String mockExtId,
+                      final String key,
+                      final String syntax,
+                      final long kvpVersion,
+                      final long ttlMillis,
+                      final RestfulResponseDTO response) {
+
+        final String cacheKey = buildCacheKey(mockExtId, key);
+        final long expiresAt = System.currentTimeMillis() + ((ttlMillis > 0) ? ttlMillis : defaultTtlMillis);
+        final MemoEntry entry = new MemoEntry(mockExtId, syntax, kvpVersion, response, expiresAt, approxBytes(cacheKey, response));
+
+        if (entry.bytes > maxEntryBytes || entry.bytes > maxBytes) {
+            logger.debug("JS response too large to memoize: " + mockExtId);
+            return;
+        }
+
+        synchronized (monitor) {
+
+            mockStats.computeIfAbsent(mockExtId, k -> new MockStats());
+
+            // Counted before it is added, in case it is evicted straight away
+            adjust(entry, 1);
+
+            final MemoEntry previous = cache.put(cacheKey, entry);
+
+            if (previous != null) {
+                adjust(previous, -1);
+            }
+        }
+
+    }
+
+    @Override
+    public void invalidate(final String mockExtId) {
+
+        synchronized (monitor) {
+
+            cache.removeIf(e -> e.mockExtId.equals(mockExtId), (k, e) -> adjust(e, -1));
+
+            final MockStats stats = mockStats.get(mockExtId);
+
+            if (stats != null) {
+                stats.invalidations++;
+            }
+        }
+
+    }
+
+    @Override
+    public JavaScriptMemoStatsDTO getStats() {
+
+        synchronized (monitor) {
+
+            long hits = 0, misses = 0, evictions = 0, invalidations = 0;
+
+            for (MockStats stats : mockStats.values()) {
+                hits += stats.hits.get();
+                misses += stats.misses.get();
+                evictions += stats.evictions;
+                invalidations += stats.invalidations;
+            }
+
+            return new JavaScriptMemoStatsDTO(hits, misses, evictions, invalidations, cache.size(), cache.weight());
+        }
+    }
+
+    @Override
+    public JavaScriptMemoStatsDTO getStats(final String mockExtId) {
+
+        synchronized (monitor) {
+
+            final MockStats stats = mockStats.get(mockExtId);
+
+            if (stats == null) {
+                return new JavaScriptMemoStatsDTO(0, 0, 0, 0, 0, 0);
+            }
+
+            return new JavaScriptMemoStatsDTO(stats.hits.get(), stats.misses.get(), stats.evictions, stats.invalidations, stats.entries, stats.bytes);
+        }
+    }
+
+    @Override
+    public void clear() {
+
+        synchronized (monitor) {
+            cache.clear();
+            mockStats.clear();
+        }
+    }
+
+    // Callers must hold the monitor
+    private void removeEntry(final String cacheKey, final MemoEntry entry) {
+        cache.remove(cacheKey);
+        adjust(entry, -1);
+    }
+
+    // Callers must hold the monitor
+    private void adjust(final MemoEntry entry, final int direction) {
+
+        final MockStats stats = mockStats.get(entry.mockExtId);
+
+        if (stats != null) {
+            stats.entries += direction;
+            stats.bytes += direction * entry.bytes;
+        }
+    }
+
+    private String buildCacheKey(final String mockExtId, final String key) {
+        return mockExtId + '\n' + key;
+    }
+
+    long approxBytes(final String cacheKey, final RestfulResponseDTO response) {
+
+        long chars = cacheKey.length()
+                + StringUtils.length(response.getResponseContentType())
+                + StringUtils.length(response.getResponseBody());
+
+        for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            chars += StringUtils.length(header.getKey()) + StringUtils.length(header.getValue());
+        }
+
+        // Strings are held as UTF-16, plus a rough allowance for the entry's own objects
+        return (chars * 2) + 128;
+    }
+
+    private static final class MemoEntry {
+
+        private final String mockExtId;
+        private final String syntax;
+        private final long kvpVersion;
+        private final RestfulResponseDTO response;
+        private final long expiresAt;
+        private final long bytes;
+
+        private MemoEntry(final String mockExtId, final String syntax, final long kvpVersion,
+                          final RestfulResponseDTO response, final long expiresAt, final long bytes) {
+            this.mockExtId = mockExtId;
+            this.syntax = syntax;
+            this.kvpVersion = kvpVersion;
+            this.response = response;
+            this.expiresAt = expiresAt;
+            this.bytes = bytes;
+        }
+
+    }
+
+    private static final class MockStats {
+
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        // Guarded by the monitor
+        private long evictions;
+        private long invalidations;
+        private int entries;
+        private long bytes;
+
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.smockin.mockserver.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A JavaScriptEngine backed by a pool of JSR-223 script engines, reused across evaluations.
+ *
+ * Every evaluation runs against fresh bindings (a new global scope), so nothing one script defines is visible to the next,
+ * while the cost of creating the engine, and any code it caches, is shared.
+ *
+ * Evaluations can be cancelled on engines which expose a polyglot context (i.e. GraalJS), looked up reflectively so there is
+ * no compile time dependency on GraalJS. Nashorn has no such means, so its evaluations cannot be cancelled.
+ */
+public class PooledJavaScriptEngine implements JavaScriptEngine {
+
+    private final Logger logger = LoggerFactory.getLogger(PooledJavaScriptEngine.class);
+
+    private final String name;
+    private final Supplier<ScriptEngine> engineSupplier;
+    private final BlockingQueue<ScriptEngine> idleEngines;
+
+    // The engine each worker thread is currently evaluating on
+    private final Map<Thread, ScriptEngine> running = new ConcurrentHashMap<>();
+
+    public PooledJavaScriptEngine(final String name, final Supplier<ScriptEngine> engineSupplier, final int maxIdle) {
+        this.name = name;
+        this.engineSupplier = engineSupplier;
+        this.idleEngines = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object eval(final String js) throws ScriptException {
+
+        ScriptEngine engine = idleEngines.poll();
+
+        if (engine == null) {
+            engine = engineSupplier.get();
+        }
+
+        final Thread worker = Thread.currentThread();
+        boolean completed = false;
+
+        running.put(worker, engine);
+
+        try {
+
+            final Object result = engine.eval(js, engine.createBindings());
+            completed = true;
+
+            return result;
+
+        } catch (ScriptException ex) {
+            completed = true;
+            throw ex;
+        } finally {
+
+            // Engines are only returned once an evaluation completes, so one that was stopped or cancelled part way through is discarded
+            if (running.remove(worker, engine) && completed) {
+                idleEngines.offer(engine);
+            }
+        }
+    }
+
+    @Override
+    public boolean cancel(final Thread worker) {
+
+        final ScriptEngine engine = running.remove(worker);
+
+        if (engine == null) {
+            return false;
+        }
+
+        try {
+
+            final Object context = engine.getClass().getMethod("getPolyglotContext").invoke(engine);
+
+            context.getClass().getMethod("close", boolean.class).invoke(context, true);
+
+            return true;
+
+        } catch (NoSuchMethodException ex) {
+            return false;
+        } catch (IllegalAccessException | InvocationTargetException | RuntimeException ex) {
+            logger.error("Error cancelling " + name + " evaluation on " + worker.getName(), ex);
+            return false;
+        }
+    }
+
+    int getIdleCount() {
+        return idleEngines.size();
+    }
+
+}
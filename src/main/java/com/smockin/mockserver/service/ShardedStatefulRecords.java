@@ -0,0 +1,304 @@
+package com.smockin.mockserver.service;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * The records of a stateful mock (with a top level id field) split by the hash of their id across a number of shards,
+ * each with its own lock and id index, so that writes to different records do not queue up behind one another.
+ *
+ * Every record is given a sequence number when added, which it keeps when replaced. Reading the records as a list
+ * (e.g. for GET all) merges the shards back into that order, the same order an unsharded list would hold them in.
+ * The merge copies one shard at a time, so while each record is read consistently, it is not a point in time view of the whole resource.
+ * Ids are unique within a sharded resource, and records are added and changed by id rather than by position.
+ * Writes can be given an action to run while the shard is still locked (e.g. journalling the change), so that it is
+ * ordered the same way as the change itself.
+ */
+final class ShardedStatefulRecords extends AbstractList<Map<String, Object>> {
+
+    private static final Runnable NO_ACTION = () -> {};
+
+    private final String idFieldName;
+    private final Shard[] shards;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+
+    ShardedStatefulRecords(final String idFieldName, final int shardCount, final Collection<Map<String, Object>> records) {
+
+        this.idFieldName = idFieldName;
+        this.shards = new Shard[shardCount];
+
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+
+        records.forEach(this::insert);
+    }
+
+    Map<String, Object> get(final String id) {
+
+        final Shard shard = shardFor(id);
+
+        synchronized (shard) {
+
+            final SequencedRecord existing = shard.records.get(id);
+
+            return (existing != null) ? existing.record : null;
+        }
+    }
+
+    boolean insert(final Map<String, Object> record) {
+        return insert(record, NO_ACTION);
+    }
+
+    /**
+     * Adds the record, unless one with the same id is already held, running the given action under the shard's lock once it has been added.
+     */
+    boolean insert(final Map<String, Object> record, final Runnable whileLocked) {
+
+        final String id = idOf(record);
+        final Shard shard = shardFor(id);
+
+        synchronized (shard) {
+
+            if (shard.records.containsKey(id)) {
+                return false;
+            }
+
+            shard.records.put(id, new SequencedRecord(sequence.incrementAndGet(), record));
+            whileLocked.run();
+        }
+
+        size.incrementAndGet();
+
+        return true;
+    }
+
+    /**
+     * Swaps in the given record in place of the one with the given id, returning the record replaced (or null if there was none).
+     */
+    Map<String, Object> replace(final String id, final Map<String, Object> record) {
+        return update(id, existing -> record);
+    }
+
+    /**
+     * Replaces the record with the given id with the result of the given function, applied under the shard's lock.
+     * If the function throws, the record is left as it was.
+     *
+     * @return the record replaced, or null if there was none.
+     */
+    Map<String, Object> update(final String id, final UnaryOperator<Map<String, Object>> updater) {
+
+        final Shard shard = shardFor(id);
+
+        synchronized (shard) {
+
+            final SequencedRecord existing = shard.records.get(id);
+
+            if (existing == null) {
+                return null;
+            }
+
+            shard.records.put(id, new SequencedRecord(existing.sequence, updater.apply(existing.record)));
+
+            return existing.record;
+        }
+    }
+
+    Map<String, Object> remove(final String id) {
+        return remove(id, NO_ACTION);
+    }
+
+    /**
+     * Removes the record with the given id, running the given action under the shard's lock if there was one.
+     */
+    Map<String, Object> remove(final String id, final Runnable whileLocked) {
+
+        final Shard shard = shardFor(id);
+        final SequencedRecord removed;
+
+        synchronized (shard) {
+
+            removed = shard.records.remove(id);
+
+            if (removed != null) {
+                whileLocked.run();
+            }
+        }
+
+        if (removed == null) {
+            return null;
+        }
+
+        size.decrementAndGet();
+
+        return removed.record;
+    }
+
+    /**
+     * Removes the given record, but only if it is still the very record held for its id.
+     */
+    @Override
+    public boolean remove(final Object record) {
+
+        return (record instanceof Map)
+                && removeRecord((Map<?, ?>) record, NO_ACTION);
+    }
+
+    /**
+     * As remove(Object), running the given action under the shard's lock if the record was removed.
+     */
+    boolean removeRecord(final Map<?, ?> record, final Runnable whileLocked) {
+
+        final String id = idOf(record);
+        final Shard shard = shardFor(id);
+
+        synchronized (shard) {
+
+            final SequencedRecord existing = shard.records.get(id);
+
+            if (existing == null || existing.record != record) {
+                return false;
+            }
+
+            shard.records.remove(id);
+            whileLocked.run();
+        }
+
+        size.decrementAndGet();
+
+        return true;
+    }
+
+    /**
+     * All records, in the order they were added. Each shard is already in that order, so they are merged k ways.
+     */
+    List<Map<String, Object>> snapshot() {
+        return merge(Integer.MAX_VALUE);
+    }
+
+    /**
+     * The (at most count) records added longest ago, oldest first. Only the head of each shard needs copying.
+     */
+    List<Map<String, Object>> oldest(final int count) {
+        return merge(count);
+    }
+
+    private List<Map<String, Object>> merge(final int limit) {
+
+        final List<List<SequencedRecord>> copies = new ArrayList<>(shards.length);
+        int total = 0;
+
+        for (Shard shard : shards) {
+
+            final List<SequencedRecord> copy = new ArrayList<>();
+
+            synchronized (shard) {
+
+                final Iterator<SequencedRecord> iterator = shard.records.values().iterator();
+
+                while (copy.size() < limit && iterator.hasNext()) {
+                    copy.add(iterator.next());
+                }
+            }
+
+            copies.add(copy);
+            total += copy.size();
+        }
+
+        // Each cursor is {shard, position within shard}
+        final PriorityQueue<int[]> cursors = new PriorityQueue<>(shards.length,
+                (a, b) -> Long.compare(copies.get(a[0]).get(a[1]).sequence, copies.get(b[0]).get(b[1]).sequence));
+
+        for (int i = 0; i < copies.size(); i++) {
+            if (!copies.get(i).isEmpty()) {
+                cursors.add(new int[] { i, 0 });
+            }
+        }
+
+        final List<Map<String, Object>> merged = new ArrayList<>(Math.min(total, limit));
+
+        while (!cursors.isEmpty() && merged.size() < limit) {
+
+            final int[] cursor = cursors.poll();
+            final List<SequencedRecord> copy = copies.get(cursor[0]);
+
+            merged.add(copy.get(cursor[1]).record);
+
+            if (++cursor[1] < copy.size()) {
+                cursors.add(cursor);
+            }
+        }
+
+        return merged;
+    }
+
+    @Override
+    public boolean add(final Map<String, Object> record) {
+        return insert(record);
+    }
+
+    /**
+     * Takes a snapshot, so is not for use in loops.
+     */
+    @Override
+    public Map<String, Object> get(final int index) {
+        return snapshot().get(index);
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public Iterator<Map<String, Object>> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public Spliterator<Map<String, Object>> spliterator() {
+        return snapshot().spliterator();
+    }
+
+    private String idOf(final Map<?, ?> record) {
+        return String.valueOf(record.get(idFieldName));
+    }
+
+    private Shard shardFor(final String id) {
+
+        final int hash = id.hashCode();
+
+        return shards[((hash ^ (hash >>> 16)) & 0x7fffffff) % shards.length];
+    }
+
+    private static final class Shard {
+
+        // Keyed by id, in sequence order
+        private final Map<String, SequencedRecord> records = new LinkedHashMap<>();
+
+    }
+
+    private static final class SequencedRecord {
+
+        private final long sequence;
+        private final Map<String, Object> record;
+
+        private SequencedRecord(final long sequence, final Map<String, Object> record) {
+            this.sequence = sequence;
+            this.record = record;
+        }
+
+    }
+
+}
@@ -0,0 +1,534 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.mockserver.service.enums.PatchCommandEnum;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.HttpStatus;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A JSON Patch document (either a single operation or an array of them), parsed once into operations whose
+ * JSON Pointers are already split and unescaped, so applying it is just a walk down each pointer.
+ *
+ * Patches are applied to a copy of the record, so a failing operation leaves the original untouched.
+ */
+final class StatefulJsonPatch {
+
+    static final String INVALID_PATCH_INSTRUCTION = "Invalid PATCH instruction in request body, %s";
+    static final String PATH_STRUCTURE_MISALIGN = "Invalid path '%s' does align with structure of existing JSON";
+    static final String FROM_STRUCTURE_MISALIGN = "Invalid from '%s' does align with structure of existing JSON";
+    static final String PATH_OUT_OF_RANGE_LIST_INDEX = "Invalid path '%s', list index %s is out of range";
+    static final String FROM_OUT_OF_RANGE_LIST_INDEX = "Invalid from '%s', list index %s is out of range";
+    static final String TEST_FAILED = "PATCH 'test' failed, value at path '%s' does not match";
+
+    // The RFC 6901 token for the position after the last element of a list
+    private static final String END_OF_LIST = "-";
+
+    private final List<Operation> operations;
+
+    private StatefulJsonPatch(final List<Operation> operations) {
+        this.operations = operations;
+    }
+
+    static StatefulJsonPatch compile(final Object document) throws PatchException {
+
+        final List<?> instructions;
+
+        if (document instanceof Map) {
+            instructions = Collections.singletonList(document);
+        } else if (document instanceof List && !((List<?>) document).isEmpty()) {
+            instructions = (List<?>) document;
+        } else {
+            throw new PatchException(HttpStatus.SC_BAD_REQUEST, "Invalid JSON in request body");
+        }
+
+        final List<Operation> operations = new ArrayList<>(instructions.size());
+
+        for (Object instruction : instructions) {
+
+            if (!(instruction instanceof Map)) {
+                throw new PatchException(HttpStatus.SC_BAD_REQUEST, "Invalid JSON in request body");
+            }
+
+            operations.add(compileOperation((Map<?, ?>) instruction));
+        }
+
+        return new StatefulJsonPatch(operations);
+    }
+
+    private static Operation compileOperation(final Map<?, ?> instruction) throws PatchException {
+
+        final Object op = instruction.get("op");
+        final Object path = instruction.get("path");
+
+        if (!(op instanceof String) || !(path instanceof String)) {
+            throw new PatchException(HttpStatus.SC_BAD_REQUEST,
+                    "Invalid JSON in request body, required 'op' and 'path' fields are missing");
+        }
+
+        final PatchCommandEnum command = PatchCommandEnum.findByName((String) op);
+
+        if (command == null) {
+            throw invalidInstruction("'op' is not a valid value");
+        }
+
+        if (!((String) path).startsWith("/")) {
+            throw invalidInstruction("path should begin with '/' (e.g '/age'");
+        }
+
+        final Object value = instruction.get("value");
+        Pointer from = null;
+
+        switch (command) {
+            case ADD:
+            case REPLACE:
+
+                if (value == null) {
+                    throw invalidInstruction("'value' is required");
+                }
+
+                break;
+            case TEST:
+
+                // null is a value that can be tested for, so only an absent value is an error
+                if (!instruction.containsKey("value")) {
+                    throw invalidInstruction("'value' is required");
+                }
+
+                break;
+            case COPY:
+            case MOVE:
+
+                final Object fromPath = instruction.get("from");
+
+                if (!(fromPath instanceof String)) {
+                    throw invalidInstruction("'from' is required");
+                }
+
+                if (!((String) fromPath).startsWith("/")) {
+                    throw invalidInstruction("'from' should begin with '/' (e.g '/age'");
+                }
+
+                from = new Pointer((String) fromPath, true);
+                break;
+            default:
+                break;
+        }
+
+        return new Operation(command, new Pointer((String) path, false), from, value);
+    }
+
+    /**
+     * Returns a patched copy of the record, or throws (leaving the record as it was) if any operation fails.
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> apply(final Map<String, Object> record) throws PatchException {
+
+        // Compact records parse into a fresh copy anyway
+        final Map<String, Object> copy = (record instanceof CompactStatefulRecord)
+                ? ((CompactStatefulRecord) record).decode()
+                : (Map<String, Object>) deepCopy(record);
+
+        for (Operation operation : operations) {
+            operation.apply(copy);
+        }
+
+        return copy;
+    }
+
+    static Object deepCopy(final Object value) {
+
+        if (value instanceof Map) {
+
+            final Map<Object, Object> copy = new LinkedHashMap<>();
+
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(entry.getKey(), deepCopy(entry.getValue()));
+            }
+
+            return copy;
+        }
+
+        if (value instanceof List) {
+
+            final List<Object> copy = new ArrayList<>(((List<?>) value).size());
+
+            for (Object element : (List<?>) value) {
+                copy.add(deepCopy(element));
+            }
+
+            return copy;
+        }
+
+        // Strings, numbers and booleans are immutable
+        return value;
+    }
+
+    /**
+     * JSON equality, under which numbers match by value whatever type they were parsed into (e.g. 1 and 1.0).
+     */
+    static boolean jsonEquals(final Object a, final Object b) {
+
+        if (a instanceof Number && b instanceof Number) {
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString())) == 0;
+        }
+
+        if (a instanceof Map && b instanceof Map) {
+
+            final Map<?, ?> mapA = (Map<?, ?>) a;
+            final Map<?, ?> mapB = (Map<?, ?>) b;
+
+            if (mapA.size() != mapB.size()) {
+                return false;
+            }
+
+            for (Map.Entry<?, ?> entry : mapA.entrySet()) {
+
+                if (!mapB.containsKey(entry.getKey()) || !jsonEquals(entry.getValue(), mapB.get(entry.getKey()))) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        if (a instanceof List && b instanceof List) {
+
+            final List<?> listA = (List<?>) a;
+            final List<?> listB = (List<?>) b;
+
+            if (listA.size() != listB.size()) {
+                return false;
+            }
+
+            final Iterator<?> itrB = listB.iterator();
+
+            for (Object elementA : listA) {
+
+                if (!jsonEquals(elementA, itrB.next())) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        return (a == null) ? b == null : a.equals(b);
+    }
+
+    private static boolean isCompatible(final Object existing, final Object value) {
+        return existing == null
+                || value == null
+                || existing.getClass().equals(value.getClass());
+    }
+
+    private static PatchException invalidInstruction(final String reason) {
+        return new PatchException(HttpStatus.SC_BAD_REQUEST, String.format(INVALID_PATCH_INSTRUCTION, reason));
+    }
+
+    private static final class Operation {
+
+        private final PatchCommandEnum command;
+        private final Pointer path;
+        private final Pointer from;
+        private final Object value;
+
+        private Operation(final PatchCommandEnum command, final Pointer path, final Pointer from, final Object value) {
+            this.command = command;
+            this.path = path;
+            this.from = from;
+            this.value = value;
+        }
+
+        private void apply(final Map<String, Object> record) throws PatchException {
+
+            switch (command) {
+                case ADD:
+                    add(record, path, deepCopy(value), false);
+                    break;
+                case REMOVE:
+                    remove(record, path);
+                    break;
+                case REPLACE:
+                    replace(record, path, deepCopy(value));
+                    break;
+                case COPY:
+                    add(record, path, deepCopy(read(record, from)), true);
+                    break;
+                case MOVE:
+                    final Object moved = read(record, from);
+                    remove(record, from);
+                    add(record, path, moved, true);
+                    break;
+                case TEST:
+                    test(record, path, value);
+                    break;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void add(final Map<String, Object> record, final Pointer pointer, final Object value, final boolean canOverwriteExisting)
+                throws PatchException {
+
+            // A top level list is appended to, rather than replaced
+            if (pointer.tokens.length == 1 && record.get(pointer.last()) instanceof List) {
+
+                final List<Object> list = (List<Object>) record.get(pointer.last());
+
+                if (!list.isEmpty() && !isCompatible(list.get(0), value)) {
+                    throw invalidInstruction("'value' in path '" + pointer.text + "' has an incompatible data type with existing values in list");
+                }
+
+                list.add(value);
+                return;
+            }
+
+            final Object parent = pointer.resolveParent(record);
+
+            if (parent instanceof List) {
+
+                final List<Object> list = (List<Object>) parent;
+                final int index = (END_OF_LIST.equals(pointer.last()))
+                        ? list.size()
+                        : pointer.lastIndex();
+
+                if (list.size() < index) {
+                    throw new PatchException(HttpStatus.SC_BAD_REQUEST, String.format(pointer.outOfRangeMessage, pointer.text, index));
+                }
+
+                if (!list.isEmpty() && !isCompatible(list.get(0), value)) {
+                    throw invalidInstruction("'value' in path '" + pointer.text + "' has an incompatible data type with existing values in list");
+                }
+
+                list.add(index, value);
+
+            } else {
+
+                final Map<String, Object> map = (Map<String, Object>) parent;
+
+                if (!canOverwriteExisting && map.containsKey(pointer.last())) {
+                    throw invalidInstruction("'path' value '" + pointer.text + "' already exists");
+                }
+
+                map.put(pointer.last(), value);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void remove(final Map<String, Object> record, final Pointer pointer) throws PatchException {
+
+            final Object parent = pointer.resolveParent(record);
+
+            if (parent instanceof List) {
+
+                final List<Object> list = (List<Object>) parent;
+
+                // Kept from the original implementation, where '-' removes the first element
+                if (END_OF_LIST.equals(pointer.last()) && !list.isEmpty()) {
+                    list.remove(0);
+                    return;
+                }
+
+                list.remove(pointer.checkedIndex(list));
+
+            } else {
+
+                final Map<String, Object> map = (Map<String, Object>) parent;
+
+                if (!map.containsKey(pointer.last())) {
+                    throw new PatchException(HttpStatus.SC_NOT_FOUND, null);
+                }
+
+                map.remove(pointer.last());
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void replace(final Map<String, Object> record, final Pointer pointer, final Object value) throws PatchException {
+
+            final Object parent = pointer.resolveParent(record);
+
+            if (parent instanceof List) {
+
+                final List<Object> list = (List<Object>) parent;
+                final int index = pointer.checkedIndex(list);
+
+                if (!isCompatible(list.get(0), value)) {
+                    throw new PatchException(HttpStatus.SC_BAD_REQUEST, "'value' in path '" + pointer.text + "' has an incompatible data type with existing values in list");
+                }
+
+                list.set(index, value);
+
+            } else {
+
+                final Map<String, Object> map = (Map<String, Object>) parent;
+
+                if (!map.containsKey(pointer.last())) {
+                    throw new PatchException(HttpStatus.SC_NOT_FOUND, null);
+                }
+
+                if (!isCompatible(map.get(pointer.last()), value)) {
+                    throw new PatchException(HttpStatus.SC_BAD_REQUEST, "'value' in path '" + pointer.text + "' has an incompatible data type with existing value");
+                }
+
+                map.put(pointer.last(), value);
+            }
+        }
+
+        private static void test(final Map<String, Object> record, final Pointer pointer, final Object expected) throws PatchException {
+
+            final Object actual;
+
+            try {
+                actual = read(record, pointer);
+            } catch (PatchException ex) {
+                throw new PatchException(HttpStatus.SC_CONFLICT, String.format(TEST_FAILED, pointer.text));
+            }
+
+            if (!jsonEquals(actual, expected)) {
+                throw new PatchException(HttpStatus.SC_CONFLICT, String.format(TEST_FAILED, pointer.text));
+            }
+        }
+
+        private static Object read(final Map<String, Object> record, final Pointer pointer) throws PatchException {
+
+            final Object parent = pointer.resolveParent(record);
+
+            if (parent instanceof List) {
+
+                final List<?> list = (List<?>) parent;
+                final Object value = list.get(pointer.checkedIndex(list));
+
+                if (value == null) {
+                    throw new PatchException(HttpStatus.SC_NOT_FOUND, null);
+                }
+
+                return value;
+            }
+
+            final Map<?, ?> map = (Map<?, ?>) parent;
+
+            if (!map.containsKey(pointer.last())) {
+                throw new PatchException(HttpStatus.SC_NOT_FOUND, null);
+            }
+
+            return map.get(pointer.last());
+        }
+
+    }
+
+    /**
+     * A JSON Pointer split into its (unescaped) tokens, with list indexes parsed up front.
+     */
+    private static final class Pointer {
+
+        private final String text;
+        private final String[] tokens;
+        private final int[] indexes;
+        private final String misalignMessage;
+        private final String outOfRangeMessage;
+
+        private Pointer(final String prefixedText, final boolean isFrom) {
+
+            this.text = prefixedText.substring(1);
+            this.tokens = StringUtils.splitPreserveAllTokens(text, "/");
+            this.indexes = new int[tokens.length];
+            this.misalignMessage = (isFrom) ? FROM_STRUCTURE_MISALIGN : PATH_STRUCTURE_MISALIGN;
+            this.outOfRangeMessage = (isFrom) ? FROM_OUT_OF_RANGE_LIST_INDEX : PATH_OUT_OF_RANGE_LIST_INDEX;
+
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = tokens[i].replace("~1", "/").replace("~0", "~");
+                indexes[i] = NumberUtils.toInt(tokens[i], -1);
+            }
+        }
+
+        private String last() {
+            return tokens[tokens.length - 1];
+        }
+
+        private int lastIndex() throws PatchException {
+
+            final int index = indexes[indexes.length - 1];
+
+            if (index == -1) {
+                throw new PatchException(HttpStatus.SC_BAD_REQUEST, String.format(misalignMessage, text));
+            }
+
+            return index;
+        }
+
+        private int checkedIndex(final List<?> list) throws PatchException {
+
+            final int index = lastIndex();
+
+            if (list.size() <= index) {
+                throw new PatchException(HttpStatus.SC_BAD_REQUEST, String.format(outOfRangeMessage, text, index));
+            }
+
+            return index;
+        }
+
+        /**
+         * Walks to the list or object holding the pointer's last token.
+         */
+        private Object resolveParent(final Map<String, Object> record) throws PatchException {
+
+            Object current = record;
+
+            for (int i = 0; i < tokens.length - 1; i++) {
+
+                if (current instanceof List) {
+
+                    final List<?> list = (List<?>) current;
+
+                    if (indexes[i] == -1) {
+                        throw new PatchException(HttpStatus.SC_BAD_REQUEST, String.format(misalignMessage, text));
+                    }
+
+                    if (list.size() <= indexes[i]) {
+                        throw new PatchException(HttpStatus.SC_BAD_REQUEST, String.format(outOfRangeMessage, text, indexes[i]));
+                    }
+
+                    current = list.get(indexes[i]);
+
+                } else if (current instanceof Map) {
+
+                    current = ((Map<?, ?>) current).get(tokens[i]);
+
+                } else {
+                    throw new PatchException(HttpStatus.SC_BAD_REQUEST, String.format(misalignMessage, text));
+                }
+            }
+
+            if (!(current instanceof List) && !(current instanceof Map)) {
+                throw new PatchException(HttpStatus.SC_BAD_REQUEST, String.format(misalignMessage, text));
+            }
+
+            return current;
+        }
+
+    }
+
+    static final class PatchException extends Exception {
+
+        private final int status;
+
+        PatchException(final int status, final String msg) {
+            super(msg);
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+    }
+
+}
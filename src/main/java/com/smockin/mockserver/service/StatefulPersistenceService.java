@@ -0,0 +1,20 @@
+package com.smockin.mockserver.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optionally keeps stateful mock data on local disk, as an append only journal of changes which is periodically compacted into a snapshot.
+ * All recording methods do nothing when persistence is disabled.
+ */
+public interface StatefulPersistenceService {
+
+    boolean isEnabled();
+    Map<String, List<Map<String, Object>>> loadAll();
+    void recordPut(final String parentExtId, final String id, final Map<String, Object> record);
+    void recordDelete(final String parentExtId, final String id);
+    void recordReplace(final String parentExtId, final String idFieldName, final List<Map<String, Object>> records);
+    void recordClear(final String parentExtId);
+    void discard(final String parentExtId);
+
+}
@@ -0,0 +1,607 @@
+package com.smockin.mockserver.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.smockin.mockserver.exception.MockServerException;
+import com.smockin.mockserver.service.dto.StatefulJournalEntryDTO;
+import com.smockin.mockserver.service.enums.StatefulFsyncPolicyEnum;
+import com.smockin.mockserver.service.enums.StatefulJournalOpEnum;
+import com.smockin.utils.GeneralUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Each stateful resource gets its own directory, holding at most one snapshot and the journal segments written since.
+ * Both are NDJSON files of journal entries, named by segment number (snapshot-N covers every journal segment up to and including N).
+ *
+ * Compaction seals the current segment, so new changes go to the next one, and then writes a new snapshot from the previous
+ * snapshot plus the sealed segments in the background. This never touches the live state, so requests are not held up by it.
+ * On replay, records are keyed by id, so a PUT for an existing id replaces that record in place.
+ */
+@Service
+public class StatefulPersistenceServiceImpl implements StatefulPersistenceService {
+
+    private final Logger logger = LoggerFactory.getLogger(StatefulPersistenceServiceImpl.class);
+
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+    static final String JOURNAL_PREFIX = "journal-";
+    static final String FILE_SUFFIX = ".ndjson";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    @Value("${smockin.stateful.persistence.enabled:false}")
+    private boolean enabled;
+
+    @Value("${smockin.stateful.persistence.dir:${user.home}/.smockin/stateful/}")
+    private String dir;
+
+    @Value("${smockin.stateful.persistence.fsync:interval}")
+    private String fsync;
+
+    @Value("${smockin.stateful.persistence.fsync.interval.millis:1000}")
+    private long fsyncIntervalMillis;
+
+    @Value("${smockin.stateful.persistence.compaction.threshold:10000}")
+    private int compactionThreshold;
+
+    @Value("${smockin.stateful.persistence.compaction.interval.millis:60000}")
+    private long compactionIntervalMillis;
+
+    @Value("${smockin.stateful.persistence.replay.threads:4}")
+    private int replayThreads;
+
+    private Path rootDir;
+    private StatefulFsyncPolicyEnum fsyncPolicy;
+    private ScheduledExecutorService journalExecutor;
+
+    private final Map<String, ResourceJournal> journals = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void after() {
+
+        if (!enabled) {
+            return;
+        }
+
+        fsyncPolicy = StatefulFsyncPolicyEnum.findByName(fsync);
+
+        if (fsyncPolicy == null) {
+            throw new MockServerException("Invalid stateful persistence fsync policy: " + fsync);
+        }
+
+        rootDir = Paths.get(dir);
+
+        try {
+            Files.createDirectories(rootDir);
+        } catch (IOException ex) {
+            throw new MockServerException(ex);
+        }
+
+        // Background syncing and compaction both run here, so only one snapshot is ever being written at a time.
+        journalExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "smockin-stateful-journal");
+            t.setDaemon(true);
+            return t;
+        });
+
+        if (StatefulFsyncPolicyEnum.INTERVAL.equals(fsyncPolicy)) {
+            journalExecutor.scheduleWithFixedDelay(this::syncAll, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        journalExecutor.scheduleWithFixedDelay(this::compactAll, compactionIntervalMillis, compactionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+
+        if (!enabled) {
+            return;
+        }
+
+        journalExecutor.shutdownNow();
+        journals.values().forEach(ResourceJournal::close);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Replays every resource found on disk, several at a time, and opens a fresh journal segment for each.
+     * Resources which were cleared (or have nothing left on disk) are left out, so they start over from their initial body.
+     */
+    @Override
+    public Map<String, List<Map<String, Object>>> loadAll() {
+
+        if (!enabled) {
+            return Collections.emptyMap();
+        }
+
+        final List<Path> resourceDirs;
+
+        try (Stream<Path> paths = Files.list(rootDir)) {
+            resourceDirs = paths.filter(Files::isDirectory).collect(Collectors.toList());
+        } catch (IOException ex) {
+            throw new MockServerException(ex);
+        }
+
+        if (resourceDirs.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final long start = System.currentTimeMillis();
+        final ExecutorService replayExecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(replayThreads, resourceDirs.size())));
+        final Map<String, Future<ReplayResult>> replays = new HashMap<>();
+
+        try {
+
+            for (Path resourceDir : resourceDirs) {
+                replays.put(resourceDir.getFileName().toString(), replayExecutor.submit(() -> replay(resourceDir, Long.MAX_VALUE)));
+            }
+
+            final Map<String, List<Map<String, Object>>> loaded = new HashMap<>();
+            long records = 0;
+
+            for (Map.Entry<String, Future<ReplayResult>> replay : replays.entrySet()) {
+
+                final ReplayResult result = replay.getValue().get();
+
+                journals.put(replay.getKey(), new ResourceJournal(rootDir.resolve(replay.getKey()), result.lastSegment + 1, result.journalEntries));
+
+                if (result.found && !result.cleared) {
+                    final List<Map<String, Object>> resourceRecords = new ArrayList<>(result.records.values());
+                    loaded.put(replay.getKey(), resourceRecords);
+                    records += resourceRecords.size();
+                }
+            }
+
+            logger.info("Replayed " + records + " stateful records across " + loaded.size() + " resources in " + (System.currentTimeMillis() - start) + "ms");
+
+            return loaded;
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MockServerException(ex);
+        } catch (ExecutionException ex) {
+            throw new MockServerException(ex.getCause());
+        } finally {
+            replayExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void recordPut(final String parentExtId, final String id, final Map<String, Object> record) {
+        append(parentExtId, new StatefulJournalEntryDTO(StatefulJournalOpEnum.PUT, id, record), 1);
+    }
+
+    @Override
+    public void recordDelete(final String parentExtId, final String id) {
+        append(parentExtId, new StatefulJournalEntryDTO(StatefulJournalOpEnum.DELETE, id), 1);
+    }
+
+    @Override
+    public void recordReplace(final String parentExtId, final String idFieldName, final List<Map<String, Object>> records) {
+        // Weighted by size, so a resource being replaced wholesale is compacted before its journal grows out of hand
+        append(parentExtId, new StatefulJournalEntryDTO(StatefulJournalOpEnum.REPLACE, idFieldName, records), Math.max(1, records.size()));
+    }
+
+    @Override
+    public void recordClear(final String parentExtId) {
+        append(parentExtId, new StatefulJournalEntryDTO(StatefulJournalOpEnum.CLEAR, null), 1);
+    }
+
+    /**
+     * Closes the resource's journal and deletes everything held on disk for it (e.g. once its mock no longer exists).
+     */
+    @Override
+    public void discard(final String parentExtId) {
+
+        if (!enabled) {
+            return;
+        }
+
+        final ResourceJournal journal = journals.remove(parentExtId);
+
+        if (journal != null) {
+            journal.close();
+        }
+
+        final Path resourceDir = rootDir.resolve(parentExtId);
+
+        if (!Files.isDirectory(resourceDir)) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(resourceDir)) {
+
+            // Deepest first, so each directory is empty by the time it is deleted
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+
+        } catch (IOException ex) {
+            logger.error("Error discarding stateful journal for " + parentExtId, ex);
+        }
+    }
+
+    void append(final String parentExtId, final StatefulJournalEntryDTO entry, final int weight) {
+
+        if (!enabled) {
+            return;
+        }
+
+        final ResourceJournal journal = journals.computeIfAbsent(parentExtId, k -> new ResourceJournal(rootDir.resolve(k), 1, 0));
+
+        try {
+
+            if (journal.append(GeneralUtils.serialiseJsonToBytes(entry), weight) >= compactionThreshold) {
+                scheduleCompaction(parentExtId);
+            }
+
+        } catch (IOException ex) {
+            logger.error("Error writing to stateful journal for " + parentExtId, ex);
+        }
+    }
+
+    void scheduleCompaction(final String parentExtId) {
+
+        final ResourceJournal journal = journals.get(parentExtId);
+
+        if (journal != null && journal.startCompaction()) {
+            journalExecutor.execute(() -> compact(parentExtId));
+        }
+    }
+
+    /**
+     * Seals the current journal segment and folds it, along with any earlier segments, into a new snapshot.
+     */
+    void compact(final String parentExtId) {
+
+        final ResourceJournal journal = journals.get(parentExtId);
+
+        if (journal == null) {
+            return;
+        }
+
+        try {
+
+            final long sealedSegment = journal.seal();
+
+            if (sealedSegment == -1) {
+                return;
+            }
+
+            final ReplayResult result = replay(journal.dir, sealedSegment);
+
+            if (!result.cleared) {
+                writeSnapshot(journal.dir, sealedSegment, result.records);
+            }
+
+            deleteFiles(journal.dir, SNAPSHOT_PREFIX, (result.cleared) ? sealedSegment : sealedSegment - 1);
+            deleteFiles(journal.dir, JOURNAL_PREFIX, sealedSegment);
+
+        } catch (IOException ex) {
+            logger.error("Error compacting stateful journal for " + parentExtId, ex);
+        } finally {
+            journal.endCompaction();
+        }
+    }
+
+    void syncAll() {
+
+        for (Map.Entry<String, ResourceJournal> journal : journals.entrySet()) {
+            try {
+                journal.getValue().sync();
+            } catch (IOException ex) {
+                logger.error("Error syncing stateful journal for " + journal.getKey(), ex);
+            }
+        }
+    }
+
+    void compactAll() {
+        journals.keySet().forEach(this::scheduleCompaction);
+    }
+
+    /**
+     * Rebuilds a resource from its latest snapshot plus every journal segment after it, up to the given segment.
+     * A partly written entry at the end of a segment (e.g. following a crash) is skipped.
+     */
+    ReplayResult replay(final Path resourceDir, final long upToSegment) throws IOException {
+
+        final ReplayResult result = new ReplayResult();
+        final List<Long> snapshots = listSegments(resourceDir, SNAPSHOT_PREFIX);
+        final long snapshotSegment = snapshots.stream().filter(s -> s <= upToSegment).reduce(0L, Math::max);
+
+        if (snapshotSegment > 0) {
+            apply(result, resourceDir.resolve(SNAPSHOT_PREFIX + snapshotSegment + FILE_SUFFIX), false);
+            result.found = true;
+        }
+
+        result.lastSegment = snapshotSegment;
+
+        for (Long segment : listSegments(resourceDir, JOURNAL_PREFIX)) {
+
+            result.lastSegment = Math.max(result.lastSegment, segment);
+
+            if (segment > snapshotSegment && segment <= upToSegment) {
+                apply(result, resourceDir.resolve(JOURNAL_PREFIX + segment + FILE_SUFFIX), true);
+                result.found = true;
+            }
+        }
+
+        return result;
+    }
+
+    private void apply(final ReplayResult result, final Path file, final boolean countEntries) throws IOException {
+
+        try (InputStream in = Files.newInputStream(file);
+             MappingIterator<StatefulJournalEntryDTO> entries = GeneralUtils.readJsonValues(in, StatefulJournalEntryDTO.class)) {
+
+            while (true) {
+
+                final StatefulJournalEntryDTO entry;
+
+                try {
+
+                    if (!entries.hasNextValue()) {
+                        break;
+                    }
+
+                    entry = entries.nextValue();
+
+                } catch (IOException ex) {
+                    logger.warn("Ignoring incomplete entry at the end of " + file);
+                    break;
+                }
+
+                result.apply(entry);
+
+                if (countEntries) {
+                    result.journalEntries++;
+                }
+            }
+        }
+    }
+
+    private void writeSnapshot(final Path resourceDir, final long segment, final Map<Object, Map<String, Object>> records) throws IOException {
+
+        final Path snapshot = resourceDir.resolve(SNAPSHOT_PREFIX + segment + FILE_SUFFIX);
+        final Path temp = resourceDir.resolve(SNAPSHOT_PREFIX + segment + FILE_SUFFIX + TEMP_SUFFIX);
+
+        try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+
+            final OutputStream buffered = new BufferedOutputStream(out);
+
+            for (Map.Entry<Object, Map<String, Object>> record : records.entrySet()) {
+
+                final String id = (record.getKey() instanceof String) ? (String) record.getKey() : null;
+
+                buffered.write(GeneralUtils.serialiseJsonToBytes(new StatefulJournalEntryDTO(StatefulJournalOpEnum.PUT, id, record.getValue())));
+                buffered.write('\n');
+            }
+
+            buffered.flush();
+            out.getChannel().force(true);
+        }
+
+        Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void deleteFiles(final Path resourceDir, final String prefix, final long upToSegment) throws IOException {
+
+        for (Long segment : listSegments(resourceDir, prefix)) {
+            if (segment <= upToSegment) {
+                Files.deleteIfExists(resourceDir.resolve(prefix + segment + FILE_SUFFIX));
+            }
+        }
+    }
+
+    List<Long> listSegments(final Path resourceDir, final String prefix) throws IOException {
+
+        if (!Files.isDirectory(resourceDir)) {
+            return Collections.emptyList();
+        }
+
+        try (Stream<Path> paths = Files.list(resourceDir)) {
+            return paths
+                    .map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(prefix) && n.endsWith(FILE_SUFFIX))
+                    .map(n -> NumberUtils.toLong(StringUtils.substringBetween(n, prefix, FILE_SUFFIX), -1))
+                    .filter(s -> s > 0)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static final class ReplayResult {
+
+        // Records without an id are keyed by a placeholder object, so they are kept in order but can never be matched
+        private final Map<Object, Map<String, Object>> records = new LinkedHashMap<>();
+        private boolean found;
+        private boolean cleared;
+        private long lastSegment;
+        private int journalEntries;
+
+        private void apply(final StatefulJournalEntryDTO entry) {
+
+            if (entry.getOp() == null) {
+                return;
+            }
+
+            switch (entry.getOp()) {
+                case PUT:
+                    records.put((entry.getId() != null) ? entry.getId() : new Object(), entry.getRecord());
+                    cleared = false;
+                    break;
+                case DELETE:
+                    records.remove(entry.getId());
+                    break;
+                case REPLACE:
+                    records.clear();
+                    entry.getRecords().forEach(r -> records.put(buildKey(entry.getIdField(), r), r));
+                    cleared = false;
+                    break;
+                case CLEAR:
+                    records.clear();
+                    cleared = true;
+                    break;
+            }
+        }
+
+        private Object buildKey(final String idField, final Map<String, Object> record) {
+
+            final Object id = (idField != null) ? record.get(idField) : null;
+
+            return (id != null) ? String.valueOf(id) : new Object();
+        }
+
+        Map<Object, Map<String, Object>> getRecords() {
+            return records;
+        }
+        boolean isFound() {
+            return found;
+        }
+        boolean isCleared() {
+            return cleared;
+        }
+    }
+
+    private final class ResourceJournal {
+
+        private final Path dir;
+
+        // Guarded by this
+        private long segment;
+        private FileOutputStream out;
+        private int entriesSinceSnapshot;
+        private boolean dirty;
+        private boolean compacting;
+
+        private ResourceJournal(final Path dir, final long segment, final int entriesSinceSnapshot) {
+            this.dir = dir;
+            this.segment = segment;
+            this.entriesSinceSnapshot = entriesSinceSnapshot;
+        }
+
+        /**
+         * Writes the entry straight through to the OS (so it survives the process dying), forcing it to disk if the fsync policy says so.
+         * Returns the weighted number of entries written since the last snapshot.
+         */
+        private synchronized int append(final byte[] entry, final int weight) throws IOException {
+
+            if (out == null) {
+                Files.createDirectories(dir);
+                out = new FileOutputStream(dir.resolve(JOURNAL_PREFIX + segment + FILE_SUFFIX).toFile(), true);
+            }
+
+            final byte[] line = new byte[entry.length + 1];
+            System.arraycopy(entry, 0, line, 0, entry.length);
+            line[entry.length] = '\n';
+
+            out.write(line);
+
+            if (StatefulFsyncPolicyEnum.ALWAYS.equals(fsyncPolicy)) {
+                out.getChannel().force(false);
+            } else {
+                dirty = true;
+            }
+
+            entriesSinceSnapshot += weight;
+
+            return entriesSinceSnapshot;
+        }
+
+        private synchronized void sync() throws IOException {
+
+            if (dirty && out != null) {
+                out.getChannel().force(false);
+                dirty = false;
+            }
+        }
+
+        private synchronized boolean startCompaction() {
+
+            if (compacting || entriesSinceSnapshot == 0) {
+                return false;
+            }
+
+            compacting = true;
+
+            return true;
+        }
+
+        private synchronized void endCompaction() {
+            compacting = false;
+        }
+
+        /**
+         * Closes off the current segment so later entries go to the next one, returning the sealed segment (or -1 if there is nothing to compact).
+         */
+        private synchronized long seal() throws IOException {
+
+            if (entriesSinceSnapshot == 0) {
+                return -1;
+            }
+
+            if (out != null) {
+                out.getChannel().force(false);
+                out.close();
+                out = null;
+                dirty = false;
+            }
+
+            entriesSinceSnapshot = 0;
+
+            return segment++;
+        }
+
+        private synchronized void close() {
+
+            if (out == null) {
+                return;
+            }
+
+            try {
+                out.getChannel().force(false);
+                out.close();
+            } catch (IOException ex) {
+                logger.error("Error closing stateful journal " + dir, ex);
+            } finally {
+                out = null;
+            }
+        }
+
+    }
+
+}
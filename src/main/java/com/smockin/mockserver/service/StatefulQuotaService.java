@@ -0,0 +1,31 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.admin.dto.response.StatefulQuotaStatsDTO;
+import com.smockin.admin.dto.response.StatefulUsageStatsDTO;
+import com.smockin.mockserver.service.enums.StatefulQuotaPolicyEnum;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a running count of the records held by each stateful resource, and an estimate of the memory they take up,
+ * so limits can be checked on every write without walking the data.
+ */
+public interface StatefulQuotaService {
+
+    long estimateBytes(final Object value);
+    void track(final String parentExtId, final List<Map<String, Object>> records);
+    void untrack(final String parentExtId);
+    void adjust(final String parentExtId, final long recordsDelta, final long bytesDelta);
+    boolean exceedsLimits(final String parentExtId, final int maxRecords, final long maxBytes, final long incomingBytes, final long freedRecords, final long freedBytes);
+    boolean exceedsLimitsWhenEmptied(final String parentExtId, final int maxRecords, final long maxBytes, final long incomingBytes);
+    StatefulQuotaPolicyEnum getPolicy();
+    int getRejectStatus();
+    void stamp(final String parentExtId, final String id);
+    void unstamp(final String parentExtId, final String id);
+    List<String> findExpired(final String parentExtId, final int limit);
+    void recordEnforcement(final String parentExtId, final StatefulQuotaPolicyEnum action);
+    StatefulQuotaStatsDTO getStats();
+    StatefulUsageStatsDTO getStats(final String parentExtId);
+
+}
@@ -0,0 +1,336 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.admin.dto.response.StatefulQuotaStatsDTO;
+import com.smockin.admin.dto.response.StatefulUsageStatsDTO;
+import com.smockin.mockserver.exception.MockServerException;
+import com.smockin.mockserver.service.enums.StatefulQuotaPolicyEnum;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Service
+public class StatefulQuotaServiceImpl implements StatefulQuotaService {
+
+    // Rough retained sizes on a 64 bit JVM with compressed references
+    private static final long MAP_BYTES = 56;
+    private static final long MAP_ENTRY_BYTES = 40;
+    private static final long LIST_BYTES = 40;
+    private static final long REFERENCE_BYTES = 8;
+    private static final long STRING_BYTES = 40;
+    private static final long BOXED_BYTES = 16;
+    private static final long COMPACT_RECORD_BYTES = 40;
+    private static final long BYTE_ARRAY_BYTES = 16;
+
+    @Value("${smockin.stateful.quota.max.records:0}")
+    private int defaultMaxRecords;
+
+    @Value("${smockin.stateful.quota.max.bytes:0}")
+    private long defaultMaxBytes;
+
+    @Value("${smockin.stateful.quota.global.max.records:0}")
+    private long globalMaxRecords;
+
+    @Value("${smockin.stateful.quota.global.max.bytes:0}")
+    private long globalMaxBytes;
+
+    @Value("${smockin.stateful.quota.policy:reject}")
+    private String policyName;
+
+    @Value("${smockin.stateful.quota.reject.status:507}")
+    private int rejectStatus;
+
+    @Value("${smockin.stateful.quota.ttl.millis:0}")
+    private long ttlMillis;
+
+    private StatefulQuotaPolicyEnum policy;
+
+    private final Map<String, ResourceUsage> usages = new ConcurrentHashMap<>();
+    private final AtomicLong totalRecords = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    @PostConstruct
+    public void after() {
+
+        policy = StatefulQuotaPolicyEnum.findByName(policyName);
+
+        if (policy == null) {
+            throw new MockServerException("Invalid stateful quota policy: " + policyName);
+        }
+    }
+
+    /**
+     * Walks the (parsed JSON) value, which is far cheaper than serialising it and closer to what it actually retains.
+     */
+    @Override
+    public long estimateBytes(final Object value) {
+
+        if (value == null) {
+            return 0;
+        }
+
+        if (value instanceof String) {
+            return STRING_BYTES + (2L * ((String) value).length());
+        }
+
+        if (value instanceof CompactStatefulRecord) {
+
+            final CompactStatefulRecord record = (CompactStatefulRecord) value;
+
+            return COMPACT_RECORD_BYTES + BYTE_ARRAY_BYTES + record.getJsonLength() + estimateBytes(record.getId());
+        }
+
+        if (value instanceof Map) {
+
+            long bytes = MAP_BYTES;
+
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                bytes += MAP_ENTRY_BYTES + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+            }
+
+            return bytes;
+        }
+
+        if (value instanceof List) {
+
+            long bytes = LIST_BYTES;
+
+            for (Object element : (List<?>) value) {
+                bytes += REFERENCE_BYTES + estimateBytes(element);
+            }
+
+            return bytes;
+        }
+
+        return BOXED_BYTES;
+    }
+
+    @Override
+    public void track(final String parentExtId, final List<Map<String, Object>> records) {
+
+        long bytes = 0;
+
+        for (Map<String, Object> record : records) {
+            bytes += estimateBytes(record);
+        }
+
+        final ResourceUsage usage = loadUsage(parentExtId);
+
+        adjust(parentExtId, records.size() - usage.records.get(), bytes - usage.bytes.get());
+
+        synchronized (usage.stamps) {
+            usage.stamps.clear();
+        }
+    }
+
+    @Override
+    public void untrack(final String parentExtId) {
+
+        final ResourceUsage usage = usages.remove(parentExtId);
+
+        if (usage != null) {
+            totalRecords.addAndGet(-usage.records.get());
+            totalBytes.addAndGet(-usage.bytes.get());
+        }
+    }
+
+    @Override
+    public void adjust(final String parentExtId, final long recordsDelta, final long bytesDelta) {
+
+        final ResourceUsage usage = loadUsage(parentExtId);
+
+        usage.records.addAndGet(recordsDelta);
+        usage.bytes.addAndGet(bytesDelta);
+        totalRecords.addAndGet(recordsDelta);
+        totalBytes.addAndGet(bytesDelta);
+    }
+
+    /**
+     * Whether adding one more record of the given size, once the given number of records and bytes have been freed from the resource,
+     * would break the resource's own limits (falling back to the server defaults) or the global ones.
+     */
+    @Override
+    public boolean exceedsLimits(final String parentExtId, final int maxRecords, final long maxBytes, final long incomingBytes,
+                                 final long freedRecords, final long freedBytes) {
+
+        final ResourceUsage usage = loadUsage(parentExtId);
+        final long recordLimit = (maxRecords > 0) ? maxRecords : defaultMaxRecords;
+        final long byteLimit = (maxBytes > 0) ? maxBytes : defaultMaxBytes;
+
+        return (recordLimit > 0 && usage.records.get() - freedRecords + 1 > recordLimit)
+                || (byteLimit > 0 && usage.bytes.get() - freedBytes + incomingBytes > byteLimit)
+                || (globalMaxRecords > 0 && totalRecords.get() - freedRecords + 1 > globalMaxRecords)
+                || (globalMaxBytes > 0 && totalBytes.get() - freedBytes + incomingBytes > globalMaxBytes);
+    }
+
+    /**
+     * Whether the record would still not fit even if every record the resource holds were removed.
+     */
+    @Override
+    public boolean exceedsLimitsWhenEmptied(final String parentExtId, final int maxRecords, final long maxBytes, final long incomingBytes) {
+
+        final ResourceUsage usage = loadUsage(parentExtId);
+
+        return exceedsLimits(parentExtId, maxRecords, maxBytes, incomingBytes, usage.records.get(), usage.bytes.get());
+    }
+
+    @Override
+    public StatefulQuotaPolicyEnum getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public int getRejectStatus() {
+        return rejectStatus;
+    }
+
+    /**
+     * Notes when the record with the given id was last written, for the EXPIRE policy. Records from the initial body are never stamped, so never expire.
+     * Stamps are kept by id, so there is never more than one per record held.
+     */
+    @Override
+    public void stamp(final String parentExtId, final String id) {
+
+        if (!isExpiring()) {
+            return;
+        }
+
+        final Map<String, Long> stamps = loadUsage(parentExtId).stamps;
+
+        synchronized (stamps) {
+            // Moves a rewritten record to the back
+            stamps.remove(id);
+            stamps.put(id, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Drops the stamp of a record that has been deleted.
+     */
+    @Override
+    public void unstamp(final String parentExtId, final String id) {
+
+        if (!isExpiring()) {
+            return;
+        }
+
+        final ResourceUsage usage = usages.get(parentExtId);
+
+        if (usage == null) {
+            return;
+        }
+
+        synchronized (usage.stamps) {
+            usage.stamps.remove(id);
+        }
+    }
+
+    /**
+     * The ids of (at most limit) records that have outlived the TTL, oldest first. Their stamps are left in place until they are unstamped.
+     */
+    @Override
+    public List<String> findExpired(final String parentExtId, final int limit) {
+
+        final List<String> expired = new ArrayList<>();
+
+        if (!isExpiring()) {
+            return expired;
+        }
+
+        final Map<String, Long> stamps = loadUsage(parentExtId).stamps;
+        final long now = System.currentTimeMillis();
+
+        synchronized (stamps) {
+
+            final Iterator<Map.Entry<String, Long>> iterator = stamps.entrySet().iterator();
+
+            while (expired.size() < limit && iterator.hasNext()) {
+
+                final Map.Entry<String, Long> stamp = iterator.next();
+
+                if (now - stamp.getValue() < ttlMillis) {
+                    break;
+                }
+
+                expired.add(stamp.getKey());
+            }
+        }
+
+        return expired;
+    }
+
+    @Override
+    public void recordEnforcement(final String parentExtId, final StatefulQuotaPolicyEnum action) {
+
+        final ResourceUsage usage = loadUsage(parentExtId);
+
+        switch (action) {
+            case REJECT:
+                usage.rejections.incrementAndGet();
+                break;
+            case EVICT:
+                usage.evictions.incrementAndGet();
+                break;
+            case EXPIRE:
+                usage.expirations.incrementAndGet();
+                break;
+        }
+    }
+
+    @Override
+    public StatefulQuotaStatsDTO getStats() {
+
+        final List<StatefulUsageStatsDTO> resources = usages.entrySet()
+                .stream()
+                .map(e -> toStats(e.getKey(), e.getValue()))
+                .collect(Collectors.toList());
+
+        return new StatefulQuotaStatsDTO(policy.name(), totalRecords.get(), totalBytes.get(),
+                globalMaxRecords, globalMaxBytes, defaultMaxRecords, defaultMaxBytes, resources);
+    }
+
+    @Override
+    public StatefulUsageStatsDTO getStats(final String parentExtId) {
+
+        final ResourceUsage usage = usages.get(parentExtId);
+
+        return (usage != null)
+                ? toStats(parentExtId, usage)
+                : new StatefulUsageStatsDTO(parentExtId, 0, 0, 0, 0, 0);
+    }
+
+    private StatefulUsageStatsDTO toStats(final String parentExtId, final ResourceUsage usage) {
+        return new StatefulUsageStatsDTO(parentExtId, usage.records.get(), usage.bytes.get(),
+                usage.rejections.get(), usage.evictions.get(), usage.expirations.get());
+    }
+
+    private boolean isExpiring() {
+        return StatefulQuotaPolicyEnum.EXPIRE.equals(policy) && ttlMillis > 0;
+    }
+
+    private ResourceUsage loadUsage(final String parentExtId) {
+        return usages.computeIfAbsent(parentExtId, k -> new ResourceUsage());
+    }
+
+    private static final class ResourceUsage {
+
+        private final AtomicLong records = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong rejections = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+        private final AtomicLong expirations = new AtomicLong();
+
+        // Record id to when it was last written, oldest first. Guarded by itself.
+        private final Map<String, Long> stamps = new LinkedHashMap<>();
+
+    }
+
+}
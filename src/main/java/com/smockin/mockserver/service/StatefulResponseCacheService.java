@@ -0,0 +1,34 @@
+package com.smockin.mockserver.service;
+
+import java.util.Map;
+
+/**
+ * LRU cache of serialised stateful GET responses. Each entry is tied to the version of the stateful resource it was
+ * serialised from, and is ignored (and replaced) once that version moves on.
+ */
+public interface StatefulResponseCacheService {
+
+    CachedResponse lookup(final String parentExtId, final String key, final long version);
+    void store(final String parentExtId, final String key, final long version, final CachedResponse response);
+    long getMaxEntryBytes();
+    void clear();
+
+    final class CachedResponse {
+
+        private final byte[] body;
+        private final Map<String, String> headers;
+
+        public CachedResponse(final byte[] body, final Map<String, String> headers) {
+            this.body = body;
+            this.headers = headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.utils.BoundedLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+
+@Service
+public class StatefulResponseCacheServiceImpl implements StatefulResponseCacheService {
+
+    @Value("${smockin.stateful.cache.max.bytes:52428800}")
+    private long maxBytes;
+
+    @Value("${smockin.stateful.cache.max.entry.bytes:1048576}")
+    private long maxEntryBytes;
+
+    private BoundedLruCache<String, CacheEntry> cache;
+
+    @PostConstruct
+    public void after() {
+        cache = new BoundedLruCache<>(Integer.MAX_VALUE, maxBytes, e -> e.bytes);
+    }
+
+    @Override
+    public CachedResponse lookup(final String parentExtId, final String key, final long version) {
+
+        final CacheEntry entry = cache.get(buildCacheKey(parentExtId, key));
+
+        return (entry != null && entry.version == version)
+                ? entry.response
+                : null;
+    }
+
+    @Override
+    public void store(final String parentExtId, final String key, final long version, final CachedResponse response) {
+
+        final CacheEntry entry = new CacheEntry(version, response);
+
+        if (entry.bytes > maxEntryBytes || entry.bytes > maxBytes) {
+            return;
+        }
+
+        cache.put(buildCacheKey(parentExtId, key), entry);
+    }
+
+    @Override
+    public long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    private String buildCacheKey(final String parentExtId, final String key) {
+        return parentExtId + '\n' + key;
+    }
+
+    private static final class CacheEntry {
+
+        private final long version;
+        private final CachedResponse response;
+        private final long bytes;
+
+        private CacheEntry(final long version, final CachedResponse response) {
+            this.version = version;
+            this.response = response;
+
+            // Headers are few and short, so a flat allowance covers them along with the entry's own objects
+            this.bytes = response.getBody().length + 256;
+        }
+
+    }
+
+}
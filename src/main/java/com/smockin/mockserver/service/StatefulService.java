@@ -1,14 +1,24 @@
 package com.smockin.mockserver.service;
 
+import com.smockin.admin.dto.response.StatefulImportResultDTO;
+import com.smockin.admin.enums.StatefulStreamFormatEnum;
 import com.smockin.admin.exception.RecordNotFoundException;
 import com.smockin.admin.exception.ValidationException;
 import com.smockin.admin.persistence.entity.RestfulMock;
 import com.smockin.mockserver.service.dto.RestfulResponseDTO;
 import spark.Request;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public interface StatefulService {
 
     RestfulResponseDTO process(final Request req, final RestfulMock mock);
     void resetState(final String externalId, final String userToken) throws RecordNotFoundException, ValidationException;
+    StatefulImportResultDTO importState(final String externalId, final InputStream in, final boolean append, final String userToken)
+            throws RecordNotFoundException, ValidationException, IOException;
+    void exportState(final String externalId, final StatefulStreamFormatEnum format, final String userToken, final OutputStream out)
+            throws RecordNotFoundException, ValidationException, IOException;
 
 }
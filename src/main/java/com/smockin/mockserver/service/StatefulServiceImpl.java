@@ -1,6 +1,11 @@
 package com.smockin.mockserver.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.smockin.admin.dto.response.StatefulImportResultDTO;
+import com.smockin.admin.enums.StatefulStreamFormatEnum;
 import com.smockin.admin.exception.RecordNotFoundException;
 import com.smockin.admin.exception.ValidationException;
 import com.smockin.admin.persistence.dao.RestfulMockDAO;
@@ -9,25 +14,38 @@ import com.smockin.admin.persistence.entity.RestfulMockStatefulMeta;
 import com.smockin.admin.persistence.enums.RestMethodEnum;
 import com.smockin.admin.service.SmockinUserService;
 import com.smockin.admin.service.utils.UserTokenServiceUtils;
+import com.smockin.mockserver.exception.MockServerException;
 import com.smockin.mockserver.service.dto.RestfulResponseDTO;
-import com.smockin.mockserver.service.enums.PatchCommandEnum;
+import com.smockin.mockserver.service.enums.StatefulQuotaPolicyEnum;
+import com.smockin.mockserver.service.enums.StatefulStorageModeEnum;
 import com.smockin.utils.GeneralUtils;
 import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
 import org.apache.http.entity.ContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import spark.Request;
 
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -42,6 +60,39 @@ public class StatefulServiceImpl implements StatefulService {
     */
     private final Map<String, List<Map<String, Object>>> state = new ConcurrentHashMap<>();
 
+    /*
+        Key: RestfulMock.externalId of stateful parent.
+        Value: Version of the parent's state, moved on by every change made to it. Used to build ETags and to key cached GET responses.
+    */
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicLong versionSequence = new AtomicLong();
+
+    // Keeps ETags issued before a restart from matching the (restarted) version sequence
+    private final String etagPrefix = Long.toString(System.currentTimeMillis(), 36);
+
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    static final String OFFSET_PARAM = "offset";
+    static final String LIMIT_PARAM = "limit";
+    static final String SORT_PARAM = "sort";
+    static final String DUPLICATE_ID_MSG = "A record with this id already exists";
+    static final String PATCHED_ID_MSG = "The id of a record cannot be changed by a patch";
+    static final String FILTER_PARAM_PREFIX = "filter.";
+
+    // Numbers compare by value, values of the same type by their natural order, and anything else by its text
+    @SuppressWarnings("unchecked")
+    private static final Comparator<Object> SORT_VALUE_ORDER = (a, b) -> {
+
+        if (a instanceof Number && b instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+
+        if (a instanceof Comparable && a.getClass().equals(b.getClass())) {
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+
+        return String.valueOf(a).compareTo(String.valueOf(b));
+    };
+
     @Autowired
     private RestfulMockDAO restfulMockDAO;
 
@@ -51,6 +102,55 @@ public class StatefulServiceImpl implements StatefulService {
     @Autowired
     private SmockinUserService smockinUserService;
 
+    @Autowired
+    private StatefulResponseCacheService statefulResponseCacheService;
+
+    @Autowired
+    private StatefulPersistenceService statefulPersistenceService;
+
+    @Autowired
+    private StatefulQuotaService statefulQuotaService;
+
+    @Value("${smockin.stateful.storage:object}")
+    private String storageModeName;
+
+    private StatefulStorageModeEnum storageMode;
+
+    // Above 1, the records of mocks with a top level id field are split across this many shards, so writes to them can run in parallel
+    @Value("${smockin.stateful.shards:1}")
+    private int shardCount;
+
+    // Mocks whose records have already been keyed (in compact storage) and considered for sharding, now that their id field is known
+    private final Set<String> preparedMocks = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void after() {
+
+        storageMode = StatefulStorageModeEnum.findByName(storageModeName);
+
+        if (storageMode == null) {
+            throw new MockServerException("Invalid stateful storage mode: " + storageModeName);
+        }
+
+        // Journals outlive their mocks, so any left behind by a deleted mock are discarded rather than restored (and counted against the quota)
+        statefulPersistenceService.loadAll().forEach((parentExtId, records) -> {
+
+            if (restfulMockDAO.findByExtId(parentExtId) == null) {
+                logger.info("Discarding stateful journal of deleted mock " + parentExtId);
+                statefulPersistenceService.discard(parentExtId);
+                return;
+            }
+
+            state.put(parentExtId, records);
+        });
+
+        // Which field holds the id is not known until each mock is next used, which is when these records are keyed by it (see loadStateForMock)
+        if (StatefulStorageModeEnum.COMPACT.equals(storageMode)) {
+            state.values().forEach(records -> records.replaceAll(r -> CompactStatefulRecord.of(r, null)));
+        }
+
+        state.forEach(statefulQuotaService::track);
+    }
 
     @Override
     public RestfulResponseDTO process(final Request req, final RestfulMock mock) {
@@ -64,14 +164,16 @@ public class StatefulServiceImpl implements StatefulService {
         final String fieldId = parent.getRestfulMockStatefulMeta().getIdFieldName();
         final String dataId = pathVars.get(fieldId);
 
+        final RestMethodEnum method = RestMethodEnum.findByName(req.requestMethod());
+
         StatefulResponse statefulResponse;
 
         try {
 
-            switch (RestMethodEnum.findByName(req.requestMethod())) {
+            switch (method) {
 
                 case GET:
-                    statefulResponse = handleGet(dataId, mockStateContent, parent.getRestfulMockStatefulMeta());
+                    statefulResponse = handleGet(dataId, parent.getExtId(), extractQueryParams(req), req.headers(HttpHeaders.IF_NONE_MATCH), mockStateContent, parent.getRestfulMockStatefulMeta());
                     break;
 
                 case POST:
@@ -106,9 +208,22 @@ public class StatefulServiceImpl implements StatefulService {
                     : new StatefulResponse(status);
         }
 
+        // Failed changes may still have been partly applied, so any change request moves the version on
+        if (!RestMethodEnum.GET.equals(method)) {
+            bumpVersion(parent.getExtId());
+        }
+
+        if (statefulResponse.bodyWriter != null) {
+            return new RestfulResponseDTO(statefulResponse.httpResponseCode,
+                    ContentType.APPLICATION_JSON.getMimeType(),
+                    statefulResponse.bodyWriter,
+                    statefulResponse.headers.entrySet());
+        }
+
         return new RestfulResponseDTO(statefulResponse.httpResponseCode,
                 ContentType.APPLICATION_JSON.getMimeType(),
-                statefulResponse.responseBody);
+                statefulResponse.responseBody,
+                statefulResponse.headers.entrySet());
     }
 
     @Override
@@ -125,1233 +240,1503 @@ public class StatefulServiceImpl implements StatefulService {
 
         userTokenServiceUtils.validateRecordOwner(parent.getCreatedBy(), userToken);
 
-        state.remove(parent.getExtId());
+        state.compute(parent.getExtId(), (k, currentValue) -> {
+            statefulPersistenceService.recordClear(k);
+            return null;
+        });
 
-    }
+        preparedMocks.remove(parent.getExtId());
+        bumpVersion(parent.getExtId());
+        statefulQuotaService.untrack(parent.getExtId());
 
-    StatefulResponse handleGet(final String dataId, final List<Map<String, Object>> currentStateContentForMock, final RestfulMockStatefulMeta restfulMockStatefulMeta) {
+    }
 
-        // GET All
-        if (dataId == null) {
-            return new StatefulResponse(HttpStatus.SC_OK,
-                    GeneralUtils.serialiseJson(currentStateContentForMock));
-        }
+    @Override
+    public StatefulImportResultDTO importState(final String externalId, final InputStream in, final boolean append, final String userToken)
+            throws RecordNotFoundException, ValidationException, IOException {
+        logger.debug("importState called");
 
-        // GET by ID
-        final Optional<Map<String, Object>> stateDataOpt =
-                findStatefulDataById(dataId, currentStateContentForMock, restfulMockStatefulMeta);
+        return importState(loadOwnedStatefulParent(externalId, userToken), in, append);
+    }
 
-        if (!stateDataOpt.isPresent()) {
-            return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
-        }
+    @Override
+    public void exportState(final String externalId, final StatefulStreamFormatEnum format, final String userToken, final OutputStream out)
+            throws RecordNotFoundException, ValidationException, IOException {
+        logger.debug("exportState called");
 
-        return new StatefulResponse(HttpStatus.SC_OK,
-                GeneralUtils.serialiseJson(stateDataOpt.get()));
+        exportState(loadOwnedStatefulParent(externalId, userToken), format, out);
     }
 
-    StatefulResponse handlePost(final String parentExtId, final String requestBody, final List<Map<String, Object>> currentStateContentForMock, final RestfulMockStatefulMeta restfulMockStatefulMeta) {
+    /**
+     * Reads records one at a time from either a JSON array or NDJSON, assigning ids to any without one and sizing each for the quota
+     * as it goes, so nothing needs a second pass once the stream ends. The loaded records then either replace the mock's state
+     * or are appended to it in a single step, so requests never see a partly loaded dataset, and an invalid record leaves the state untouched.
+     * Being an admin operation, loading is not subject to the quota policies, although the usage it adds is counted.
+     */
+    StatefulImportResultDTO importState(final RestfulMock parent, final InputStream in, final boolean append)
+            throws ValidationException, IOException {
 
-        // Validate is valid json body
-        final Optional<Map<String, Object>> requestDataMapOpt = convertToJsonMap(requestBody);
+        final String parentExtId = parent.getExtId();
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = parent.getRestfulMockStatefulMeta();
+        final boolean complexIdLocation = isComplexJsonStructure(restfulMockStatefulMeta.getIdFieldLocation());
+        final String fieldId = restfulMockStatefulMeta.getIdFieldName();
 
-        if (!requestDataMapOpt.isPresent()) {
-            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
-                    "Invalid JSON in request body");
+        final List<Map<String, Object>> loaded = new ArrayList<>();
+        long loadedBytes = 0;
+
+        try (MappingIterator<Map> records = GeneralUtils.readJsonValues(in, Map.class)) {
+
+            while (records.hasNextValue()) {
+
+                final Map<String, Object> record = records.nextValue();
+
+                if (record == null) {
+                    continue;
+                }
+
+                appendIdToJson(record, restfulMockStatefulMeta);
+
+                final Map<String, Object> storedRecord = toStored(record, restfulMockStatefulMeta);
+                loadedBytes += statefulQuotaService.estimateBytes(storedRecord);
+                loaded.add(storedRecord);
+            }
+
+        } catch (JsonProcessingException ex) {
+            throw new ValidationException("Invalid JSON record at position " + (loaded.size() + 1));
         }
 
-        final Map<String, Object> requestDataMap = requestDataMapOpt.get();
+        final List<Map<String, Object>> result;
+        final List<Map<String, Object>> imported;
 
-        // TODO amend id handler here to add id according to the path...
-        appendIdToJson(requestDataMap, restfulMockStatefulMeta);
+        if (append) {
 
-        final String fieldIdPathPattern = restfulMockStatefulMeta.getIdFieldLocation();
+            loadStateForMock(parent);
 
-        if (isComplexJsonStructure(fieldIdPathPattern)) {
+            // Sharded records skip any whose id is already held
+            imported = new ArrayList<>(loaded.size());
 
-            // TODO
-            // Amend POST to add items according to path...
+            result = state.merge(parentExtId, loaded, (currentValue, nu) -> {
 
-            state.put(parentExtId, currentStateContentForMock); // TODO use merge
+                for (Map<String, Object> record : nu) {
 
-        } else {
+                    final Runnable journal = () -> statefulPersistenceService.recordPut(parentExtId, String.valueOf(record.get(fieldId)), record);
+
+                    if (currentValue instanceof ShardedStatefulRecords) {
+
+                        if (((ShardedStatefulRecords) currentValue).insert(record, journal)) {
+                            imported.add(record);
+                        }
+
+                    } else if (currentValue.add(record)) {
+
+                        imported.add(record);
+
+                        if (!complexIdLocation) {
+                            journal.run();
+                        }
+                    }
+                }
+
+                if (complexIdLocation) {
+                    statefulPersistenceService.recordReplace(parentExtId, null, currentValue);
+                }
 
-            state.merge(parentExtId, currentStateContentForMock, (currentValue, p) -> {
-                currentValue.add(requestDataMap);
                 return currentValue;
             });
 
-        }
+            statefulQuotaService.adjust(parentExtId, imported.size(), (imported.size() == loaded.size())
+                    ? loadedBytes
+                    : imported.stream().mapToLong(statefulQuotaService::estimateBytes).sum());
 
-        return new StatefulResponse(HttpStatus.SC_CREATED);
-    }
+        } else {
 
-    StatefulResponse handleDelete(final String dataId,
-                                  final String parentExtId,
-                                  final List<Map<String, Object>> currentStateContentForMock,
-                                  final RestfulMockStatefulMeta restfulMockStatefulMeta) {
+            imported = loaded;
+            result = toRecordList(parentExtId, loaded, restfulMockStatefulMeta);
+            state.compute(parentExtId, (k, currentValue) -> {
+                statefulPersistenceService.recordReplace(k, (complexIdLocation) ? null : fieldId, loaded);
+                return result;
+            });
+            preparedMocks.add(parentExtId);
 
-        if (dataId == null) {
-            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST);
+            statefulQuotaService.untrack(parentExtId);
+            statefulQuotaService.adjust(parentExtId, loaded.size(), loadedBytes);
         }
 
-        final String fieldIdPathPattern = restfulMockStatefulMeta.getIdFieldLocation();
+        bumpVersion(parentExtId);
 
-        if (isComplexJsonStructure(fieldIdPathPattern)) {
+        return new StatefulImportResultDTO(imported.size(), result.size());
+    }
 
-            final Optional<StatefulServiceImpl.StatefulPath> pathOpt =
-                    findDataStateRecordPath(currentStateContentForMock,
-                                            StringUtils.split(fieldIdPathPattern,"."),
-                                            dataId);
+    /**
+     * Streams a copy of the mock's current state, taken in a single step so concurrent changes cannot interleave with the output.
+     */
+    void exportState(final RestfulMock parent, final StatefulStreamFormatEnum format, final OutputStream out) throws IOException {
 
-            if (!pathOpt.isPresent()) {
-                return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
-            }
+        loadStateForMock(parent);
 
-            // Drills down into path and removes specific object.
-            removeDataStateRecordByPath(currentStateContentForMock, pathOpt.get().getPath());
+        final List<Map<String, Object>> snapshot = new ArrayList<>();
 
-            state.put(parentExtId, currentStateContentForMock); // TODO use merge
+        state.computeIfPresent(parent.getExtId(), (k, currentValue) -> {
+            snapshot.addAll(currentValue);
+            return currentValue;
+        });
 
+        if (StatefulStreamFormatEnum.NDJSON.equals(format)) {
+            writeNdJson(snapshot, out);
         } else {
+            writeJsonArray(snapshot, out);
+        }
+    }
 
-            final String fieldId = restfulMockStatefulMeta.getIdFieldName();
-            final int originalDataStateSize = currentStateContentForMock.size();
+    RestfulMock loadOwnedStatefulParent(final String externalId, final String userToken) throws RecordNotFoundException, ValidationException {
 
-            final List<Map<String, Object>> filteredCurrentStateContentForMock
-                    = state.merge(parentExtId, currentStateContentForMock, (currentValue, p) ->
-                        currentValue
-                            .stream()
-                            .filter(f -> !(StringUtils.equals(dataId, (String) f.get(fieldId))))
-                            .collect(Collectors.toList())
-            );
+        final RestfulMock restfulMock = restfulMockDAO.findByExtId(externalId);
 
-            if (filteredCurrentStateContentForMock.size() == originalDataStateSize) {
-                return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
-            }
+        if (restfulMock == null) {
+            throw new RecordNotFoundException();
+        }
+
+        final RestfulMock parent = loadStatefulParent(restfulMock);
+
+        userTokenServiceUtils.validateRecordOwner(parent.getCreatedBy(), userToken);
 
+        if (parent.getRestfulMockStatefulMeta() == null) {
+            throw new ValidationException("Mock is not stateful");
         }
 
-        return new StatefulResponse(HttpStatus.SC_NO_CONTENT);
+        return parent;
     }
 
-    StatefulResponse handlePut(final String dataId,
+    /**
+     * Responses carry an ETag built from the version of the mock's state, and a matching If-None-Match is answered with a 304.
+     * Serialised responses are cached against that version, so repeat reads of unchanged state are served from the cached bytes.
+     */
+    StatefulResponse handleGet(final String dataId,
                                final String parentExtId,
-                               final String requestBody,
+                               final Map<String, String> queryParams,
+                               final String ifNoneMatch,
                                final List<Map<String, Object>> currentStateContentForMock,
                                final RestfulMockStatefulMeta restfulMockStatefulMeta) {
 
-        if (dataId == null) {
-            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST);
-        }
+        final long version = loadVersion(parentExtId);
+        final String etag = buildETag(version);
 
-        // Ensure json body is valid
-        final Optional<Map<String, Object>> requestDataMapOpt = convertToJsonMap(requestBody);
+        final Map<String, String> headers = new HashMap<>();
+        headers.put(HttpHeaders.ETAG, etag);
 
-        if (!requestDataMapOpt.isPresent()) {
-            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
-                    "Invalid JSON in request body");
+        // 'If-None-Match: *' only matches a record which actually exists (the collection always does).
+        if (matchesETag(ifNoneMatch, etag, () -> dataId == null
+                || findStatefulDataByIdLocked(dataId, parentExtId, currentStateContentForMock, restfulMockStatefulMeta).isPresent())) {
+            return new StatefulResponse(HttpStatus.SC_NOT_MODIFIED, headers, null);
         }
 
-        final String fieldIdPathPattern = restfulMockStatefulMeta.getIdFieldLocation();
-
-        if (isComplexJsonStructure(fieldIdPathPattern)) {
-
-            final Optional<StatefulServiceImpl.StatefulPath> pathOpt =
-                    findDataStateRecordPath(currentStateContentForMock,
-                            StringUtils.split(fieldIdPathPattern, "."),
-                            dataId);
+        final String cacheKey = (dataId != null)
+                ? "id:" + dataId
+                : buildGetAllCacheKey(queryParams);
 
-            if (!pathOpt.isPresent()) {
-                return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
-            }
+        final StatefulResponseCacheService.CachedResponse cached = statefulResponseCacheService.lookup(parentExtId, cacheKey, version);
 
-            currentStateContentForMock.remove(pathOpt.get().getIndex().intValue());
-            currentStateContentForMock.add(pathOpt.get().getIndex(), requestDataMapOpt.get());
+        if (cached != null) {
+            headers.putAll(cached.getHeaders());
+            return new StatefulResponse(HttpStatus.SC_OK, headers, out -> out.write(cached.getBody()));
+        }
 
-            state.put(parentExtId, currentStateContentForMock); // TODO use merge
+        // GET All
+        if (dataId == null) {
 
-        } else {
+            final StatefulResponse page = handleGetAll(parentExtId, queryParams, currentStateContentForMock);
+            headers.putAll(page.getHeaders());
 
-            final String fieldId = restfulMockStatefulMeta.getIdFieldName();
-            final Object bodyId = requestDataMapOpt.get().get(fieldId);
+            // The page is captured as it streams out and only cached if it turns out small enough
+            return new StatefulResponse(HttpStatus.SC_OK, headers, out -> {
 
-            // Ensure ids in url and body match
-            if (bodyId == null
-                    || !(bodyId instanceof String)
-                    || !StringUtils.equals((String)bodyId, dataId)) {
-                return new StatefulResponse(HttpStatus.SC_BAD_REQUEST);
-            }
+                final CapturingOutputStream capture = new CapturingOutputStream(out, statefulResponseCacheService.getMaxEntryBytes());
+                page.getBodyWriter().write(capture);
 
-            final AtomicBoolean recordFound = new AtomicBoolean(false);
+                if (!capture.isOverflowed()) {
+                    statefulResponseCacheService.store(parentExtId, cacheKey, version,
+                            new StatefulResponseCacheService.CachedResponse(capture.toByteArray(), page.getHeaders()));
+                }
+            });
+        }
 
-            state.merge(parentExtId, currentStateContentForMock, (currentValue, p) ->
-                currentValue
-                        .stream()
-                        .map(m -> {
+        // GET by ID
+        final Optional<Map<String, Object>> stateDataOpt =
+                findStatefulDataByIdLocked(dataId, parentExtId, currentStateContentForMock, restfulMockStatefulMeta);
 
-                            final boolean match = StringUtils.equals(dataId, (String) m.get(fieldId));
+        if (!stateDataOpt.isPresent()) {
+            return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
+        }
 
-                            if (match) {
-                                recordFound.set(true);
-                            }
+        final byte[] body = GeneralUtils.serialiseJsonToBytes(stateDataOpt.get());
 
-                            return (match)
-                                    ? requestDataMapOpt.get()
-                                    : m;
-                        })
-                        .collect(Collectors.toList())
-            );
+        statefulResponseCacheService.store(parentExtId, cacheKey, version,
+                new StatefulResponseCacheService.CachedResponse(body, Collections.emptyMap()));
 
-            if (!recordFound.get()) {
-                return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
-            }
+        return new StatefulResponse(HttpStatus.SC_OK, headers, out -> out.write(body));
+    }
 
-        }
+    long loadVersion(final String parentExtId) {
+        return versions.computeIfAbsent(parentExtId, k -> versionSequence.incrementAndGet());
+    }
 
-        return new StatefulResponse(HttpStatus.SC_NO_CONTENT);
+    void bumpVersion(final String parentExtId) {
+        versions.put(parentExtId, versionSequence.incrementAndGet());
     }
 
-    // https://sookocheff.com/post/api/understanding-json-patch/
-    // https://www.baeldung.com/spring-rest-json-patch
+    String buildETag(final long version) {
+        return "\"" + etagPrefix + "-" + version + "\"";
+    }
 
-    // Valid PATCH operations are add, remove, replace, move, copy and test. Any other operation is considered an error.
-    StatefulResponse handlePatch(final String dataId,
-                                 final String parentExtId,
-                                 final String requestBody,
-                                 final List<Map<String, Object>> currentStateContentForMock,
-                                 final RestfulMockStatefulMeta restfulMockStatefulMeta) throws StatefulValidationException {
+    boolean matchesETag(final String ifNoneMatch, final String etag, final BooleanSupplier exists) {
 
-        if (dataId == null) {
-            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST);
+        if (StringUtils.isBlank(ifNoneMatch)) {
+            return false;
         }
 
-        // TODO Should only accept following header content type, but will ignore this rule for now...
-        // -H "Content-Type: application/json-patch+json"
+        for (String candidate : StringUtils.split(ifNoneMatch, ",")) {
 
-        final Optional<Map<String, Object>> requestDataMapOpt = convertToJsonMap(requestBody);
+            final String trimmed = StringUtils.removeStart(candidate.trim(), "W/");
 
-        if (!requestDataMapOpt.isPresent()) {
-            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
-                    "Invalid JSON in request body");
+            if (etag.equals(trimmed)
+                    || ("*".equals(trimmed) && exists.getAsBoolean())) {
+                return true;
+            }
         }
 
-        final Map<String, Object> requestDataMap = requestDataMapOpt.get();
-        final String op = (String)requestDataMap.get("op");
-        final String prefixedPath = (String)requestDataMap.get("path");
-        final String prefixedFrom = (String)requestDataMap.get("from");
-        final Object value = requestDataMap.get("value");
+        return false;
+    }
 
-        if (op == null || prefixedPath == null) {
-            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
-                    "Invalid JSON in request body, required 'op' and 'path' fields are missing");
-        }
+    /**
+     * Supports paging (offset and limit), sorting (e.g. sort=lastName,-age for age descending) and filtering
+     * on field equality (query params prefixed with 'filter.', e.g. filter.status=active). Any other query params, such as cache busters,
+     * are ignored. Field names can be dot separated paths into nested objects.
+     * The total number of matching records is returned in the X-Total-Count header, and the page is streamed to the response.
+     */
+    StatefulResponse handleGetAll(final String parentExtId, final Map<String, String> queryParams, final List<Map<String, Object>> currentStateContentForMock) {
 
-        final PatchCommandEnum patchCommand;
+        final int offset = parsePagingParam(queryParams, OFFSET_PARAM, 0);
+        final int limit = parsePagingParam(queryParams, LIMIT_PARAM, Integer.MAX_VALUE);
+        final String sort = queryParams.get(SORT_PARAM);
 
-        try {
-            patchCommand = PatchCommandEnum.valueOf(op);
-        } catch (IllegalArgumentException ex) {
-            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
-                    String.format(StatefulValidationException.INVALID_PATCH_INSTRUCTION, "'op' is not a valid value"));
-        }
+        final Map<String, String> filters = extractFilters(queryParams);
 
-        if (!prefixedPath.startsWith("/")) {
-            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
-                    String.format(StatefulValidationException.INVALID_PATCH_INSTRUCTION, "path should begin with '/' (e.g '/age'"));
-        }
+        // Filtered, sorted and paged from a copy, as writes carry on changing the live records meanwhile.
+        List<Map<String, Object>> matches = (currentStateContentForMock instanceof ShardedStatefulRecords)
+                ? ((ShardedStatefulRecords) currentStateContentForMock).snapshot()
+                : readState(parentExtId, currentStateContentForMock, ArrayList::new);
 
-        final String path = prefixedPath.substring(1);
-        final String fieldIdPathPattern = restfulMockStatefulMeta.getIdFieldLocation();
+        if (!filters.isEmpty()) {
+            matches = matches
+                    .stream()
+                    .filter(r -> matchesFilters(r, filters))
+                    .collect(Collectors.toList());
+        }
 
-        if (isComplexJsonStructure(fieldIdPathPattern)) {
+        if (StringUtils.isNotBlank(sort)) {
+            matches.sort(buildSortComparator(sort));
+        }
 
-            final Optional<StatefulServiceImpl.StatefulPath> pathOpt =
-                    findDataStateRecordPath(currentStateContentForMock,
-                            StringUtils.split(fieldIdPathPattern, "."),
-                            dataId);
+        final int total = matches.size();
+        final List<Map<String, Object>> page = (offset >= total)
+                ? Collections.emptyList()
+                : new ArrayList<>(matches.subList(offset, (int) Math.min((long) offset + limit, total)));
 
-            if (!pathOpt.isPresent()) {
-                return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
-            }
+        final Map<String, String> headers = new HashMap<>();
+        headers.put(TOTAL_COUNT_HEADER, String.valueOf(total));
 
-            final Optional<Map<String, Object>> currentDataOpt = findDataStateRecordByPath(currentStateContentForMock, pathOpt.get().getPath());
+        return new StatefulResponse(HttpStatus.SC_OK, headers, out -> writeJsonArray(page, out));
+    }
 
-            if (!currentDataOpt.isPresent()) {
-                return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
-            }
+    /**
+     * Built from only the query params handleGetAll actually uses, so cache busters and the like do not each fill a cache entry.
+     */
+    String buildGetAllCacheKey(final Map<String, String> queryParams) {
 
-            // TODO
+        return "all:" + parsePagingParam(queryParams, OFFSET_PARAM, 0)
+                + ":" + parsePagingParam(queryParams, LIMIT_PARAM, Integer.MAX_VALUE)
+                + ":" + StringUtils.defaultString(queryParams.get(SORT_PARAM))
+                + ":" + new TreeMap<>(extractFilters(queryParams));
+    }
 
-            state.put(parentExtId, currentStateContentForMock); // TODO use merge
+    Map<String, String> extractFilters(final Map<String, String> queryParams) {
 
-        } else {
+        return queryParams
+                .entrySet()
+                .stream()
+                .filter(e -> e.getKey().startsWith(FILTER_PARAM_PREFIX) && e.getKey().length() > FILTER_PARAM_PREFIX.length())
+                .collect(Collectors.toMap(e -> e.getKey().substring(FILTER_PARAM_PREFIX.length()), Map.Entry::getValue));
+    }
 
-            final String fieldId = restfulMockStatefulMeta.getIdFieldName();
-            final AtomicBoolean recordFound = new AtomicBoolean(false);
+    Map<String, String> extractQueryParams(final Request req) {
 
-            switch (patchCommand) {
-                case ADD:
+        return req.queryParams()
+                .stream()
+                .collect(Collectors.toMap(k -> k, req::queryParams));
+    }
 
-                    if (value == null) {
-                        return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
-                                String.format(StatefulValidationException.INVALID_PATCH_INSTRUCTION, "'value' is required"));
-                    }
+    int parsePagingParam(final Map<String, String> queryParams, final String name, final int defaultValue) {
 
-                    state.merge(parentExtId, currentStateContentForMock, (currentValue, nu) ->
-                            currentValue
-                                    .stream()
-                                    .map(m -> {
+        final String value = queryParams.get(name);
 
-                                        final boolean matchOnIdMade = StringUtils.equals(dataId, (String) m.get(fieldId));
+        if (value == null) {
+            return defaultValue;
+        }
 
-                                        if (matchOnIdMade) {
-                                            recordFound.set(true);
-                                        }
+        if (!NumberUtils.isDigits(value)) {
+            throw new StatefulValidationException(String.format("Invalid '%s' query parameter, expected a non negative whole number", name), HttpStatus.SC_BAD_REQUEST);
+        }
 
-                                        if (matchOnIdMade) {
+        return NumberUtils.toInt(value, Integer.MAX_VALUE);
+    }
 
-                                            patchAddOperation(path, m, value, false);
+    boolean matchesFilters(final Map<String, Object> record, final Map<String, String> filters) {
 
-                                            return m;
-                                        } else {
-                                            return m;
-                                        }
-                                    })
-                                    .collect(Collectors.toList())
-                    );
+        for (Map.Entry<String, String> filter : filters.entrySet()) {
 
-                    break;
-                case REMOVE:
+            final Object value = readField(record, filter.getKey());
 
-                    state.merge(parentExtId, currentStateContentForMock, (currentValue, nu) ->
-                            currentValue
-                                    .stream()
-                                    .map(m -> {
+            if (value == null || !StringUtils.equals(filter.getValue(), String.valueOf(value))) {
+                return false;
+            }
+        }
 
-                                        final boolean matchOnIdMade = StringUtils.equals(dataId, (String) m.get(fieldId));
+        return true;
+    }
 
-                                        if (matchOnIdMade) {
-                                            recordFound.set(true);
-                                        }
+    Comparator<Map<String, Object>> buildSortComparator(final String sort) {
 
-                                        if (matchOnIdMade) {
+        Comparator<Map<String, Object>> comparator = null;
 
-                                            patchRemoveOperation(path, m);
+        for (String sortField : StringUtils.split(sort, ",")) {
 
-                                            return m;
-                                        } else {
-                                            return m;
-                                        }
-                                    })
-                                    .collect(Collectors.toList())
-                    );
+            final boolean descending = sortField.startsWith("-");
+            final String field = StringUtils.removeStart(sortField, "-").trim();
+            final Comparator<Object> valueOrder = Comparator.nullsLast((descending) ? SORT_VALUE_ORDER.reversed() : SORT_VALUE_ORDER);
+            final Comparator<Map<String, Object>> fieldComparator = (a, b) -> valueOrder.compare(readField(a, field), readField(b, field));
 
-                    break;
-                case REPLACE:
+            comparator = (comparator == null)
+                    ? fieldComparator
+                    : comparator.thenComparing(fieldComparator);
+        }
 
-                    if (value == null) {
-                        return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
-                                String.format(StatefulValidationException.INVALID_PATCH_INSTRUCTION, "'value' is required"));
-                    }
+        return (comparator != null)
+                ? comparator
+                : (a, b) -> 0;
+    }
 
-                    state.merge(parentExtId, currentStateContentForMock, (currentValue, nu) ->
-                            currentValue
-                                    .stream()
-                                    .map(m -> {
+    Object readField(final Map<String, Object> record, final String field) {
 
-                                        final boolean matchOnIdMade = StringUtils.equals(dataId, (String) m.get(fieldId));
+        Object current = record;
 
-                                        if (matchOnIdMade) {
-                                            recordFound.set(true);
-                                        }
+        for (String name : StringUtils.split(field, ".")) {
 
-                                        if (matchOnIdMade) {
+            if (!(current instanceof Map)) {
+                return null;
+            }
 
-                                            addReplaceOperation(path, m, value);
+            current = ((Map<?, ?>) current).get(name);
+        }
 
-                                            return m;
-                                        } else {
-                                            return m;
-                                        }
-                                    })
-                                    .collect(Collectors.toList())
-                    );
+        return current;
+    }
 
-                    break;
-                case COPY:
+    void writeJsonArray(final List<Map<String, Object>> records, final OutputStream out) throws IOException {
 
-                    if (prefixedFrom == null) {
-                        return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
-                                String.format(StatefulValidationException.INVALID_PATCH_INSTRUCTION, "'from' is required"));
-                    }
+        try (JsonGenerator generator = GeneralUtils.createJsonGenerator(out)) {
 
-                    if (!prefixedFrom.startsWith("/")) {
-                        return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
-                                String.format(StatefulValidationException.INVALID_PATCH_INSTRUCTION, "'from' should begin with '/' (e.g '/age'"));
-                    }
+            generator.writeStartArray();
 
-                    final String fromInCopyOp = prefixedFrom.substring(1);
+            for (Map<String, Object> record : records) {
+                generator.writeObject(record);
+            }
 
-                    state.merge(parentExtId, currentStateContentForMock, (currentValue, nu) ->
-                            currentValue
-                                    .stream()
-                                    .map(m -> {
+            generator.writeEndArray();
+        }
+    }
 
-                                        final boolean matchOnIdMade = StringUtils.equals(dataId, (String) m.get(fieldId));
+    void writeNdJson(final List<Map<String, Object>> records, final OutputStream out) throws IOException {
 
-                                        if (matchOnIdMade) {
-                                            recordFound.set(true);
-                                        }
+        try (JsonGenerator generator = GeneralUtils.createJsonGenerator(out)) {
 
-                                        if (matchOnIdMade) {
+            // Each record ends its own line, so no separator is needed between them
+            generator.setRootValueSeparator(null);
 
-                                            patchCopyOperation(fromInCopyOp, m, path);
+            for (Map<String, Object> record : records) {
+                generator.writeObject(record);
+                generator.writeRaw('\n');
+            }
+        }
+    }
 
-                                            return m;
-                                        } else {
-                                            return m;
-                                        }
-                                    })
-                                    .collect(Collectors.toList())
-                    );
+    StatefulResponse handlePost(final String parentExtId, final String requestBody, final List<Map<String, Object>> currentStateContentForMock, final RestfulMockStatefulMeta restfulMockStatefulMeta) {
 
-                    break;
-                case MOVE:
+        // Validate is valid json body
+        final Optional<Map<String, Object>> requestDataMapOpt = convertToJsonMap(requestBody);
 
-                    if (prefixedFrom == null) {
-                        return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
-                                String.format(StatefulValidationException.INVALID_PATCH_INSTRUCTION, "'from' is required"));
-                    }
+        if (!requestDataMapOpt.isPresent()) {
+            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
+                    "Invalid JSON in request body");
+        }
 
-                    if (!prefixedFrom.startsWith("/")) {
-                        return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
-                                String.format(StatefulValidationException.INVALID_PATCH_INSTRUCTION, "'from' should begin with '/' (e.g '/age'"));
-                    }
+        final Map<String, Object> requestDataMap = requestDataMapOpt.get();
 
-                    final String fromInMoveOp = prefixedFrom.substring(1);
+        // TODO amend id handler here to add id according to the path...
+        appendIdToJson(requestDataMap, restfulMockStatefulMeta);
 
+        final String fieldIdPathPattern = restfulMockStatefulMeta.getIdFieldLocation();
 
-                    state.merge(parentExtId, currentStateContentForMock, (currentValue, nu) ->
-                            currentValue
-                                    .stream()
-                                    .map(m -> {
+        if (isComplexJsonStructure(fieldIdPathPattern)) {
 
-                                        final boolean matchOnIdMade = StringUtils.equals(dataId, (String) m.get(fieldId));
+            // TODO
+            // Amend POST to add items according to path...
 
-                                        if (matchOnIdMade) {
-                                            recordFound.set(true);
-                                        }
+            replaceState(parentExtId, currentStateContentForMock);
 
-                                        if (matchOnIdMade) {
+        } else {
 
-                                            patchMoveOperation(fromInMoveOp, m, path);
+            final String fieldId = restfulMockStatefulMeta.getIdFieldName();
+            final Map<String, Object> storedRecord = toStored(requestDataMap, restfulMockStatefulMeta);
+            final long recordBytes = statefulQuotaService.estimateBytes(storedRecord);
+            final String id = String.valueOf(requestDataMap.get(fieldId));
 
-                                            return m;
-                                        } else {
-                                            return m;
-                                        }
-                                    })
-                                    .collect(Collectors.toList())
-                    );
+            if (currentStateContentForMock instanceof ShardedStatefulRecords) {
 
-                    break;
-                case TEST:
+                final ShardedStatefulRecords records = (ShardedStatefulRecords) currentStateContentForMock;
 
-                    return new StatefulResponse(HttpStatus.SC_NOT_IMPLEMENTED, "PATCH 'TEST' operation is not supported");
-                default:
+                if (records.get(id) != null) {
+                    return new StatefulResponse(HttpStatus.SC_CONFLICT, DUPLICATE_ID_MSG);
+                }
 
-                    return new StatefulResponse(HttpStatus.SC_NOT_IMPLEMENTED, "PATCH operation is not supported");
-            }
+                makeRoom(parentExtId, records, recordBytes, restfulMockStatefulMeta);
 
+                if (!records.insert(storedRecord, () -> statefulPersistenceService.recordPut(parentExtId, id, requestDataMap))) {
+                    return new StatefulResponse(HttpStatus.SC_CONFLICT, DUPLICATE_ID_MSG);
+                }
 
+                statefulQuotaService.adjust(parentExtId, 1, recordBytes);
+                statefulQuotaService.stamp(parentExtId, id);
 
-            if (!recordFound.get()) {
-                return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
-            }
+            } else {
 
+                state.merge(parentExtId, currentStateContentForMock, (currentValue, p) -> {
+                    makeRoom(parentExtId, currentValue, recordBytes, restfulMockStatefulMeta);
+                    currentValue.add(storedRecord);
+                    statefulQuotaService.adjust(parentExtId, 1, recordBytes);
+                    statefulQuotaService.stamp(parentExtId, id);
+                    statefulPersistenceService.recordPut(parentExtId, id, requestDataMap);
+                    return currentValue;
+                });
+            }
         }
 
-        return new StatefulResponse(HttpStatus.SC_NO_CONTENT);
+        return new StatefulResponse(HttpStatus.SC_CREATED);
     }
 
+    /**
+     * Stores (and journals) the whole of a mock's records, within the state lock, so the journal sees changes in the same order as the state.
+     */
+    void replaceState(final String parentExtId, final List<Map<String, Object>> records) {
 
-    Optional<Map<String, Object>> findStatefulDataById(final String id,
-                                                       final List<Map<String, Object>> currentStateContent,
-                                                       final RestfulMockStatefulMeta restfulMockStatefulMeta) {
-
-
-        final String fieldIdPathPattern = restfulMockStatefulMeta.getIdFieldLocation();
-
-        if (isComplexJsonStructure(fieldIdPathPattern)) {
-
-            return findDataStateRecord(currentStateContent, fieldIdPathPattern, id);
+        state.compute(parentExtId, (k, currentValue) -> {
+            statefulPersistenceService.recordReplace(k, null, records);
+            return records;
+        });
 
-        } else {
+        statefulQuotaService.track(parentExtId, records);
+    }
 
-            final String fieldId = restfulMockStatefulMeta.getIdFieldName();
+    /**
+     * Frees up space for an incoming record of the given size, according to the quota policy, returning the records removed to do so.
+     * The request is refused with the configured status (507 by default) under REJECT, when the record would not fit even in an empty
+     * resource, or when not enough records can be evicted or have expired. Nothing is removed until enough records have been found
+     * to make room, so a refused request leaves the resource as it was.
+     * Runs within the state merge, so usage cannot change between the check and the add that follows it.
+     * Sharded records have no such lock, so under concurrent writes their quota may briefly be overshot.
+     */
+    List<Map<String, Object>> makeRoom(final String parentExtId,
+                                       final List<Map<String, Object>> records,
+                                       final long incomingBytes,
+                                       final RestfulMockStatefulMeta restfulMockStatefulMeta) {
+
+        final int maxRecords = restfulMockStatefulMeta.getMaxRecords();
+        final long maxBytes = restfulMockStatefulMeta.getMaxBytes();
+
+        if (!statefulQuotaService.exceedsLimits(parentExtId, maxRecords, maxBytes, incomingBytes, 0, 0)) {
+            return Collections.emptyList();
+        }
 
-            return currentStateContent
-                    .stream()
-                    .filter(f -> (StringUtils.equals(id, String.valueOf(f.get(fieldId)))))
-                    .findFirst();
+        final StatefulQuotaPolicyEnum policy = statefulQuotaService.getPolicy();
 
+        if (StatefulQuotaPolicyEnum.REJECT.equals(policy)
+                || statefulQuotaService.exceedsLimitsWhenEmptied(parentExtId, maxRecords, maxBytes, incomingBytes)) {
+            throw rejectForQuota(parentExtId);
         }
 
-    }
+        // Usually only one or two records need removing, so candidates are looked up in growing batches
+        for (int wanted = 1; ; wanted *= 2) {
 
+            final List<String> expiredIds = (StatefulQuotaPolicyEnum.EXPIRE.equals(policy))
+                    ? statefulQuotaService.findExpired(parentExtId, wanted)
+                    : null;
 
-    List<Map<String, Object>> loadStateForMock(final RestfulMock parent) {
+            final List<Map<String, Object>> candidates = (expiredIds != null)
+                    ? findRecordsById(expiredIds, records, restfulMockStatefulMeta)
+                    : findOldestRecords(records, wanted);
 
-        return state.computeIfAbsent(parent.getExtId(), k -> {
+            long freedBytes = 0;
 
-            final String initialBody = parent.getRestfulMockStatefulMeta().getInitialResponseBody();
+            for (int i = 0; i < candidates.size(); i++) {
 
-            return (initialBody != null)
-                    ? GeneralUtils.deserialiseJson(initialBody, new TypeReference<List<Map<String, Object>>>() {})
-                    : new ArrayList<>();
-        });
+                freedBytes += statefulQuotaService.estimateBytes(candidates.get(i));
 
+                if (!statefulQuotaService.exceedsLimits(parentExtId, maxRecords, maxBytes, incomingBytes, i + 1, freedBytes)) {
+                    return removeRecords(parentExtId, records, candidates.subList(0, i + 1), policy, restfulMockStatefulMeta);
+                }
+            }
+
+            if (((expiredIds != null) ? expiredIds.size() : candidates.size()) < wanted) {
+                throw rejectForQuota(parentExtId);
+            }
+        }
     }
 
-    RestfulMock loadStatefulParent(final RestfulMock mock) {
+    StatefulValidationException rejectForQuota(final String parentExtId) {
 
-        return (mock.getStatefulParent() != null)
-                ? mock.getStatefulParent()
-                : mock;
+        statefulQuotaService.recordEnforcement(parentExtId, StatefulQuotaPolicyEnum.REJECT);
+
+        return new StatefulValidationException("Stateful resource quota exceeded", statefulQuotaService.getRejectStatus());
     }
 
-    Optional<Map<String, Object>> convertToJsonMap(final String json) {
+    List<Map<String, Object>> findOldestRecords(final List<Map<String, Object>> records, final int count) {
 
-        try {
-            final Map<String, Object> dataMap = (Map<String, Object>)GeneralUtils.deserialiseJSONToMap(json, false);
-            return Optional.of(dataMap);
-        } catch (Throwable ex) {
-            return Optional.empty();
+        if (records instanceof ShardedStatefulRecords) {
+            return ((ShardedStatefulRecords) records).oldest(count);
         }
 
+        return new ArrayList<>(records.subList(0, Math.min(count, records.size())));
     }
 
-    void appendIdToJson(final Map<String, Object> jsonDataMap,
-                        final RestfulMockStatefulMeta restfulMockStatefulMeta) {
-
-        final String fieldIdPathPattern = restfulMockStatefulMeta.getIdFieldLocation();
+    /**
+     * The records held for the given ids, in the same order. Ids no longer held are skipped.
+     */
+    List<Map<String, Object>> findRecordsById(final List<String> ids,
+                                              final List<Map<String, Object>> records,
+                                              final RestfulMockStatefulMeta restfulMockStatefulMeta) {
 
-        if (isComplexJsonStructure(fieldIdPathPattern)) {
+        final List<Map<String, Object>> found = new ArrayList<>(ids.size());
 
-            final String[] pathArray = StringUtils.split(fieldIdPathPattern, ".");
+        if (records instanceof ShardedStatefulRecords) {
 
-            int index = 0;
-            Object currentJsonObject = jsonDataMap;
+            for (String id : ids) {
 
-            for (String e : pathArray) {
+                final Map<String, Object> record = ((ShardedStatefulRecords) records).get(id);
 
-                if (currentJsonObject == null) {
-                    break;
+                if (record != null) {
+                    found.add(record);
                 }
+            }
 
-                final Optional<Object> currentJsonObjectOpt = appendIdToJsonIdLocator(currentJsonObject, index, e, pathArray.length);
+            return found;
+        }
 
-                if (!currentJsonObjectOpt.isPresent()) {
-                    break;
-                }
+        final String fieldId = restfulMockStatefulMeta.getIdFieldName();
+        final Map<String, Map<String, Object>> byId = new HashMap<>();
+        final Set<String> wanted = new HashSet<>(ids);
 
-                currentJsonObject = currentJsonObjectOpt.get();
+        for (Map<String, Object> record : records) {
 
-                /*
-                Map<String, Object> currentJsonObjectMap = null;
+            final String id = String.valueOf(record.get(fieldId));
 
-                if (currentJsonObject instanceof Map) {
+            if (wanted.contains(id)) {
+                byId.putIfAbsent(id, record);
+            }
+        }
 
-                    currentJsonObjectMap = (Map<String, Object>)currentJsonObject;
+        for (String id : ids) {
 
-                } else if (currentJsonObject instanceof List) {
+            final Map<String, Object> record = byId.get(id);
 
-                    final List<Map<String, Object>> currentJsonObjectList = (List<Map<String, Object>>)currentJsonObject;
+            if (record != null) {
+                found.add(record);
+            }
+        }
 
-                    if (!currentJsonObjectList.isEmpty()) {
-                        currentJsonObjectMap = currentJsonObjectList.get(0);
-                    }
+        return found;
+    }
 
-                }
+    /**
+     * Removes the given (evicted or expired) records, matching them by identity, and journals each removal while the records are still locked.
+     */
+    List<Map<String, Object>> removeRecords(final String parentExtId,
+                                            final List<Map<String, Object>> records,
+                                            final List<Map<String, Object>> victims,
+                                            final StatefulQuotaPolicyEnum policy,
+                                            final RestfulMockStatefulMeta restfulMockStatefulMeta) {
 
-                if (index == (pathArray.length -1)) {
+        final String fieldId = restfulMockStatefulMeta.getIdFieldName();
+        final List<Map<String, Object>> removed = new ArrayList<>(victims.size());
 
-                    if (currentJsonObjectMap != null
-                            && !currentJsonObjectMap.containsKey(e)) {
-                        currentJsonObjectMap.put(e, GeneralUtils.generateUUID());
-                    }
+        if (records instanceof ShardedStatefulRecords) {
 
-                    break;
-                }
+            // Another request may have changed a record since it was picked
+            for (Map<String, Object> victim : victims) {
 
-                if (currentJsonObjectMap.containsKey(e)) {
-                    currentJsonObject = currentJsonObjectMap.get(e);
-                }
-                */
+                final String id = String.valueOf(victim.get(fieldId));
 
-                index++;
+                if (((ShardedStatefulRecords) records).removeRecord(victim, () -> statefulPersistenceService.recordDelete(parentExtId, id))) {
+                    removed.add(victim);
+                }
             }
 
         } else {
 
-            final String fieldId = restfulMockStatefulMeta.getIdFieldName();
+            final Set<Map<String, Object>> victimSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            victimSet.addAll(victims);
 
-            // Append ID if none present
-            if (!jsonDataMap.containsKey(fieldId)) {
-                jsonDataMap.put(fieldId, GeneralUtils.generateUUID());
-            }
+            records.removeIf(victimSet::contains);
+            removed.addAll(victims);
 
+            // Already within the state merge
+            victims.forEach(v -> statefulPersistenceService.recordDelete(parentExtId, String.valueOf(v.get(fieldId))));
         }
 
-    }
+        for (Map<String, Object> record : removed) {
 
-    Optional<Object> appendIdToJsonIdLocator(Object currentJsonObject,
-                                         final int index,
-                                         final String path,
-                                         final int pathArrayLength) {
+            statefulQuotaService.adjust(parentExtId, -1, -statefulQuotaService.estimateBytes(record));
+            statefulQuotaService.recordEnforcement(parentExtId, policy);
+            statefulQuotaService.unstamp(parentExtId, String.valueOf(record.get(fieldId)));
+        }
 
-        Map<String, Object> currentJsonObjectMap = null;
+        return removed;
+    }
 
-        if (currentJsonObject instanceof Map) {
+    StatefulResponse handleDelete(final String dataId,
+                                  final String parentExtId,
+                                  final List<Map<String, Object>> currentStateContentForMock,
+                                  final RestfulMockStatefulMeta restfulMockStatefulMeta) {
 
-            currentJsonObjectMap = (Map<String, Object>)currentJsonObject;
+        if (dataId == null) {
+            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST);
+        }
 
-        } else if (currentJsonObject instanceof List) {
+        final String fieldIdPathPattern = restfulMockStatefulMeta.getIdFieldLocation();
 
-            final List<Map<String, Object>> currentJsonObjectList = (List<Map<String, Object>>)currentJsonObject;
+        if (isComplexJsonStructure(fieldIdPathPattern)) {
 
-            if (!currentJsonObjectList.isEmpty()) {
-                currentJsonObjectMap = currentJsonObjectList.get(0);
+            final Optional<StatefulServiceImpl.StatefulPath> pathOpt =
+                    findDataStateRecordPath(currentStateContentForMock,
+                                            StringUtils.split(fieldIdPathPattern,"."),
+                                            dataId);
+
+            if (!pathOpt.isPresent()) {
+                return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
             }
 
-        }
+            final int index = pathOpt.get().getIndex();
 
-        if (index == (pathArrayLength -1)) {
+            // Drills down into path and removes specific object.
+            currentStateContentForMock.set(index, toMutable(currentStateContentForMock.get(index)));
+            removeDataStateRecordByPath(currentStateContentForMock, pathOpt.get().getPath());
+            currentStateContentForMock.set(index, toStored(currentStateContentForMock.get(index), restfulMockStatefulMeta));
 
-            if (currentJsonObjectMap != null
-                    && !currentJsonObjectMap.containsKey(path)) {
-                currentJsonObjectMap.put(path, GeneralUtils.generateUUID());
+            replaceState(parentExtId, currentStateContentForMock);
+
+        } else {
+
+            if (currentStateContentForMock instanceof ShardedStatefulRecords) {
+
+                final Map<String, Object> deleted = ((ShardedStatefulRecords) currentStateContentForMock)
+                        .remove(dataId, () -> statefulPersistenceService.recordDelete(parentExtId, dataId));
+
+                if (deleted == null) {
+                    return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
+                }
+
+                statefulQuotaService.adjust(parentExtId, -1, -statefulQuotaService.estimateBytes(deleted));
+                statefulQuotaService.unstamp(parentExtId, dataId);
+
+                return new StatefulResponse(HttpStatus.SC_NO_CONTENT);
             }
 
-            return Optional.empty();
-        }
+            final String fieldId = restfulMockStatefulMeta.getIdFieldName();
+            final int originalDataStateSize = currentStateContentForMock.size();
 
-        if (currentJsonObjectMap.containsKey(path)) {
-            return Optional.of(currentJsonObjectMap.get(path));
-        }
+            final List<Map<String, Object>> filteredCurrentStateContentForMock
+                    = state.merge(parentExtId, currentStateContentForMock, (currentValue, p) -> {
 
-        return Optional.of(currentJsonObject);
-    }
+                        final List<Map<String, Object>> filtered = currentValue
+                            .stream()
+                            .filter(f -> {
 
-    Optional<Map<String, Object>> findDataStateRecord(
-            final List<Map<String, Object>> allStateData,
-            final String fieldIdPathPattern,
-            final String targetId) {
+                                final boolean match = StringUtils.equals(dataId, (String) f.get(fieldId));
 
-        final String[] pathArray = StringUtils.split(fieldIdPathPattern, ".");
+                                if (match) {
+                                    statefulQuotaService.adjust(parentExtId, -1, -statefulQuotaService.estimateBytes(f));
+                                }
 
-        final Optional<StatefulPath> jsonPathOpt = findDataStateRecordPath(allStateData, pathArray, targetId);
+                                return !match;
+                            })
+                            .collect(Collectors.toList());
+
+                        if (filtered.size() != currentValue.size()) {
+                            statefulPersistenceService.recordDelete(parentExtId, dataId);
+                        }
+
+                        return filtered;
+                    });
+
+            if (filteredCurrentStateContentForMock.size() == originalDataStateSize) {
+                return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
+            }
+
+            statefulQuotaService.unstamp(parentExtId, dataId);
 
-        if (!jsonPathOpt.isPresent()) {
-            return Optional.empty();
         }
 
-        return findDataStateRecordByPath(allStateData, jsonPathOpt.get().getPath());
+        return new StatefulResponse(HttpStatus.SC_NO_CONTENT);
     }
 
-    Optional<Map<String, Object>> findDataStateRecordByPath(
-            final List<Map<String, Object>> allStateDataSrc,
-            final String path) {
+    StatefulResponse handlePut(final String dataId,
+                               final String parentExtId,
+                               final String requestBody,
+                               final List<Map<String, Object>> currentStateContentForMock,
+                               final RestfulMockStatefulMeta restfulMockStatefulMeta) {
 
-        final List<Map<String, Object>> allStateDataCopy
-                = SerializationUtils.clone(new StatefulSearchData(allStateDataSrc)).getData();
+        if (dataId == null) {
+            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST);
+        }
 
-        final String[] pathArray = StringUtils.split(path,".");
+        // Ensure json body is valid
+        final Optional<Map<String, Object>> requestDataMapOpt = convertToJsonMap(requestBody);
 
-        Map<String, Object> mainDataRecord = null;
-        Object currentDataRecordObject = null;
+        if (!requestDataMapOpt.isPresent()) {
+            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST,
+                    "Invalid JSON in request body");
+        }
 
-        for (String p : pathArray) {
+        final String fieldIdPathPattern = restfulMockStatefulMeta.getIdFieldLocation();
 
-            if (mainDataRecord == null) {
-                final Integer arrayPosition = extractArrayPosition(p);
-                mainDataRecord = allStateDataCopy.get(arrayPosition);
-                currentDataRecordObject = mainDataRecord;
-                continue;
-            }
+        if (isComplexJsonStructure(fieldIdPathPattern)) {
 
-            if (mainDataRecord == null || currentDataRecordObject == null) {
-                return Optional.empty();
-            }
+            final Optional<StatefulServiceImpl.StatefulPath> pathOpt =
+                    findDataStateRecordPath(currentStateContentForMock,
+                            StringUtils.split(fieldIdPathPattern, "."),
+                            dataId);
 
-            if (p.contains("[") && p.contains("]")) {
+            if (!pathOpt.isPresent()) {
+                return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
+            }
 
-                // List
+            currentStateContentForMock.remove(pathOpt.get().getIndex().intValue());
+            currentStateContentForMock.add(pathOpt.get().getIndex(), toStored(requestDataMapOpt.get(), restfulMockStatefulMeta));
 
-                final Integer arrayPosition = extractArrayPosition(p);
+            replaceState(parentExtId, currentStateContentForMock);
 
-                if (arrayPosition == null) {
-                    return Optional.empty();
-                }
+        } else {
 
-                Iterator<Object> dataRecordListItr = ((List<Object>) currentDataRecordObject).iterator();
+            final String fieldId = restfulMockStatefulMeta.getIdFieldName();
+            final Object bodyId = requestDataMapOpt.get().get(fieldId);
 
-                int dataRecordListItrIdx = 0;
+            // Ensure ids in url and body match
+            if (bodyId == null
+                    || !(bodyId instanceof String)
+                    || !StringUtils.equals((String)bodyId, dataId)) {
+                return new StatefulResponse(HttpStatus.SC_BAD_REQUEST);
+            }
 
-                while (dataRecordListItr.hasNext()) {
+            final AtomicBoolean recordFound = new AtomicBoolean(false);
+            final Map<String, Object> storedRecord = toStored(requestDataMapOpt.get(), restfulMockStatefulMeta);
 
-                    Object o = dataRecordListItr.next();
+            if (currentStateContentForMock instanceof ShardedStatefulRecords) {
 
-                    if (arrayPosition != dataRecordListItrIdx) {
-                        dataRecordListItr.remove();
-                    } else {
-                        currentDataRecordObject = o;
-                    }
+                final Map<String, Object> replaced = ((ShardedStatefulRecords) currentStateContentForMock).update(dataId, existing -> {
+                    statefulPersistenceService.recordPut(parentExtId, dataId, requestDataMapOpt.get());
+                    return storedRecord;
+                });
 
-                    dataRecordListItrIdx++;
+                if (replaced == null) {
+                    return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
                 }
 
-            } else if (p.contains("=")) {
+                statefulQuotaService.adjust(parentExtId, 0,
+                        statefulQuotaService.estimateBytes(storedRecord) - statefulQuotaService.estimateBytes(replaced));
+                statefulQuotaService.stamp(parentExtId, dataId);
 
-                // ID matching
+                return new StatefulResponse(HttpStatus.SC_NO_CONTENT);
+            }
 
-                final String[] args = StringUtils.split(p,"=");
-                final String idName = args[0];
-                final String idValue = args[1];
+            state.merge(parentExtId, currentStateContentForMock, (currentValue, p) -> {
 
-                final String actualIdValue = (String)((Map<String, Object>)currentDataRecordObject).get(idName);
+                final List<Map<String, Object>> updated = currentValue
+                        .stream()
+                        .map(m -> {
 
-                if (!StringUtils.equals(idValue, actualIdValue)) {
-                    return Optional.empty();
-                }
+                            final boolean match = StringUtils.equals(dataId, (String) m.get(fieldId));
 
-            } else {
+                            if (match) {
+                                recordFound.set(true);
+                                statefulQuotaService.adjust(parentExtId, 0,
+                                        statefulQuotaService.estimateBytes(storedRecord) - statefulQuotaService.estimateBytes(m));
+                                statefulQuotaService.stamp(parentExtId, dataId);
+                            }
 
-                // Map
+                            return (match)
+                                    ? storedRecord
+                                    : m;
+                        })
+                        .collect(Collectors.toList());
 
-                currentDataRecordObject = ((Map<String, Object>) currentDataRecordObject).get(p);
+                if (recordFound.get()) {
+                    statefulPersistenceService.recordPut(parentExtId, dataId, requestDataMapOpt.get());
+                }
 
-            }
+                return updated;
+            });
 
+            if (!recordFound.get()) {
+                return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
+            }
         }
 
-        return Optional.ofNullable(mainDataRecord);
+        return new StatefulResponse(HttpStatus.SC_NO_CONTENT);
     }
 
-    void removeDataStateRecordByPath(
-            final List<Map<String, Object>> allStateDataSrc,
-            final String path) {
+    // https://sookocheff.com/post/api/understanding-json-patch/
+    // https://www.baeldung.com/spring-rest-json-patch
 
-        final int lastArrayEndPos = path.lastIndexOf("].");
+    /**
+     * Accepts a single operation or an array of them (add, remove, replace, move, copy and test), compiled once up front.
+     * The record is located once, and the operations are applied to a copy of it while the mock's state is held, so the patch
+     * is applied either in full or, if any operation fails (including a failed test), not at all.
+     */
+    StatefulResponse handlePatch(final String dataId,
+                                 final String parentExtId,
+                                 final String requestBody,
+                                 final List<Map<String, Object>> currentStateContentForMock,
+                                 final RestfulMockStatefulMeta restfulMockStatefulMeta) throws StatefulValidationException {
 
-        if (lastArrayEndPos == -1) {
-            return;
+        if (dataId == null) {
+            return new StatefulResponse(HttpStatus.SC_BAD_REQUEST);
         }
 
-        final String amendedPath = StringUtils.substring(path, 0, (lastArrayEndPos + 1));
-        final String[] pathArray = StringUtils.split(amendedPath,".");
+        // TODO Should only accept following header content type, but will ignore this rule for now...
+        // -H "Content-Type: application/json-patch+json"
 
-        Object currentDataRecordObject = null;
+        final StatefulJsonPatch patch;
 
-        for (int i=0; i < pathArray.length; i++ ) {
+        try {
+            patch = StatefulJsonPatch.compile(GeneralUtils.deserialiseJson(requestBody, false));
+        } catch (StatefulJsonPatch.PatchException ex) {
+            return new StatefulResponse(ex.getStatus(), ex.getMessage());
+        }
 
-            final String p = pathArray[i];
+        final AtomicReference<Map<String, Object>> patchedRecord = new AtomicReference<>();
 
-            if (i == 0 && currentDataRecordObject == null) {
-                final Integer arrayPosition = extractArrayPosition(p);
-                currentDataRecordObject = allStateDataSrc.get(arrayPosition);
-                continue;
-            }
+        if (currentStateContentForMock instanceof ShardedStatefulRecords) {
 
-            if (currentDataRecordObject == null) {
-                return;
-            }
+            ((ShardedStatefulRecords) currentStateContentForMock).update(dataId, original -> {
 
-            if (p.contains("[") && p.contains("]")) {
+                final Map<String, Object> patched = applyPatch(parentExtId, dataId, patch, original, restfulMockStatefulMeta, patchedRecord);
+                statefulPersistenceService.recordPut(parentExtId, dataId, patched);
 
-                // List
+                return patched;
+            });
 
-                final Integer arrayPosition = extractArrayPosition(p);
+        } else {
 
-                if (arrayPosition == null) {
-                    return;
-                }
+            state.compute(parentExtId, (k, currentValue) -> {
 
-                if (i == (pathArray.length - 1)) {
-                    ((List<Object>) currentDataRecordObject).remove(arrayPosition.intValue());
-                } else {
-                    currentDataRecordObject = ((List<Object>) currentDataRecordObject).get(arrayPosition);
-                }
+                final List<Map<String, Object>> records = (currentValue != null)
+                        ? currentValue
+                        : currentStateContentForMock;
 
-            } else {
+                final int index = findRecordIndex(dataId, records, restfulMockStatefulMeta);
 
-                // Map
+                if (index != -1) {
 
-                currentDataRecordObject = ((Map<String, Object>) currentDataRecordObject).get(p);
+                    records.set(index, applyPatch(parentExtId, dataId, patch, records.get(index), restfulMockStatefulMeta, patchedRecord));
 
-            }
+                    if (isComplexJsonStructure(restfulMockStatefulMeta.getIdFieldLocation())) {
+                        statefulPersistenceService.recordReplace(parentExtId, null, records);
+                    } else {
+                        statefulPersistenceService.recordPut(parentExtId, dataId, records.get(index));
+                    }
+                }
+
+                return records;
+            });
+        }
 
+        if (patchedRecord.get() == null) {
+            return new StatefulResponse(HttpStatus.SC_NOT_FOUND);
         }
 
+        return new StatefulResponse(HttpStatus.SC_NO_CONTENT);
     }
 
-    Integer extractArrayPosition(final String pathElement) {
+    Map<String, Object> applyPatch(final String parentExtId,
+                                   final String dataId,
+                                   final StatefulJsonPatch patch,
+                                   final Map<String, Object> original,
+                                   final RestfulMockStatefulMeta restfulMockStatefulMeta,
+                                   final AtomicReference<Map<String, Object>> patchedRecord) {
 
-        if (StringUtils.isBlank(pathElement)) {
-            return null;
+        final Map<String, Object> applied;
+
+        try {
+            applied = patch.apply(original);
+        } catch (StatefulJsonPatch.PatchException ex) {
+            throw new StatefulValidationException(ex.getMessage(), ex.getStatus());
         }
 
-        final String s1 = StringUtils.remove(pathElement, "[");
-        final String s2 = StringUtils.remove(s1, "]");
-        final int result = NumberUtils.toInt(s2, -1);
+        // Records are held (and sharded) by their top level id, so a patch may not change or remove it, just as a PUT may not
+        if (!isComplexJsonStructure(restfulMockStatefulMeta.getIdFieldLocation())
+                && !StringUtils.equals(dataId, String.valueOf(applied.get(restfulMockStatefulMeta.getIdFieldName())))) {
+            throw new StatefulValidationException(PATCHED_ID_MSG, HttpStatus.SC_BAD_REQUEST);
+        }
 
-        return (result != -1) ? result : null;
+        final Map<String, Object> patched = toStored(applied, restfulMockStatefulMeta);
+
+        statefulQuotaService.adjust(parentExtId, 0, statefulQuotaService.estimateBytes(patched) - statefulQuotaService.estimateBytes(original));
+        statefulQuotaService.stamp(parentExtId, dataId);
+        patchedRecord.set(patched);
+
+        return patched;
     }
 
-    Optional<StatefulPath> findDataStateRecordPath(
-            final List<Map<String, Object>> allStateData,
-            final String[] pathArray,
-            final String targetId) {
+    /**
+     * The position of the (top level) record holding the given id, or -1 if there is none.
+     */
+    int findRecordIndex(final String id,
+                        final List<Map<String, Object>> currentStateContent,
+                        final RestfulMockStatefulMeta restfulMockStatefulMeta) {
 
-        final StatefulServiceImpl.StatefulSearchPathResult result = new StatefulServiceImpl.StatefulSearchPathResult();
+        final String fieldIdPathPattern = restfulMockStatefulMeta.getIdFieldLocation();
 
-        int index = 0;
+        if (isComplexJsonStructure(fieldIdPathPattern)) {
 
-        for (Map<String, Object> m : allStateData) {
+            return findDataStateRecordPath(currentStateContent, StringUtils.split(fieldIdPathPattern, "."), id)
+                    .map(StatefulPath::getIndex)
+                    .orElse(-1);
+        }
 
-            final int thisIndex = index;
+        final String fieldId = restfulMockStatefulMeta.getIdFieldName();
 
-            findStateIndex(pathArray, 0, targetId, m, result, "[" + index++ + "]");
+        for (int i = 0; i < currentStateContent.size(); i++) {
 
-            if (result.getPath().isPresent()) {
-                return Optional.of(new StatefulPath(result.getPath().get(), thisIndex));
+            final Object recordId = currentStateContent.get(i).get(fieldId);
+
+            if (recordId != null && StringUtils.equals(id, String.valueOf(recordId))) {
+                return i;
             }
         }
 
-        return Optional.empty();
+        return -1;
     }
 
-    private void patchAddOperation(final String path, final Map<String, Object> matchedMap, final Object value, final boolean canOverwriteExisting) {
-
-        if (path.contains("/")) {
 
-            final String[] paths = path.split("/");
+    Optional<Map<String, Object>> findStatefulDataByIdLocked(final String id,
+                                                             final String parentExtId,
+                                                             final List<Map<String, Object>> currentStateContent,
+                                                             final RestfulMockStatefulMeta restfulMockStatefulMeta) {
 
-            Object obj = matchedMap;
+        return readState(parentExtId, currentStateContent, records -> findStatefulDataById(id, records, restfulMockStatefulMeta));
+    }
 
-            for (int i=0; i < paths.length; i++) {
+    /**
+     * Reads the mock's records under the same lock writes to them are made under (see handlePost etc).
+     * Sharded records lock each shard themselves, so are read directly.
+     */
+    <T> T readState(final String parentExtId,
+                    final List<Map<String, Object>> currentStateContent,
+                    final Function<List<Map<String, Object>>, T> read) {
 
-                final String p = paths[i];
-                final boolean lastIteration = (i == (paths.length - 1));
+        if (currentStateContent instanceof ShardedStatefulRecords) {
+            return read.apply(currentStateContent);
+        }
 
-                if (obj instanceof List) {
+        final AtomicReference<T> result = new AtomicReference<>();
 
-                    final int indx = NumberUtils.toInt(p, -1);
+        state.compute(parentExtId, (k, currentValue) -> {
+            result.set(read.apply((currentValue != null) ? currentValue : currentStateContent));
+            return currentValue;
+        });
 
-                    if (indx == -1) {
-                        throw new StatefulValidationException(String.format(StatefulValidationException.PATH_STRUCTURE_MISALIGN, path));
-                    }
+        return result.get();
+    }
 
-                    final List l = ((List)obj);
+    Optional<Map<String, Object>> findStatefulDataById(final String id,
+                                                       final List<Map<String, Object>> currentStateContent,
+                                                       final RestfulMockStatefulMeta restfulMockStatefulMeta) {
 
-                    if (lastIteration) {
 
-                        if (l.size() < indx) {
-                            throw new StatefulValidationException(String.format(StatefulValidationException.PATH_OUT_OF_RANGE_LIST_INDEX, path, indx));
-                        }
+        final String fieldIdPathPattern = restfulMockStatefulMeta.getIdFieldLocation();
 
-                        if (!l.isEmpty()
-                                && !l.get(0).getClass().equals(value.getClass())) {
-                            throw new StatefulValidationException(
-                                    String.format(StatefulValidationException.INVALID_PATCH_INSTRUCTION,
-                                            "'value' in path '" + path + "' has an incompatible data type with existing values in list"));
-                        }
+        if (isComplexJsonStructure(fieldIdPathPattern)) {
 
-                        l.add(indx, value);
+            return findDataStateRecord(currentStateContent, fieldIdPathPattern, id);
 
-                    } else {
+        } else {
 
-                        if (l.size() <= indx) {
-                            throw new StatefulValidationException(String.format(StatefulValidationException.PATH_OUT_OF_RANGE_LIST_INDEX, path, indx));
-                        }
+            if (currentStateContent instanceof ShardedStatefulRecords) {
+                return Optional.ofNullable(((ShardedStatefulRecords) currentStateContent).get(id));
+            }
 
-                        obj = l.get(indx);
+            final String fieldId = restfulMockStatefulMeta.getIdFieldName();
 
-                    }
+            return currentStateContent
+                    .stream()
+                    .filter(f -> (StringUtils.equals(id, String.valueOf(f.get(fieldId)))))
+                    .findFirst();
 
-                } else if (obj instanceof Map) {
+        }
 
-                    final Map map = ((Map)obj);
+    }
 
-                    if (lastIteration) {
 
-                        if (!canOverwriteExisting && map.containsKey(p)) {
-                            throw new StatefulValidationException(
-                                    String.format(StatefulValidationException.INVALID_PATCH_INSTRUCTION, "'path' value '" + path + "' already exists"));
-                        }
+    List<Map<String, Object>> loadStateForMock(final RestfulMock parent) {
 
-                        map.put(p, value);
-                    } else {
-                        obj = map.get(p);
-                    }
+        final List<Map<String, Object>> records = state.computeIfAbsent(parent.getExtId(), k -> {
 
-                } else {
-                    throw new StatefulValidationException(String.format(StatefulValidationException.PATH_STRUCTURE_MISALIGN, path));
-                }
+            final RestfulMockStatefulMeta restfulMockStatefulMeta = parent.getRestfulMockStatefulMeta();
+            final String initialBody = restfulMockStatefulMeta.getInitialResponseBody();
 
+            if (initialBody == null) {
+                return new ArrayList<>();
             }
 
-        } else {
-
-            if (matchedMap.get(path) instanceof List) {
+            final List<Map<String, Object>> initialState = GeneralUtils.deserialiseJson(initialBody, new TypeReference<List<Map<String, Object>>>() {});
 
-                final List l = ((List)matchedMap.get(path));
+            // The journal only holds changes, so it needs to start from the initial body
+            if (initialState != null) {
+                initialState.replaceAll(r -> toStored(r, restfulMockStatefulMeta));
+                statefulPersistenceService.recordReplace(k,
+                        (isComplexJsonStructure(restfulMockStatefulMeta.getIdFieldLocation())) ? null : restfulMockStatefulMeta.getIdFieldName(),
+                        initialState);
+                statefulQuotaService.track(k, initialState);
+            }
 
-                if (!l.isEmpty()
-                        && !l.get(0).getClass().equals(value.getClass())) {
-                    throw new StatefulValidationException(
-                            String.format(StatefulValidationException.INVALID_PATCH_INSTRUCTION,
-                                    "'value' in path '" + path + "' has an incompatible data type with existing values in list"));
-                }
+            return initialState;
+        });
 
-                l.add(value);
+        if (records == null
+                || (shardCount <= 1 && !StatefulStorageModeEnum.COMPACT.equals(storageMode))
+                || !preparedMocks.add(parent.getExtId())) {
+            return records;
+        }
 
-            } else {
+        // Records restored from the journal, or loaded from the initial body, are only keyed and sharded now that their id field is known
+        final List<Map<String, Object>> result = state.computeIfPresent(parent.getExtId(), (k, currentValue) -> {
 
-                // Map, String, Int, etc...
+            if (keyCompactRecords(currentValue, parent.getRestfulMockStatefulMeta())) {
+                statefulQuotaService.track(k, currentValue);
+            }
 
-                if (!canOverwriteExisting && matchedMap.containsKey(path)) {
-                    throw new StatefulValidationException(
-                            String.format(StatefulValidationException.INVALID_PATCH_INSTRUCTION, "'path' value '" + path + "' already exists"));
-                }
+            return toRecordList(k, currentValue, parent.getRestfulMockStatefulMeta());
+        });
 
-                matchedMap.put(path, value);
-            }
+        return (result != null) ? result : records;
+    }
 
+    /**
+     * Keys compact records compacted before the mock's id field was known (i.e. restored from the journal), so they can be
+     * found by id without parsing each one.
+     *
+     * @return whether any records were re-keyed.
+     */
+    boolean keyCompactRecords(final List<Map<String, Object>> records, final RestfulMockStatefulMeta restfulMockStatefulMeta) {
+
+        if (!StatefulStorageModeEnum.COMPACT.equals(storageMode)
+                || records instanceof ShardedStatefulRecords
+                || isComplexJsonStructure(restfulMockStatefulMeta.getIdFieldLocation())) {
+            return false;
         }
 
-    }
+        final String fieldId = restfulMockStatefulMeta.getIdFieldName();
+        boolean keyed = false;
 
-    private void patchRemoveOperation(final String path, final Map<String, Object> matchedMap) {
+        for (ListIterator<Map<String, Object>> iterator = records.listIterator(); iterator.hasNext();) {
 
-        if (path.contains("/")) {
+            final Map<String, Object> record = iterator.next();
 
-            final String[] paths = path.split("/");
+            if (record instanceof CompactStatefulRecord) {
 
-            Object obj = matchedMap;
+                final CompactStatefulRecord keyedRecord = ((CompactStatefulRecord) record).withIdFieldName(fieldId);
 
-            for (int i=0; i < paths.length; i++) {
+                if (keyedRecord != record) {
+                    iterator.set(keyedRecord);
+                    keyed = true;
+                }
+            }
+        }
 
-                final String p = paths[i];
-                final boolean lastIteration = (i == (paths.length - 1));
+        return keyed;
+    }
 
-                if (obj instanceof List) {
+    /**
+     * Shards the given records when smockin.stateful.shards is above 1 and the mock's id is a top level field.
+     * The records must each have a distinct id to be sharded, otherwise they are left as they are.
+     */
+    List<Map<String, Object>> toRecordList(final String parentExtId,
+                                           final List<Map<String, Object>> records,
+                                           final RestfulMockStatefulMeta restfulMockStatefulMeta) {
+
+        if (shardCount <= 1
+                || records instanceof ShardedStatefulRecords
+                || isComplexJsonStructure(restfulMockStatefulMeta.getIdFieldLocation())) {
+            return records;
+        }
 
-                    final List l = ((List)obj);
+        final ShardedStatefulRecords sharded = new ShardedStatefulRecords(restfulMockStatefulMeta.getIdFieldName(), shardCount, records);
 
-                    if (lastIteration && "-".equals(p)) {
+        if (sharded.size() != records.size()) {
+            logger.warn("Stateful mock " + parentExtId + " holds records without a distinct " + restfulMockStatefulMeta.getIdFieldName() + ", so is not sharded");
+            return records;
+        }
 
-                        l.remove(0);
+        return sharded;
+    }
 
-                    } else {
+    /**
+     * The form records are kept in, which depends on smockin.stateful.storage.
+     */
+    Map<String, Object> toStored(final Map<String, Object> record, final RestfulMockStatefulMeta restfulMockStatefulMeta) {
 
-                        final int indx = NumberUtils.toInt(p, -1);
+        if (!StatefulStorageModeEnum.COMPACT.equals(storageMode)) {
+            return record;
+        }
 
-                        if (indx == -1) {
-                            throw new StatefulValidationException(String.format(StatefulValidationException.PATH_STRUCTURE_MISALIGN, path));
-                        }
+        return CompactStatefulRecord.of(record,
+                (isComplexJsonStructure(restfulMockStatefulMeta.getIdFieldLocation())) ? null : restfulMockStatefulMeta.getIdFieldName());
+    }
 
-                        if (l.size() <= indx) {
-                            throw new StatefulValidationException(String.format(StatefulValidationException.PATH_OUT_OF_RANGE_LIST_INDEX, path, indx));
-                        }
+    /**
+     * A record that can be changed in place, which for compact records is a parsed copy.
+     */
+    Map<String, Object> toMutable(final Map<String, Object> record) {
 
-                        if (lastIteration) {
-                            l.remove(indx);
-                        } else {
-                            obj = l.get(indx);
-                        }
+        return (record instanceof CompactStatefulRecord)
+                ? ((CompactStatefulRecord) record).decode()
+                : record;
+    }
 
-                    }
+    RestfulMock loadStatefulParent(final RestfulMock mock) {
 
-                } else if (obj instanceof Map) {
+        return (mock.getStatefulParent() != null)
+                ? mock.getStatefulParent()
+                : mock;
+    }
 
-                    final Map map = ((Map)obj);
+    Optional<Map<String, Object>> convertToJsonMap(final String json) {
 
-                    if (lastIteration) {
+        try {
+            final Map<String, Object> dataMap = (Map<String, Object>)GeneralUtils.deserialiseJSONToMap(json, false);
+            return Optional.of(dataMap);
+        } catch (Throwable ex) {
+            return Optional.empty();
+        }
 
-                        if (!map.containsKey(p)) {
-                            throw new StatefulValidationException(HttpStatus.SC_NOT_FOUND);
-                        }
+    }
 
-                        map.remove(p);
-                    } else {
-                        obj = map.get(p);
-                    }
+    void appendIdToJson(final Map<String, Object> jsonDataMap,
+                        final RestfulMockStatefulMeta restfulMockStatefulMeta) {
 
-                } else {
-                    throw new StatefulValidationException(String.format(StatefulValidationException.PATH_STRUCTURE_MISALIGN, path));
-                }
+        final String fieldIdPathPattern = restfulMockStatefulMeta.getIdFieldLocation();
 
-            }
+        if (isComplexJsonStructure(fieldIdPathPattern)) {
 
-        } else {
+            final String[] pathArray = StringUtils.split(fieldIdPathPattern, ".");
 
-            if (!matchedMap.containsKey(path)) {
-                throw new StatefulValidationException(HttpStatus.SC_NOT_FOUND);
-            }
+            int index = 0;
+            Object currentJsonObject = jsonDataMap;
+
+            for (String e : pathArray) {
+
+                if (currentJsonObject == null) {
+                    break;
+                }
 
-            matchedMap.remove(path);
+                final Optional<Object> currentJsonObjectOpt = appendIdToJsonIdLocator(currentJsonObject, index, e, pathArray.length);
 
-        }
+                if (!currentJsonObjectOpt.isPresent()) {
+                    break;
+                }
 
-    }
+                currentJsonObject = currentJsonObjectOpt.get();
 
-    private void patchCopyOperation(final String from, final Map<String, Object> matchedMap, final String path) {
+                /*
+                Map<String, Object> currentJsonObjectMap = null;
 
-        if (from.contains("/")) {
+                if (currentJsonObject instanceof Map) {
 
-            final String[] fromPaths = from.split("/");
+                    currentJsonObjectMap = (Map<String, Object>)currentJsonObject;
 
-            Object obj = matchedMap;
+                } else if (currentJsonObject instanceof List) {
 
-            for (int i=0; i < fromPaths.length; i++) {
+                    final List<Map<String, Object>> currentJsonObjectList = (List<Map<String, Object>>)currentJsonObject;
 
-                final String fp = fromPaths[i];
-                final boolean lastIteration = (i == (fromPaths.length - 1));
+                    if (!currentJsonObjectList.isEmpty()) {
+                        currentJsonObjectMap = currentJsonObjectList.get(0);
+                    }
 
-                if (obj instanceof List) {
+                }
 
-                    final int indx = NumberUtils.toInt(fp, -1);
+                if (index == (pathArray.length -1)) {
 
-                    if (indx == -1) {
-                        throw new StatefulValidationException(String.format(StatefulValidationException.FROM_STRUCTURE_MISALIGN, from));
+                    if (currentJsonObjectMap != null
+                            && !currentJsonObjectMap.containsKey(e)) {
+                        currentJsonObjectMap.put(e, GeneralUtils.generateUUID());
                     }
 
-                    final List l = ((List)obj);
-
-                    if (lastIteration) {
-
-                        if (l.size() < indx) {
-                            throw new StatefulValidationException(String.format(StatefulValidationException.FROM_OUT_OF_RANGE_LIST_INDEX, from, indx));
-                        }
+                    break;
+                }
 
-                        if (l.get(indx) == null) {
-                            throw new StatefulValidationException(HttpStatus.SC_NOT_FOUND);
-                        }
+                if (currentJsonObjectMap.containsKey(e)) {
+                    currentJsonObject = currentJsonObjectMap.get(e);
+                }
+                */
 
-                        patchAddOperation(path, matchedMap, l.get(indx), true);
+                index++;
+            }
 
-                    } else {
+        } else {
 
-                        if (l.size() <= indx) {
-                            throw new StatefulValidationException(String.format(StatefulValidationException.FROM_OUT_OF_RANGE_LIST_INDEX, from, indx));
-                        }
+            final String fieldId = restfulMockStatefulMeta.getIdFieldName();
 
-                        obj = l.get(indx);
+            // Append ID if none present
+            if (!jsonDataMap.containsKey(fieldId)) {
+                jsonDataMap.put(fieldId, GeneralUtils.generateUUID());
+            }
 
-                    }
+        }
 
-                } else if (obj instanceof Map) {
+    }
 
-                    final Map map = ((Map)obj);
+    Optional<Object> appendIdToJsonIdLocator(Object currentJsonObject,
+                                         final int index,
+                                         final String path,
+                                         final int pathArrayLength) {
 
-                    if (lastIteration) {
+        Map<String, Object> currentJsonObjectMap = null;
 
-                        if (!map.containsKey(fp)) {
-                            throw new StatefulValidationException(HttpStatus.SC_NOT_FOUND);
-                        }
+        if (currentJsonObject instanceof Map) {
 
-                        patchAddOperation(path, matchedMap, map.get(from), true);
+            currentJsonObjectMap = (Map<String, Object>)currentJsonObject;
 
-                    } else {
-                        obj = map.get(fp);
-                    }
+        } else if (currentJsonObject instanceof List) {
 
-                } else {
-                    throw new StatefulValidationException(String.format(StatefulValidationException.FROM_STRUCTURE_MISALIGN, from));
-                }
+            final List<Map<String, Object>> currentJsonObjectList = (List<Map<String, Object>>)currentJsonObject;
 
+            if (!currentJsonObjectList.isEmpty()) {
+                currentJsonObjectMap = currentJsonObjectList.get(0);
             }
 
-        } else {
+        }
+
+        if (index == (pathArrayLength -1)) {
 
-            if (!matchedMap.containsKey(from)) {
-                throw new StatefulValidationException(HttpStatus.SC_NOT_FOUND);
+            if (currentJsonObjectMap != null
+                    && !currentJsonObjectMap.containsKey(path)) {
+                currentJsonObjectMap.put(path, GeneralUtils.generateUUID());
             }
 
-            patchAddOperation(path, matchedMap, matchedMap.get(from), true);
+            return Optional.empty();
+        }
 
+        if (currentJsonObjectMap.containsKey(path)) {
+            return Optional.of(currentJsonObjectMap.get(path));
         }
 
+        return Optional.of(currentJsonObject);
     }
 
-    private void patchMoveOperation(final String from, final Map<String, Object> matchedMap, final String path) {
+    Optional<Map<String, Object>> findDataStateRecord(
+            final List<Map<String, Object>> allStateData,
+            final String fieldIdPathPattern,
+            final String targetId) {
 
-        if (from.contains("/")) {
+        final String[] pathArray = StringUtils.split(fieldIdPathPattern, ".");
 
-            final String[] fromPaths = from.split("/");
+        final Optional<StatefulPath> jsonPathOpt = findDataStateRecordPath(allStateData, pathArray, targetId);
 
-            Object obj = matchedMap;
+        if (!jsonPathOpt.isPresent()) {
+            return Optional.empty();
+        }
 
-            for (int i=0; i < fromPaths.length; i++) {
+        return findDataStateRecordByPath(allStateData, jsonPathOpt.get().getPath());
+    }
 
-                final String fp = fromPaths[i];
-                final boolean lastIteration = (i == (fromPaths.length - 1));
+    Optional<Map<String, Object>> findDataStateRecordByPath(
+            final List<Map<String, Object>> allStateDataSrc,
+            final String path) {
 
-                if (obj instanceof List) {
+        final List<Map<String, Object>> allStateDataCopy
+                = SerializationUtils.clone(new StatefulSearchData(allStateDataSrc)).getData();
 
-                    final int indx = NumberUtils.toInt(fp, -1);
+        final String[] pathArray = StringUtils.split(path,".");
 
-                    if (indx == -1) {
-                        throw new StatefulValidationException(String.format(StatefulValidationException.FROM_STRUCTURE_MISALIGN, from));
-                    }
+        Map<String, Object> mainDataRecord = null;
+        Object currentDataRecordObject = null;
 
-                    final List l = ((List)obj);
+        for (String p : pathArray) {
 
-                    if (lastIteration) {
+            if (mainDataRecord == null) {
+                final Integer arrayPosition = extractArrayPosition(p);
+                mainDataRecord = toMutable(allStateDataCopy.get(arrayPosition));
+                currentDataRecordObject = mainDataRecord;
+                continue;
+            }
 
-                        if (l.size() < indx) {
-                            throw new StatefulValidationException(String.format(StatefulValidationException.FROM_OUT_OF_RANGE_LIST_INDEX, from, indx));
-                        }
+            if (mainDataRecord == null || currentDataRecordObject == null) {
+                return Optional.empty();
+            }
 
-                        if (l.get(indx) == null) {
-                            throw new StatefulValidationException(HttpStatus.SC_NOT_FOUND);
-                        }
+            if (p.contains("[") && p.contains("]")) {
 
-                        patchAddOperation(path, matchedMap, l.get(indx), true);
-                        patchRemoveOperation(from, matchedMap);
+                // List
 
-                    } else {
+                final Integer arrayPosition = extractArrayPosition(p);
 
-                        if (l.size() <= indx) {
-                            throw new StatefulValidationException(String.format(StatefulValidationException.FROM_OUT_OF_RANGE_LIST_INDEX, from, indx));
-                        }
+                if (arrayPosition == null) {
+                    return Optional.empty();
+                }
 
-                        obj = l.get(indx);
+                Iterator<Object> dataRecordListItr = ((List<Object>) currentDataRecordObject).iterator();
 
-                    }
+                int dataRecordListItrIdx = 0;
 
-                } else if (obj instanceof Map) {
+                while (dataRecordListItr.hasNext()) {
 
-                    final Map map = ((Map)obj);
+                    Object o = dataRecordListItr.next();
 
-                    if (lastIteration) {
+                    if (arrayPosition != dataRecordListItrIdx) {
+                        dataRecordListItr.remove();
+                    } else {
+                        currentDataRecordObject = o;
+                    }
 
-                        if (!map.containsKey(fp)) {
-                            throw new StatefulValidationException(HttpStatus.SC_NOT_FOUND);
-                        }
+                    dataRecordListItrIdx++;
+                }
 
-                        patchAddOperation(path, matchedMap, map.get(from), true);
-                        patchRemoveOperation(from, matchedMap);
+            } else if (p.contains("=")) {
 
-                    } else {
-                        obj = map.get(fp);
-                    }
+                // ID matching
 
-                } else {
-                    throw new StatefulValidationException(String.format(StatefulValidationException.FROM_STRUCTURE_MISALIGN, from));
+                final String[] args = StringUtils.split(p,"=");
+                final String idName = args[0];
+                final String idValue = args[1];
+
+                final String actualIdValue = (String)((Map<String, Object>)currentDataRecordObject).get(idName);
+
+                if (!StringUtils.equals(idValue, actualIdValue)) {
+                    return Optional.empty();
                 }
 
-            }
+            } else {
 
-        } else {
+                // Map
 
-            if (!matchedMap.containsKey(from)) {
-                throw new StatefulValidationException(HttpStatus.SC_NOT_FOUND);
-            }
+                currentDataRecordObject = ((Map<String, Object>) currentDataRecordObject).get(p);
 
-            patchAddOperation(path, matchedMap, matchedMap.get(from), true);
-            patchRemoveOperation(from, matchedMap);
+            }
 
         }
 
+        return Optional.ofNullable(mainDataRecord);
     }
 
-    private void addReplaceOperation(final String path, final Map<String, Object> matchedMap, final Object value) {
+    void removeDataStateRecordByPath(
+            final List<Map<String, Object>> allStateDataSrc,
+            final String path) {
 
-        if (path.contains("/")) {
+        final int lastArrayEndPos = path.lastIndexOf("].");
 
-            final String[] paths = path.split("/");
+        if (lastArrayEndPos == -1) {
+            return;
+        }
 
-            Object obj = matchedMap;
+        final String amendedPath = StringUtils.substring(path, 0, (lastArrayEndPos + 1));
+        final String[] pathArray = StringUtils.split(amendedPath,".");
 
-            for (int i=0; i < paths.length; i++) {
+        Object currentDataRecordObject = null;
 
-                final String p = paths[i];
-                final boolean lastIteration = (i == (paths.length - 1));
+        for (int i=0; i < pathArray.length; i++ ) {
 
-                if (obj instanceof List) {
+            final String p = pathArray[i];
 
-                    final int indx = NumberUtils.toInt(p, -1);
+            if (i == 0 && currentDataRecordObject == null) {
+                final Integer arrayPosition = extractArrayPosition(p);
+                currentDataRecordObject = allStateDataSrc.get(arrayPosition);
+                continue;
+            }
 
-                    if (indx == -1) {
-                        throw new StatefulValidationException(String.format(StatefulValidationException.PATH_STRUCTURE_MISALIGN, path));
-                    }
+            if (currentDataRecordObject == null) {
+                return;
+            }
 
-                    final List l = ((List)obj);
+            if (p.contains("[") && p.contains("]")) {
 
-                    if (l.size() <= indx) {
-                        throw new StatefulValidationException(String.format(StatefulValidationException.PATH_OUT_OF_RANGE_LIST_INDEX, path, indx));
-                    }
+                // List
 
-                    if (lastIteration) {
+                final Integer arrayPosition = extractArrayPosition(p);
 
-                        if (!l.isEmpty()
-                                && !l.get(0).getClass().equals(value.getClass())) {
-                            throw new StatefulValidationException("'value' in path '" + path + "' has an incompatible data type with existing values in list");
-                        }
+                if (arrayPosition == null) {
+                    return;
+                }
 
-                        l.set(indx, value);
+                if (i == (pathArray.length - 1)) {
+                    ((List<Object>) currentDataRecordObject).remove(arrayPosition.intValue());
+                } else {
+                    currentDataRecordObject = ((List<Object>) currentDataRecordObject).get(arrayPosition);
+                }
 
-                    } else {
+            } else {
 
-                        if (l.size() <= indx) {
-                            throw new StatefulValidationException(String.format(StatefulValidationException.PATH_OUT_OF_RANGE_LIST_INDEX, path, indx));
-                        }
+                // Map
 
-                        obj = l.get(indx);
+                currentDataRecordObject = ((Map<String, Object>) currentDataRecordObject).get(p);
 
-                    }
+            }
 
-                } else if (obj instanceof Map) {
+        }
 
-                    final Map map = ((Map)obj);
+    }
 
-                    if (lastIteration) {
+    Integer extractArrayPosition(final String pathElement) {
 
-                        if (!map.containsKey(p)) {
-                            throw new StatefulValidationException(HttpStatus.SC_NOT_FOUND);
-                        }
-                        if (!map.get(p).getClass().equals(value.getClass())) {
-                            throw new StatefulValidationException("'value' in path '" + path + "' has an incompatible data type with existing value");
-                        }
+        if (StringUtils.isBlank(pathElement)) {
+            return null;
+        }
 
-                        map.remove(p);
-                        map.put(p, value);
+        final String s1 = StringUtils.remove(pathElement, "[");
+        final String s2 = StringUtils.remove(s1, "]");
+        final int result = NumberUtils.toInt(s2, -1);
 
-                    } else {
-                        obj = map.get(p);
-                    }
+        return (result != -1) ? result : null;
+    }
 
-                } else {
-                    throw new StatefulValidationException(String.format(StatefulValidationException.PATH_STRUCTURE_MISALIGN, path));
-                }
+    Optional<StatefulPath> findDataStateRecordPath(
+            final List<Map<String, Object>> allStateData,
+            final String[] pathArray,
+            final String targetId) {
 
-            }
+        final StatefulServiceImpl.StatefulSearchPathResult result = new StatefulServiceImpl.StatefulSearchPathResult();
 
-        } else {
+        int index = 0;
 
-            if (!matchedMap.containsKey(path)) {
-                throw new StatefulValidationException(HttpStatus.SC_NOT_FOUND);
-            }
-            if (!matchedMap.get(path).getClass().equals(value.getClass())) {
-                throw new StatefulValidationException("'value' in path '" + path + "' has an incompatible data type with existing value");
-            }
+        for (Map<String, Object> m : allStateData) {
+
+            final int thisIndex = index;
 
-            matchedMap.put(path, value);
+            findStateIndex(pathArray, 0, targetId, m, result, "[" + index++ + "]");
 
+            if (result.getPath().isPresent()) {
+                return Optional.of(new StatefulPath(result.getPath().get(), thisIndex));
+            }
         }
 
+        return Optional.empty();
     }
 
     private void findStateIndex(
@@ -1454,29 +1839,98 @@ public class StatefulServiceImpl implements StatefulService {
         }
     }
 
-    private final static class StatefulResponse {
+    /**
+     * Passes everything written through to the response, keeping a copy until it exceeds the given limit.
+     */
+    final static class CapturingOutputStream extends OutputStream {
+
+        private final OutputStream target;
+        private final long limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CapturingOutputStream(final OutputStream target, final long limit) {
+            this.target = target;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            target.write(b);
+
+            if (capture(1)) {
+                copy.write(b);
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            target.write(b, off, len);
+
+            if (capture(len)) {
+                copy.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        boolean isOverflowed() {
+            return copy == null;
+        }
+
+        byte[] toByteArray() {
+            return copy.toByteArray();
+        }
+
+        private boolean capture(final int len) {
+
+            if (copy != null && copy.size() + len > limit) {
+                copy = null;
+            }
+
+            return copy != null;
+        }
+
+    }
+
+    final static class StatefulResponse {
 
         private final int httpResponseCode;
         private final String responseBody;
+        private final RestfulResponseDTO.BodyWriter bodyWriter;
+        private final Map<String, String> headers;
 
         public StatefulResponse(int httpResponseCode) {
-            this.httpResponseCode = httpResponseCode;
-            this.responseBody = null;
+            this(httpResponseCode, null);
         }
         public StatefulResponse(int httpResponseCode, String responseBody) {
             this.httpResponseCode = httpResponseCode;
             this.responseBody = responseBody;
+            this.bodyWriter = null;
+            this.headers = Collections.emptyMap();
+        }
+        public StatefulResponse(int httpResponseCode, Map<String, String> headers, RestfulResponseDTO.BodyWriter bodyWriter) {
+            this.httpResponseCode = httpResponseCode;
+            this.responseBody = null;
+            this.bodyWriter = bodyWriter;
+            this.headers = headers;
+        }
+
+        int getHttpResponseCode() {
+            return httpResponseCode;
+        }
+        Map<String, String> getHeaders() {
+            return headers;
+        }
+        RestfulResponseDTO.BodyWriter getBodyWriter() {
+            return bodyWriter;
         }
     }
 
     private class StatefulValidationException extends RuntimeException {
 
-        private static final String PATH_STRUCTURE_MISALIGN = "Invalid path '%s' does align with structure of existing JSON";
-        private static final String FROM_STRUCTURE_MISALIGN = "Invalid from '%s' does align with structure of existing JSON";
-        private static final String PATH_OUT_OF_RANGE_LIST_INDEX = "Invalid path '%s', list index %s is out of range";
-        private static final String FROM_OUT_OF_RANGE_LIST_INDEX = "Invalid from '%s', list index %s is out of range";
-        private static final String INVALID_PATCH_INSTRUCTION = "Invalid PATCH instruction in request body, %s";
-
         private final Integer status;
 
         public StatefulValidationException(final String msg) {
@@ -1,5 +1,7 @@
 package com.smockin.mockserver.service.dto;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -12,24 +14,41 @@ public class RestfulResponseDTO {
     private final int httpStatusCode;
     private final String responseContentType;
     private final String responseBody;
+    private final BodyWriter bodyWriter;
     private final Map<String, String> headers = new HashMap<>();
 
     public RestfulResponseDTO(final int httpStatusCode) {
         this.httpStatusCode = httpStatusCode;
         this.responseContentType = null;
         this.responseBody = null;
+        this.bodyWriter = null;
     }
 
     public RestfulResponseDTO(final int httpStatusCode, final String responseContentType, final String responseBody) {
         this.httpStatusCode = httpStatusCode;
         this.responseContentType = responseContentType;
         this.responseBody = responseBody;
+        this.bodyWriter = null;
     }
 
     public RestfulResponseDTO(final int httpStatusCode, final String responseContentType, final String responseBody, final Set<Map.Entry<String, String>> headers) {
         this.httpStatusCode = httpStatusCode;
         this.responseContentType = responseContentType;
         this.responseBody = responseBody;
+        this.bodyWriter = null;
+
+        headers.stream().forEach(h ->
+            this.headers.put(h.getKey(), h.getValue()));
+    }
+
+    /**
+     * For large responses, which are written straight to the response stream rather than being held as a String.
+     */
+    public RestfulResponseDTO(final int httpStatusCode, final String responseContentType, final BodyWriter bodyWriter, final Set<Map.Entry<String, String>> headers) {
+        this.httpStatusCode = httpStatusCode;
+        this.responseContentType = responseContentType;
+        this.responseBody = null;
+        this.bodyWriter = bodyWriter;
 
         headers.stream().forEach(h ->
             this.headers.put(h.getKey(), h.getValue()));
@@ -45,8 +64,19 @@ public class RestfulResponseDTO {
         return responseBody;
     }
 
+    public BodyWriter getBodyWriter() {
+        return bodyWriter;
+    }
+
     public Map<String, String> getHeaders() {
         return headers;
     }
 
+    @FunctionalInterface
+    public interface BodyWriter {
+
+        void write(final OutputStream out) throws IOException;
+
+    }
+
 }
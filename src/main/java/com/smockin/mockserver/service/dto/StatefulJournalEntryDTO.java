@@ -0,0 +1,75 @@
+package com.smockin.mockserver.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.smockin.mockserver.service.enums.StatefulJournalOpEnum;
+
+import java.util.List;
+import java.util.Map;
+
+// Journal files hold one of these per line, so unused fields are left out
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StatefulJournalEntryDTO {
+
+    private StatefulJournalOpEnum op;
+    private String id;
+    private String idField;
+    private Map<String, Object> record;
+    private List<Map<String, Object>> records;
+
+    public StatefulJournalEntryDTO() {
+
+    }
+
+    public StatefulJournalEntryDTO(final StatefulJournalOpEnum op, final String id) {
+        this.op = op;
+        this.id = id;
+    }
+
+    public StatefulJournalEntryDTO(final StatefulJournalOpEnum op, final String id, final Map<String, Object> record) {
+        this.op = op;
+        this.id = id;
+        this.record = record;
+    }
+
+    public StatefulJournalEntryDTO(final StatefulJournalOpEnum op, final String idField, final List<Map<String, Object>> records) {
+        this.op = op;
+        this.idField = idField;
+        this.records = records;
+    }
+
+    public StatefulJournalOpEnum getOp() {
+        return op;
+    }
+    public void setOp(StatefulJournalOpEnum op) {
+        this.op = op;
+    }
+
+    public String getId() {
+        return id;
+    }
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getIdField() {
+        return idField;
+    }
+    public void setIdField(String idField) {
+        this.idField = idField;
+    }
+
+    public Map<String, Object> getRecord() {
+        return record;
+    }
+    public void setRecord(Map<String, Object> record) {
+        this.record = record;
+    }
+
+    public List<Map<String, Object>> getRecords() {
+        return records;
+    }
+    public void setRecords(List<Map<String, Object>> records) {
+        this.records = records;
+    }
+
+}
@@ -1,10 +1,19 @@
 package com.smockin.mockserver.service.enums;
 
+import java.util.stream.Stream;
+
 public enum PatchCommandEnum {
     ADD,
     REMOVE,
     REPLACE,
     MOVE,
     COPY,
-    TEST
+    TEST;
+
+    public static PatchCommandEnum findByName(final String name) {
+        return Stream.of(PatchCommandEnum.values())
+                .filter(p -> (p.name().equalsIgnoreCase(name)))
+                .findFirst().orElse(null);
+    }
+
 }
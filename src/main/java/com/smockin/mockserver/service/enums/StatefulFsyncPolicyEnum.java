@@ -0,0 +1,16 @@
+package com.smockin.mockserver.service.enums;
+
+import java.util.stream.Stream;
+
+public enum StatefulFsyncPolicyEnum {
+    ALWAYS,     // Every journal write is forced to disk before the request completes
+    INTERVAL,   // Journal writes are forced to disk in the background every few moments
+    NEVER;      // Flushing to disk is left to the OS
+
+    public static StatefulFsyncPolicyEnum findByName(final String name) {
+        return Stream.of(StatefulFsyncPolicyEnum.values())
+                .filter(p -> (p.name().equalsIgnoreCase(name)))
+                .findFirst().orElse(null);
+    }
+
+}
@@ -0,0 +1,8 @@
+package com.smockin.mockserver.service.enums;
+
+public enum StatefulJournalOpEnum {
+    PUT,        // Adds the record, or replaces the existing record with the same id in place
+    DELETE,     // Removes the record with the given id
+    REPLACE,    // Replaces all records
+    CLEAR       // Removes the resource entirely, so it starts over from its initial body
+}
@@ -0,0 +1,16 @@
+package com.smockin.mockserver.service.enums;
+
+import java.util.stream.Stream;
+
+public enum StatefulQuotaPolicyEnum {
+    REJECT,     // New records are turned away until space is freed up
+    EVICT,      // The oldest records are removed to make room
+    EXPIRE;     // Records older than the TTL are removed to make room, and new records are turned away if that is not enough
+
+    public static StatefulQuotaPolicyEnum findByName(final String name) {
+        return Stream.of(StatefulQuotaPolicyEnum.values())
+                .filter(p -> (p.name().equalsIgnoreCase(name)))
+                .findFirst().orElse(null);
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.smockin.mockserver.service.enums;
+
+import java.util.stream.Stream;
+
+public enum StatefulStorageModeEnum {
+    OBJECT,     // Records are held as parsed JSON (maps, lists and boxed values)
+    COMPACT;    // Records are held as their UTF-8 JSON, and only parsed when their fields are read
+
+    public static StatefulStorageModeEnum findByName(final String name) {
+        return Stream.of(StatefulStorageModeEnum.values())
+                .filter(m -> (m.name().equalsIgnoreCase(name)))
+                .findFirst().orElse(null);
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.smockin.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread safe LRU map, bounded by both its number of entries and their total weight (usually an estimate in bytes).
+ * Once either bound is exceeded, the least recently used entries are evicted (and passed to the eviction listener, if any)
+ * until it is back within both. Expiry, and anything else particular to what is held, is left to the caller.
+ */
+public final class BoundedLruCache<K, V> {
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final BiConsumer<K, V> evictionListener;
+
+    // Access ordered, so iteration starts from the least recently used entry.
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    public BoundedLruCache(final int maxEntries) {
+        this(maxEntries, Long.MAX_VALUE, v -> 0, null);
+    }
+
+    public BoundedLruCache(final int maxEntries, final long maxWeight, final ToLongFunction<V> weigher) {
+        this(maxEntries, maxWeight, weigher, null);
+    }
+
+    /**
+     * The eviction listener is called while the cache is locked, so must be quick and must not call back into the cache.
+     */
+    public BoundedLruCache(final int maxEntries, final long maxWeight, final ToLongFunction<V> weigher, final BiConsumer<K, V> evictionListener) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+    }
+
+    public synchronized V get(final K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Adds (or replaces) the entry as the most recently used, evicting others as needed to stay within the bounds.
+     *
+     * @return the entry replaced, or null if there was none.
+     */
+    public synchronized V put(final K key, final V value) {
+
+        final V previous = entries.put(key, value);
+
+        if (previous != null) {
+            weight -= weigher.applyAsLong(previous);
+        }
+
+        weight += weigher.applyAsLong(value);
+
+        final Iterator<Map.Entry<K, V>> lru = entries.entrySet().iterator();
+
+        while ((weight > maxWeight || entries.size() > maxEntries) && lru.hasNext()) {
+
+            final Map.Entry<K, V> evicted = lru.next();
+            lru.remove();
+            weight -= weigher.applyAsLong(evicted.getValue());
+
+            if (evictionListener != null) {
+                evictionListener.accept(evicted.getKey(), evicted.getValue());
+            }
+        }
+
+        return previous;
+    }
+
+    public synchronized V remove(final K key) {
+
+        final V removed = entries.remove(key);
+
+        if (removed != null) {
+            weight -= weigher.applyAsLong(removed);
+        }
+
+        return removed;
+    }
+
+    /**
+     * Removes the given entry, but only if it is still the very value held for its key.
+     */
+    public synchronized boolean remove(final K key, final V value) {
+
+        if (entries.get(key) != value) {
+            return false;
+        }
+
+        remove(key);
+
+        return true;
+    }
+
+    /**
+     * Removes every entry whose value matches, calling the given action (if any) for each one removed.
+     */
+    public synchronized void removeIf(final Predicate<V> filter, final BiConsumer<K, V> onRemoved) {
+
+        final Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+
+            final Map.Entry<K, V> entry = iterator.next();
+
+            if (filter.test(entry.getValue())) {
+
+                iterator.remove();
+                weight -= weigher.applyAsLong(entry.getValue());
+
+                if (onRemoved != null) {
+                    onRemoved.accept(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.smockin.utils;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 CSV support (comma separated, optionally double quoted fields, with "" as an escaped quote),
+ * reading and writing one record at a time so large files never need to be held in memory.
+ */
+public final class CsvUtils {
+
+    public static void writeRecord(final Writer writer, final String... values) throws IOException {
+
+        for (int i=0; i < values.length; i++) {
+
+            if (i > 0) {
+                writer.write(',');
+            }
+
+            writer.write(escapeField(values[i]));
+        }
+
+        writer.write('\n');
+    }
+
+    static String escapeField(final String value) {
+
+        if (value == null) {
+            return "";
+        }
+
+        if (value.indexOf(',') == -1
+                && value.indexOf('"') == -1
+                && value.indexOf('\n') == -1
+                && value.indexOf('\r') == -1) {
+            return value;
+        }
+
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    public static final class RecordReader {
+
+        private final PushbackReader reader;
+        private int currentLine = 1;
+        private int recordLine = 0;
+
+        public RecordReader(final Reader reader) {
+            this.reader = new PushbackReader(reader);
+        }
+
+        /**
+         * The line the last record read started on.
+         */
+        public int getLineNumber() {
+            return recordLine;
+        }
+
+        /**
+         * Returns the next record's fields, skipping blank lines, or null once the end of the stream is reached.
+         *
+         * @throws IllegalArgumentException if a quoted field is not terminated
+         */
+        public List<String> readRecord() throws IOException {
+
+            int c = reader.read();
+
+            while (c == '\n' || c == '\r') {
+                consumeLineEnd(c);
+                c = reader.read();
+            }
+
+            if (c == -1) {
+                return null;
+            }
+
+            recordLine = currentLine;
+
+            final List<String> fields = new ArrayList<>();
+            final StringBuilder field = new StringBuilder();
+            boolean inQuotes = false;
+
+            while (true) {
+
+                if (inQuotes) {
+
+                    if (c == -1) {
+                        throw new IllegalArgumentException("Unterminated quoted field in CSV record starting at line " + recordLine);
+                    }
+
+                    if (c == '"') {
+
+                        final int next = reader.read();
+
+                        if (next == '"') {
+                            field.append('"');
+                            c = reader.read();
+                        } else {
+                            inQuotes = false;
+                            c = next;
+                        }
+
+                        continue;
+                    }
+
+                    if (c == '\n') {
+                        currentLine++;
+                    }
+
+                    field.append((char) c);
+                    c = reader.read();
+                    continue;
+                }
+
+                if (c == '"' && field.length() == 0) {
+                    inQuotes = true;
+                    c = reader.read();
+                    continue;
+                }
+
+                if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    c = reader.read();
+                    continue;
+                }
+
+                if (c == '\n' || c == '\r' || c == -1) {
+
+                    if (c != -1) {
+                        consumeLineEnd(c);
+                    }
+
+                    fields.add(field.toString());
+                    return fields;
+                }
+
+                field.append((char) c);
+                c = reader.read();
+            }
+        }
+
+        // Consumes the rest of a \n, \r or \r\n line ending, c being its first char
+        private void consumeLineEnd(final int c) throws IOException {
+
+            currentLine++;
+
+            if (c == '\r') {
+
+                final int next = reader.read();
+
+                if (next != '\n' && next != -1) {
+                    reader.unread(next);
+                }
+            }
+        }
+
+    }
+
+}
@@ -1,8 +1,10 @@
 package com.smockin.utils;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.smockin.admin.enums.UserModeEnum;
 import org.apache.commons.lang3.StringUtils;
@@ -40,6 +42,10 @@ public final class GeneralUtils {
 
     public static final String OAUTH_HEADER_VALUE_PREFIX = "Bearer";
     public static final String OAUTH_HEADER_NAME = "Authorization";
+    public static final String PRINCIPAL_REQUEST_ATTR = "smockin.principal";
+
+    public static final int FIRST_PATH_SEGMENT_MAX_LENGTH = 255;
+    public static final String WILDCARD_FIRST_PATH_SEGMENT = "*";
     public static final String KEEP_EXISTING_HEADER_NAME = "KeepExisting";
 
     public static final String ENABLE_CORS_PARAM = "ENABLE_CORS";
@@ -185,6 +191,32 @@ public final class GeneralUtils {
         }
     }
 
+    /**
+     * The first segment of a path (e.g. 'api' for '/api/users/1'), or an empty string for the root path.
+     * Capped at FIRST_PATH_SEGMENT_MAX_LENGTH, so it always fits the indexed REST_MOCK.FIRST_SEGMENT column.
+     */
+    public static String extractFirstPathSegment(final String path) {
+
+        final String[] segments = StringUtils.split(path, "/");
+
+        return (segments == null || segments.length == 0)
+                ? ""
+                : StringUtils.left(segments[0], FIRST_PATH_SEGMENT_MAX_LENGTH);
+    }
+
+    /**
+     * The first segment a mock is looked up by. A first segment holding a path variable or wildcard could match any request,
+     * so all such mocks share WILDCARD_FIRST_PATH_SEGMENT, which is always included in the look up.
+     */
+    public static String extractMockFirstPathSegment(final String path) {
+
+        final String segment = extractFirstPathSegment(path);
+
+        return (StringUtils.containsAny(segment, '{', '*', '?'))
+                ? WILDCARD_FIRST_PATH_SEGMENT
+                : segment;
+    }
+
     public static String prefixPath(final String path) {
 
         if (StringUtils.isBlank(path)) {
@@ -264,6 +296,20 @@ public final class GeneralUtils {
         return null;
     }
 
+    public static <T> T deserialiseJson(final byte[] json, final TypeReference<T> type) {
+
+        if (json != null) {
+            try {
+                return JSON_MAPPER.readValue(json, type);
+            } catch (IOException e) {
+                logger.error("Error de-serialising json", e);
+                // fail silently
+            }
+        }
+
+        return null;
+    }
+
     public static <T> String serialiseJson(final T t) {
 
         try {
@@ -276,6 +322,44 @@ public final class GeneralUtils {
         return null;
     }
 
+    public static <T> byte[] serialiseJsonToBytes(final T t) {
+
+        try {
+            return JSON_MAPPER.writeValueAsBytes(t);
+        } catch (JsonProcessingException e) {
+            logger.error("Error serialising json", e);
+            // fail silently
+        }
+
+        return null;
+    }
+
+    /**
+     * Creates a streaming JSON generator (sharing the same mapper config as serialiseJson) over the given stream.
+     * Closing the generator does not close the underlying stream.
+     */
+    public static JsonGenerator createJsonGenerator(final OutputStream out) throws IOException {
+
+        return JSON_MAPPER.getFactory()
+                .createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * Reads a stream of JSON values (e.g. NDJSON, one object per line) one at a time, sharing the same mapper config as deserialiseJson.
+     */
+    public static <T> MappingIterator<T> readJsonValues(final InputStream in, final Class<T> type) throws IOException {
+
+        return JSON_MAPPER.readerFor(type)
+                .readValues(in);
+    }
+
+    public static List<String> splitMemoKeyInputs(final String memoKeyInputs) {
+
+        return Stream.of(StringUtils.split(StringUtils.defaultString(memoKeyInputs), ","))
+                .collect(Collectors.toList());
+    }
+
     public static String extractOAuthToken(final String bearerToken) {
 
         if (bearerToken == null) {
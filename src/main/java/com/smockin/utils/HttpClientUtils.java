@@ -6,6 +6,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
+import org.apache.http.client.fluent.Executor;
 import org.apache.http.client.fluent.Request;
 import org.apache.http.message.BasicNameValuePair;
 import org.springframework.http.MediaType;
@@ -19,44 +20,44 @@ import java.util.stream.Stream;
 
 public final class HttpClientUtils {
 
-    public static HttpClientResponseDTO get(final HttpClientCallDTO reqDto) throws IOException {
+    public static HttpClientResponseDTO get(final Executor executor, final HttpClientCallDTO reqDto) throws IOException {
 
         final Request request = Request.Get(reqDto.getUrl());
 
-        return executeRequest(request, reqDto.getHeaders());
+        return executeRequest(executor, request, reqDto.getHeaders());
     }
 
-    public static HttpClientResponseDTO post(final HttpClientCallDTO reqDto) throws IOException {
+    public static HttpClientResponseDTO post(final Executor executor, final HttpClientCallDTO reqDto) throws IOException {
 
         final Request request = Request.Post(reqDto.getUrl());
 
         handleRequestData(request, reqDto.getHeaders(), reqDto);
 
-        return executeRequest(request, reqDto.getHeaders());
+        return executeRequest(executor, request, reqDto.getHeaders());
     }
 
-    public static HttpClientResponseDTO put(final HttpClientCallDTO reqDto) throws IOException {
+    public static HttpClientResponseDTO put(final Executor executor, final HttpClientCallDTO reqDto) throws IOException {
 
         final Request request = Request.Put(reqDto.getUrl());
 
         handleRequestData(request, reqDto.getHeaders(), reqDto);
 
-        return executeRequest(request, reqDto.getHeaders());
+        return executeRequest(executor, request, reqDto.getHeaders());
     }
 
-    public static HttpClientResponseDTO delete(final HttpClientCallDTO reqDto) throws IOException {
+    public static HttpClientResponseDTO delete(final Executor executor, final HttpClientCallDTO reqDto) throws IOException {
 
         final Request request = Request.Delete(reqDto.getUrl());
 
-        return executeRequest(request, reqDto.getHeaders());
+        return executeRequest(executor, request, reqDto.getHeaders());
     }
 
-    public static HttpClientResponseDTO patch(final HttpClientCallDTO reqDto) throws IOException {
+    public static HttpClientResponseDTO patch(final Executor executor, final HttpClientCallDTO reqDto) throws IOException {
 
         final Request request = Request.Patch(reqDto.getUrl())
                 .bodyByteArray((reqDto.getBody() != null)?reqDto.getBody().getBytes():null);
 
-        return executeRequest(request, reqDto.getHeaders());
+        return executeRequest(executor, request, reqDto.getHeaders());
     }
 
     public static void applyRequestHeaders(final Request request, final Map<String, String> requestHeaders) {
@@ -85,11 +86,11 @@ public final class HttpClientUtils {
         return IOUtils.toString(httpResponse.getEntity().getContent(), StandardCharsets.UTF_8.name());
     }
 
-    static HttpClientResponseDTO executeRequest(final Request request, final Map<String, String> requestHeaders) throws IOException {
+    static HttpClientResponseDTO executeRequest(final Executor executor, final Request request, final Map<String, String> requestHeaders) throws IOException {
 
         applyRequestHeaders(request, requestHeaders);
 
-        final HttpResponse httpResponse = request.execute().returnResponse();
+        final HttpResponse httpResponse = executor.execute(request).returnResponse();
 
         return new HttpClientResponseDTO(
                 httpResponse.getStatusLine().getStatusCode(),
@@ -205,6 +205,9 @@ app.controller('tcpEndpointInfoController', function($scope, $location, $uibModa
         "randomiseLatencyRangeMaxMillis" : 0,
         "definitions" : [],
         "customJsSyntax" : null,
+        "customJsMemo" : null,
+        "customJsBudget" : null,
+        "statefulQuota" : null,
         "rules" : [],
         "statefulIdFieldName" : "id",
         "statefulIdFieldLocation" : null
@@ -251,6 +254,9 @@ app.controller('tcpEndpointInfoController', function($scope, $location, $uibModa
                 "randomiseLatencyRangeMaxMillis" : endpoint.randomiseLatencyRangeMaxMillis,
                 "definitions" : endpoint.definitions,
                 "customJsSyntax" : endpoint.customJsSyntax,
+                "customJsMemo" : endpoint.customJsMemo,
+                "customJsBudget" : endpoint.customJsBudget,
+                "statefulQuota" : endpoint.statefulQuota,
                 "rules" : endpoint.rules,
                 "createdBy" : endpoint.createdBy,
                 "statefulIdFieldName" : endpoint.statefulIdFieldName,
@@ -836,6 +842,9 @@ app.controller('tcpEndpointInfoController', function($scope, $location, $uibModa
             "definitions" : [],
             "rules" : [],
             "customJsSyntax" : null,
+            "customJsMemo" : null,
+            "customJsBudget" : null,
+            "statefulQuota" : null,
             "statefulDefaultResponseBody" : null
         };
 
@@ -896,6 +905,8 @@ app.controller('tcpEndpointInfoController', function($scope, $location, $uibModa
         } else if ($scope.endpoint.mockType.value == MockTypeDefinitions.MockTypeCustomJs) {
 
             reqData.customJsSyntax = jsEditor.getValue();
+            reqData.customJsMemo = $scope.endpoint.customJsMemo;
+            reqData.customJsBudget = $scope.endpoint.customJsBudget;
 
         } else if ($scope.endpoint.mockType.value == MockTypeDefinitions.MockTypeStateful) {
 
@@ -905,6 +916,7 @@ app.controller('tcpEndpointInfoController', function($scope, $location, $uibModa
             reqData.statefulIdFieldName = (!utils.isBlank($scope.endpoint.statefulIdFieldName)) ? $scope.endpoint.statefulIdFieldName : "id";
 //            reqData.statefulIdFieldLocation = (!utils.isBlank($scope.endpoint.statefulIdFieldLocation)) ? $scope.endpoint.statefulIdFieldLocation : reqData.statefulIdFieldName;
             reqData.statefulIdFieldLocation = reqData.statefulIdFieldName;
+            reqData.statefulQuota = $scope.endpoint.statefulQuota;
         }
 
         if (!isNew) {
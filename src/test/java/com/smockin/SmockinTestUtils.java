@@ -18,6 +18,8 @@ public final class SmockinTestUtils {
 
         final RestfulMock mock = new RestfulMock();
         mock.setPath(path);
+        mock.setFullPath(path);
+        mock.setFirstSegment(GeneralUtils.extractMockFirstPathSegment(path));
         mock.setMockType(mockType);
         mock.setInitializationOrder(initOrder);
         mock.setMethod(restMethod);
@@ -1,6 +1,7 @@
 package com.smockin.admin.interceptor;
 
 import com.smockin.admin.service.AuthService;
+import com.smockin.admin.service.AuthTokenCacheService;
 import com.smockin.admin.service.SmockinUserService;
 import org.junit.Assert;
 import org.junit.Test;
@@ -9,6 +10,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @RunWith(MockitoJUnitRunner.class)
 public class AuthInterceptorTest {
@@ -19,6 +21,9 @@ public class AuthInterceptorTest {
     @Mock
     private AuthService authService;
 
+    @Mock
+    private AuthTokenCacheService authTokenCacheService;
+
     @Spy
     @InjectMocks
     private AuthInterceptor authInterceptor = new AuthInterceptor();
@@ -96,4 +101,21 @@ public class AuthInterceptorTest {
         Assert.assertFalse(authInterceptor.matchExclusionUrl(exclusionKey, inboundUrl));
     }
 
+    @Test
+    public void isExcluded_compiledExclusions() {
+
+        // Setup
+        ReflectionTestUtils.setField(authInterceptor, "exclusionsJson", "{\"*.html\":[\"GET\"],\"/auth\":[\"POST\"],\"/password/reset/token/*\":[\"GET\",\"POST\"]}");
+        authInterceptor.after();
+
+        // Test & Assertions
+        Assert.assertTrue(authInterceptor.isExcluded("/smockin/index.html", "GET"));
+        Assert.assertFalse(authInterceptor.isExcluded("/smockin/index.html", "POST"));
+        Assert.assertTrue(authInterceptor.isExcluded("/AUTH", "post"));
+        Assert.assertFalse(authInterceptor.isExcluded("/auth/x", "POST"));
+        Assert.assertTrue(authInterceptor.isExcluded("/password/reset/token/123", "POST"));
+        Assert.assertFalse(authInterceptor.isExcluded("/password/reset/token/123", "DELETE"));
+        Assert.assertFalse(authInterceptor.isExcluded("/restmock", "GET"));
+    }
+
 }
@@ -1,6 +1,9 @@
 package com.smockin.admin.persistence.dao;
 
 import com.smockin.SmockinTestUtils;
+import com.smockin.admin.dto.RestfulMockSearchDTO;
+import com.smockin.admin.dto.response.RestfulMockSummaryDTO;
+import com.smockin.admin.enums.RestfulMockSortEnum;
 import com.smockin.admin.persistence.entity.RestfulMock;
 import com.smockin.admin.persistence.entity.SmockinUser;
 import com.smockin.admin.persistence.enums.RestMockTypeEnum;
@@ -19,6 +22,7 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.test.context.junit4.SpringRunner;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -195,4 +199,94 @@ public class RestfulMockDAOTest {
         return smockinUserDAO.saveAndFlush(user);
     }
 
+    @Test
+    public void findSummariesByUserTest() {
+
+        // Setup
+        final RestfulMockSearchDTO search = new RestfulMockSearchDTO(null, null, null, RecordStatusEnum.ACTIVE, null, RestfulMockSortEnum.PATH, true);
+
+        // Test
+        final List<RestfulMockSummaryDTO> page1 = restfulMockDAO.findSummariesByUser(user.getId(), search, 0, 4);
+        final List<RestfulMockSummaryDTO> page2 = restfulMockDAO.findSummariesByUser(user.getId(), search, 4, 4);
+        final long total = restfulMockDAO.countByUser(user.getId(), search);
+
+        // Assertions
+        Assert.assertEquals(6, total);
+        Assert.assertEquals(4, page1.size());
+        Assert.assertEquals(2, page2.size());
+        Assert.assertEquals("/h", page1.get(0).getPath());
+        Assert.assertEquals(h.getExtId(), page1.get(0).getExtId());
+        Assert.assertEquals(user.getCtxPath(), page1.get(0).getUserCtxPath());
+        Assert.assertEquals(RestMethodEnum.GET, page1.get(0).getMethod());
+        Assert.assertEquals(RestMockTypeEnum.SEQ, page1.get(0).getMockType());
+        Assert.assertNull(page1.get(0).getProjectId());
+        Assert.assertEquals("/f", page1.get(1).getPath());
+        Assert.assertEquals("/a", page2.get(1).getPath());
+    }
+
+    @Test
+    public void findSummariesByUser_pathFilterTest() {
+
+        // Setup
+        final RestfulMockSearchDTO search = new RestfulMockSearchDTO("D", null, null, null, null, null, false);
+
+        // Test
+        final List<RestfulMockSummaryDTO> summaries = restfulMockDAO.findSummariesByUser(user.getId(), search, 0, 10);
+
+        // Assertions
+        Assert.assertEquals(1, summaries.size());
+        Assert.assertEquals("/d", summaries.get(0).getPath());
+        Assert.assertEquals(RecordStatusEnum.INACTIVE, summaries.get(0).getStatus());
+        Assert.assertEquals(1, restfulMockDAO.countByUser(user.getId(), search));
+        Assert.assertEquals(0, restfulMockDAO.countByUser(user.getId(), new RestfulMockSearchDTO("%", null, null, null, null, null, false)));
+    }
+
+    @Test
+    public void findActiveByMethodAndPathPatternAndTypesForMultiUserTest() {
+
+        // Test
+        final RestfulMock active = restfulMockDAO.findActiveByMethodAndPathPatternAndTypesForMultiUser(RestMethodEnum.GET, "/b", Arrays.asList(RestMockTypeEnum.SEQ));
+        final RestfulMock inactive = restfulMockDAO.findActiveByMethodAndPathPatternAndTypesForMultiUser(RestMethodEnum.GET, "/d", Arrays.asList(RestMockTypeEnum.SEQ));
+        final RestfulMock wrongMethod = restfulMockDAO.findActiveByMethodAndPathPatternAndTypesForMultiUser(RestMethodEnum.POST, "/b", Arrays.asList(RestMockTypeEnum.SEQ));
+
+        // Assertions
+        Assert.assertNotNull(active);
+        Assert.assertEquals(b.getExtId(), active.getExtId());
+        Assert.assertNull(inactive);
+        Assert.assertNull(wrongMethod);
+    }
+
+    @Test
+    public void findAllWithoutFirstSegmentTest() {
+
+        // Setup (as saved before the column existed)
+        final RestfulMock legacy = SmockinTestUtils.buildRestfulMock("/legacy/users", RestMockTypeEnum.SEQ, 16, RestMethodEnum.GET, RecordStatusEnum.ACTIVE, user);
+        legacy.setFullPath(null);
+        legacy.setFirstSegment(null);
+        restfulMockDAO.saveAndFlush(legacy);
+
+        // Test
+        final List<RestfulMock> mocks = restfulMockDAO.findAllWithoutFirstSegment();
+
+        // Assertions
+        Assert.assertEquals(1, mocks.size());
+        Assert.assertEquals(legacy.getExtId(), mocks.get(0).getExtId());
+    }
+
+    @Test
+    public void findActiveByMethodAndPathPatternAndTypesForMultiUser_wildcardFirstSegmentTest() {
+
+        // Setup
+        final RestfulMock pathVar = restfulMockDAO.saveAndFlush(
+                SmockinTestUtils.buildRestfulMock("/{tenant}/orders", RestMockTypeEnum.SEQ, 16, RestMethodEnum.GET, RecordStatusEnum.ACTIVE, user));
+
+        // Test
+        final RestfulMock match = restfulMockDAO.findActiveByMethodAndPathPatternAndTypesForMultiUser(RestMethodEnum.GET, "/acme/orders", Arrays.asList(RestMockTypeEnum.SEQ));
+
+        // Assertions
+        Assert.assertEquals("*", pathVar.getFirstSegment());
+        Assert.assertNotNull(match);
+        Assert.assertEquals(pathVar.getExtId(), match.getExtId());
+    }
+
 }
@@ -0,0 +1,190 @@
+package com.smockin.admin.persistence.dao;
+
+import com.smockin.SmockinTestUtils;
+import com.smockin.admin.persistence.entity.RestfulMock;
+import com.smockin.admin.persistence.entity.RestfulMockDefinitionOrder;
+import com.smockin.admin.persistence.entity.RestfulMockDefinitionRule;
+import com.smockin.admin.persistence.entity.RestfulMockDefinitionRuleGroup;
+import com.smockin.admin.persistence.entity.RestfulMockDefinitionRuleGroupCondition;
+import com.smockin.admin.persistence.entity.RestfulMockJavaScriptHandler;
+import com.smockin.admin.persistence.entity.SmockinUser;
+import com.smockin.admin.persistence.enums.RecordStatusEnum;
+import com.smockin.admin.persistence.enums.RestMethodEnum;
+import com.smockin.admin.persistence.enums.RestMockTypeEnum;
+import com.smockin.admin.persistence.enums.RuleComparatorEnum;
+import com.smockin.admin.persistence.enums.RuleDataTypeEnum;
+import com.smockin.admin.persistence.enums.RuleMatchingTypeEnum;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Guards against N+1 loading of mocks, by counting the statements issued for each use case.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EnableJpaRepositories("com.smockin.admin.persistence.dao")
+@EntityScan("com.smockin.admin.persistence.entity")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+public class RestfulMockFetchPlanTest {
+
+    private static final int MOCK_COUNT = 10;
+
+    // 1 for the mocks + 1 per collection level (definitions, definition headers, rules, rule headers, groups & conditions).
+    // Hibernate's default batch fetch style uses fixed batch sizes (e.g. 12, then 8 for 20 keys), so a level may take 2 queries.
+    // Without the fetch plans this would be over 100.
+    private static final int MAX_STATEMENTS = 12;
+
+    @Autowired
+    private RestfulMockDAO restfulMockDAO;
+
+    @Autowired
+    private SmockinUserDAO smockinUserDAO;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private SmockinUser user;
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+
+        user = smockinUserDAO.saveAndFlush(SmockinTestUtils.buildSmockinUser());
+
+        for (int m = 0; m < MOCK_COUNT; m++) {
+            restfulMockDAO.save(buildFullMock("/fetch/" + m));
+        }
+
+        restfulMockDAO.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void exportFetchPlan_Test() {
+
+        // Test
+        final List<RestfulMock> mocks = restfulMockDAO.findAllByUser(user.getId());
+        mocks.forEach(this::loadFullGraph);
+
+        // Assertions
+        Assert.assertEquals(MOCK_COUNT, mocks.size());
+
+        Assert.assertTrue(statistics.getPrepareStatementCount() <= MAX_STATEMENTS);
+    }
+
+    @Test
+    public void exportPagedFetchPlan_Test() {
+
+        // Test
+        final List<RestfulMock> mocks = restfulMockDAO.findPageByUser(user.getId(), null, 0, MOCK_COUNT);
+        mocks.forEach(this::loadFullGraph);
+
+        // Assertions
+        Assert.assertEquals(MOCK_COUNT, mocks.size());
+        Assert.assertTrue(statistics.getPrepareStatementCount() <= MAX_STATEMENTS);
+    }
+
+    @Test
+    public void serveFetchPlan_Test() {
+
+        // Test
+        final RestfulMock mock = restfulMockDAO.findActiveByMethodAndPathPatternAndTypesForSingleUser(RestMethodEnum.GET, "/fetch/3", Arrays.asList(RestMockTypeEnum.SEQ));
+        loadFullGraph(mock);
+
+        // Assertions
+        Assert.assertEquals("/fetch/3", mock.getPath());
+        Assert.assertTrue(statistics.getPrepareStatementCount() <= MAX_STATEMENTS);
+    }
+
+    @Test
+    public void editFetchPlan_Test() {
+
+        // Setup
+        final String extId = restfulMockDAO.findPageByUser(user.getId(), null, 0, 1).get(0).getExtId();
+        entityManager.clear();
+        statistics.clear();
+
+        // Test
+        loadFullGraph(restfulMockDAO.findByExtId(extId));
+
+        // Assertions
+        Assert.assertEquals(7, statistics.getPrepareStatementCount());
+    }
+
+    private void loadFullGraph(final RestfulMock mock) {
+
+        Assert.assertNotNull(mock.getCreatedBy().getCtxPath());
+        Assert.assertNotNull(mock.getJavaScriptHandler().getSyntax());
+        Assert.assertNull(mock.getRestfulMockStatefulMeta());
+        Assert.assertNull(mock.getProject());
+
+        for (RestfulMockDefinitionOrder d : mock.getDefinitions()) {
+            Assert.assertEquals(2, d.getResponseHeaders().size());
+        }
+
+        for (RestfulMockDefinitionRule r : mock.getRules()) {
+            Assert.assertEquals(1, r.getResponseHeaders().size());
+            for (RestfulMockDefinitionRuleGroup g : r.getConditionGroups()) {
+                Assert.assertEquals(2, g.getConditions().size());
+            }
+        }
+    }
+
+    private RestfulMock buildFullMock(final String path) {
+
+        final RestfulMock mock = SmockinTestUtils.buildRestfulMock(path, RestMockTypeEnum.SEQ, 1, RestMethodEnum.GET, RecordStatusEnum.ACTIVE, user);
+
+        for (int d = 0; d < 2; d++) {
+            final RestfulMockDefinitionOrder definition = new RestfulMockDefinitionOrder(mock, 200, "application/json", "{}", d, 0, false, 0, 0);
+            definition.getResponseHeaders().put("X-One", "1");
+            definition.getResponseHeaders().put("X-Two", "2");
+            mock.getDefinitions().add(definition);
+        }
+
+        for (int r = 0; r < 2; r++) {
+            final RestfulMockDefinitionRule rule = new RestfulMockDefinitionRule(mock, r, 200, "application/json", "{}", 0, false);
+            rule.getResponseHeaders().put("X-Rule", "1");
+
+            final RestfulMockDefinitionRuleGroup group = new RestfulMockDefinitionRuleGroup(rule, 0);
+            group.getConditions().add(new RestfulMockDefinitionRuleGroupCondition(group, "name", RuleDataTypeEnum.TEXT, RuleComparatorEnum.EQUALS, "a", RuleMatchingTypeEnum.REQUEST_PARAM, false));
+            group.getConditions().add(new RestfulMockDefinitionRuleGroupCondition(group, "age", RuleDataTypeEnum.NUMERIC, RuleComparatorEnum.EQUALS, "1", RuleMatchingTypeEnum.REQUEST_PARAM, false));
+
+            rule.getConditionGroups().add(group);
+            mock.getRules().add(rule);
+        }
+
+        final RestfulMockJavaScriptHandler javaScriptHandler = new RestfulMockJavaScriptHandler();
+        javaScriptHandler.setRestfulMock(mock);
+        javaScriptHandler.setSyntax("function handleResponse(request, response) { return response; }");
+        mock.setJavaScriptHandler(javaScriptHandler);
+
+        return mock;
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.smockin.admin.persistence.dao;
+
+import com.smockin.SmockinTestUtils;
+import com.smockin.admin.persistence.entity.SmockinUser;
+import com.smockin.admin.persistence.entity.UserKeyValueData;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.junit4.SpringRunner;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(SpringRunner.class)
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EnableJpaRepositories("com.smockin.admin.persistence.dao")
+@EntityScan("com.smockin.admin.persistence.entity")
+public class UserKeyValueDataDAOTest {
+
+    @Autowired
+    private UserKeyValueDataDAO userKeyValueDataDAO;
+
+    @Autowired
+    private SmockinUserDAO smockinUserDAO;
+
+    private SmockinUser user;
+
+    @Before
+    public void setUp() {
+
+        user = smockinUserDAO.saveAndFlush(SmockinTestUtils.buildSmockinUser());
+
+        userKeyValueDataDAO.saveAll(Arrays.asList(
+                buildKvp("Greeting", "Hello"),
+                buildKvp("farewell", "Bye"),
+                buildKvp("thanks", "Cheers")));
+        userKeyValueDataDAO.flush();
+    }
+
+    @After
+    public void tearDown() {
+
+        userKeyValueDataDAO.deleteAll();
+        userKeyValueDataDAO.flush();
+
+        smockinUserDAO.deleteAll();
+        smockinUserDAO.flush();
+    }
+
+    @Test
+    public void findAllByLowerCaseKeys_Test() {
+
+        // Test
+        final List<UserKeyValueData> kvps = userKeyValueDataDAO.findAllByLowerCaseKeys(user.getId(), Arrays.asList("greeting", "thanks", "unknown"));
+
+        // Assertions
+        Assert.assertEquals(Arrays.asList("Greeting", "thanks"),
+                kvps.stream().map(UserKeyValueData::getKey).sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void findPageByUser_Test() {
+
+        // Test
+        final List<UserKeyValueData> firstPage = userKeyValueDataDAO.findPageByUser(user.getId(), 0, 2);
+        final List<UserKeyValueData> secondPage = userKeyValueDataDAO.findPageByUser(user.getId(), firstPage.get(1).getId(), 2);
+
+        // Assertions
+        Assert.assertEquals(2, firstPage.size());
+        Assert.assertEquals(1, secondPage.size());
+        Assert.assertTrue(secondPage.get(0).getId() > firstPage.get(1).getId());
+    }
+
+    @Test
+    public void deleteAllByLowerCaseKeys_Test() {
+
+        // Test
+        final int deleted = userKeyValueDataDAO.deleteAllByLowerCaseKeys(user.getId(), Arrays.asList("greeting", "unknown"));
+
+        // Assertions
+        Assert.assertEquals(1, deleted);
+        Assert.assertNull(userKeyValueDataDAO.findByKey("Greeting", user.getId()));
+        Assert.assertEquals(2, userKeyValueDataDAO.findAllByUser(user.getId()).size());
+    }
+
+    private UserKeyValueData buildKvp(final String key, final String value) {
+
+        final UserKeyValueData kvp = new UserKeyValueData();
+        kvp.setKey(key);
+        kvp.setValue(value);
+        kvp.setCreatedBy(user);
+
+        return kvp;
+    }
+
+}
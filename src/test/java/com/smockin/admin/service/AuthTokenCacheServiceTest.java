@@ -0,0 +1,107 @@
+package com.smockin.admin.service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.smockin.admin.dto.SmockinPrincipalDTO;
+import com.smockin.admin.persistence.enums.SmockinUserRoleEnum;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+public class AuthTokenCacheServiceTest {
+
+    private AuthTokenCacheServiceImpl authTokenCacheServiceImpl;
+
+    @Before
+    public void setUp() {
+
+        authTokenCacheServiceImpl = new AuthTokenCacheServiceImpl();
+
+        ReflectionTestUtils.setField(authTokenCacheServiceImpl, "maxEntries", 2);
+        ReflectionTestUtils.setField(authTokenCacheServiceImpl, "ttlMillis", 60000L);
+
+        authTokenCacheServiceImpl.after();
+    }
+
+    @Test
+    public void get_cachedToken_Test() {
+
+        // Setup
+        final SmockinPrincipalDTO principal = buildPrincipal(1, "abc");
+        authTokenCacheServiceImpl.put(principal);
+
+        // Test & Assertions
+        Assert.assertSame(principal, authTokenCacheServiceImpl.get("abc"));
+        Assert.assertNull(authTokenCacheServiceImpl.get("xyz"));
+        Assert.assertNull(authTokenCacheServiceImpl.get(null));
+    }
+
+    @Test
+    public void get_expiredToken_Test() {
+
+        // Setup
+        ReflectionTestUtils.setField(authTokenCacheServiceImpl, "ttlMillis", -1L);
+        authTokenCacheServiceImpl.put(buildPrincipal(1, "abc"));
+
+        // Test & Assertions
+        Assert.assertNull(authTokenCacheServiceImpl.get("abc"));
+        Assert.assertEquals(0, authTokenCacheServiceImpl.size());
+    }
+
+    @Test
+    public void get_tokenExpiredBeforeTtl_Test() {
+
+        // Setup
+        final String token = JWT.create()
+                .withExpiresAt(new Date(System.currentTimeMillis() - 1000))
+                .sign(Algorithm.HMAC256("secret"));
+        authTokenCacheServiceImpl.put(buildPrincipal(1, token));
+
+        // Test & Assertions
+        Assert.assertNull(authTokenCacheServiceImpl.get(token));
+        Assert.assertEquals(0, authTokenCacheServiceImpl.size());
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed_Test() {
+
+        // Setup
+        authTokenCacheServiceImpl.put(buildPrincipal(1, "a"));
+        authTokenCacheServiceImpl.put(buildPrincipal(2, "b"));
+        authTokenCacheServiceImpl.get("a");
+
+        // Test
+        authTokenCacheServiceImpl.put(buildPrincipal(3, "c"));
+
+        // Assertions
+        Assert.assertEquals(2, authTokenCacheServiceImpl.size());
+        Assert.assertNotNull(authTokenCacheServiceImpl.get("a"));
+        Assert.assertNull(authTokenCacheServiceImpl.get("b"));
+        Assert.assertNotNull(authTokenCacheServiceImpl.get("c"));
+    }
+
+    @Test
+    public void invalidate_Test() {
+
+        // Setup
+        authTokenCacheServiceImpl.put(buildPrincipal(1, "a"));
+        authTokenCacheServiceImpl.put(buildPrincipal(2, "b"));
+
+        // Test
+        authTokenCacheServiceImpl.invalidateToken("a");
+        authTokenCacheServiceImpl.invalidateUser(2);
+
+        // Assertions
+        Assert.assertNull(authTokenCacheServiceImpl.get("a"));
+        Assert.assertNull(authTokenCacheServiceImpl.get("b"));
+        Assert.assertEquals(0, authTokenCacheServiceImpl.size());
+    }
+
+    private SmockinPrincipalDTO buildPrincipal(final long userId, final String token) {
+        return new SmockinPrincipalDTO(userId, "ext" + userId, "user" + userId, SmockinUserRoleEnum.REGULAR, token);
+    }
+
+}
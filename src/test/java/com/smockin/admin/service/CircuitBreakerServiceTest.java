@@ -0,0 +1,178 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.response.CircuitBreakerStateDTO;
+import com.smockin.admin.enums.CircuitBreakerStateEnum;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class CircuitBreakerServiceTest {
+
+    private static final String UPSTREAM = "https://upstream:443";
+
+    private CircuitBreakerServiceImpl circuitBreakerServiceImpl;
+
+    @Before
+    public void setUp() {
+
+        circuitBreakerServiceImpl = new CircuitBreakerServiceImpl();
+
+        ReflectionTestUtils.setField(circuitBreakerServiceImpl, "enabled", true);
+        ReflectionTestUtils.setField(circuitBreakerServiceImpl, "windowSize", 4);
+        ReflectionTestUtils.setField(circuitBreakerServiceImpl, "minimumCalls", 4);
+        ReflectionTestUtils.setField(circuitBreakerServiceImpl, "failureRateThreshold", 50f);
+        ReflectionTestUtils.setField(circuitBreakerServiceImpl, "slowCallMillis", 100L);
+        ReflectionTestUtils.setField(circuitBreakerServiceImpl, "slowCallRateThreshold", 75f);
+        ReflectionTestUtils.setField(circuitBreakerServiceImpl, "openMillis", 60000L);
+    }
+
+    @Test
+    public void resolveUpstreamTest() {
+        Assert.assertEquals("https://foo.com:443", circuitBreakerServiceImpl.resolveUpstream("https://foo.com:443/a/b?c=1"));
+        Assert.assertEquals("http://localhost:8001", circuitBreakerServiceImpl.resolveUpstream("http://localhost:8001/a"));
+    }
+
+    @Test
+    public void belowMinimumCalls_staysClosed_Test() {
+
+        // Test
+        recordFailures(3);
+
+        // Assertions
+        Assert.assertNotEquals(CircuitBreakerService.REJECTED, circuitBreakerServiceImpl.allowRequest(UPSTREAM));
+        Assert.assertEquals(CircuitBreakerStateEnum.CLOSED, loadState().getState());
+    }
+
+    @Test
+    public void failureRate_opens_Test() {
+
+        // Setup
+        recordOutcome(true, 1);
+        recordOutcome(true, 1);
+
+        // Test
+        recordFailures(2);
+
+        // Assertions
+        Assert.assertEquals(CircuitBreakerService.REJECTED, circuitBreakerServiceImpl.allowRequest(UPSTREAM));
+
+        final CircuitBreakerStateDTO state = loadState();
+        Assert.assertEquals(CircuitBreakerStateEnum.OPEN, state.getState());
+        Assert.assertEquals(1, state.getRejectedCalls());
+        Assert.assertNotNull(state.getRetryAt());
+    }
+
+    @Test
+    public void slowCallRate_opens_Test() {
+
+        // Test
+        recordOutcome(true, 1);
+        recordOutcome(true, 500);
+        recordOutcome(true, 500);
+        recordOutcome(true, 500);
+
+        // Assertions
+        Assert.assertEquals(CircuitBreakerStateEnum.OPEN, loadState().getState());
+    }
+
+    @Test
+    public void slidingWindow_dropsOldest_Test() {
+
+        // Setup
+        recordFailures(1);
+        recordOutcome(true, 1);
+        recordOutcome(true, 1);
+        recordOutcome(true, 1);
+
+        // Test
+        recordOutcome(true, 1);
+
+        // Assertions
+        Assert.assertEquals(0f, loadState().getFailureRate(), 0f);
+    }
+
+    @Test
+    public void halfOpen_probeSuccess_closes_Test() {
+
+        // Setup
+        ReflectionTestUtils.setField(circuitBreakerServiceImpl, "openMillis", 0L);
+        recordFailures(4);
+
+        // Test
+        final long probe = circuitBreakerServiceImpl.allowRequest(UPSTREAM);
+        Assert.assertNotEquals(CircuitBreakerService.REJECTED, probe);
+        Assert.assertEquals(CircuitBreakerService.REJECTED, circuitBreakerServiceImpl.allowRequest(UPSTREAM)); // only one probe at a time
+        Assert.assertEquals(CircuitBreakerStateEnum.HALF_OPEN, loadState().getState());
+
+        circuitBreakerServiceImpl.recordOutcome(UPSTREAM, probe, true, 1);
+
+        // Assertions
+        Assert.assertEquals(CircuitBreakerStateEnum.CLOSED, loadState().getState());
+        Assert.assertNotEquals(CircuitBreakerService.REJECTED, circuitBreakerServiceImpl.allowRequest(UPSTREAM));
+    }
+
+    @Test
+    public void halfOpen_probeFailure_reopens_Test() {
+
+        // Setup
+        ReflectionTestUtils.setField(circuitBreakerServiceImpl, "openMillis", 0L);
+        recordFailures(4);
+        final long probe = circuitBreakerServiceImpl.allowRequest(UPSTREAM);
+
+        // Test
+        circuitBreakerServiceImpl.recordOutcome(UPSTREAM, probe, false, 1);
+
+        // Assertions
+        Assert.assertEquals(CircuitBreakerStateEnum.OPEN, loadState().getState());
+    }
+
+    @Test
+    public void halfOpen_lateOutcomeIgnored_Test() {
+
+        // Setup
+        ReflectionTestUtils.setField(circuitBreakerServiceImpl, "openMillis", 0L);
+        final long slowCall = circuitBreakerServiceImpl.allowRequest(UPSTREAM);
+        recordFailures(4);
+        final long probe = circuitBreakerServiceImpl.allowRequest(UPSTREAM);
+
+        // Test
+        circuitBreakerServiceImpl.recordOutcome(UPSTREAM, slowCall, true, 1);
+
+        // Assertions
+        Assert.assertEquals(CircuitBreakerStateEnum.HALF_OPEN, loadState().getState());
+        Assert.assertEquals(CircuitBreakerService.REJECTED, circuitBreakerServiceImpl.allowRequest(UPSTREAM));
+
+        circuitBreakerServiceImpl.recordOutcome(UPSTREAM, probe, false, 1);
+        Assert.assertEquals(CircuitBreakerStateEnum.OPEN, loadState().getState());
+    }
+
+    @Test
+    public void disabled_alwaysAllows_Test() {
+
+        // Setup
+        ReflectionTestUtils.setField(circuitBreakerServiceImpl, "enabled", false);
+
+        // Test
+        recordFailures(10);
+
+        // Assertions
+        Assert.assertNotEquals(CircuitBreakerService.REJECTED, circuitBreakerServiceImpl.allowRequest(UPSTREAM));
+        Assert.assertTrue(circuitBreakerServiceImpl.getStates().isEmpty());
+    }
+
+    private void recordFailures(final int count) {
+        for (int i = 0; i < count; i++) {
+            recordOutcome(false, 1);
+        }
+    }
+
+    private void recordOutcome(final boolean success, final long durationMillis) {
+        circuitBreakerServiceImpl.recordOutcome(UPSTREAM, circuitBreakerServiceImpl.allowRequest(UPSTREAM), success, durationMillis);
+    }
+
+    private CircuitBreakerStateDTO loadState() {
+        return circuitBreakerServiceImpl.getStates().get(0);
+    }
+
+}
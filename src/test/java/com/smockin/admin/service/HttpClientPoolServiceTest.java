@@ -0,0 +1,74 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.response.HttpClientPoolStatsDTO;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class HttpClientPoolServiceTest {
+
+    private HttpClientPoolServiceImpl httpClientPoolServiceImpl;
+
+    @Before
+    public void setUp() {
+
+        httpClientPoolServiceImpl = new HttpClientPoolServiceImpl();
+
+        ReflectionTestUtils.setField(httpClientPoolServiceImpl, "maxTotal", 20);
+        ReflectionTestUtils.setField(httpClientPoolServiceImpl, "maxPerRoute", 5);
+        ReflectionTestUtils.setField(httpClientPoolServiceImpl, "connectTimeoutMillis", 1000);
+        ReflectionTestUtils.setField(httpClientPoolServiceImpl, "socketTimeoutMillis", 1000);
+        ReflectionTestUtils.setField(httpClientPoolServiceImpl, "requestTimeoutMillis", 1000);
+        ReflectionTestUtils.setField(httpClientPoolServiceImpl, "keepAliveMillis", 15000L);
+        ReflectionTestUtils.setField(httpClientPoolServiceImpl, "idleEvictMillis", 15000L);
+
+        httpClientPoolServiceImpl.after();
+    }
+
+    @After
+    public void tearDown() {
+        httpClientPoolServiceImpl.destroy();
+    }
+
+    @Test
+    public void getStats_emptyPool_Test() {
+
+        // Test
+        final HttpClientPoolStatsDTO stats = httpClientPoolServiceImpl.getStats();
+
+        // Assertions
+        Assert.assertEquals(20, stats.getMax());
+        Assert.assertEquals(0, stats.getLeased());
+        Assert.assertEquals(0, stats.getPending());
+        Assert.assertEquals(0, stats.getAvailable());
+        Assert.assertTrue(stats.getRoutes().isEmpty());
+    }
+
+    @Test
+    public void keepAliveStrategy_noServerHeader_Test() {
+
+        // Setup
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+
+        // Test & Assertions
+        Assert.assertEquals(15000L, httpClientPoolServiceImpl.buildKeepAliveStrategy().getKeepAliveDuration(response, new BasicHttpContext()));
+    }
+
+    @Test
+    public void keepAliveStrategy_serverHeader_Test() {
+
+        // Setup
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.addHeader("Keep-Alive", "timeout=5");
+
+        // Test & Assertions
+        Assert.assertEquals(5000L, httpClientPoolServiceImpl.buildKeepAliveStrategy().getKeepAliveDuration(response, new BasicHttpContext()));
+    }
+
+}
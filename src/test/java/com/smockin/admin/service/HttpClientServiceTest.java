@@ -1,14 +1,18 @@
 package com.smockin.admin.service;
 
 import com.smockin.admin.dto.HttpClientCallDTO;
+import com.smockin.admin.dto.RecordedExchangeDTO;
+import com.smockin.admin.dto.UpstreamResponseDTO;
 import com.smockin.admin.dto.response.HttpClientResponseDTO;
 import com.smockin.admin.exception.ValidationException;
 import com.smockin.admin.persistence.enums.RestMethodEnum;
+import com.smockin.mockserver.dto.MockServerState;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
+import org.apache.http.client.fluent.Executor;
 import org.apache.http.client.fluent.Request;
 import org.apache.http.client.fluent.Response;
 import org.apache.http.message.BasicHeader;
@@ -20,6 +24,8 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.*;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.HashMap;
@@ -34,6 +40,18 @@ public class HttpClientServiceTest {
     @Mock
     private MockedServerEngineService mockedServerEngineService;
 
+    @Mock
+    private HttpClientPoolService httpClientPoolService;
+
+    @Mock
+    private UpstreamResponseCacheService upstreamResponseCacheService;
+
+    @Mock
+    private UpstreamRecordingService upstreamRecordingService;
+
+    @Mock
+    private Executor executor;
+
     @Mock
     private Request request;
 
@@ -172,7 +190,8 @@ public class HttpClientServiceTest {
             }
         };
 
-        Mockito.when(request.execute()).thenReturn(response);
+        Mockito.when(httpClientPoolService.getExecutor()).thenReturn(executor);
+        Mockito.when(executor.execute(request)).thenReturn(response);
         Mockito.when(response.returnResponse()).thenReturn(httpResponse);
         Mockito.when(httpResponse.getAllHeaders()).thenReturn(new Header[] { new BasicHeader("one", "1") });
 
@@ -197,4 +216,110 @@ public class HttpClientServiceTest {
         Assert.assertEquals("1", result.getHeaders().get("one"));
     }
 
+    @Test
+    public void streamResponseTest() throws IOException {
+
+        // Setup
+        ReflectionTestUtils.setField(httpClientServiceImpl, "streamBufferBytes", 2);
+        final MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        Mockito.when(httpResponse.getStatusLine()).thenReturn(statusLine);
+        Mockito.when(statusLine.getStatusCode()).thenReturn(201);
+        Mockito.when(httpResponse.getAllHeaders()).thenReturn(new Header[] {
+                new BasicHeader("Set-Cookie", "a=1"),
+                new BasicHeader("Set-Cookie", "b=2"),
+                new BasicHeader("transfer-encoding", "chunked") });
+        Mockito.when(httpResponse.getEntity()).thenReturn(httpEntity);
+        Mockito.when(httpEntity.getContent()).thenReturn(IOUtils.toInputStream("Hello", Charset.defaultCharset()));
+
+        // Test
+        final boolean result = httpClientServiceImpl.streamResponse(httpResponse, servletResponse, null);
+
+        // Assertions
+        Assert.assertTrue(result);
+        Assert.assertEquals(201, servletResponse.getStatus());
+        Assert.assertEquals(2, servletResponse.getHeaders("Set-Cookie").size());
+        Assert.assertNull(servletResponse.getHeader("Transfer-Encoding"));
+        Assert.assertEquals("Hello", servletResponse.getContentAsString());
+        Assert.assertTrue(servletResponse.isCommitted());
+    }
+
+    @Test
+    public void handleCall_redirectServedFromCache_Test() throws ValidationException, IOException {
+
+        // Setup
+        ReflectionTestUtils.setField(httpClientServiceImpl, "redirectUrl", "http://upstream:8080/");
+
+        final HttpClientCallDTO dto = new HttpClientCallDTO();
+        dto.setUrl("/hello");
+        dto.setMethod(RestMethodEnum.GET);
+
+        Mockito.when(mockedServerEngineService.getRestServerState()).thenReturn(new MockServerState(true, 8001));
+        Mockito.when(upstreamResponseCacheService.isCacheable(dto)).thenReturn(true);
+        Mockito.when(upstreamResponseCacheService.buildKey(dto)).thenReturn("GET http://upstream:8080/hello");
+        Mockito.when(upstreamResponseCacheService.get(Mockito.eq("GET http://upstream:8080/hello"), Mockito.any()))
+                .thenReturn(new UpstreamResponseDTO(200, new Header[] { new BasicHeader("Content-Type", "text/plain") }, "Foo".getBytes()));
+
+        // Test
+        final HttpClientResponseDTO result = httpClientServiceImpl.handleCall(dto, true);
+
+        // Assertions
+        Assert.assertEquals(200, result.getStatus());
+        Assert.assertEquals("text/plain", result.getContentType());
+        Assert.assertEquals("Foo", result.getBody());
+        Mockito.verify(httpClientPoolService, Mockito.never()).getExecutor();
+    }
+
+    @Test
+    public void isBufferable_Test() {
+
+        // Setup
+        Mockito.when(upstreamResponseCacheService.getMaxEntryBytes()).thenReturn(10L);
+        Mockito.when(httpResponse.getEntity()).thenReturn(httpEntity);
+        Mockito.when(httpEntity.getContentLength()).thenReturn(10L, 11L, -1L);
+
+        // Test & Assertions
+        Assert.assertTrue(httpClientServiceImpl.isBufferable(httpResponse));
+        Assert.assertFalse(httpClientServiceImpl.isBufferable(httpResponse));
+        Assert.assertFalse(httpClientServiceImpl.isBufferable(httpResponse)); // unknown length, e.g. chunked
+    }
+
+    @Test
+    public void recordExchange_sizeAndContentType_Test() {
+
+        // Setup
+        final HttpClientCallDTO dto = new HttpClientCallDTO();
+        dto.setMethod(RestMethodEnum.GET);
+
+        Mockito.when(upstreamRecordingService.getMaxBodyBytes()).thenReturn(5);
+
+        // Test
+        httpClientServiceImpl.recordExchange(dto, "/big", 200, "text/plain", new HashMap<>(), "123456".getBytes());
+        httpClientServiceImpl.recordExchange(dto, "/image", 200, "image/png", new HashMap<>(), new byte[] { (byte) 0x89, 'P', 'N', 'G' });
+        httpClientServiceImpl.recordExchange(dto, "/json", 200, "application/problem+json; charset=UTF-8", new HashMap<>(), "{}".getBytes());
+
+        // Assertions
+        final ArgumentCaptor<RecordedExchangeDTO> recorded = ArgumentCaptor.forClass(RecordedExchangeDTO.class);
+        Mockito.verify(upstreamRecordingService, Mockito.times(1)).record(recorded.capture());
+        Assert.assertEquals("/json", recorded.getValue().getPath());
+    }
+
+    @Test
+    public void streamResponse_NotFound_Test() throws IOException {
+
+        // Setup
+        final MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        Mockito.when(httpResponse.getStatusLine()).thenReturn(statusLine);
+        Mockito.when(statusLine.getStatusCode()).thenReturn(404);
+
+        // Test
+        final boolean result = httpClientServiceImpl.streamResponse(httpResponse, servletResponse, null);
+
+        // Assertions
+        Assert.assertFalse(result);
+        Assert.assertFalse(servletResponse.isCommitted());
+        Assert.assertEquals(0, servletResponse.getContentLength());
+    }
+
 }
@@ -3,9 +3,12 @@ package com.smockin.admin.service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.smockin.admin.dto.*;
 import com.smockin.admin.dto.response.RestfulMockResponseDTO;
+import com.smockin.admin.enums.MockImportKeepStrategyEnum;
 import com.smockin.admin.exception.MockImportException;
 import com.smockin.admin.exception.RecordNotFoundException;
 import com.smockin.admin.exception.ValidationException;
+import com.smockin.admin.persistence.dao.RestfulMockDAO;
+import com.smockin.admin.persistence.entity.RestfulMock;
 import com.smockin.admin.persistence.entity.SmockinUser;
 import com.smockin.admin.persistence.enums.*;
 import com.smockin.admin.service.utils.RestfulMockServiceUtils;
@@ -24,6 +27,8 @@ import org.mockito.*;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -48,6 +53,9 @@ public class MockDefinitionImportExportServiceTest {
     @Mock
     private RestfulMockServiceUtils restfulMockServiceUtils;
 
+    @Mock
+    private RestfulMockDAO restfulMockDAO;
+
 
     @Spy
     @InjectMocks
@@ -190,6 +198,58 @@ public class MockDefinitionImportExportServiceTest {
 
     }
 
+    @Test
+    public void export_streamedRestful_Pass() throws IOException {
+
+        // Setup
+        ReflectionTestUtils.setField(mockDefinitionImportExportService, "exportPageSize", 2);
+
+        final SmockinUser smockinUser = new SmockinUser();
+        smockinUser.setId(1);
+        Mockito.when(userTokenServiceUtils.loadCurrentUser(Mockito.anyString())).thenReturn(smockinUser);
+
+        final List<RestfulMock> mocks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final RestfulMock mock = new RestfulMock();
+            mock.setId(i + 1);
+            mocks.add(mock);
+            Mockito.when(restfulMockServiceUtils.buildRestfulMockDefinitionDTO(mock)).thenReturn(allRestfulMocks.get(i));
+        }
+
+        Mockito.when(restfulMockDAO.findPageByUser(1, Collections.emptyList(), 0, 2)).thenReturn(mocks.subList(0, 2));
+        Mockito.when(restfulMockDAO.findPageByUser(1, Collections.emptyList(), 2, 2)).thenReturn(mocks.subList(2, 3));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Test
+        mockDefinitionImportExportService.export(Collections.emptyList(), "ABC", out);
+
+        // Assertions
+        final File[] files = unpackZipToTempArchive(Base64.getEncoder().encodeToString(out.toByteArray())).listFiles();
+        Assert.assertEquals(1, files.length);
+
+        final List<RestfulMockResponseDTO> restfulMocks = GeneralUtils.deserialiseJson(readFileToString(files[0]), new TypeReference<List<RestfulMockResponseDTO>>() {});
+        Assert.assertEquals(3, restfulMocks.size());
+        Assert.assertEquals(allRestfulMocks.get(0).getExtId(), restfulMocks.get(0).getExtId());
+        Assert.assertEquals(allRestfulMocks.get(2).getExtId(), restfulMocks.get(2).getExtId());
+
+        Mockito.verify(restfulMockDAO, Mockito.times(2)).clear();
+        Mockito.verify(restfulMockService, Mockito.never()).loadAll(Mockito.anyString());
+    }
+
+    @Test(expected = RecordNotFoundException.class)
+    public void export_streamedRestful_unknownSelection_Fail() {
+
+        // Setup
+        final SmockinUser smockinUser = new SmockinUser();
+        smockinUser.setId(1);
+        Mockito.when(userTokenServiceUtils.loadCurrentUser(Mockito.anyString())).thenReturn(smockinUser);
+        Mockito.when(restfulMockDAO.findExtIdsByUser(1, Arrays.asList("a", "b"))).thenReturn(Arrays.asList("a"));
+
+        // Test
+        mockDefinitionImportExportService.export(Arrays.asList("a", "b"), "ABC", new ByteArrayOutputStream());
+    }
+
     @Test
     public void importFile_restful_Pass()
             throws MockImportException, ValidationException, RecordNotFoundException, IOException, URISyntaxException {
@@ -198,11 +258,13 @@ public class MockDefinitionImportExportServiceTest {
         final SmockinUser smockinUser = new SmockinUser();
         smockinUser.setSessionToken(GeneralUtils.generateUUID());
         Mockito.when(userTokenServiceUtils.loadCurrentUser(Mockito.anyString())).thenReturn(smockinUser);
+        Mockito.when(restfulMockServiceUtils.formatInboundPathVarArgs(Mockito.anyString())).thenAnswer(i -> i.getArgument(0));
+        Mockito.when(restfulMockServiceUtils.buildNewRestfulMock(Mockito.any(RestfulMockDTO.class), Mockito.any(SmockinUser.class))).thenAnswer(i -> new RestfulMock());
 
         // Test
         final String result = mockDefinitionImportExportService.importFile(buildMockMultiPartFile("import-export/" + mockDefinitionImportExportService.exportZipFileNamePrefix + "rest" + mockDefinitionImportExportService.exportZipFileNameExt), new MockImportConfigDTO(), "ABC");
 
-        // Assertions (NOTE: smockin_export_rest.zip file contains 5 records)
+        // Assertions (NOTE: smockin_export_rest.zip file contains 5 records, 2 of which are GET /hello, the second overwriting the first)
         Assert.assertNotNull(result);
         Assert.assertThat(result, CoreMatchers.is("Successful Imports:\n\n"
                 + "GET /hello\n"
@@ -210,9 +272,55 @@ public class MockDefinitionImportExportServiceTest {
                 + "GET /ws\n"
                 + "GET /sse\n"
                 + "POST /remotefeed\n"));
+        Mockito.verify(restfulMockServiceUtils, Mockito.times(5)).validateNewEndpoint(Mockito.any(RestfulMockDTO.class));
         Mockito.verify(restfulMockServiceUtils, Mockito.times(5))
                 .preHandleExistingEndpoints(Mockito.any(RestfulMockDTO.class), Mockito.any(MockImportConfigDTO.class), Mockito.any(SmockinUser.class), Mockito.anyString());
-        Mockito.verify(restfulMockService, Mockito.times(5)).createEndpoint(Mockito.any(RestfulMockResponseDTO.class), Mockito.anyString());
+        Mockito.verify(restfulMockDAO, Mockito.times(1)).saveAll(Mockito.argThat(l -> ((List) l).size() == 4));
+        Mockito.verify(restfulMockServiceUtils, Mockito.times(1)).handleEndpointOrdering();
+        Mockito.verify(restfulMockService, Mockito.never()).createEndpoint(Mockito.any(RestfulMockResponseDTO.class), Mockito.anyString());
+    }
+
+    @Test
+    public void importFile_restful_duplicateRenamedNew_Test()
+            throws MockImportException, ValidationException, RecordNotFoundException, IOException, URISyntaxException {
+
+        // Setup
+        final SmockinUser smockinUser = new SmockinUser();
+        smockinUser.setSessionToken(GeneralUtils.generateUUID());
+        Mockito.when(userTokenServiceUtils.loadCurrentUser(Mockito.anyString())).thenReturn(smockinUser);
+        Mockito.when(restfulMockServiceUtils.formatInboundPathVarArgs(Mockito.anyString())).thenAnswer(i -> i.getArgument(0));
+        Mockito.when(restfulMockServiceUtils.buildNewRestfulMock(Mockito.any(RestfulMockDTO.class), Mockito.any(SmockinUser.class))).thenAnswer(i -> new RestfulMock());
+
+        // Test
+        final String result = mockDefinitionImportExportService.importFile(buildMockMultiPartFile("import-export/" + mockDefinitionImportExportService.exportZipFileNamePrefix + "rest" + mockDefinitionImportExportService.exportZipFileNameExt), new MockImportConfigDTO(MockImportKeepStrategyEnum.RENAME_NEW), "ABC");
+
+        // Assertions
+        Assert.assertTrue(result.startsWith("Successful Imports:\n\nGET /hello\nGET /import_"));
+        Assert.assertTrue(result.contains("/hello\nGET /ws\n"));
+        Mockito.verify(restfulMockDAO, Mockito.times(1)).saveAll(Mockito.argThat(l -> ((List) l).size() == 5));
+    }
+
+    @Test
+    public void importFile_restful_invalidRecord_Test()
+            throws MockImportException, ValidationException, RecordNotFoundException, IOException, URISyntaxException {
+
+        // Setup
+        final SmockinUser smockinUser = new SmockinUser();
+        smockinUser.setSessionToken(GeneralUtils.generateUUID());
+        Mockito.when(userTokenServiceUtils.loadCurrentUser(Mockito.anyString())).thenReturn(smockinUser);
+        Mockito.when(restfulMockServiceUtils.formatInboundPathVarArgs(Mockito.anyString())).thenAnswer(i -> i.getArgument(0));
+        Mockito.when(restfulMockServiceUtils.buildNewRestfulMock(Mockito.any(RestfulMockDTO.class), Mockito.any(SmockinUser.class))).thenReturn(new RestfulMock());
+        Mockito.doThrow(new ValidationException("bad"))
+                .when(restfulMockServiceUtils).validateNewEndpoint(Mockito.argThat(dto -> "/ws".equals(dto.getPath())));
+
+        // Test
+        final String result = mockDefinitionImportExportService.importFile(buildMockMultiPartFile("import-export/" + mockDefinitionImportExportService.exportZipFileNamePrefix + "rest" + mockDefinitionImportExportService.exportZipFileNameExt), new MockImportConfigDTO(), "ABC");
+
+        // Assertions
+        Assert.assertTrue(result.contains("Error importing GET /ws (bad)\n"));
+        Assert.assertFalse(result.contains("GET /ws\n"));
+        Mockito.verify(restfulMockDAO, Mockito.times(1)).saveAll(Mockito.argThat(l -> ((List) l).size() == 3));
+        Mockito.verify(restfulMockServiceUtils, Mockito.times(1)).handleEndpointOrdering();
     }
 
     private File unpackZipToTempArchive(final String base64EncodedZipFile) throws IOException {
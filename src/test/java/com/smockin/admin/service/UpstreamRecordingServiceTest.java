@@ -0,0 +1,88 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.RecordedExchangeDTO;
+import com.smockin.admin.dto.RestfulMockDTO;
+import com.smockin.admin.persistence.enums.RestMethodEnum;
+import com.smockin.admin.persistence.enums.RestMockTypeEnum;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class UpstreamRecordingServiceTest {
+
+    private UpstreamRecordingServiceImpl upstreamRecordingServiceImpl;
+
+    @Before
+    public void setUp() {
+
+        upstreamRecordingServiceImpl = new UpstreamRecordingServiceImpl();
+
+        ReflectionTestUtils.setField(upstreamRecordingServiceImpl, "maxDefinitions", 2);
+    }
+
+    @Test
+    public void templatePathTest() {
+        Assert.assertEquals("/users/:id", upstreamRecordingServiceImpl.templatePath("/users/123"));
+        Assert.assertEquals("/users/:id/orders/:id2", upstreamRecordingServiceImpl.templatePath("/users/123/orders/9f1c2d3e-aaaa-bbbb-cccc-0123456789ab"));
+        Assert.assertEquals("/docs/:id", upstreamRecordingServiceImpl.templatePath("/docs/5f2b9c1e8a7d6f4e3b2a1c0d"));
+        Assert.assertEquals("/users/me", upstreamRecordingServiceImpl.templatePath("/users/me"));
+        Assert.assertEquals("/cafebabecafebabe", upstreamRecordingServiceImpl.templatePath("/cafebabecafebabe"));
+        Assert.assertEquals("/", upstreamRecordingServiceImpl.templatePath("/"));
+    }
+
+    @Test
+    public void collapseTest() {
+
+        // Setup
+        final List<RecordedExchangeDTO> exchanges = Arrays.asList(
+                buildExchange(RestMethodEnum.GET, "/users/1?x=y", 200, "{\"id\":1}"),
+                buildExchange(RestMethodEnum.GET, "/users/2", 200, "{\"id\":2}"),
+                buildExchange(RestMethodEnum.GET, "/users/1", 200, "{\"id\":1}"),
+                buildExchange(RestMethodEnum.GET, "/users/3", 200, "{\"id\":3}"),
+                buildExchange(RestMethodEnum.DELETE, "/users/1", 204, ""));
+
+        // Test
+        final List<RestfulMockDTO> result = upstreamRecordingServiceImpl.collapse(exchanges);
+
+        // Assertions
+        Assert.assertEquals(2, result.size());
+
+        final RestfulMockDTO get = result.get(0);
+        Assert.assertEquals("/users/:id", get.getPath());
+        Assert.assertEquals(RestMethodEnum.GET, get.getMethod());
+        Assert.assertEquals(RestMockTypeEnum.SEQ, get.getMockType());
+        Assert.assertEquals(2, get.getDefinitions().size()); // duplicate dropped and capped at maxDefinitions
+        Assert.assertEquals(1, get.getDefinitions().get(0).getOrderNo());
+        Assert.assertEquals("{\"id\":1}", get.getDefinitions().get(0).getResponseBody());
+        Assert.assertEquals(2, get.getDefinitions().get(1).getOrderNo());
+        Assert.assertEquals("{\"id\":2}", get.getDefinitions().get(1).getResponseBody());
+        Assert.assertEquals("bar", get.getDefinitions().get(0).getResponseHeaders().get("X-Foo"));
+
+        Assert.assertEquals(RestMethodEnum.DELETE, result.get(1).getMethod());
+        Assert.assertEquals(204, result.get(1).getDefinitions().get(0).getHttpStatusCode());
+    }
+
+    @Test
+    public void collapse_stripsUserCtxPath_Test() {
+
+        // Setup
+        ReflectionTestUtils.setField(upstreamRecordingServiceImpl, "ownerCtxPath", "bob");
+
+        // Test
+        final List<RestfulMockDTO> result = upstreamRecordingServiceImpl.collapse(Collections.singletonList(
+                buildExchange(RestMethodEnum.GET, "/bob/users/1", 200, "{}")));
+
+        // Assertions
+        Assert.assertEquals("/users/:id", result.get(0).getPath());
+    }
+
+    private RecordedExchangeDTO buildExchange(final RestMethodEnum method, final String path, final int status, final String body) {
+        return new RecordedExchangeDTO(method, path, status, "application/json", Collections.singletonMap("X-Foo", "bar"), body);
+    }
+
+}
@@ -0,0 +1,233 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.HttpClientCallDTO;
+import com.smockin.admin.dto.UpstreamResponseDTO;
+import com.smockin.admin.dto.response.UpstreamResponseCacheStatsDTO;
+import com.smockin.admin.persistence.enums.RestMethodEnum;
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class UpstreamResponseCacheServiceTest {
+
+    private UpstreamResponseCacheServiceImpl upstreamResponseCacheServiceImpl;
+
+    @Before
+    public void setUp() {
+
+        upstreamResponseCacheServiceImpl = new UpstreamResponseCacheServiceImpl();
+
+        ReflectionTestUtils.setField(upstreamResponseCacheServiceImpl, "enabled", true);
+        ReflectionTestUtils.setField(upstreamResponseCacheServiceImpl, "ttlMillis", 60000L);
+        ReflectionTestUtils.setField(upstreamResponseCacheServiceImpl, "maxBytes", 10L);
+        ReflectionTestUtils.setField(upstreamResponseCacheServiceImpl, "maxEntryBytes", 5L);
+        ReflectionTestUtils.setField(upstreamResponseCacheServiceImpl, "varyHeadersConfig", "Accept, Authorization");
+
+        upstreamResponseCacheServiceImpl.after();
+    }
+
+    @Test
+    public void buildKey_varyHeaders_Test() {
+
+        // Setup
+        final HttpClientCallDTO json = buildDTO("application/json");
+        final HttpClientCallDTO xml = buildDTO("application/xml");
+
+        // Test & Assertions
+        Assert.assertEquals(upstreamResponseCacheServiceImpl.buildKey(json), upstreamResponseCacheServiceImpl.buildKey(buildDTO("application/json")));
+        Assert.assertNotEquals(upstreamResponseCacheServiceImpl.buildKey(json), upstreamResponseCacheServiceImpl.buildKey(xml));
+    }
+
+    @Test
+    public void isCacheable_getOnly_Test() {
+
+        // Setup
+        final HttpClientCallDTO post = buildDTO(null);
+        post.setMethod(RestMethodEnum.POST);
+
+        // Test & Assertions
+        Assert.assertTrue(upstreamResponseCacheServiceImpl.isCacheable(buildDTO(null)));
+        Assert.assertFalse(upstreamResponseCacheServiceImpl.isCacheable(post));
+    }
+
+    @Test
+    public void isCacheable_credentials_Test() {
+
+        // Setup
+        final HttpClientCallDTO cookie = buildDTO(null);
+        cookie.getHeaders().put("cookie", "session=1");
+
+        final HttpClientCallDTO authorization = buildDTO(null);
+        authorization.getHeaders().put("authorization", "Bearer 1");
+
+        // Test & Assertions
+        Assert.assertFalse(upstreamResponseCacheServiceImpl.isCacheable(cookie));
+        Assert.assertTrue(upstreamResponseCacheServiceImpl.isCacheable(authorization)); // Authorization is a vary header here
+    }
+
+    @Test
+    public void get_hitAndMiss_Test() throws Exception {
+
+        // Setup
+        final AtomicInteger calls = new AtomicInteger();
+
+        // Test
+        upstreamResponseCacheServiceImpl.get("a", () -> buildResponse(200, "abc", calls));
+        final UpstreamResponseDTO result = upstreamResponseCacheServiceImpl.get("a", () -> buildResponse(200, "xyz", calls));
+
+        // Assertions
+        Assert.assertEquals("abc", new String(result.getBody()));
+        Assert.assertEquals(1, calls.get());
+
+        final UpstreamResponseCacheStatsDTO stats = upstreamResponseCacheServiceImpl.getStats();
+        Assert.assertEquals(1, stats.getHits());
+        Assert.assertEquals(1, stats.getMisses());
+        Assert.assertEquals(1, stats.getEntries());
+        Assert.assertEquals(3, stats.getBytes());
+    }
+
+    @Test
+    public void get_serverErrorNotStored_Test() throws Exception {
+
+        // Setup
+        final AtomicInteger calls = new AtomicInteger();
+
+        // Test
+        upstreamResponseCacheServiceImpl.get("a", () -> buildResponse(503, "", calls));
+        upstreamResponseCacheServiceImpl.get("a", () -> buildResponse(503, "", calls));
+
+        // Assertions
+        Assert.assertEquals(2, calls.get());
+        Assert.assertEquals(0, upstreamResponseCacheServiceImpl.getStats().getEntries());
+    }
+
+    @Test
+    public void get_setCookieNotStored_Test() throws Exception {
+
+        // Setup
+        final AtomicInteger calls = new AtomicInteger();
+
+        // Test
+        upstreamResponseCacheServiceImpl.get("a", () -> {
+            calls.incrementAndGet();
+            return new UpstreamResponseDTO(200, new Header[] { new BasicHeader("Set-Cookie", "session=1") }, "abc".getBytes());
+        });
+        final UpstreamResponseDTO result = upstreamResponseCacheServiceImpl.get("a", () -> null);
+
+        // Assertions
+        Assert.assertEquals(1, calls.get());
+        Assert.assertNull(result);
+        Assert.assertEquals(0, upstreamResponseCacheServiceImpl.getStats().getEntries());
+    }
+
+    @Test
+    public void get_expired_Test() throws Exception {
+
+        // Setup
+        ReflectionTestUtils.setField(upstreamResponseCacheServiceImpl, "ttlMillis", 0L);
+        final AtomicInteger calls = new AtomicInteger();
+
+        // Test
+        upstreamResponseCacheServiceImpl.get("a", () -> buildResponse(200, "abc", calls));
+        upstreamResponseCacheServiceImpl.get("a", () -> buildResponse(200, "abc", calls));
+
+        // Assertions
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void get_lruEviction_Test() throws Exception {
+
+        // Setup
+        final AtomicInteger calls = new AtomicInteger();
+        upstreamResponseCacheServiceImpl.get("a", () -> buildResponse(200, "aaaa", calls));
+        upstreamResponseCacheServiceImpl.get("b", () -> buildResponse(200, "bbbb", calls));
+        upstreamResponseCacheServiceImpl.get("a", () -> buildResponse(200, "aaaa", calls)); // touch 'a', so 'b' is now eldest
+
+        // Test
+        upstreamResponseCacheServiceImpl.get("c", () -> buildResponse(200, "cccc", calls));
+
+        // Assertions
+        Assert.assertNotNull(upstreamResponseCacheServiceImpl.lookup("a"));
+        Assert.assertNull(upstreamResponseCacheServiceImpl.lookup("b"));
+        Assert.assertNotNull(upstreamResponseCacheServiceImpl.lookup("c"));
+        Assert.assertEquals(1, upstreamResponseCacheServiceImpl.getStats().getEvictions());
+        Assert.assertEquals(8, upstreamResponseCacheServiceImpl.getStats().getBytes());
+    }
+
+    @Test
+    public void get_coalesced_Test() throws Exception {
+
+        // Setup
+        final int threads = 5;
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final List<Future<UpstreamResponseDTO>> results = new ArrayList<>();
+
+        // Test
+        try {
+
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> upstreamResponseCacheServiceImpl.get("a", () -> {
+                    release.await(5, TimeUnit.SECONDS);
+                    return buildResponse(200, "abc", calls);
+                })));
+            }
+
+            // Wait for the followers to queue up behind the leader
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (upstreamResponseCacheServiceImpl.getStats().getCoalesced() < (threads - 1)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            release.countDown();
+
+            for (Future<UpstreamResponseDTO> f : results) {
+                Assert.assertEquals("abc", new String(f.get(5, TimeUnit.SECONDS).getBody()));
+            }
+
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Assertions
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(1, upstreamResponseCacheServiceImpl.getStats().getMisses());
+        Assert.assertEquals(threads - 1, upstreamResponseCacheServiceImpl.getStats().getCoalesced());
+    }
+
+    private HttpClientCallDTO buildDTO(final String accept) {
+
+        final HttpClientCallDTO dto = new HttpClientCallDTO();
+        dto.setMethod(RestMethodEnum.GET);
+        dto.setUrl("/foo?bar=1");
+        dto.setHeaders(new HashMap<>());
+
+        if (accept != null) {
+            dto.getHeaders().put("accept", accept);
+        }
+
+        return dto;
+    }
+
+    private UpstreamResponseDTO buildResponse(final int status, final String body, final AtomicInteger calls) {
+        calls.incrementAndGet();
+        return new UpstreamResponseDTO(status, new Header[0], body.getBytes());
+    }
+
+}
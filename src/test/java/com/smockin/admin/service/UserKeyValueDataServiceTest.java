@@ -0,0 +1,247 @@
+package com.smockin.admin.service;
+
+import com.smockin.admin.dto.UserKeyValueDataDTO;
+import com.smockin.admin.dto.response.UserKeyValueDataBulkResultDTO;
+import com.smockin.admin.enums.KvpStreamFormatEnum;
+import com.smockin.admin.exception.ValidationException;
+import com.smockin.admin.persistence.dao.UserKeyValueDataDAO;
+import com.smockin.admin.persistence.entity.SmockinUser;
+import com.smockin.admin.persistence.entity.UserKeyValueData;
+import com.smockin.admin.service.utils.UserTokenServiceUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UserKeyValueDataServiceTest {
+
+    @Mock
+    private UserKeyValueDataDAO userKeyValueDataDAO;
+
+    @Mock
+    private UserTokenServiceUtils userTokenServiceUtils;
+
+    @Spy
+    @InjectMocks
+    private UserKeyValueDataServiceImpl userKeyValueDataServiceImpl = new UserKeyValueDataServiceImpl();
+
+    private SmockinUser user;
+
+    @Before
+    public void setUp() {
+
+        user = new SmockinUser();
+        user.setId(1);
+
+        ReflectionTestUtils.setField(userKeyValueDataServiceImpl, "bulkChunkSize", 500);
+
+        Mockito.when(userKeyValueDataDAO.findAllWithOwner()).thenReturn(Arrays.asList(buildKvp("Greeting", "Hello", user)));
+
+        userKeyValueDataServiceImpl.after();
+    }
+
+    @Test
+    public void loadByKey_loadedAtStartup_Test() {
+
+        // Test & Assertions
+        Assert.assertEquals("Hello", userKeyValueDataServiceImpl.loadByKey("greeting", 1).getValue());
+        Assert.assertEquals("Hello", userKeyValueDataServiceImpl.loadByKey("GREETING", 1).getValue());
+        Assert.assertNull(userKeyValueDataServiceImpl.loadByKey("greeting", 2));
+        Assert.assertNull(userKeyValueDataServiceImpl.loadByKey("farewell", 1));
+        Assert.assertNull(userKeyValueDataServiceImpl.loadByKey(null, 1));
+        Mockito.verify(userKeyValueDataDAO, Mockito.never()).findByKey(Mockito.anyString(), Mockito.anyLong());
+    }
+
+    @Test
+    public void save_writesThrough_Test() throws ValidationException {
+
+        // Setup
+        Mockito.when(userTokenServiceUtils.loadCurrentUser("abc")).thenReturn(user);
+
+        // Test
+        userKeyValueDataServiceImpl.save(Arrays.asList(new UserKeyValueDataDTO(null, "Farewell", "Bye")), "abc");
+
+        // Assertions
+        Assert.assertEquals("Bye", userKeyValueDataServiceImpl.loadByKey("farewell", 1).getValue());
+        Mockito.verify(userKeyValueDataDAO).saveAndFlush(Mockito.any(UserKeyValueData.class));
+    }
+
+    @Test
+    public void save_appliedToStoreOnCommit_Test() throws ValidationException {
+
+        // Setup
+        Mockito.when(userTokenServiceUtils.loadCurrentUser("abc")).thenReturn(user);
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+
+            // Test
+            userKeyValueDataServiceImpl.save(Arrays.asList(new UserKeyValueDataDTO(null, "Farewell", "Bye")), "abc");
+
+            // Assertions
+            Assert.assertNull(userKeyValueDataServiceImpl.loadByKey("farewell", 1));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            Assert.assertEquals("Bye", userKeyValueDataServiceImpl.loadByKey("farewell", 1).getValue());
+
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void save_keyInUseIgnoringCase_Test() {
+
+        // Setup
+        Mockito.when(userTokenServiceUtils.loadCurrentUser("abc")).thenReturn(user);
+        Mockito.when(userKeyValueDataDAO.findByKey("GREETING", 1)).thenReturn(buildKvp("Greeting", "Hello", user));
+
+        // Test
+        try {
+            userKeyValueDataServiceImpl.save(Arrays.asList(new UserKeyValueDataDTO(null, "GREETING", "Hi")), "abc");
+            Assert.fail("Expected ValidationException");
+        } catch (ValidationException ex) {
+            Assert.assertEquals("The key 'GREETING' is already in use", ex.getMessage());
+        }
+
+        // Assertions
+        Mockito.verify(userKeyValueDataDAO, Mockito.never()).saveAndFlush(Mockito.any(UserKeyValueData.class));
+        Assert.assertEquals("Hello", userKeyValueDataServiceImpl.loadByKey("greeting", 1).getValue());
+    }
+
+    @Test
+    public void update_renamedKey_Test() throws ValidationException {
+
+        // Setup
+        final UserKeyValueData kvp = buildKvp("Greeting", "Hello", user);
+        Mockito.when(userKeyValueDataDAO.findByExtId("ext1")).thenReturn(kvp);
+
+        // Test
+        userKeyValueDataServiceImpl.update("ext1", new UserKeyValueDataDTO("ext1", "Salutation", "Hi"), "abc");
+
+        // Assertions
+        Assert.assertNull(userKeyValueDataServiceImpl.loadByKey("greeting", 1));
+        Assert.assertEquals("Hi", userKeyValueDataServiceImpl.loadByKey("salutation", 1).getValue());
+    }
+
+    @Test
+    public void delete_removesKey_Test() throws ValidationException {
+
+        // Setup
+        final UserKeyValueData kvp = buildKvp("Greeting", "Hello", user);
+        Mockito.when(userKeyValueDataDAO.findByExtId("ext1")).thenReturn(kvp);
+
+        // Test
+        userKeyValueDataServiceImpl.delete("ext1", "abc");
+
+        // Assertions
+        Assert.assertNull(userKeyValueDataServiceImpl.loadByKey("greeting", 1));
+        Mockito.verify(userKeyValueDataDAO).delete(kvp);
+    }
+
+    @Test
+    public void bulkUpsert_csvInChunks_Test() throws ValidationException, IOException {
+
+        // Setup
+        ReflectionTestUtils.setField(userKeyValueDataServiceImpl, "bulkChunkSize", 2);
+        Mockito.when(userTokenServiceUtils.loadCurrentUser("abc")).thenReturn(user);
+
+        final UserKeyValueData existing = buildKvp("Greeting", "Hello", user);
+        Mockito.when(userKeyValueDataDAO.findAllByLowerCaseKeys(Mockito.eq(1L), Mockito.anyCollection()))
+                .thenAnswer(i -> ((Collection<String>) i.getArgument(1)).contains("greeting")
+                        ? Arrays.asList(existing)
+                        : Collections.emptyList());
+
+        final String csv = "key,value\n"
+                + "GREETING,\"Hi, there\"\n"
+                + "farewell,Bye\n"
+                + "thanks,Cheers\n";
+
+        // Test
+        final UserKeyValueDataBulkResultDTO result = userKeyValueDataServiceImpl.bulkUpsert(toStream(csv), KvpStreamFormatEnum.CSV, "abc");
+
+        // Assertions
+        Assert.assertEquals(2, result.getCreated());
+        Assert.assertEquals(1, result.getUpdated());
+        Assert.assertEquals("GREETING", existing.getKey());
+        Assert.assertEquals("Hi, there", userKeyValueDataServiceImpl.loadByKey("greeting", 1).getValue());
+        Assert.assertEquals("Bye", userKeyValueDataServiceImpl.loadByKey("farewell", 1).getValue());
+        Assert.assertEquals("Cheers", userKeyValueDataServiceImpl.loadByKey("thanks", 1).getValue());
+        Mockito.verify(userKeyValueDataDAO, Mockito.times(2)).saveAll(Mockito.anyList());
+        Mockito.verify(userKeyValueDataDAO, Mockito.times(2)).clear();
+    }
+
+    @Test
+    public void bulkUpsert_invalidRecord_Test() throws IOException {
+
+        // Setup
+        Mockito.when(userTokenServiceUtils.loadCurrentUser("abc")).thenReturn(user);
+
+        final String ndjson = "{\"key\":\"farewell\",\"value\":\"Bye\"}\n"
+                + "{\"value\":\"No key\"}\n";
+
+        // Test
+        try {
+            userKeyValueDataServiceImpl.bulkUpsert(toStream(ndjson), KvpStreamFormatEnum.NDJSON, "abc");
+            Assert.fail("Expected ValidationException");
+        } catch (ValidationException ex) {
+            Assert.assertEquals("Invalid record at line 2, key must be between 1 and 50 characters", ex.getMessage());
+        }
+
+        // Assertions
+        Mockito.verify(userKeyValueDataDAO, Mockito.never()).saveAll(Mockito.anyList());
+        Assert.assertNull(userKeyValueDataServiceImpl.loadByKey("farewell", 1));
+    }
+
+    @Test
+    public void bulkDelete_ndjson_Test() throws ValidationException, IOException {
+
+        // Setup
+        Mockito.when(userTokenServiceUtils.loadCurrentUser("abc")).thenReturn(user);
+        Mockito.when(userKeyValueDataDAO.deleteAllByLowerCaseKeys(Mockito.eq(1L), Mockito.anyCollection())).thenReturn(1);
+
+        final String ndjson = "{\"key\":\"Greeting\"}\n{\"key\":\"unknown\"}\n";
+
+        // Test
+        final UserKeyValueDataBulkResultDTO result = userKeyValueDataServiceImpl.bulkDelete(toStream(ndjson), KvpStreamFormatEnum.NDJSON, "abc");
+
+        // Assertions
+        Assert.assertEquals(1, result.getDeleted());
+        Assert.assertNull(userKeyValueDataServiceImpl.loadByKey("greeting", 1));
+        Mockito.verify(userKeyValueDataDAO).deleteAllByLowerCaseKeys(1L, new HashSet<>(Arrays.asList("greeting", "unknown")));
+    }
+
+    private InputStream toStream(final String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private UserKeyValueData buildKvp(final String key, final String value, final SmockinUser owner) {
+
+        final UserKeyValueData kvp = new UserKeyValueData();
+        kvp.setKey(key);
+        kvp.setValue(value);
+        kvp.setCreatedBy(owner);
+
+        return kvp;
+    }
+
+}
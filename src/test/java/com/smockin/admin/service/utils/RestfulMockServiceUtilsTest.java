@@ -1,16 +1,31 @@
 package com.smockin.admin.service.utils;
 
+import com.smockin.admin.dto.CustomJsBudgetDTO;
+import com.smockin.admin.dto.CustomJsMemoDTO;
 import com.smockin.admin.dto.RestfulMockDTO;
+import com.smockin.admin.dto.StatefulQuotaDTO;
+import com.smockin.SmockinTestUtils;
 import com.smockin.admin.persistence.dao.RestfulMockDAO;
+import com.smockin.admin.persistence.entity.RestfulMock;
+import com.smockin.admin.persistence.entity.RestfulMockJavaScriptHandler;
+import com.smockin.admin.persistence.entity.SmockinUser;
+import com.smockin.admin.persistence.enums.RecordStatusEnum;
+import com.smockin.admin.persistence.enums.RestMethodEnum;
+import com.smockin.admin.persistence.enums.RestMockTypeEnum;
+import com.smockin.admin.persistence.enums.SmockinUserRoleEnum;
+import com.smockin.admin.exception.ValidationException;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.Arrays;
+
 /**
  * Created by mgallina.
  */
@@ -62,4 +77,128 @@ public class RestfulMockServiceUtilsTest {
 
     }
 
+    @Test
+    public void applyFullPath_SysAdmin_Test() {
+
+        // Setup
+        final RestfulMock mock = SmockinTestUtils.buildRestfulMock("/api/users/{id}", RestMockTypeEnum.SEQ, 1, RestMethodEnum.GET, RecordStatusEnum.ACTIVE, SmockinTestUtils.buildSmockinUser());
+
+        // Test
+        utils.applyFullPath(mock);
+
+        // Assertions
+        Assert.assertEquals("/api/users/{id}", mock.getFullPath());
+        Assert.assertEquals("api", mock.getFirstSegment());
+
+    }
+
+    @Test
+    public void applyFullPath_RegularUser_Test() {
+
+        // Setup
+        final SmockinUser user = SmockinTestUtils.buildSmockinUser();
+        user.setRole(SmockinUserRoleEnum.REGULAR);
+        user.setCtxPath("bob");
+
+        final RestfulMock mock = SmockinTestUtils.buildRestfulMock("/api/users", RestMockTypeEnum.SEQ, 1, RestMethodEnum.GET, RecordStatusEnum.ACTIVE, user);
+
+        // Test
+        utils.applyFullPath(mock);
+
+        // Assertions
+        Assert.assertEquals("/bob/api/users", mock.getFullPath());
+        Assert.assertEquals("bob", mock.getFirstSegment());
+
+    }
+
+    @Test
+    public void applyFullPath_PathVarFirstSegment_Test() {
+
+        // Setup
+        final RestfulMock mock = SmockinTestUtils.buildRestfulMock("/{tenant}/users", RestMockTypeEnum.SEQ, 1, RestMethodEnum.GET, RecordStatusEnum.ACTIVE, SmockinTestUtils.buildSmockinUser());
+
+        // Test
+        utils.applyFullPath(mock);
+
+        // Assertions
+        Assert.assertEquals("*", mock.getFirstSegment());
+
+    }
+
+    @Test
+    public void syncMissingFullPaths_Test() {
+
+        // Setup
+        final RestfulMock mock = SmockinTestUtils.buildRestfulMock("/api/users", RestMockTypeEnum.SEQ, 1, RestMethodEnum.GET, RecordStatusEnum.ACTIVE, SmockinTestUtils.buildSmockinUser());
+        mock.setFullPath(null);
+        mock.setFirstSegment(null);
+
+        Mockito.when(restfulMockDefinitionDAO.findAllWithoutFirstSegment()).thenReturn(Arrays.asList(mock));
+
+        // Test
+        final int synced = utils.syncMissingFullPaths();
+
+        // Assertions
+        Assert.assertEquals(1, synced);
+        Assert.assertEquals("/api/users", mock.getFullPath());
+        Assert.assertEquals("api", mock.getFirstSegment());
+        Mockito.verify(restfulMockDefinitionDAO).saveAll(Arrays.asList(mock));
+
+    }
+
+    @Test
+    public void applyCustomJsMemo_Test() throws ValidationException {
+
+        // Setup
+        final RestfulMockJavaScriptHandler javaScriptHandler = new RestfulMockJavaScriptHandler();
+
+        // Test
+        utils.applyCustomJsMemo(new CustomJsMemoDTO(Arrays.asList("path", " headers.X-Tenant ", "pathVars.id"), 5000), javaScriptHandler);
+
+        // Assertions
+        Assert.assertEquals("path,headers.X-Tenant,pathVars.id", javaScriptHandler.getMemoKeyInputs());
+        Assert.assertEquals(5000, javaScriptHandler.getMemoTtlMillis());
+
+    }
+
+    @Test(expected = ValidationException.class)
+    public void applyCustomJsMemo_InvalidKeyInput_Test() throws ValidationException {
+
+        utils.applyCustomJsMemo(new CustomJsMemoDTO(Arrays.asList("path", "cookies.session"), 0), new RestfulMockJavaScriptHandler());
+    }
+
+    @Test(expected = ValidationException.class)
+    public void applyCustomJsBudget_Negative_Test() throws ValidationException {
+
+        utils.applyCustomJsBudget(new CustomJsBudgetDTO(1000, -1), new RestfulMockJavaScriptHandler());
+    }
+
+    @Test
+    public void buildNewRestfulMock_statefulNotSaved_Test() throws ValidationException {
+
+        // Setup
+        dto.setPath("/users");
+        dto.setMethod(RestMethodEnum.POST);
+        dto.setStatus(RecordStatusEnum.ACTIVE);
+        dto.setMockType(RestMockTypeEnum.STATEFUL);
+        dto.setStatefulIdFieldName("id");
+        dto.setStatefulDefaultResponseBody("[]");
+
+        // Test
+        final RestfulMock mock = utils.buildNewRestfulMock(dto, SmockinTestUtils.buildSmockinUser());
+
+        // Assertions
+        Assert.assertEquals(RestMethodEnum.GET, mock.getMethod());
+        Assert.assertEquals(RestMethodEnum.values().length, mock.getStatefulChildren().size());
+        Assert.assertTrue(mock.getStatefulChildren().stream().allMatch(c -> c.getStatefulParent() == mock));
+        Assert.assertEquals("/users", dto.getPath());
+        Mockito.verifyNoInteractions(restfulMockDefinitionDAO);
+    }
+
+    @Test(expected = ValidationException.class)
+    public void validateStatefulQuota_Negative_Test() throws ValidationException {
+
+        utils.validateStatefulQuota(new StatefulQuotaDTO(100, -1));
+    }
+
 }
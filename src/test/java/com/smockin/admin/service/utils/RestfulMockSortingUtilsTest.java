@@ -109,4 +109,88 @@ public class RestfulMockSortingUtilsTest {
 
     }
 
+    @Test
+    public void orderPaths_AssignsGappedOrders_Test() {
+
+        // Setup
+        final List<RestfulMock> mockList = new ArrayList<RestfulMock>() {
+            {
+                add(buildMock("/b", 0));
+                add(buildMock("/a", 0));
+                add(buildMock("/c", 0));
+            }
+        };
+
+        // Test
+        final List<RestfulMock> changed = utils.autoOrderEndpointPaths(mockList);
+
+        // Assertions
+        Assert.assertEquals(3, changed.size());
+        Assert.assertEquals(RestfulMockSortingUtils.ORDER_GAP, mockList.get(0).getInitializationOrder());
+        Assert.assertEquals(RestfulMockSortingUtils.ORDER_GAP * 2, mockList.get(1).getInitializationOrder());
+        Assert.assertEquals(RestfulMockSortingUtils.ORDER_GAP * 3, mockList.get(2).getInitializationOrder());
+
+    }
+
+    @Test
+    public void orderPaths_NewMockSlotsIntoGap_Test() {
+
+        // Setup
+        final RestfulMock newMock = buildMock("/b", 0);
+
+        final List<RestfulMock> mockList = new ArrayList<RestfulMock>() {
+            {
+                add(buildMock("/a", 1000));
+                add(buildMock("/c", 2000));
+                add(newMock);
+                add(buildMock("/d", 3000));
+            }
+        };
+
+        // Test
+        final List<RestfulMock> changed = utils.autoOrderEndpointPaths(mockList);
+
+        // Assertions
+        Assert.assertEquals(1, changed.size());
+        Assert.assertSame(newMock, changed.get(0));
+        Assert.assertEquals("/b", mockList.get(1).getPath());
+        Assert.assertEquals(1500, newMock.getInitializationOrder());
+        Assert.assertEquals(1000, mockList.get(0).getInitializationOrder());
+        Assert.assertEquals(2000, mockList.get(2).getInitializationOrder());
+        Assert.assertEquals(3000, mockList.get(3).getInitializationOrder());
+
+    }
+
+    @Test
+    public void orderPaths_RenumbersWhenNoGap_Test() {
+
+        // Setup
+        final List<RestfulMock> mockList = new ArrayList<RestfulMock>() {
+            {
+                add(buildMock("/a", 1));
+                add(buildMock("/c", 2));
+                add(buildMock("/b", 0));
+            }
+        };
+
+        // Test
+        final List<RestfulMock> changed = utils.autoOrderEndpointPaths(mockList);
+
+        // Assertions
+        Assert.assertEquals(3, changed.size());
+        Assert.assertEquals("/a", mockList.get(0).getPath());
+        Assert.assertEquals("/b", mockList.get(1).getPath());
+        Assert.assertEquals("/c", mockList.get(2).getPath());
+        Assert.assertEquals(RestfulMockSortingUtils.ORDER_GAP, mockList.get(0).getInitializationOrder());
+        Assert.assertEquals(RestfulMockSortingUtils.ORDER_GAP * 2, mockList.get(1).getInitializationOrder());
+        Assert.assertEquals(RestfulMockSortingUtils.ORDER_GAP * 3, mockList.get(2).getInitializationOrder());
+
+    }
+
+    private RestfulMock buildMock(final String path, final int initOrder) {
+        final RestfulMock mock = new RestfulMock(path, RestMethodEnum.GET, RecordStatusEnum.ACTIVE, RestMockTypeEnum.SEQ, 0, 0, 0, false, false, false, null, false, 0, 0, null);
+        mock.setInitializationOrder(initOrder);
+        return mock;
+    }
+
 }
@@ -0,0 +1,63 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.utils.GeneralUtils;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class CompactStatefulRecordTest {
+
+    private static final String JSON = "{\"id\":\"1\",\"name\":\"Bob\",\"tags\":[\"a\",\"b\"]}";
+
+    @Test
+    public void of_readAndSerialise_Test() {
+
+        // Setup
+        final Map<String, Object> record = GeneralUtils.deserialiseJson(JSON);
+
+        // Test
+        final Map<String, Object> compact = CompactStatefulRecord.of(record, "id");
+
+        // Assertions
+        Assert.assertTrue(compact instanceof CompactStatefulRecord);
+        Assert.assertEquals("1", compact.get("id"));
+        Assert.assertEquals("Bob", compact.get("name"));
+        Assert.assertEquals(Arrays.asList("a", "b"), compact.get("tags"));
+        Assert.assertEquals(record, compact);
+        Assert.assertEquals(JSON, GeneralUtils.serialiseJson(compact));
+        Assert.assertEquals("[" + JSON + "," + JSON + "]", GeneralUtils.serialiseJson(Arrays.asList(compact, compact)));
+        Assert.assertSame(compact, CompactStatefulRecord.of(compact, "id"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void put_readOnly_Test() {
+
+        CompactStatefulRecord.of(GeneralUtils.deserialiseJson(JSON), "id").put("name", "Robert");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void decode_modifiableCopy_Test() {
+
+        // Setup
+        final CompactStatefulRecord compact = (CompactStatefulRecord) CompactStatefulRecord.of(GeneralUtils.deserialiseJson(JSON), null);
+
+        // Test
+        final Map<String, Object> decoded = compact.decode();
+        decoded.put("name", "Robert");
+        ((List<Object>) decoded.get("tags")).clear();
+
+        // Assertions
+        Assert.assertEquals("Bob", compact.get("name"));
+        Assert.assertEquals(2, ((List<?>) compact.get("tags")).size());
+        Assert.assertEquals("1", compact.get("id"));
+        Assert.assertEquals(Collections.singletonList(compact), SerializationUtils.clone((Serializable) Collections.singletonList(compact)));
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.smockin.mockserver.service;
+
+import jdk.nashorn.api.scripting.NashornScriptEngineFactory;
+
+import javax.script.ScriptException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the JavaScript engines available to CUSTOM_JS mocks, evaluating the same wrapped
+ * handleResponse script the mock server runs.
+ *
+ * This is not run as part of the test suite. Run its main method with the test classpath, passing the names of any
+ * further JSR-223 engines to compare (e.g. 'graal.js', with the GraalJS jars added to the classpath).
+ */
+public class JavaScriptEngineBenchmark {
+
+    private static final int WARM_UP_ITERATIONS = 200;
+    private static final int MEASURED_ITERATIONS = 1000;
+
+    private static final String SCRIPT =
+            JavaScriptResponseHandler.defaultRequestObject
+            + " request.path='/hello/bob'; request.pathVars['name']='bob'; request.headers['accept']='application/json';"
+            + JavaScriptResponseHandler.defaultKeyValuePairStoreObject
+            + JavaScriptResponseHandler.keyValuePairFindFunc
+            + JavaScriptResponseHandler.defaultResponseObject
+            + JavaScriptResponseHandler.userResponseFunctionInvoker
+            + "function handleResponse(request, response) {"
+            + " var items = [];"
+            + " for (var i=0; i < 50; i++) { items.push({ id : i, name : request.pathVars.name + i }); }"
+            + " response.body = JSON.stringify(items);"
+            + " response.status = 200;"
+            + " response.contentType = 'application/json';"
+            + " return response;"
+            + "}";
+
+    public static void main(final String[] args) throws ScriptException {
+
+        final JavaScriptEngineServiceImpl javaScriptEngineService = new JavaScriptEngineServiceImpl();
+        final List<JavaScriptEngine> engines = new ArrayList<>();
+
+        // How CUSTOM_JS scripts were run before engines were pooled
+        engines.add(new JavaScriptEngine() {
+
+            @Override
+            public String getName() {
+                return "nashorn (new engine per evaluation)";
+            }
+
+            @Override
+            public Object eval(final String js) throws ScriptException {
+                return new NashornScriptEngineFactory().getScriptEngine(JavaScriptResponseHandler.engineSecurityArgs).eval(js);
+            }
+
+        });
+
+        engines.add(javaScriptEngineService.buildEngine(JavaScriptEngineServiceImpl.NASHORN));
+
+        for (String name : args) {
+            engines.add(javaScriptEngineService.buildEngine(name));
+        }
+
+        for (JavaScriptEngine engine : engines) {
+
+            for (int i=0; i < WARM_UP_ITERATIONS; i++) {
+                engine.eval(SCRIPT);
+            }
+
+            final long start = System.nanoTime();
+
+            for (int i=0; i < MEASURED_ITERATIONS; i++) {
+                engine.eval(SCRIPT);
+            }
+
+            final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            System.out.println(String.format("%-40s %8.1f ops/s", engine.getName(), MEASURED_ITERATIONS * 1000.0 / Math.max(1, elapsedMillis)));
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.mockserver.exception.MockServerException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+import java.io.Reader;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class JavaScriptEngineServiceTest {
+
+    private JavaScriptEngineServiceImpl javaScriptEngineServiceImpl;
+
+    @Before
+    public void setUp() {
+
+        javaScriptEngineServiceImpl = new JavaScriptEngineServiceImpl();
+
+        ReflectionTestUtils.setField(javaScriptEngineServiceImpl, "poolSize", 2);
+    }
+
+    @Test
+    public void buildEngine_nashorn_Test() throws ScriptException {
+
+        // Setup
+        final JavaScriptEngine engine = javaScriptEngineServiceImpl.buildEngine("nashorn");
+
+        // Test
+        final Object response = engine.eval("var leaked = 'x'; var response = { status : 201, headers : { a : 'aa' } }; response;");
+        final Object leaked = engine.eval("typeof leaked");
+
+        // Assertions
+        Assert.assertEquals("nashorn", engine.getName());
+        Assert.assertTrue(response instanceof Map);
+        Assert.assertEquals(201, ((Number) ((Map<?, ?>) response).get("status")).intValue());
+        Assert.assertEquals("undefined", leaked);
+        Assert.assertEquals(1, ((PooledJavaScriptEngine) engine).getIdleCount());
+    }
+
+    @Test
+    public void buildEngine_nashornHasNoJavaAccess_Test() {
+
+        // Setup
+        final JavaScriptEngine engine = javaScriptEngineServiceImpl.buildEngine("nashorn");
+
+        // Test
+        try {
+            engine.eval("java.lang.System.exit(1);");
+            Assert.fail("Expected ScriptException");
+        } catch (ScriptException ex) {
+
+            // Assertions
+            Assert.assertEquals("ReferenceError: \"java\" is not defined in <eval> at line number 1", ex.getMessage());
+            Assert.assertEquals(1, ((PooledJavaScriptEngine) engine).getIdleCount());
+        }
+    }
+
+    @Test
+    public void cancel_polyglotContextClosed_Test() throws InterruptedException {
+
+        // Setup
+        final FakePolyglotScriptEngine scriptEngine = new FakePolyglotScriptEngine();
+        final PooledJavaScriptEngine engine = new PooledJavaScriptEngine("fake", () -> scriptEngine, 2);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        final Thread worker = new Thread(() -> {
+            try {
+                engine.eval("while (true) {}");
+            } catch (ScriptException ex) {
+                failure.set(ex);
+            }
+        });
+
+        worker.start();
+        Assert.assertTrue(scriptEngine.running.await(5, TimeUnit.SECONDS));
+
+        // Test
+        final boolean cancelled = engine.cancel(worker);
+        worker.join(5000);
+
+        // Assertions
+        Assert.assertTrue(cancelled);
+        Assert.assertEquals("Context closed", failure.get().getMessage());
+        Assert.assertEquals(0, engine.getIdleCount());
+        Assert.assertFalse(engine.cancel(worker));
+    }
+
+    @Test
+    public void cancel_nashornUnsupported_Test() throws ScriptException {
+
+        // Setup
+        final JavaScriptEngine engine = javaScriptEngineServiceImpl.buildEngine("nashorn");
+
+        // Test & Assertions
+        Assert.assertFalse(engine.cancel(Thread.currentThread()));
+    }
+
+    @Test(expected = MockServerException.class)
+    public void buildEngine_unknownEngine_Test() {
+
+        javaScriptEngineServiceImpl.buildEngine("no-such-engine");
+    }
+
+    /**
+     * Mimics the GraalJS script engine, whose evaluations can be cut short by closing its polyglot context.
+     */
+    public static final class FakePolyglotScriptEngine extends AbstractScriptEngine {
+
+        private final CountDownLatch running = new CountDownLatch(1);
+        private final FakePolyglotContext context = new FakePolyglotContext();
+
+        public FakePolyglotContext getPolyglotContext() {
+            return context;
+        }
+
+        @Override
+        public Object eval(final String script, final ScriptContext scriptContext) throws ScriptException {
+
+            running.countDown();
+
+            try {
+                context.closed.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            throw new ScriptException("Context closed");
+        }
+
+        @Override
+        public Object eval(final Reader reader, final ScriptContext scriptContext) throws ScriptException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Bindings createBindings() {
+            return new SimpleBindings();
+        }
+
+        @Override
+        public ScriptEngineFactory getFactory() {
+            return null;
+        }
+
+    }
+
+    public static final class FakePolyglotContext {
+
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        public void close(final boolean cancelIfExecuting) {
+            closed.countDown();
+        }
+
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.admin.dto.response.JavaScriptExecutionStatsDTO;
+import com.smockin.mockserver.exception.JavaScriptBudgetExceededException;
+import com.smockin.mockserver.exception.JavaScriptBusyException;
+import jdk.nashorn.api.scripting.NashornScriptEngineFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.script.ScriptException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class JavaScriptExecutionServiceTest {
+
+    private JavaScriptExecutionServiceImpl javaScriptExecutionServiceImpl;
+
+    @Before
+    public void setUp() {
+
+        javaScriptExecutionServiceImpl = new JavaScriptExecutionServiceImpl();
+
+        ReflectionTestUtils.setField(javaScriptExecutionServiceImpl, "poolSize", 1);
+        ReflectionTestUtils.setField(javaScriptExecutionServiceImpl, "queueSize", 1);
+        ReflectionTestUtils.setField(javaScriptExecutionServiceImpl, "queueTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(javaScriptExecutionServiceImpl, "defaultTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(javaScriptExecutionServiceImpl, "defaultCpuTimeMillis", 5000L);
+        ReflectionTestUtils.setField(javaScriptExecutionServiceImpl, "stopGraceMillis", 50L);
+
+        javaScriptExecutionServiceImpl.after();
+    }
+
+    @After
+    public void tearDown() {
+        javaScriptExecutionServiceImpl.destroy();
+    }
+
+    @Test
+    public void execute_Test() throws Exception {
+
+        // Test
+        final Object result = javaScriptExecutionServiceImpl.execute("mock1", 0, 0, () -> eval("1 + 2"));
+
+        // Assertions
+        Assert.assertEquals(3, ((Number) result).intValue());
+
+        final JavaScriptExecutionStatsDTO stats = javaScriptExecutionServiceImpl.getStats("mock1");
+        Assert.assertEquals(1, stats.getExecutions());
+        Assert.assertEquals(0, stats.getTimeouts());
+        Assert.assertEquals(0, stats.getRejections());
+    }
+
+    @Test(expected = ScriptException.class)
+    public void execute_scriptError_Test() throws Exception {
+
+        javaScriptExecutionServiceImpl.execute("mock1", 0, 0, () -> eval("this is not javascript"));
+    }
+
+    @Test
+    public void execute_runawayScriptStopped_Test() throws Exception {
+
+        // Test
+        try {
+            javaScriptExecutionServiceImpl.execute("mock1", 100, 0, () -> eval("while (true) {}"));
+            Assert.fail("Expected JavaScriptBudgetExceededException");
+        } catch (JavaScriptBudgetExceededException ex) {
+            Assert.assertEquals("Script exceeded its 100ms time limit", ex.getMessage());
+        }
+
+        // Assertions (the single worker is freed up again once the runaway script has been stopped)
+        Assert.assertEquals("done", javaScriptExecutionServiceImpl.execute("mock2", 0, 0, () -> eval("'done'")));
+        Assert.assertEquals(1, javaScriptExecutionServiceImpl.getStats("mock1").getTimeouts());
+        Assert.assertEquals(1, javaScriptExecutionServiceImpl.getStats().getExecutions());
+    }
+
+    @Test
+    public void execute_unstoppableScriptWorkerReplaced_Test() throws Exception {
+
+        // Setup (as on JDK 20+, where Thread.stop() is not supported)
+        javaScriptExecutionServiceImpl.destroy();
+        javaScriptExecutionServiceImpl = new JavaScriptExecutionServiceImpl() {
+            @Override
+            void stopThread(final Thread thread) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        ReflectionTestUtils.setField(javaScriptExecutionServiceImpl, "poolSize", 1);
+        ReflectionTestUtils.setField(javaScriptExecutionServiceImpl, "queueSize", 1);
+        ReflectionTestUtils.setField(javaScriptExecutionServiceImpl, "queueTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(javaScriptExecutionServiceImpl, "defaultTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(javaScriptExecutionServiceImpl, "defaultCpuTimeMillis", 5000L);
+        ReflectionTestUtils.setField(javaScriptExecutionServiceImpl, "stopGraceMillis", 50L);
+        javaScriptExecutionServiceImpl.after();
+
+        final AtomicBoolean release = new AtomicBoolean();
+
+        try {
+
+            // Test
+            try {
+                javaScriptExecutionServiceImpl.execute("mock1", 100, 0, () -> {
+                    while (!release.get()) {
+                        // Ignores interrupts, as a runaway script does
+                    }
+                    return null;
+                });
+                Assert.fail("Expected JavaScriptBudgetExceededException");
+            } catch (JavaScriptBudgetExceededException ex) {
+                Assert.assertEquals("Script exceeded its 100ms time limit", ex.getMessage());
+            }
+
+            for (int i = 0; i < 100 && javaScriptExecutionServiceImpl.getStats().getLostWorkers() == 0; i++) {
+                Thread.sleep(10);
+            }
+
+            // Assertions (a replacement worker runs the next script)
+            Assert.assertEquals(1, javaScriptExecutionServiceImpl.getStats("mock1").getLostWorkers());
+            Assert.assertEquals("done", javaScriptExecutionServiceImpl.execute("mock2", 0, 0, () -> eval("'done'")));
+
+        } finally {
+            release.set(true);
+        }
+    }
+
+    @Test
+    public void execute_cpuBudgetExceeded_Test() throws Exception {
+
+        // Test
+        try {
+            javaScriptExecutionServiceImpl.execute("mock1", 0, 50, () -> eval("var i = 0; while (true) { i++; }"));
+            Assert.fail("Expected JavaScriptBudgetExceededException");
+        } catch (JavaScriptBudgetExceededException ex) {
+            Assert.assertEquals("Script exceeded its 50ms CPU time limit", ex.getMessage());
+        }
+
+        // Assertions
+        Assert.assertEquals(1, javaScriptExecutionServiceImpl.getStats("mock1").getCpuTimeouts());
+    }
+
+    @Test
+    public void execute_queueFull_Test() throws Exception {
+
+        // Setup
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch running = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newFixedThreadPool(2);
+
+        try {
+
+            // Occupies the only worker
+            callers.submit(() -> javaScriptExecutionServiceImpl.execute("mock1", 0, 0, () -> {
+                running.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            }));
+            running.await(5, TimeUnit.SECONDS);
+
+            // Occupies the only queue slot
+            callers.submit(() -> javaScriptExecutionServiceImpl.execute("mock1", 0, 0, () -> true));
+
+            while (javaScriptExecutionServiceImpl.getStats().getQueued() == 0) {
+                Thread.sleep(5);
+            }
+
+            // Test
+            javaScriptExecutionServiceImpl.execute("mock1", 0, 0, () -> true);
+            Assert.fail("Expected JavaScriptBusyException");
+
+        } catch (JavaScriptBusyException ex) {
+
+            // Assertions
+            Assert.assertEquals(1, javaScriptExecutionServiceImpl.getStats("mock1").getRejections());
+
+        } finally {
+            release.countDown();
+            callers.shutdown();
+        }
+    }
+
+    private Object eval(final String js) throws ScriptException {
+        return new NashornScriptEngineFactory()
+                .getScriptEngine(JavaScriptResponseHandler.engineSecurityArgs)
+                .eval(js);
+    }
+
+}
@@ -7,9 +7,12 @@ import com.smockin.admin.persistence.entity.RestfulMockJavaScriptHandler;
 import com.smockin.admin.persistence.entity.SmockinUser;
 import com.smockin.admin.service.SmockinUserService;
 import com.smockin.admin.service.UserKeyValueDataService;
+import com.smockin.mockserver.exception.JavaScriptBusyException;
+import com.smockin.mockserver.service.dto.RestfulResponseDTO;
 import jdk.nashorn.api.scripting.ScriptObjectMirror;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -20,12 +23,14 @@ import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import spark.Request;
 
 import javax.script.ScriptException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -37,6 +42,12 @@ public class JavaScriptResponseHandlerTest {
     @Mock
     private UserKeyValueDataService userKeyValueDataService;
 
+    @Mock
+    private JavaScriptResponseMemoService javaScriptResponseMemoService;
+
+    @Mock
+    private JavaScriptExecutionService javaScriptExecutionService;
+
     @Spy
     @InjectMocks
     private JavaScriptResponseHandlerImpl javaScriptResponseHandler = new JavaScriptResponseHandlerImpl();
@@ -47,6 +58,16 @@ public class JavaScriptResponseHandlerTest {
     @Mock
     private Request req;
 
+    @Before
+    public void setUp() {
+
+        final JavaScriptEngineServiceImpl javaScriptEngineService = new JavaScriptEngineServiceImpl();
+        ReflectionTestUtils.setField(javaScriptEngineService, "engineName", "nashorn");
+        ReflectionTestUtils.setField(javaScriptEngineService, "poolSize", 1);
+        javaScriptEngineService.after();
+
+        ReflectionTestUtils.setField(javaScriptResponseHandler, "javaScriptEngineService", javaScriptEngineService);
+    }
 
     @Test
     public void executeJS_print_Test() throws ScriptException {
@@ -607,4 +628,117 @@ public class JavaScriptResponseHandlerTest {
 
     }
 
+    @Test
+    public void loadKvpKeyNames_cachedUntilSyntaxChanges_Test() throws ScriptException {
+
+        // Setup
+        final RestfulMock mock = new RestfulMock();
+        mock.setId(5);
+        final RestfulMockJavaScriptHandler javaScriptHandler = new RestfulMockJavaScriptHandler();
+        javaScriptHandler.setRestfulMock(mock);
+        javaScriptHandler.setSyntax("function handleResponse(request, response) { response.body = lookUpKvp('foo') + lookUpKvp(request.body); }");
+        mock.setJavaScriptHandler(javaScriptHandler);
+
+        // Test
+        final List<String> keyNames = javaScriptResponseHandler.loadKvpKeyNames(mock);
+        final List<String> cachedKeyNames = javaScriptResponseHandler.loadKvpKeyNames(mock);
+
+        javaScriptHandler.setSyntax("function handleResponse(request, response) { response.body = lookUpKvp(\"bar\"); }");
+        final List<String> updatedKeyNames = javaScriptResponseHandler.loadKvpKeyNames(mock);
+
+        // Assertions
+        Assert.assertEquals(Arrays.asList("'foo'", "request.body"), keyNames);
+        Assert.assertSame(keyNames, cachedKeyNames);
+        Assert.assertEquals(Arrays.asList("\"bar\""), updatedKeyNames);
+        Mockito.verify(javaScriptResponseHandler, Mockito.times(2)).parseKvpKeyNames(Mockito.anyString());
+    }
+
+    @Test
+    public void buildMemoKey_Test() {
+
+        // Setup
+        final RestfulMock mock = new RestfulMock();
+        final SmockinUser smockinUser = new SmockinUser();
+        smockinUser.setCtxPath("");
+        mock.setCreatedBy(smockinUser);
+        mock.setPath("/hello/{firstName}");
+        final RestfulMockJavaScriptHandler javaScriptHandler = new RestfulMockJavaScriptHandler();
+        javaScriptHandler.setMemoKeyInputs("pathVars.firstName,headers.X-Tenant,parameters.age");
+        mock.setJavaScriptHandler(javaScriptHandler);
+
+        Mockito.when(smockinUserService.getUserMode()).thenReturn(UserModeEnum.INACTIVE);
+        Mockito.when(req.pathInfo()).thenReturn("/hello/bob");
+        Mockito.when(req.headers("X-Tenant")).thenReturn("acme");
+        Mockito.when(req.queryParams()).thenReturn(new HashSet<>());
+
+        // Test
+        final String result = javaScriptResponseHandler.buildMemoKey(req, mock);
+
+        // Assertions
+        Assert.assertEquals("pathVars.firstName=3:bob\nheaders.X-Tenant=4:acme\nparameters.age=-1:\n", result);
+    }
+
+    @Test
+    public void executeUserResponse_memoized_Test() {
+
+        // Setup
+        final RestfulMock mock = new RestfulMock();
+        mock.setId(7);
+        mock.setExtId("abc");
+        final SmockinUser smockinUser = new SmockinUser();
+        smockinUser.setCtxPath("");
+        smockinUser.setId(1);
+        mock.setCreatedBy(smockinUser);
+        mock.setPath("/hello");
+        final RestfulMockJavaScriptHandler javaScriptHandler = new RestfulMockJavaScriptHandler();
+        javaScriptHandler.setSyntax("function handleResponse(request, response) { response.body = 'hi'; response.status = 200; return response; }");
+        javaScriptHandler.setMemoKeyInputs("path");
+        mock.setJavaScriptHandler(javaScriptHandler);
+
+        final RestfulResponseDTO memoized = new RestfulResponseDTO(200, "text/plain", "memoized");
+
+        Mockito.when(req.pathInfo()).thenReturn("/hello");
+        Mockito.when(javaScriptResponseMemoService.lookup("abc", "path=6:/hello\n", javaScriptHandler.getSyntax(), 0))
+                .thenReturn(memoized);
+
+        // Test
+        final RestfulResponseDTO result = javaScriptResponseHandler.executeUserResponse(req, mock);
+
+        // Assertions
+        Assert.assertSame(memoized, result);
+        Mockito.verify(userKeyValueDataService, Mockito.never()).loadVersion(Mockito.anyLong());
+        Mockito.verify(javaScriptResponseMemoService, Mockito.never()).store(Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.anyLong(), Mockito.anyLong(), Mockito.any());
+    }
+
+    @Test
+    public void executeUserResponse_executorBusy_Test() throws Exception {
+
+        // Setup
+        final RestfulMock mock = new RestfulMock();
+        mock.setExtId("abc");
+        final SmockinUser smockinUser = new SmockinUser();
+        smockinUser.setCtxPath("");
+        smockinUser.setId(1);
+        mock.setCreatedBy(smockinUser);
+        mock.setPath("/hello");
+        final RestfulMockJavaScriptHandler javaScriptHandler = new RestfulMockJavaScriptHandler();
+        javaScriptHandler.setSyntax("function handleResponse(request, response) { return response; }");
+        javaScriptHandler.setTimeoutMillis(250);
+        mock.setJavaScriptHandler(javaScriptHandler);
+
+        Mockito.when(smockinUserService.getUserMode()).thenReturn(UserModeEnum.INACTIVE);
+        Mockito.when(req.pathInfo()).thenReturn("/hello");
+        Mockito.when(req.headers()).thenReturn(new HashSet<>());
+        Mockito.when(req.queryParams()).thenReturn(new HashSet<>());
+        Mockito.when(javaScriptExecutionService.execute(Mockito.eq("abc"), Mockito.eq(250L), Mockito.eq(0L), Mockito.any()))
+                .thenThrow(new JavaScriptBusyException("Too many JavaScript mocks are currently executing"));
+
+        // Test
+        final RestfulResponseDTO result = javaScriptResponseHandler.executeUserResponse(req, mock);
+
+        // Assertions
+        Assert.assertEquals(503, result.getHttpStatusCode());
+        Assert.assertEquals("Too many JavaScript mocks are currently executing", result.getResponseBody());
+    }
+
 }
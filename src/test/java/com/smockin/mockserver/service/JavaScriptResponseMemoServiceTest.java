@@ -0,0 +1,118 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.admin.dto.response.JavaScriptMemoStatsDTO;
+import com.smockin.mockserver.service.dto.RestfulResponseDTO;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JavaScriptResponseMemoServiceTest {
+
+    private JavaScriptResponseMemoServiceImpl javaScriptResponseMemoServiceImpl;
+
+    @Before
+    public void setUp() {
+
+        javaScriptResponseMemoServiceImpl = new JavaScriptResponseMemoServiceImpl();
+
+        ReflectionTestUtils.setField(javaScriptResponseMemoServiceImpl, "defaultTtlMillis", 60000L);
+        ReflectionTestUtils.setField(javaScriptResponseMemoServiceImpl, "maxEntries", 2);
+        ReflectionTestUtils.setField(javaScriptResponseMemoServiceImpl, "maxBytes", 1048576L);
+        ReflectionTestUtils.setField(javaScriptResponseMemoServiceImpl, "maxEntryBytes", 1048576L);
+
+        javaScriptResponseMemoServiceImpl.after();
+    }
+
+    @Test
+    public void lookup_hitAndMiss_Test() {
+
+        // Setup
+        final RestfulResponseDTO response = new RestfulResponseDTO(200, "text/plain", "Hello");
+
+        // Test
+        final RestfulResponseDTO miss = javaScriptResponseMemoServiceImpl.lookup("mock1", "path=3:/a\n", "js", 0);
+        javaScriptResponseMemoServiceImpl.store("mock1", "path=3:/a\n", "js", 0, 0, response);
+        final RestfulResponseDTO hit = javaScriptResponseMemoServiceImpl.lookup("mock1", "path=3:/a\n", "js", 0);
+
+        // Assertions
+        Assert.assertNull(miss);
+        Assert.assertSame(response, hit);
+
+        final JavaScriptMemoStatsDTO stats = javaScriptResponseMemoServiceImpl.getStats("mock1");
+        Assert.assertEquals(1, stats.getHits());
+        Assert.assertEquals(1, stats.getMisses());
+        Assert.assertEquals(0.5, stats.getHitRatio(), 0);
+        Assert.assertEquals(1, stats.getEntries());
+        Assert.assertTrue(stats.getBytes() > 0);
+    }
+
+    @Test
+    public void lookup_scriptOrKvpChanged_Test() {
+
+        // Setup
+        javaScriptResponseMemoServiceImpl.store("mock1", "k", "js", 1, 0, new RestfulResponseDTO(200));
+        javaScriptResponseMemoServiceImpl.store("mock1", "k2", "js", 1, 0, new RestfulResponseDTO(200));
+
+        // Test & Assertions
+        Assert.assertNull(javaScriptResponseMemoServiceImpl.lookup("mock1", "k", "js changed", 1));
+        Assert.assertNull(javaScriptResponseMemoServiceImpl.lookup("mock1", "k2", "js", 2));
+
+        final JavaScriptMemoStatsDTO stats = javaScriptResponseMemoServiceImpl.getStats();
+        Assert.assertEquals(2, stats.getInvalidations());
+        Assert.assertEquals(0, stats.getEntries());
+        Assert.assertEquals(0, stats.getBytes());
+    }
+
+    @Test
+    public void lookup_expired_Test() {
+
+        // Setup
+        javaScriptResponseMemoServiceImpl.store("mock1", "k", "js", 0, 1, new RestfulResponseDTO(200));
+
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Test & Assertions
+        Assert.assertNull(javaScriptResponseMemoServiceImpl.lookup("mock1", "k", "js", 0));
+        Assert.assertEquals(0, javaScriptResponseMemoServiceImpl.getStats().getEntries());
+    }
+
+    @Test
+    public void store_evictsLeastRecentlyUsed_Test() {
+
+        // Setup
+        javaScriptResponseMemoServiceImpl.store("mock1", "a", "js", 0, 0, new RestfulResponseDTO(200));
+        javaScriptResponseMemoServiceImpl.store("mock2", "b", "js", 0, 0, new RestfulResponseDTO(200));
+        javaScriptResponseMemoServiceImpl.lookup("mock1", "a", "js", 0);
+
+        // Test
+        javaScriptResponseMemoServiceImpl.store("mock1", "c", "js", 0, 0, new RestfulResponseDTO(200));
+
+        // Assertions
+        Assert.assertNotNull(javaScriptResponseMemoServiceImpl.lookup("mock1", "a", "js", 0));
+        Assert.assertNull(javaScriptResponseMemoServiceImpl.lookup("mock2", "b", "js", 0));
+        Assert.assertEquals(1, javaScriptResponseMemoServiceImpl.getStats("mock2").getEvictions());
+        Assert.assertEquals(2, javaScriptResponseMemoServiceImpl.getStats().getEntries());
+    }
+
+    @Test
+    public void invalidate_mock_Test() {
+
+        // Setup
+        javaScriptResponseMemoServiceImpl.store("mock1", "a", "js", 0, 0, new RestfulResponseDTO(200));
+        javaScriptResponseMemoServiceImpl.store("mock2", "b", "js", 0, 0, new RestfulResponseDTO(200));
+
+        // Test
+        javaScriptResponseMemoServiceImpl.invalidate("mock1");
+
+        // Assertions
+        Assert.assertEquals(0, javaScriptResponseMemoServiceImpl.getStats("mock1").getEntries());
+        Assert.assertEquals(1, javaScriptResponseMemoServiceImpl.getStats("mock2").getEntries());
+        Assert.assertNull(javaScriptResponseMemoServiceImpl.lookup("mock1", "a", "js", 0));
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.smockin.mockserver.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class ShardedStatefulRecordsTest {
+
+    @Test
+    public void snapshot_insertionOrder_Test() {
+
+        // Setup
+        final ShardedStatefulRecords records = new ShardedStatefulRecords("id", 8, Collections.emptyList());
+
+        // Test
+        for (int i = 0; i < 100; i++) {
+            records.insert(record(String.valueOf(i)));
+        }
+
+        records.replace("10", record("10", "replaced"));
+        records.remove("20");
+
+        // Assertions
+        final List<Object> ids = records.snapshot().stream().map(r -> r.get("id")).collect(Collectors.toList());
+
+        Assert.assertEquals(99, records.size());
+        Assert.assertEquals(99, ids.size());
+        Assert.assertEquals("9", ids.get(9));
+        Assert.assertEquals("10", ids.get(10));
+        Assert.assertEquals("21", ids.get(20));
+        Assert.assertEquals("replaced", records.get(10).get("name"));
+    }
+
+    @Test
+    public void insert_duplicateId_Test() {
+
+        // Setup
+        final List<Map<String, Object>> initial = new ArrayList<>();
+        initial.add(record("1", "first"));
+        initial.add(record("1", "second"));
+
+        // Test
+        final ShardedStatefulRecords records = new ShardedStatefulRecords("id", 4, initial);
+
+        // Assertions
+        Assert.assertEquals(1, records.size());
+        Assert.assertEquals("first", records.get("1").get("name"));
+        Assert.assertFalse(records.insert(record("1")));
+        Assert.assertNull(records.replace("2", record("2")));
+    }
+
+    @Test
+    public void whileLocked_runsOnlyOnChange_Test() {
+
+        // Setup
+        final ShardedStatefulRecords records = new ShardedStatefulRecords("id", 4, Collections.emptyList());
+        final List<String> actions = new ArrayList<>();
+        final Map<String, Object> first = record("1");
+
+        // Test
+        records.insert(first, () -> actions.add("insert 1"));
+        records.insert(record("1"), () -> actions.add("insert 1 again"));
+        records.removeRecord(record("1"), () -> actions.add("remove copy of 1"));
+        records.remove("2", () -> actions.add("remove 2"));
+        records.removeRecord(first, () -> actions.add("remove 1"));
+
+        // Assertions
+        Assert.assertEquals(Arrays.asList("insert 1", "remove 1"), actions);
+        Assert.assertEquals(0, records.size());
+    }
+
+    @Test
+    public void oldest_Test() {
+
+        // Setup
+        final ShardedStatefulRecords records = new ShardedStatefulRecords("id", 4, Collections.emptyList());
+        final Map<String, Object> first = record("a");
+
+        records.insert(first);
+        records.insert(record("b"));
+        records.insert(record("c"));
+
+        // Test & Assertions
+        Assert.assertFalse(records.remove(record("a")));
+        Assert.assertSame(first, records.oldest(1).get(0));
+        Assert.assertEquals(Arrays.asList("a", "b"), records.oldest(2).stream().map(r -> r.get("id")).collect(Collectors.toList()));
+        Assert.assertEquals(3, records.oldest(10).size());
+        Assert.assertTrue(records.remove(first));
+        Assert.assertEquals("b", records.oldest(1).get(0).get("id"));
+    }
+
+    @Test
+    public void insert_concurrent_Test() throws InterruptedException {
+
+        // Setup
+        final ShardedStatefulRecords records = new ShardedStatefulRecords("id", 16, Collections.emptyList());
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // Test
+        for (int t = 0; t < 8; t++) {
+
+            final int thread = t;
+
+            executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    records.insert(record(thread + "-" + i));
+                }
+            });
+        }
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Assertions
+        Assert.assertEquals(8000, records.size());
+        Assert.assertEquals(8000, records.snapshot().size());
+
+        // Each thread's records keep the order that thread added them in
+        final List<Object> thread3 = records.snapshot().stream()
+                .map(r -> r.get("id"))
+                .filter(id -> ((String) id).startsWith("3-"))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals("3-" + i, thread3.get(i));
+        }
+    }
+
+    private Map<String, Object> record(final String id) {
+        return record(id, null);
+    }
+
+    private Map<String, Object> record(final String id, final String name) {
+
+        final Map<String, Object> record = new HashMap<>();
+        record.put("id", id);
+
+        if (name != null) {
+            record.put("name", name);
+        }
+
+        return record;
+    }
+
+}
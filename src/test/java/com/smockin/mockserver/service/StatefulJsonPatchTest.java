@@ -0,0 +1,99 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.utils.GeneralUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class StatefulJsonPatchTest {
+
+    @Test
+    public void apply_allOperations_Test() throws StatefulJsonPatch.PatchException {
+
+        // Setup
+        final Map<String, Object> record = GeneralUtils.deserialiseJson("{\"id\":\"1\",\"name\":\"Bob\",\"age\":30,\"tags\":[\"a\",\"b\"],\"address\":{\"a/b\":\"x\"}}");
+
+        final StatefulJsonPatch patch = StatefulJsonPatch.compile(GeneralUtils.deserialiseJson("["
+                + "{\"op\":\"test\",\"path\":\"/age\",\"value\":30.0},"
+                + "{\"op\":\"replace\",\"path\":\"/name\",\"value\":\"Robert\"},"
+                + "{\"op\":\"add\",\"path\":\"/tags/-\",\"value\":\"c\"},"
+                + "{\"op\":\"remove\",\"path\":\"/tags/0\"},"
+                + "{\"op\":\"copy\",\"from\":\"/address/a~1b\",\"path\":\"/address/copied\"},"
+                + "{\"op\":\"MOVE\",\"from\":\"/age\",\"path\":\"/years\"}"
+                + "]"));
+
+        // Test
+        final Map<String, Object> patched = patch.apply(record);
+
+        // Assertions
+        Assert.assertEquals("{\"id\":\"1\",\"name\":\"Robert\",\"tags\":[\"b\",\"c\"],\"address\":{\"a/b\":\"x\",\"copied\":\"x\"},\"years\":30}",
+                GeneralUtils.serialiseJson(patched));
+        Assert.assertEquals("Bob", record.get("name"));
+        Assert.assertEquals(30, record.get("age"));
+    }
+
+    @Test
+    public void apply_failedTestLeavesRecordUntouched_Test() throws StatefulJsonPatch.PatchException {
+
+        // Setup
+        final Map<String, Object> record = GeneralUtils.deserialiseJson("{\"id\":\"1\",\"name\":\"Bob\"}");
+
+        final StatefulJsonPatch patch = StatefulJsonPatch.compile(GeneralUtils.deserialiseJson("["
+                + "{\"op\":\"replace\",\"path\":\"/name\",\"value\":\"Robert\"},"
+                + "{\"op\":\"test\",\"path\":\"/name\",\"value\":\"Bob\"}"
+                + "]"));
+
+        // Test
+        try {
+            patch.apply(record);
+            Assert.fail("Expected PatchException");
+        } catch (StatefulJsonPatch.PatchException ex) {
+            Assert.assertEquals(409, ex.getStatus());
+            Assert.assertEquals("PATCH 'test' failed, value at path 'name' does not match", ex.getMessage());
+        }
+
+        // Assertions
+        Assert.assertEquals("Bob", record.get("name"));
+    }
+
+    @Test
+    public void compile_invalidInstruction_Test() {
+
+        try {
+            StatefulJsonPatch.compile(GeneralUtils.deserialiseJson("[{\"op\":\"add\",\"path\":\"/name\",\"value\":\"x\"},{\"op\":\"copy\",\"path\":\"/name\"}]"));
+            Assert.fail("Expected PatchException");
+        } catch (StatefulJsonPatch.PatchException ex) {
+            Assert.assertEquals(400, ex.getStatus());
+            Assert.assertEquals("Invalid PATCH instruction in request body, 'from' is required", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void apply_pathErrors_Test() throws StatefulJsonPatch.PatchException {
+
+        // Setup
+        final Map<String, Object> record = GeneralUtils.deserialiseJson("{\"id\":\"1\",\"tags\":[\"a\"]}");
+
+        // Test & Assertions
+        assertFails(record, "{\"op\":\"remove\",\"path\":\"/missing\"}", 404, null);
+        assertFails(record, "{\"op\":\"add\",\"path\":\"/id\",\"value\":\"2\"}", 400, "Invalid PATCH instruction in request body, 'path' value 'id' already exists");
+        assertFails(record, "{\"op\":\"replace\",\"path\":\"/tags/3\",\"value\":\"b\"}", 400, "Invalid path 'tags/3', list index 3 is out of range");
+        assertFails(record, "{\"op\":\"add\",\"path\":\"/id/x/y\",\"value\":\"b\"}", 400, "Invalid path 'id/x/y' does align with structure of existing JSON");
+    }
+
+    private void assertFails(final Map<String, Object> record, final String instruction, final int status, final String message)
+            throws StatefulJsonPatch.PatchException {
+
+        final StatefulJsonPatch patch = StatefulJsonPatch.compile(GeneralUtils.deserialiseJson(instruction));
+
+        try {
+            patch.apply(record);
+            Assert.fail("Expected PatchException for " + instruction);
+        } catch (StatefulJsonPatch.PatchException ex) {
+            Assert.assertEquals(status, ex.getStatus());
+            Assert.assertEquals(message, ex.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.smockin.mockserver.service;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class StatefulPersistenceServiceTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File dir;
+    private StatefulPersistenceServiceImpl statefulPersistenceServiceImpl;
+
+    @Before
+    public void setUp() {
+
+        dir = tempFolder.getRoot();
+        statefulPersistenceServiceImpl = buildService("always");
+    }
+
+    @After
+    public void tearDown() {
+        statefulPersistenceServiceImpl.destroy();
+    }
+
+    @Test
+    public void loadAll_replaysJournal_Test() {
+
+        // Setup
+        statefulPersistenceServiceImpl.recordReplace("parent1", "id", Arrays.asList(record("1", "Bob"), record("2", "Mike")));
+        statefulPersistenceServiceImpl.recordPut("parent1", "3", record("3", "Pete"));
+        statefulPersistenceServiceImpl.recordPut("parent1", "1", record("1", "Robert"));
+        statefulPersistenceServiceImpl.recordDelete("parent1", "2");
+        statefulPersistenceServiceImpl.recordPut("parent2", "1", record("1", "Sam"));
+        statefulPersistenceServiceImpl.destroy();
+
+        // Test
+        statefulPersistenceServiceImpl = buildService("always");
+        final Map<String, List<Map<String, Object>>> loaded = statefulPersistenceServiceImpl.loadAll();
+
+        // Assertions
+        Assert.assertEquals(2, loaded.size());
+        Assert.assertEquals(Arrays.asList("Robert", "Pete"), names(loaded.get("parent1")));
+        Assert.assertEquals(Collections.singletonList("Sam"), names(loaded.get("parent2")));
+    }
+
+    @Test
+    public void compact_snapshotReplacesJournal_Test() throws Exception {
+
+        // Setup
+        statefulPersistenceServiceImpl.recordPut("parent1", "1", record("1", "Bob"));
+        statefulPersistenceServiceImpl.recordPut("parent1", "2", record("2", "Mike"));
+
+        // Test
+        statefulPersistenceServiceImpl.compact("parent1");
+        statefulPersistenceServiceImpl.recordDelete("parent1", "1");
+        statefulPersistenceServiceImpl.destroy();
+
+        statefulPersistenceServiceImpl = buildService("interval");
+        final Map<String, List<Map<String, Object>>> loaded = statefulPersistenceServiceImpl.loadAll();
+
+        // Assertions
+        final Path resourceDir = dir.toPath().resolve("parent1");
+        Assert.assertEquals(Collections.singletonList(1L), statefulPersistenceServiceImpl.listSegments(resourceDir, StatefulPersistenceServiceImpl.SNAPSHOT_PREFIX));
+        Assert.assertEquals(Collections.singletonList(2L), statefulPersistenceServiceImpl.listSegments(resourceDir, StatefulPersistenceServiceImpl.JOURNAL_PREFIX));
+        Assert.assertEquals(Collections.singletonList("Mike"), names(loaded.get("parent1")));
+    }
+
+    @Test
+    public void loadAll_clearedResourceLeftOut_Test() {
+
+        // Setup
+        statefulPersistenceServiceImpl.recordPut("parent1", "1", record("1", "Bob"));
+        statefulPersistenceServiceImpl.recordClear("parent1");
+        statefulPersistenceServiceImpl.compact("parent1");
+        statefulPersistenceServiceImpl.destroy();
+
+        // Test
+        statefulPersistenceServiceImpl = buildService("always");
+
+        // Assertions
+        Assert.assertTrue(statefulPersistenceServiceImpl.loadAll().isEmpty());
+    }
+
+    @Test
+    public void loadAll_incompleteLastEntryIgnored_Test() throws Exception {
+
+        // Setup
+        statefulPersistenceServiceImpl.recordPut("parent1", "1", record("1", "Bob"));
+        statefulPersistenceServiceImpl.destroy();
+
+        Files.write(dir.toPath().resolve("parent1").resolve(StatefulPersistenceServiceImpl.JOURNAL_PREFIX + 1 + StatefulPersistenceServiceImpl.FILE_SUFFIX),
+                "{\"op\":\"PUT\",\"id\":\"2\",\"rec".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        // Test
+        statefulPersistenceServiceImpl = buildService("never");
+        final Map<String, List<Map<String, Object>>> loaded = statefulPersistenceServiceImpl.loadAll();
+        statefulPersistenceServiceImpl.recordPut("parent1", "3", record("3", "Pete"));
+        statefulPersistenceServiceImpl.destroy();
+
+        statefulPersistenceServiceImpl = buildService("never");
+
+        // Assertions
+        Assert.assertEquals(Collections.singletonList("Bob"), names(loaded.get("parent1")));
+        Assert.assertEquals(Arrays.asList("Bob", "Pete"), names(statefulPersistenceServiceImpl.loadAll().get("parent1")));
+    }
+
+    @Test
+    public void recordPut_disabled_Test() {
+
+        // Setup
+        final StatefulPersistenceServiceImpl disabled = new StatefulPersistenceServiceImpl();
+        ReflectionTestUtils.setField(disabled, "dir", dir.getAbsolutePath());
+
+        // Test
+        disabled.recordPut("parent1", "1", record("1", "Bob"));
+
+        // Assertions
+        Assert.assertFalse(new File(dir, "parent1").exists());
+        Assert.assertTrue(disabled.loadAll().isEmpty());
+    }
+
+    private StatefulPersistenceServiceImpl buildService(final String fsync) {
+
+        final StatefulPersistenceServiceImpl service = new StatefulPersistenceServiceImpl();
+
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "dir", dir.getAbsolutePath());
+        ReflectionTestUtils.setField(service, "fsync", fsync);
+        ReflectionTestUtils.setField(service, "fsyncIntervalMillis", 1000L);
+        ReflectionTestUtils.setField(service, "compactionThreshold", 10000);
+        ReflectionTestUtils.setField(service, "compactionIntervalMillis", 60000L);
+        ReflectionTestUtils.setField(service, "replayThreads", 2);
+
+        service.after();
+
+        return service;
+    }
+
+    private Map<String, Object> record(final String id, final String name) {
+
+        final Map<String, Object> record = new HashMap<>();
+        record.put("id", id);
+        record.put("name", name);
+
+        return record;
+    }
+
+    private List<Object> names(final List<Map<String, Object>> records) {
+        return records.stream().map(r -> r.get("name")).collect(Collectors.toList());
+    }
+
+}
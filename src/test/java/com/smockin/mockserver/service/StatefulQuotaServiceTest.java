@@ -0,0 +1,120 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.admin.dto.response.StatefulQuotaStatsDTO;
+import com.smockin.mockserver.exception.MockServerException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class StatefulQuotaServiceTest {
+
+    private StatefulQuotaServiceImpl statefulQuotaServiceImpl;
+
+    @Before
+    public void setUp() {
+
+        statefulQuotaServiceImpl = new StatefulQuotaServiceImpl();
+
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "policyName", "expire");
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "rejectStatus", 507);
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "ttlMillis", 1L);
+
+        statefulQuotaServiceImpl.after();
+    }
+
+    @Test
+    public void estimateBytes_Test() {
+
+        // Setup
+        final Map<String, Object> record = new HashMap<>();
+        record.put("id", "1");
+        record.put("tags", Arrays.asList("a", "b"));
+
+        // Test & Assertions
+        Assert.assertEquals(0, statefulQuotaServiceImpl.estimateBytes(null));
+        Assert.assertEquals(42, statefulQuotaServiceImpl.estimateBytes("a"));
+        Assert.assertEquals(56 + (40 + 44 + 42) + (40 + 48 + 40 + (8 + 42) * 2), statefulQuotaServiceImpl.estimateBytes(record));
+    }
+
+    @Test
+    public void exceedsLimits_Test() {
+
+        // Setup
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "defaultMaxRecords", 2);
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "globalMaxBytes", 1000L);
+
+        statefulQuotaServiceImpl.adjust("parent1", 2, 100);
+        statefulQuotaServiceImpl.adjust("parent2", 1, 800);
+
+        // Test & Assertions
+        Assert.assertTrue(statefulQuotaServiceImpl.exceedsLimits("parent1", 0, 0, 10, 0, 0));
+        Assert.assertFalse(statefulQuotaServiceImpl.exceedsLimits("parent1", 0, 0, 10, 1, 50));
+        Assert.assertFalse(statefulQuotaServiceImpl.exceedsLimits("parent1", 3, 0, 10, 0, 0));
+        Assert.assertTrue(statefulQuotaServiceImpl.exceedsLimits("parent1", 3, 105, 10, 0, 0));
+        Assert.assertTrue(statefulQuotaServiceImpl.exceedsLimits("parent2", 0, 0, 101, 0, 0));
+        Assert.assertFalse(statefulQuotaServiceImpl.exceedsLimits("parent3", 0, 0, 100, 0, 0));
+        Assert.assertFalse(statefulQuotaServiceImpl.exceedsLimitsWhenEmptied("parent1", 0, 0, 10));
+        Assert.assertTrue(statefulQuotaServiceImpl.exceedsLimitsWhenEmptied("parent1", 0, 0, 250));
+        Assert.assertTrue(statefulQuotaServiceImpl.exceedsLimitsWhenEmptied("parent1", 3, 50, 60));
+    }
+
+    @Test
+    public void trackAndUntrack_Test() {
+
+        // Setup
+        final Map<String, Object> record = Collections.singletonMap("id", "1");
+
+        // Test
+        statefulQuotaServiceImpl.track("parent1", Arrays.asList(record, record));
+        statefulQuotaServiceImpl.track("parent2", Collections.singletonList(record));
+        statefulQuotaServiceImpl.track("parent1", Collections.singletonList(record));
+
+        final StatefulQuotaStatsDTO tracked = statefulQuotaServiceImpl.getStats();
+
+        statefulQuotaServiceImpl.untrack("parent1");
+
+        // Assertions
+        Assert.assertEquals(2, tracked.getRecords());
+        Assert.assertEquals(2 * statefulQuotaServiceImpl.estimateBytes(record), tracked.getEstimatedBytes());
+        Assert.assertEquals("EXPIRE", tracked.getPolicy());
+        Assert.assertEquals(2, tracked.getResources().size());
+        Assert.assertEquals(1, statefulQuotaServiceImpl.getStats().getRecords());
+        Assert.assertEquals(0, statefulQuotaServiceImpl.getStats("parent1").getRecords());
+    }
+
+    @Test
+    public void findExpired_Test() throws InterruptedException {
+
+        // Setup
+        statefulQuotaServiceImpl.stamp("parent1", "1");
+        statefulQuotaServiceImpl.stamp("parent1", "2");
+        statefulQuotaServiceImpl.stamp("parent1", "3");
+        statefulQuotaServiceImpl.stamp("parent1", "1");
+        statefulQuotaServiceImpl.unstamp("parent1", "2");
+
+        Thread.sleep(5);
+
+        // Test & Assertions
+        Assert.assertEquals(Arrays.asList("3", "1"), statefulQuotaServiceImpl.findExpired("parent1", 10));
+        Assert.assertEquals(Collections.singletonList("3"), statefulQuotaServiceImpl.findExpired("parent1", 1));
+
+        statefulQuotaServiceImpl.stamp("parent1", "3");
+
+        Assert.assertEquals(Collections.singletonList("1"), statefulQuotaServiceImpl.findExpired("parent1", 10));
+        Assert.assertTrue(statefulQuotaServiceImpl.findExpired("parent2", 10).isEmpty());
+    }
+
+    @Test(expected = MockServerException.class)
+    public void after_invalidPolicy_Test() {
+
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "policyName", "drop");
+        statefulQuotaServiceImpl.after();
+    }
+
+}
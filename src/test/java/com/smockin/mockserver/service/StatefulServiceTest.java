@@ -1,24 +1,57 @@
 package com.smockin.mockserver.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.smockin.admin.dto.response.StatefulImportResultDTO;
+import com.smockin.admin.enums.StatefulStreamFormatEnum;
+import com.smockin.admin.exception.ValidationException;
+import com.smockin.admin.persistence.dao.RestfulMockDAO;
+import com.smockin.admin.persistence.entity.RestfulMock;
 import com.smockin.admin.persistence.entity.RestfulMockStatefulMeta;
+import com.smockin.mockserver.service.enums.StatefulStorageModeEnum;
 import com.smockin.utils.GeneralUtils;
 import org.junit.Assert;
 import org.junit.Before;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public class StatefulServiceTest {
 
     private StatefulServiceImpl statefulServiceImpl;
+    private StatefulQuotaServiceImpl statefulQuotaServiceImpl;
 
     @Before
     public void setUp() {
 
         statefulServiceImpl = new StatefulServiceImpl();
 
+        final StatefulResponseCacheServiceImpl statefulResponseCacheServiceImpl = new StatefulResponseCacheServiceImpl();
+        ReflectionTestUtils.setField(statefulResponseCacheServiceImpl, "maxBytes", 1048576L);
+        ReflectionTestUtils.setField(statefulResponseCacheServiceImpl, "maxEntryBytes", 1048576L);
+        statefulResponseCacheServiceImpl.after();
+        ReflectionTestUtils.setField(statefulServiceImpl, "statefulResponseCacheService", statefulResponseCacheServiceImpl);
+        ReflectionTestUtils.setField(statefulServiceImpl, "statefulPersistenceService", new StatefulPersistenceServiceImpl());
+
+        statefulQuotaServiceImpl = new StatefulQuotaServiceImpl();
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "policyName", "reject");
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "rejectStatus", 507);
+        statefulQuotaServiceImpl.after();
+        ReflectionTestUtils.setField(statefulServiceImpl, "statefulQuotaService", statefulQuotaServiceImpl);
+
     }
 
     @Test
@@ -539,4 +572,633 @@ public class StatefulServiceTest {
         Assert.assertEquals(existingId, newState.get("id"));
     }
 
+    @Test
+    public void handleGetAll_filterSortAndPage_Test() throws IOException {
+
+        // Setup
+        final String json = "[{\"id\":\"1\",\"name\":\"Bob\",\"age\":40,\"status\":\"active\"},"
+                + "{\"id\":\"2\",\"name\":\"Mike\",\"age\":9,\"status\":\"active\"},"
+                + "{\"id\":\"3\",\"name\":\"Pete\",\"age\":25,\"status\":\"inactive\"},"
+                + "{\"id\":\"4\",\"name\":\"Sam\",\"age\":31,\"status\":\"active\"}]";
+
+        final List<Map<String, Object>> allState = GeneralUtils.deserialiseJson(json,
+                new TypeReference<List<Map<String, Object>>>() {});
+
+        final Map<String, String> queryParams = new HashMap<>();
+        queryParams.put("filter.status", "active");
+        queryParams.put("_", "1571234567890");
+        queryParams.put("sort", "-age");
+        queryParams.put("offset", "1");
+        queryParams.put("limit", "5");
+
+        // Test
+        final StatefulServiceImpl.StatefulResponse response = statefulServiceImpl.handleGetAll("parent1", queryParams, allState);
+
+        // Assertions
+        Assert.assertEquals(200, response.getHttpResponseCode());
+        Assert.assertEquals("3", response.getHeaders().get(StatefulServiceImpl.TOTAL_COUNT_HEADER));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBodyWriter().write(out);
+
+        final List<Map<String, Object>> page = GeneralUtils.deserialiseJson(out.toString("UTF-8"),
+                new TypeReference<List<Map<String, Object>>>() {});
+
+        Assert.assertEquals(Arrays.asList("4", "2"), page.stream().map(r -> r.get("id")).collect(Collectors.toList()));
+        Assert.assertEquals("1", allState.get(0).get("id"));
+    }
+
+    @Test
+    public void handleGetAll_offsetBeyondEnd_Test() throws IOException {
+
+        // Setup
+        final List<Map<String, Object>> allState = GeneralUtils.deserialiseJson("[{\"id\":\"1\"}]",
+                new TypeReference<List<Map<String, Object>>>() {});
+
+        // Test
+        final StatefulServiceImpl.StatefulResponse response = statefulServiceImpl.handleGetAll("parent1", Collections.singletonMap("offset", "5"), allState);
+
+        // Assertions
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBodyWriter().write(out);
+
+        Assert.assertEquals("1", response.getHeaders().get(StatefulServiceImpl.TOTAL_COUNT_HEADER));
+        Assert.assertEquals("[]", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void handleGetAll_pagesCopyOfState_Test() throws IOException {
+
+        // Setup
+        final List<Map<String, Object>> allState = seedState("parent1", "[{\"id\":\"2\"},{\"id\":\"1\"}]");
+
+        // Test
+        final StatefulServiceImpl.StatefulResponse response = statefulServiceImpl.handleGetAll("parent1", Collections.singletonMap("sort", "id"), allState);
+        allState.clear(); // e.g. a concurrent DELETE, made while the page is still being written
+
+        // Assertions
+        Assert.assertEquals("[{\"id\":\"1\"},{\"id\":\"2\"}]", writeBody(response));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void handleGetAll_invalidLimit_Test() {
+
+        statefulServiceImpl.handleGetAll("parent1", Collections.singletonMap("limit", "-1"), new ArrayList<>());
+    }
+
+    @Test
+    public void buildSortComparator_nestedFieldNullsLast_Test() {
+
+        // Setup
+        final List<Map<String, Object>> allState = GeneralUtils.deserialiseJson(
+                "[{\"data\":{\"name\":\"b\"}},{\"data\":{}},{\"data\":{\"name\":\"a\"}}]",
+                new TypeReference<List<Map<String, Object>>>() {});
+
+        // Test
+        allState.sort(statefulServiceImpl.buildSortComparator("-data.name"));
+
+        // Assertions
+        Assert.assertEquals("b", statefulServiceImpl.readField(allState.get(0), "data.name"));
+        Assert.assertEquals("a", statefulServiceImpl.readField(allState.get(1), "data.name"));
+        Assert.assertNull(statefulServiceImpl.readField(allState.get(2), "data.name"));
+    }
+
+    @Test
+    public void handleGet_notModified_Test() {
+
+        // Setup
+        final List<Map<String, Object>> allState = GeneralUtils.deserialiseJson("[{\"id\":\"1\"}]",
+                new TypeReference<List<Map<String, Object>>>() {});
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = new RestfulMockStatefulMeta();
+        restfulMockStatefulMeta.setIdFieldName("id");
+
+        final StatefulServiceImpl.StatefulResponse first = statefulServiceImpl.handleGet("1", "parent1", Collections.emptyMap(), null, allState, restfulMockStatefulMeta);
+        final String etag = first.getHeaders().get("ETag");
+
+        // Test
+        final StatefulServiceImpl.StatefulResponse unchanged = statefulServiceImpl.handleGet("1", "parent1", Collections.emptyMap(), "W/\"other\", " + etag, allState, restfulMockStatefulMeta);
+        statefulServiceImpl.bumpVersion("parent1");
+        final StatefulServiceImpl.StatefulResponse changed = statefulServiceImpl.handleGet("1", "parent1", Collections.emptyMap(), etag, allState, restfulMockStatefulMeta);
+
+        // Assertions
+        Assert.assertEquals(200, first.getHttpResponseCode());
+        Assert.assertNotNull(etag);
+        Assert.assertEquals(304, unchanged.getHttpResponseCode());
+        Assert.assertEquals(etag, unchanged.getHeaders().get("ETag"));
+        Assert.assertEquals(200, changed.getHttpResponseCode());
+        Assert.assertNotEquals(etag, changed.getHeaders().get("ETag"));
+    }
+
+    @Test
+    public void handleGet_wildcardOnlyMatchesExistingRecord_Test() {
+
+        // Setup
+        final List<Map<String, Object>> allState = GeneralUtils.deserialiseJson("[{\"id\":\"1\"}]",
+                new TypeReference<List<Map<String, Object>>>() {});
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = new RestfulMockStatefulMeta();
+        restfulMockStatefulMeta.setIdFieldName("id");
+
+        // Test
+        final StatefulServiceImpl.StatefulResponse existing = statefulServiceImpl.handleGet("1", "parent1", Collections.emptyMap(), "*", allState, restfulMockStatefulMeta);
+        final StatefulServiceImpl.StatefulResponse missing = statefulServiceImpl.handleGet("2", "parent1", Collections.emptyMap(), "*", allState, restfulMockStatefulMeta);
+
+        // Assertions
+        Assert.assertEquals(304, existing.getHttpResponseCode());
+        Assert.assertEquals(404, missing.getHttpResponseCode());
+    }
+
+    @Test
+    public void buildGetAllCacheKey_ignoresUnusedParams_Test() {
+
+        // Setup
+        final Map<String, String> first = new HashMap<>();
+        first.put("limit", "10");
+        first.put("filter.status", "active");
+        first.put("_", "1");
+
+        final Map<String, String> second = new HashMap<>(first);
+        second.put("_", "2");
+
+        final Map<String, String> filtered = new HashMap<>(first);
+        filtered.put("filter.status", "closed");
+
+        // Test & Assertions
+        Assert.assertEquals(statefulServiceImpl.buildGetAllCacheKey(first), statefulServiceImpl.buildGetAllCacheKey(second));
+        Assert.assertNotEquals(statefulServiceImpl.buildGetAllCacheKey(first), statefulServiceImpl.buildGetAllCacheKey(filtered));
+    }
+
+    @Test
+    public void handleGet_cachedUntilVersionChanges_Test() throws IOException {
+
+        // Setup
+        final List<Map<String, Object>> allState = GeneralUtils.deserialiseJson("[{\"id\":\"1\"},{\"id\":\"2\"}]",
+                new TypeReference<List<Map<String, Object>>>() {});
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = new RestfulMockStatefulMeta();
+        restfulMockStatefulMeta.setIdFieldName("id");
+
+        final Map<String, String> queryParams = Collections.singletonMap("limit", "1");
+
+        writeBody(statefulServiceImpl.handleGet(null, "parent1", queryParams, null, allState, restfulMockStatefulMeta));
+
+        // Changed without moving the version on, so only a cached response could still show the old state
+        allState.add(0, Collections.singletonMap("id", "0"));
+
+        // Test
+        final StatefulServiceImpl.StatefulResponse cached = statefulServiceImpl.handleGet(null, "parent1", queryParams, null, allState, restfulMockStatefulMeta);
+        final String cachedBody = writeBody(cached);
+
+        statefulServiceImpl.bumpVersion("parent1");
+
+        final StatefulServiceImpl.StatefulResponse refreshed = statefulServiceImpl.handleGet(null, "parent1", queryParams, null, allState, restfulMockStatefulMeta);
+        final String refreshedBody = writeBody(refreshed);
+
+        // Assertions
+        Assert.assertEquals("[{\"id\":\"1\"}]", cachedBody);
+        Assert.assertEquals("2", cached.getHeaders().get(StatefulServiceImpl.TOTAL_COUNT_HEADER));
+        Assert.assertEquals("[{\"id\":\"0\"}]", refreshedBody);
+        Assert.assertEquals("3", refreshed.getHeaders().get(StatefulServiceImpl.TOTAL_COUNT_HEADER));
+    }
+
+    @Test
+    public void handlePost_quotaRejected_Test() {
+
+        // Setup
+        final List<Map<String, Object>> allState = seedState("parent1", "[{\"id\":\"1\"},{\"id\":\"2\"}]");
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = new RestfulMockStatefulMeta();
+        restfulMockStatefulMeta.setIdFieldName("id");
+        restfulMockStatefulMeta.setMaxRecords(2);
+
+        // Test
+        try {
+            statefulServiceImpl.handlePost("parent1", "{\"id\":\"3\"}", allState, restfulMockStatefulMeta);
+            Assert.fail("Expected the quota to be enforced");
+        } catch (RuntimeException ex) {
+            Assert.assertEquals("Stateful resource quota exceeded", ex.getMessage());
+        }
+
+        // Assertions
+        Assert.assertEquals(2, allState.size());
+        Assert.assertEquals(2, statefulQuotaServiceImpl.getStats("parent1").getRecords());
+        Assert.assertEquals(1, statefulQuotaServiceImpl.getStats("parent1").getRejections());
+    }
+
+    @Test
+    public void handlePost_quotaEvictsOldest_Test() {
+
+        // Setup
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "policyName", "evict");
+        statefulQuotaServiceImpl.after();
+
+        final List<Map<String, Object>> allState = seedState("parent1", "[{\"id\":\"1\"},{\"id\":\"2\"}]");
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = new RestfulMockStatefulMeta();
+        restfulMockStatefulMeta.setIdFieldName("id");
+        restfulMockStatefulMeta.setMaxRecords(2);
+
+        // Test
+        final StatefulServiceImpl.StatefulResponse response = statefulServiceImpl.handlePost("parent1", "{\"id\":\"3\"}", allState, restfulMockStatefulMeta);
+
+        // Assertions
+        Assert.assertEquals(201, response.getHttpResponseCode());
+        Assert.assertEquals(Arrays.asList("2", "3"), allState.stream().map(r -> r.get("id")).collect(Collectors.toList()));
+        Assert.assertEquals(2, statefulQuotaServiceImpl.getStats("parent1").getRecords());
+        Assert.assertEquals(statefulQuotaServiceImpl.estimateBytes(allState.get(0)) + statefulQuotaServiceImpl.estimateBytes(allState.get(1)),
+                statefulQuotaServiceImpl.getStats("parent1").getEstimatedBytes());
+        Assert.assertEquals(1, statefulQuotaServiceImpl.getStats("parent1").getEvictions());
+    }
+
+    @Test
+    public void handlePost_quotaEvictOversizedRecordRejected_Test() {
+
+        // Setup
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "policyName", "evict");
+        statefulQuotaServiceImpl.after();
+
+        final StatefulPersistenceService statefulPersistenceService = Mockito.mock(StatefulPersistenceService.class);
+        ReflectionTestUtils.setField(statefulServiceImpl, "statefulPersistenceService", statefulPersistenceService);
+
+        final List<Map<String, Object>> allState = seedState("parent1", "[{\"id\":\"1\"},{\"id\":\"2\"}]");
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = new RestfulMockStatefulMeta();
+        restfulMockStatefulMeta.setIdFieldName("id");
+        restfulMockStatefulMeta.setMaxBytes(500);
+
+        // Test
+        try {
+            statefulServiceImpl.handlePost("parent1", "{\"id\":\"3\",\"name\":\"" + StringUtils.repeat("x", 500) + "\"}", allState, restfulMockStatefulMeta);
+            Assert.fail("Expected the quota to be enforced");
+        } catch (RuntimeException ex) {
+            Assert.assertEquals("Stateful resource quota exceeded", ex.getMessage());
+        }
+
+        // Assertions (nothing is evicted for a record that could never fit)
+        Assert.assertEquals(2, allState.size());
+        Assert.assertEquals(0, statefulQuotaServiceImpl.getStats("parent1").getEvictions());
+        Mockito.verifyZeroInteractions(statefulPersistenceService);
+    }
+
+    @Test
+    public void handlePost_quotaEvictionJournalled_Test() {
+
+        // Setup
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "policyName", "evict");
+        statefulQuotaServiceImpl.after();
+
+        final StatefulPersistenceService statefulPersistenceService = Mockito.mock(StatefulPersistenceService.class);
+        ReflectionTestUtils.setField(statefulServiceImpl, "statefulPersistenceService", statefulPersistenceService);
+
+        final List<Map<String, Object>> allState = seedState("parent1", "[{\"id\":\"1\"},{\"id\":\"2\"},{\"id\":\"3\"}]");
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = new RestfulMockStatefulMeta();
+        restfulMockStatefulMeta.setIdFieldName("id");
+        restfulMockStatefulMeta.setMaxBytes(statefulQuotaServiceImpl.getStats("parent1").getEstimatedBytes());
+
+        // Test (the new record is larger than any one existing record, so two need evicting)
+        statefulServiceImpl.handlePost("parent1", "{\"id\":\"4\",\"name\":\"Bob\"}", allState, restfulMockStatefulMeta);
+
+        // Assertions
+        Assert.assertEquals(Arrays.asList("3", "4"), allState.stream().map(r -> r.get("id")).collect(Collectors.toList()));
+        Assert.assertEquals(2, statefulQuotaServiceImpl.getStats("parent1").getEvictions());
+        Mockito.verify(statefulPersistenceService).recordDelete("parent1", "1");
+        Mockito.verify(statefulPersistenceService).recordDelete("parent1", "2");
+    }
+
+    @Test
+    public void handlePost_quotaExpiresOldest_Test() throws InterruptedException {
+
+        // Setup
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "policyName", "expire");
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "ttlMillis", 100L);
+        statefulQuotaServiceImpl.after();
+
+        final List<Map<String, Object>> allState = seedState("parent1", "[]");
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = new RestfulMockStatefulMeta();
+        restfulMockStatefulMeta.setIdFieldName("id");
+        restfulMockStatefulMeta.setMaxRecords(2);
+
+        statefulServiceImpl.handlePost("parent1", "{\"id\":\"1\"}", allState, restfulMockStatefulMeta);
+        statefulServiceImpl.handlePost("parent1", "{\"id\":\"2\"}", allState, restfulMockStatefulMeta);
+        statefulServiceImpl.handlePut("1", "parent1", "{\"id\":\"1\",\"name\":\"Bob\"}", allState, restfulMockStatefulMeta);
+
+        Thread.sleep(150);
+
+        // Test
+        statefulServiceImpl.handlePost("parent1", "{\"id\":\"3\"}", allState, restfulMockStatefulMeta);
+
+        // Assertions (2 has gone unchanged the longest)
+        final List<Map<String, Object>> records = statefulServiceImpl.loadStateForMock(buildStatefulParent("parent1"));
+
+        Assert.assertEquals(Arrays.asList("1", "3"), records.stream().map(r -> r.get("id")).collect(Collectors.toList()));
+        Assert.assertEquals(1, statefulQuotaServiceImpl.getStats("parent1").getExpirations());
+        Assert.assertEquals(Collections.singletonList("1"), statefulQuotaServiceImpl.findExpired("parent1", 10));
+    }
+
+    @Test
+    public void importState_replace_Test() throws Exception {
+
+        // Setup
+        seedState("parent1", "[{\"id\":\"old\"}]");
+        final RestfulMock parent = buildStatefulParent("parent1");
+
+        // Test
+        final StatefulImportResultDTO result = statefulServiceImpl.importState(parent,
+                new ByteArrayInputStream("[{\"id\":\"1\",\"name\":\"Bob\"},{\"name\":\"Sally\"}]".getBytes(StandardCharsets.UTF_8)), false);
+
+        // Assertions
+        Assert.assertEquals(2, result.getImported());
+        Assert.assertEquals(2, result.getTotal());
+
+        final List<Map<String, Object>> allState = statefulServiceImpl.loadStateForMock(parent);
+        Assert.assertEquals("1", allState.get(0).get("id"));
+        Assert.assertNotNull(allState.get(1).get("id"));
+        Assert.assertEquals(2, statefulQuotaServiceImpl.getStats("parent1").getRecords());
+    }
+
+    @Test
+    public void importState_appendNdJson_Test() throws Exception {
+
+        // Setup
+        seedState("parent1", "[{\"id\":\"1\"}]");
+        final RestfulMock parent = buildStatefulParent("parent1");
+
+        // Test
+        final StatefulImportResultDTO result = statefulServiceImpl.importState(parent,
+                new ByteArrayInputStream("{\"id\":\"2\"}\n{\"id\":\"3\"}\n".getBytes(StandardCharsets.UTF_8)), true);
+
+        // Assertions
+        Assert.assertEquals(2, result.getImported());
+        Assert.assertEquals(3, result.getTotal());
+        Assert.assertEquals(Arrays.asList("1", "2", "3"),
+                statefulServiceImpl.loadStateForMock(parent).stream().map(r -> r.get("id")).collect(Collectors.toList()));
+        Assert.assertEquals(3, statefulQuotaServiceImpl.getStats("parent1").getRecords());
+    }
+
+    @Test
+    public void importState_invalidRecord_Test() throws Exception {
+
+        // Setup
+        final List<Map<String, Object>> allState = seedState("parent1", "[{\"id\":\"1\"}]");
+        final RestfulMock parent = buildStatefulParent("parent1");
+
+        // Test
+        try {
+            statefulServiceImpl.importState(parent,
+                    new ByteArrayInputStream("{\"id\":\"2\"}\n[1,2]\n".getBytes(StandardCharsets.UTF_8)), false);
+            Assert.fail("Expected ValidationException");
+        } catch (ValidationException ex) {
+            Assert.assertEquals("Invalid JSON record at position 2", ex.getMessage());
+        }
+
+        // Assertions
+        Assert.assertSame(allState, statefulServiceImpl.loadStateForMock(parent));
+        Assert.assertEquals(1, allState.size());
+    }
+
+    @Test
+    public void exportState_Test() throws Exception {
+
+        // Setup
+        seedState("parent1", "[{\"id\":\"1\"},{\"id\":\"2\"}]");
+        final RestfulMock parent = buildStatefulParent("parent1");
+
+        final ByteArrayOutputStream json = new ByteArrayOutputStream();
+        final ByteArrayOutputStream ndJson = new ByteArrayOutputStream();
+
+        // Test
+        statefulServiceImpl.exportState(parent, StatefulStreamFormatEnum.JSON, json);
+        statefulServiceImpl.exportState(parent, StatefulStreamFormatEnum.NDJSON, ndJson);
+
+        // Assertions
+        Assert.assertEquals("[{\"id\":\"1\"},{\"id\":\"2\"}]", json.toString("UTF-8"));
+        Assert.assertEquals("{\"id\":\"1\"}\n{\"id\":\"2\"}\n", ndJson.toString("UTF-8"));
+    }
+
+    @Test
+    public void handlePatch_appliedAsAWhole_Test() {
+
+        // Setup
+        final List<Map<String, Object>> allState = seedState("parent1", "[{\"id\":\"1\",\"name\":\"Bob\"},{\"id\":\"2\",\"name\":\"Sally\"}]");
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = new RestfulMockStatefulMeta();
+        restfulMockStatefulMeta.setIdFieldName("id");
+
+        // Test
+        final StatefulServiceImpl.StatefulResponse applied = statefulServiceImpl.handlePatch("2", "parent1",
+                "[{\"op\":\"test\",\"path\":\"/name\",\"value\":\"Sally\"},{\"op\":\"add\",\"path\":\"/age\",\"value\":40}]",
+                allState, restfulMockStatefulMeta);
+
+        try {
+            statefulServiceImpl.handlePatch("1", "parent1",
+                    "[{\"op\":\"replace\",\"path\":\"/name\",\"value\":\"Robert\"},{\"op\":\"remove\",\"path\":\"/age\"}]",
+                    allState, restfulMockStatefulMeta);
+            Assert.fail("Expected the PATCH to fail");
+        } catch (RuntimeException ex) {
+            Assert.assertNull(ex.getMessage());
+        }
+
+        final StatefulServiceImpl.StatefulResponse notFound = statefulServiceImpl.handlePatch("3", "parent1",
+                "{\"op\":\"remove\",\"path\":\"/name\"}", allState, restfulMockStatefulMeta);
+
+        // Assertions
+        Assert.assertEquals(204, applied.getHttpResponseCode());
+        Assert.assertEquals(40, allState.get(1).get("age"));
+        Assert.assertEquals("Bob", allState.get(0).get("name"));
+        Assert.assertEquals(404, notFound.getHttpResponseCode());
+        Assert.assertEquals(statefulQuotaServiceImpl.estimateBytes(allState.get(0)) + statefulQuotaServiceImpl.estimateBytes(allState.get(1)),
+                statefulQuotaServiceImpl.getStats("parent1").getEstimatedBytes());
+    }
+
+    @Test
+    public void compactStorage_Test() throws IOException {
+
+        // Setup
+        ReflectionTestUtils.setField(statefulServiceImpl, "storageMode", StatefulStorageModeEnum.COMPACT);
+
+        final RestfulMock parent = buildStatefulParent("parent1");
+        parent.getRestfulMockStatefulMeta().setInitialResponseBody("[{\"id\":\"1\",\"name\":\"Bob\"}]");
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = parent.getRestfulMockStatefulMeta();
+
+        // Test
+        statefulServiceImpl.handlePost("parent1", "{\"id\":\"2\",\"name\":\"Sally\"}", statefulServiceImpl.loadStateForMock(parent), restfulMockStatefulMeta);
+        statefulServiceImpl.handlePut("1", "parent1", "{\"id\":\"1\",\"name\":\"Robert\"}", statefulServiceImpl.loadStateForMock(parent), restfulMockStatefulMeta);
+        statefulServiceImpl.handlePatch("2", "parent1", "{\"op\":\"add\",\"path\":\"/age\",\"value\":40}", statefulServiceImpl.loadStateForMock(parent), restfulMockStatefulMeta);
+
+        final List<Map<String, Object>> allState = statefulServiceImpl.loadStateForMock(parent);
+        final String body = writeBody(statefulServiceImpl.handleGet(null, "parent1", Collections.emptyMap(), null, allState, restfulMockStatefulMeta));
+
+        // Assertions
+        Assert.assertTrue(allState.stream().allMatch(r -> r instanceof CompactStatefulRecord));
+        Assert.assertEquals("[{\"id\":\"1\",\"name\":\"Robert\"},{\"id\":\"2\",\"name\":\"Sally\",\"age\":40}]", body);
+        Assert.assertEquals(statefulQuotaServiceImpl.estimateBytes(allState.get(0)) + statefulQuotaServiceImpl.estimateBytes(allState.get(1)),
+                statefulQuotaServiceImpl.getStats("parent1").getEstimatedBytes());
+    }
+
+    @Test
+    public void compactStorage_restoredRecordsKeyed_Test() {
+
+        // Setup
+        final List<Map<String, Object>> restored = new ArrayList<>();
+        restored.add(GeneralUtils.deserialiseJson("{\"id\":\"1\",\"name\":\"Bob\"}"));
+
+        final StatefulPersistenceService statefulPersistenceService = Mockito.mock(StatefulPersistenceService.class);
+        Mockito.when(statefulPersistenceService.loadAll()).thenReturn(Collections.singletonMap("parent1", restored));
+        ReflectionTestUtils.setField(statefulServiceImpl, "statefulPersistenceService", statefulPersistenceService);
+        ReflectionTestUtils.setField(statefulServiceImpl, "storageModeName", "compact");
+
+        final RestfulMockDAO restfulMockDAO = Mockito.mock(RestfulMockDAO.class);
+        Mockito.when(restfulMockDAO.findByExtId("parent1")).thenReturn(buildStatefulParent("parent1"));
+        ReflectionTestUtils.setField(statefulServiceImpl, "restfulMockDAO", restfulMockDAO);
+
+        statefulServiceImpl.after();
+
+        final CompactStatefulRecord restoredRecord = (CompactStatefulRecord) restored.get(0);
+        final long restoredBytes = statefulQuotaServiceImpl.getStats("parent1").getEstimatedBytes();
+
+        // Test
+        final List<Map<String, Object>> allState = statefulServiceImpl.loadStateForMock(buildStatefulParent("parent1"));
+
+        // Assertions
+        Assert.assertNull(restoredRecord.getId());
+        Assert.assertEquals("1", ((CompactStatefulRecord) allState.get(0)).getId());
+        Assert.assertEquals(restoredBytes + statefulQuotaServiceImpl.estimateBytes("1"), statefulQuotaServiceImpl.getStats("parent1").getEstimatedBytes());
+    }
+
+    @Test
+    public void shardedStorage_Test() throws IOException {
+
+        // Setup
+        ReflectionTestUtils.setField(statefulServiceImpl, "shardCount", 4);
+
+        final RestfulMock parent = buildStatefulParent("parent1");
+        parent.getRestfulMockStatefulMeta().setInitialResponseBody("[{\"id\":\"1\",\"name\":\"Bob\"},{\"id\":\"2\",\"name\":\"Sally\"}]");
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = parent.getRestfulMockStatefulMeta();
+        final List<Map<String, Object>> allState = statefulServiceImpl.loadStateForMock(parent);
+
+        // Test
+        for (int i = 3; i <= 10; i++) {
+            statefulServiceImpl.handlePost("parent1", "{\"id\":\"" + i + "\"}", allState, restfulMockStatefulMeta);
+        }
+
+        final StatefulServiceImpl.StatefulResponse duplicate = statefulServiceImpl.handlePost("parent1", "{\"id\":\"3\"}", allState, restfulMockStatefulMeta);
+        statefulServiceImpl.handlePut("1", "parent1", "{\"id\":\"1\",\"name\":\"Robert\"}", allState, restfulMockStatefulMeta);
+        statefulServiceImpl.handlePatch("2", "parent1", "{\"op\":\"add\",\"path\":\"/age\",\"value\":40}", allState, restfulMockStatefulMeta);
+        final StatefulServiceImpl.StatefulResponse deleted = statefulServiceImpl.handleDelete("5", "parent1", allState, restfulMockStatefulMeta);
+        final StatefulServiceImpl.StatefulResponse notFound = statefulServiceImpl.handleDelete("5", "parent1", allState, restfulMockStatefulMeta);
+
+        final String body = writeBody(statefulServiceImpl.handleGet(null, "parent1", Collections.emptyMap(), null, allState, restfulMockStatefulMeta));
+        final String single = writeBody(statefulServiceImpl.handleGet("2", "parent1", Collections.emptyMap(), null, allState, restfulMockStatefulMeta));
+
+        // Assertions
+        Assert.assertTrue(allState instanceof ShardedStatefulRecords);
+        Assert.assertSame(allState, statefulServiceImpl.loadStateForMock(parent));
+        Assert.assertEquals(409, duplicate.getHttpResponseCode());
+        Assert.assertEquals(204, deleted.getHttpResponseCode());
+        Assert.assertEquals(404, notFound.getHttpResponseCode());
+        Assert.assertEquals("[{\"id\":\"1\",\"name\":\"Robert\"},{\"id\":\"2\",\"name\":\"Sally\",\"age\":40},"
+                + "{\"id\":\"3\"},{\"id\":\"4\"},{\"id\":\"6\"},{\"id\":\"7\"},{\"id\":\"8\"},{\"id\":\"9\"},{\"id\":\"10\"}]", body);
+        Assert.assertEquals("{\"id\":\"2\",\"name\":\"Sally\",\"age\":40}", single);
+        Assert.assertEquals(9, statefulQuotaServiceImpl.getStats("parent1").getRecords());
+    }
+
+    @Test
+    public void handlePatch_idChangeRejected_Test() {
+
+        // Setup
+        ReflectionTestUtils.setField(statefulServiceImpl, "shardCount", 4);
+
+        final RestfulMock parent = buildStatefulParent("parent1");
+        parent.getRestfulMockStatefulMeta().setInitialResponseBody("[{\"id\":\"1\",\"name\":\"Bob\"}]");
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = parent.getRestfulMockStatefulMeta();
+        final List<Map<String, Object>> allState = statefulServiceImpl.loadStateForMock(parent);
+
+        // Test & Assertions
+        for (String patch : Arrays.asList("{\"op\":\"replace\",\"path\":\"/id\",\"value\":\"2\"}",
+                                          "{\"op\":\"remove\",\"path\":\"/id\"}",
+                                          "{\"op\":\"move\",\"from\":\"/name\",\"path\":\"/id\"}")) {
+            try {
+                statefulServiceImpl.handlePatch("1", "parent1", patch, allState, restfulMockStatefulMeta);
+                Assert.fail("Expected the PATCH to fail: " + patch);
+            } catch (RuntimeException ex) {
+                Assert.assertEquals(StatefulServiceImpl.PATCHED_ID_MSG, ex.getMessage());
+                Assert.assertEquals(400, ReflectionTestUtils.getField(ex, "status"));
+            }
+        }
+
+        final StatefulServiceImpl.StatefulResponse unchanged = statefulServiceImpl.handlePatch("1", "parent1",
+                "{\"op\":\"replace\",\"path\":\"/id\",\"value\":\"1\"}", allState, restfulMockStatefulMeta);
+
+        Assert.assertEquals(204, unchanged.getHttpResponseCode());
+        Assert.assertEquals("Bob", ((ShardedStatefulRecords) allState).get("1").get("name"));
+        Assert.assertNull(((ShardedStatefulRecords) allState).get("2"));
+    }
+
+    @Test
+    public void after_journalOfDeletedMockDiscarded_Test() {
+
+        // Setup
+        final Map<String, List<Map<String, Object>>> restored = new HashMap<>();
+        restored.put("parent1", new ArrayList<>());
+        restored.get("parent1").add(GeneralUtils.deserialiseJson("{\"id\":\"1\",\"name\":\"Bob\"}"));
+        restored.put("deleted1", new ArrayList<>());
+        restored.get("deleted1").add(GeneralUtils.deserialiseJson("{\"id\":\"2\",\"name\":\"Sally\"}"));
+
+        final StatefulPersistenceService statefulPersistenceService = Mockito.mock(StatefulPersistenceService.class);
+        Mockito.when(statefulPersistenceService.loadAll()).thenReturn(restored);
+        ReflectionTestUtils.setField(statefulServiceImpl, "statefulPersistenceService", statefulPersistenceService);
+        ReflectionTestUtils.setField(statefulServiceImpl, "storageModeName", "object");
+
+        final RestfulMockDAO restfulMockDAO = Mockito.mock(RestfulMockDAO.class);
+        Mockito.when(restfulMockDAO.findByExtId("parent1")).thenReturn(buildStatefulParent("parent1"));
+        ReflectionTestUtils.setField(statefulServiceImpl, "restfulMockDAO", restfulMockDAO);
+
+        // Test
+        statefulServiceImpl.after();
+
+        // Assertions
+        Mockito.verify(statefulPersistenceService).discard("deleted1");
+        Mockito.verify(statefulPersistenceService, Mockito.never()).discard("parent1");
+        Assert.assertEquals(1, statefulQuotaServiceImpl.getStats("parent1").getRecords());
+        Assert.assertEquals(0, statefulQuotaServiceImpl.getStats("deleted1").getRecords());
+    }
+
+    private RestfulMock buildStatefulParent(final String extId) {
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = new RestfulMockStatefulMeta();
+        restfulMockStatefulMeta.setIdFieldName("id");
+
+        final RestfulMock parent = new RestfulMock();
+        parent.setExtId(extId);
+        parent.setRestfulMockStatefulMeta(restfulMockStatefulMeta);
+
+        return parent;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> seedState(final String parentExtId, final String json) {
+
+        final List<Map<String, Object>> allState = GeneralUtils.deserialiseJson(json,
+                new TypeReference<List<Map<String, Object>>>() {});
+
+        ((Map<String, List<Map<String, Object>>>) ReflectionTestUtils.getField(statefulServiceImpl, "state")).put(parentExtId, allState);
+        statefulQuotaServiceImpl.track(parentExtId, allState);
+
+        return allState;
+    }
+
+    private String writeBody(final StatefulServiceImpl.StatefulResponse response) throws IOException {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBodyWriter().write(out);
+
+        return out.toString("UTF-8");
+    }
+
 }
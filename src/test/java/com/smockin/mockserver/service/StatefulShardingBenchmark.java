@@ -0,0 +1,134 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.admin.persistence.entity.RestfulMock;
+import com.smockin.admin.persistence.entity.RestfulMockStatefulMeta;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares write throughput against a single stateful resource held as one list against the same resource split across shards
+ * (smockin.stateful.shards), from 1 up to 16 writer threads. Each writer mixes POSTs of new records with PUTs to existing ones.
+ *
+ * This is not run as part of the test suite. Run its main method with the test classpath on a machine with several cores,
+ * optionally passing the number of shards (16 by default) and the seconds to run each measurement for (3 by default).
+ */
+public class StatefulShardingBenchmark {
+
+    private static final int[] THREADS = { 1, 2, 4, 8, 16 };
+    private static final int SEEDED_RECORDS = 1000;
+
+    public static void main(final String[] args) throws Exception {
+
+        final int shards = (args.length > 0) ? Integer.parseInt(args[0]) : 16;
+        final int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+
+        System.out.println(String.format("%-8s %14s %14s", "threads", "list ops/s", shards + " shards ops/s"));
+
+        // Warm up
+        measure(1, 4, 1);
+        measure(shards, 4, 1);
+
+        for (int threads : THREADS) {
+            System.out.println(String.format("%-8d %,14d %,14d", threads, measure(1, threads, seconds), measure(shards, threads, seconds)));
+        }
+    }
+
+    private static long measure(final int shards, final int threads, final int seconds) throws Exception {
+
+        final StatefulServiceImpl statefulServiceImpl = buildService(shards);
+        final RestfulMock parent = buildStatefulParent();
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = parent.getRestfulMockStatefulMeta();
+
+        final StringBuilder initialBody = new StringBuilder("[");
+
+        for (int i = 0; i < SEEDED_RECORDS; i++) {
+            initialBody.append((i > 0) ? "," : "").append(buildRecord("seed-" + i, 0));
+        }
+
+        restfulMockStatefulMeta.setInitialResponseBody(initialBody.append("]").toString());
+
+        statefulServiceImpl.loadStateForMock(parent);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final AtomicInteger postSequence = new AtomicInteger();
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final List<Future<Long>> results = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+
+            results.add(executor.submit(() -> {
+
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                long ops = 0;
+
+                while (System.nanoTime() < end) {
+
+                    final List<Map<String, Object>> records = statefulServiceImpl.loadStateForMock(parent);
+
+                    if (random.nextInt(4) == 0) {
+                        statefulServiceImpl.handlePost(parent.getExtId(), buildRecord("post-" + postSequence.incrementAndGet(), 0), records, restfulMockStatefulMeta);
+                    } else {
+                        final String id = "seed-" + random.nextInt(SEEDED_RECORDS);
+                        statefulServiceImpl.handlePut(id, parent.getExtId(), buildRecord(id, random.nextInt()), records, restfulMockStatefulMeta);
+                    }
+
+                    ops++;
+                }
+
+                return ops;
+            }));
+        }
+
+        long totalOps = 0;
+
+        for (Future<Long> result : results) {
+            totalOps += result.get();
+        }
+
+        executor.shutdown();
+
+        return totalOps / seconds;
+    }
+
+    private static StatefulServiceImpl buildService(final int shards) {
+
+        final StatefulServiceImpl statefulServiceImpl = new StatefulServiceImpl();
+
+        final StatefulQuotaServiceImpl statefulQuotaServiceImpl = new StatefulQuotaServiceImpl();
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "policyName", "reject");
+        ReflectionTestUtils.setField(statefulQuotaServiceImpl, "rejectStatus", 507);
+        statefulQuotaServiceImpl.after();
+
+        ReflectionTestUtils.setField(statefulServiceImpl, "statefulQuotaService", statefulQuotaServiceImpl);
+        ReflectionTestUtils.setField(statefulServiceImpl, "statefulPersistenceService", new StatefulPersistenceServiceImpl());
+        ReflectionTestUtils.setField(statefulServiceImpl, "shardCount", shards);
+
+        return statefulServiceImpl;
+    }
+
+    private static RestfulMock buildStatefulParent() {
+
+        final RestfulMockStatefulMeta restfulMockStatefulMeta = new RestfulMockStatefulMeta();
+        restfulMockStatefulMeta.setIdFieldName("id");
+
+        final RestfulMock parent = new RestfulMock();
+        parent.setExtId("benchmark");
+        parent.setRestfulMockStatefulMeta(restfulMockStatefulMeta);
+
+        return parent;
+    }
+
+    private static String buildRecord(final String id, final int version) {
+        return "{\"id\":\"" + id + "\",\"name\":\"Customer " + id + "\",\"version\":" + version + ",\"tags\":[\"a\",\"b\"]}";
+    }
+
+}
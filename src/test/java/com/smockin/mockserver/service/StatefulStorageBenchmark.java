@@ -0,0 +1,131 @@
+package com.smockin.mockserver.service;
+
+import com.smockin.utils.GeneralUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the heap taken up by stateful records held as parsed JSON (OBJECT storage) against compact UTF-8 records
+ * (COMPACT storage), along with the time to look a record up by id and to serialise them all.
+ *
+ * This is not run as part of the test suite. Run its main method with the test classpath and a heap large enough
+ * for the fixture (e.g. -Xmx4g), optionally passing the number of records (1,000,000 by default).
+ */
+public class StatefulStorageBenchmark {
+
+    private static final int DEFAULT_RECORDS = 1000000;
+    private static final int LOOKUPS = 100;
+
+    public static void main(final String[] args) throws IOException {
+
+        final int recordCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_RECORDS;
+
+        long rawJsonBytes = 0;
+
+        for (int i = 0; i < recordCount; i++) {
+            rawJsonBytes += GeneralUtils.serialiseJsonToBytes(buildRecord(i)).length;
+        }
+
+        System.out.println(String.format("%-10s %,14d bytes of JSON", "fixture", rawJsonBytes));
+
+        measure("object", recordCount, false);
+        measure("compact", recordCount, true);
+    }
+
+    private static void measure(final String label, final int recordCount, final boolean compact) throws IOException {
+
+        final long heapBefore = usedHeap();
+        final List<Map<String, Object>> records = new ArrayList<>(recordCount);
+
+        for (int i = 0; i < recordCount; i++) {
+
+            // Parsed from JSON, as records posted to a stateful mock are
+            final byte[] json = GeneralUtils.serialiseJsonToBytes(buildRecord(i));
+            final Map<String, Object> record = GeneralUtils.deserialiseJson(new String(json, "UTF-8"));
+
+            records.add((compact) ? CompactStatefulRecord.of(record, "id") : record);
+        }
+
+        final long retainedBytes = usedHeap() - heapBefore;
+
+        final long lookupStart = System.nanoTime();
+
+        for (int l = 0; l < LOOKUPS; l++) {
+
+            final String id = String.valueOf((recordCount / LOOKUPS) * l);
+
+            for (Map<String, Object> record : records) {
+                if (id.equals(record.get("id"))) {
+                    break;
+                }
+            }
+        }
+
+        final long lookupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lookupStart);
+
+        final CountingOutputStream out = new CountingOutputStream();
+        final long serialiseStart = System.nanoTime();
+
+        new StatefulServiceImpl().writeJsonArray(records, out);
+
+        final long serialiseMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - serialiseStart);
+
+        System.out.println(String.format("%-10s %,14d bytes retained (%,d per record), %,6d ms for %d id look ups, %,6d ms to serialise %,d bytes",
+                label, retainedBytes, retainedBytes / Math.max(1, recordCount), lookupMillis, LOOKUPS, serialiseMillis, out.count));
+    }
+
+    private static Map<String, Object> buildRecord(final int i) {
+
+        final Map<String, Object> address = new LinkedHashMap<>();
+        address.put("line1", i + " High Street");
+        address.put("city", "London");
+        address.put("postcode", "N1 " + (i % 10) + "AB");
+
+        final Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", String.valueOf(i));
+        record.put("firstName", "First" + i);
+        record.put("lastName", "Last" + i);
+        record.put("age", 18 + (i % 60));
+        record.put("active", (i % 2) == 0);
+        record.put("balance", i * 1.25);
+        record.put("tags", Arrays.asList("customer", "tier" + (i % 3)));
+        record.put("address", address);
+
+        return record;
+    }
+
+    private static long usedHeap() {
+
+        final Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(final int b) {
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            count += len;
+        }
+
+    }
+
+}
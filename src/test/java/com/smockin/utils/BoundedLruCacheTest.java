@@ -0,0 +1,77 @@
+package com.smockin.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BoundedLruCacheTest {
+
+    @Test
+    public void put_evictsLeastRecentlyUsedByWeight_Test() {
+
+        // Setup
+        final List<String> evicted = new ArrayList<>();
+        final BoundedLruCache<String, String> cache = new BoundedLruCache<>(10, 6, String::length, (k, v) -> evicted.add(k));
+
+        cache.put("a", "11");
+        cache.put("b", "22");
+        cache.put("c", "33");
+        cache.get("a");
+
+        // Test
+        cache.put("d", "44");
+
+        // Assertions
+        Assert.assertEquals(Arrays.asList("b"), evicted);
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(6, cache.weight());
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals("11", cache.get("a"));
+    }
+
+    @Test
+    public void put_evictsByEntries_Test() {
+
+        // Setup
+        final BoundedLruCache<String, String> cache = new BoundedLruCache<>(2);
+
+        // Test
+        cache.put("a", "1");
+        cache.put("b", "2");
+        final String replaced = cache.put("b", "3");
+        cache.put("c", "4");
+
+        // Assertions
+        Assert.assertEquals("2", replaced);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals("3", cache.get("b"));
+    }
+
+    @Test
+    public void remove_Test() {
+
+        // Setup
+        final BoundedLruCache<String, String> cache = new BoundedLruCache<>(10, 100, String::length);
+        cache.put("a", "111");
+        cache.put("b", "22");
+        cache.put("c", "3");
+
+        final List<String> removed = new ArrayList<>();
+
+        // Test
+        final boolean staleRemoved = cache.remove("a", new String("111"));
+        cache.remove("b");
+        cache.removeIf(v -> v.startsWith("3"), (k, v) -> removed.add(k));
+
+        // Assertions
+        Assert.assertFalse(staleRemoved);
+        Assert.assertEquals(Arrays.asList("c"), removed);
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(3, cache.weight());
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.smockin.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+public class CsvUtilsTest {
+
+    @Test
+    public void readRecord_quotedFields_Test() throws IOException {
+
+        // Setup
+        final CsvUtils.RecordReader reader = new CsvUtils.RecordReader(new StringReader(
+                "a,b\r\n"
+                + "\r\n"
+                + "\"x,y\",\"say \"\"hi\"\"\"\n"
+                + "\"multi\nline\",\n"
+                + "last"));
+
+        // Test & Assertions
+        Assert.assertEquals(Arrays.asList("a", "b"), reader.readRecord());
+        Assert.assertEquals(1, reader.getLineNumber());
+        Assert.assertEquals(Arrays.asList("x,y", "say \"hi\""), reader.readRecord());
+        Assert.assertEquals(3, reader.getLineNumber());
+        Assert.assertEquals(Arrays.asList("multi\nline", ""), reader.readRecord());
+        Assert.assertEquals(4, reader.getLineNumber());
+        Assert.assertEquals(Arrays.asList("last"), reader.readRecord());
+        Assert.assertEquals(6, reader.getLineNumber());
+        Assert.assertNull(reader.readRecord());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readRecord_unterminatedQuote_Test() throws IOException {
+
+        new CsvUtils.RecordReader(new StringReader("\"abc,def\n")).readRecord();
+    }
+
+    @Test
+    public void writeRecord_roundTrip_Test() throws IOException {
+
+        // Setup
+        final StringWriter writer = new StringWriter();
+
+        // Test
+        CsvUtils.writeRecord(writer, "plain", "a,b", "say \"hi\"", null);
+
+        // Assertions
+        Assert.assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\",\n", writer.toString());
+        Assert.assertEquals(Arrays.asList("plain", "a,b", "say \"hi\"", ""),
+                new CsvUtils.RecordReader(new StringReader(writer.toString())).readRecord());
+    }
+
+}